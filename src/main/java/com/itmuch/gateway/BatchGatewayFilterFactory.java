@@ -0,0 +1,99 @@
+package com.itmuch.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmuch.gateway.batch.BatchFilter;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 请求合并过滤器工厂 - 把并发的按 id 查询合并为一次批量请求，减少上游的请求数和连接数
+ *
+ *      filters:
+ *        - Batch=/users/{id}, /users
+ *      或
+ *        - name: Batch
+ *          args:
+ *            path: /users/{id}
+ *            batch-path: /users
+ *            ids-param: ids
+ *            max-batch: 32
+ *            max-wait: 500us
+ *
+ *  ~ 上游需要提供批量接口：GET {batch-path}?{ids-param}=1,2,3 ，返回 JSON 数组，每个元素的 {id-field} 字段是 id
+ *  ~ 每个路由一份独立的批次（按 apply() 创建），具体逻辑见 BatchFilter
+ *  ~ 没有指定 Order ，按在路由中的位置执行：放在 Jwt 、RequestRateLimiter 等需要逐个处理请求的过滤器之后；
+ *      path / batch-path 是本过滤器看到的请求路径（在 StripPrefix 等改写路径的过滤器之后时为改写后的路径）
+ */
+@Component
+public class BatchGatewayFilterFactory extends AbstractGatewayFilterFactory<BatchGatewayFilterFactory.Config> {
+
+    private final ObjectMapper objectMapper;
+
+    public BatchGatewayFilterFactory(ObjectMapper objectMapper) {
+        super(Config.class);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("path", "batchPath");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new BatchFilter(new BatchFilter.Settings(config.getPath(), config.getBatchPath(),
+                config.getIdsParam(), config.getIdField(), config.getMaxBatch(), config.getMaxWait(),
+                config.getKeyHeaders(), config.getCoalesceTimeout()), this.objectMapper);
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 单个查询的路径，用 {id} 表示 id
+         */
+        private String path = "/users/{id}";
+
+        /**
+         * 批量查询的路径
+         */
+        private String batchPath = "/users";
+
+        /**
+         * 批量查询中 id 列表（逗号分隔）的参数名
+         */
+        private String idsParam = "ids";
+
+        /**
+         * 批量响应中每个元素的 id 字段
+         */
+        private String idField = "id";
+
+        /**
+         * 一个批次最多包含的 id 数，凑满后立即发出
+         */
+        private int maxBatch = 32;
+
+        /**
+         * 第一个请求到达后最多等待的时间，到期后不论凑到多少个 id 都发出
+         */
+        private Duration maxWait = Duration.of(500, ChronoUnit.MICROS);
+
+        /**
+         * 取值不同的请求不会合并，批量请求使用 leader 的请求头
+         */
+        private List<String> keyHeaders = new ArrayList<>(Arrays.asList("Authorization"));
+
+        /**
+         * 等待批量结果的最长时间，超时后按原请求转发
+         */
+        private Duration coalesceTimeout = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,96 @@
+package com.itmuch.gateway;
+
+import com.itmuch.gateway.compression.CompressionFilter;
+import com.itmuch.gateway.compression.ContentEncoding;
+import com.itmuch.gateway.compression.DeflaterPool;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 响应压缩过滤器工厂 - 上游返回未压缩的 JSON 时，由网关按客户端的 Accept-Encoding 压缩
+ *
+ *      filters:
+ *        - Compress
+ *      或
+ *        - Compress=1024,5
+ *      或
+ *        - name: Compress
+ *          args:
+ *            min-size: 1024
+ *            level: 5
+ *            encodings: gzip,deflate
+ *            mime-types: application/json,text/*
+ *
+ *  ~ 具体逻辑见 CompressionFilter
+ *  ~ 同一压缩格式、同一压缩级别的路由共享一个 DeflaterPool
+ *  ~ 过滤器的 Order 在 ResponseCache 之前（-3）：缓存保存未压缩的响应，命中时同样按请求压缩
+ */
+@Component
+public class CompressGatewayFilterFactory extends AbstractGatewayFilterFactory<CompressGatewayFilterFactory.Config> {
+
+    private final Map<String, DeflaterPool> pools = new ConcurrentHashMap<>();
+
+    public CompressGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("minSize", "level");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<ContentEncoding> encodings = new ArrayList<>();
+        for (String encoding : config.getEncodings()) {
+            encodings.add(ContentEncoding.valueOf(encoding.trim().toUpperCase(Locale.ROOT)));
+        }
+        List<MediaType> mimeTypes = MediaType.parseMediaTypes(config.getMimeTypes());
+        CompressionFilter filter = new CompressionFilter(encoding -> pool(encoding, config),
+                encodings, config.getMinSize(), mimeTypes);
+        return new OrderedGatewayFilter(filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2);
+    }
+
+    private DeflaterPool pool(ContentEncoding encoding, Config config) {
+        return this.pools.computeIfAbsent(encoding + ":" + config.getLevel(), key -> new DeflaterPool(
+                config.getLevel(), encoding == ContentEncoding.GZIP, config.getMaxPooledPerThread()));
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 小于该字节数的响应不压缩（Content-Length 已知时）
+         */
+        private long minSize = 1024;
+
+        /**
+         * 压缩级别 1 ~ 9 ，级别越高 CPU 开销越大
+         */
+        private int level = 5;
+
+        /**
+         * 允许的压缩格式，按优先级排列
+         */
+        private List<String> encodings = new ArrayList<>(Arrays.asList("gzip", "deflate"));
+
+        private List<String> mimeTypes = new ArrayList<>(Arrays.asList(
+                "application/json", "application/javascript", "application/xml", "text/*"));
+
+        /**
+         * 每个线程最多缓存的空闲 Deflater 数量
+         */
+        private int maxPooledPerThread = 8;
+    }
+}
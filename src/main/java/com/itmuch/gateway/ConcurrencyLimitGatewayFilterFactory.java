@@ -0,0 +1,92 @@
+package com.itmuch.gateway;
+
+import com.itmuch.gateway.concurrency.ConcurrencyLimitFilter;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 自适应并发限制过滤器工厂 - 上游变慢时在网关快速拒绝多余的请求，而不是让它们在连接池里排队
+ *
+ *      filters:
+ *        - ConcurrencyLimit
+ *      或
+ *        - ConcurrencyLimit=20,500
+ *      或
+ *        - name: ConcurrencyLimit
+ *          args:
+ *            initial-limit: 20
+ *            max-limit: 500
+ *            max-queue: 50
+ *            max-wait: 50ms
+ *
+ *  ~ 具体逻辑见 ConcurrencyLimitFilter ；每个路由一个独立的上限
+ *  ~ 建议放在其他过滤器之前，被拒绝的请求不再经过后面的过滤器
+ */
+@Component
+public class ConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    public ConcurrencyLimitGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("initialLimit", "maxLimit");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new ConcurrencyLimitFilter(new ConcurrencyLimitFilter.Settings(
+                config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit(), config.getSmoothing(),
+                config.getTolerance(), config.getQueueSize(), config.getWindow(), config.getMaxQueue(),
+                config.getMaxWait(), config.getPriorityHeader()));
+    }
+
+    @Data
+    public static class Config {
+        private int initialLimit = 20;
+
+        private int minLimit = 4;
+
+        private int maxLimit = 500;
+
+        /**
+         * 每个样本对上限的影响程度，越小越平滑
+         */
+        private double smoothing = 0.2;
+
+        /**
+         * RTT 超过长期平均的多少倍才开始降低上限
+         */
+        private double tolerance = 1.5;
+
+        /**
+         * 延迟正常时上限的增长量
+         */
+        private int queueSize = 4;
+
+        /**
+         * 长期平均 RTT 的样本窗口
+         */
+        private int window = 600;
+
+        /**
+         * 超过上限时最多排队的请求数，0 表示不排队直接拒绝
+         */
+        private int maxQueue = 50;
+
+        private Duration maxWait = Duration.ofMillis(50);
+
+        /**
+         * 排队优先级请求头，取值 high / normal / low
+         */
+        private String priorityHeader = "X-Priority";
+    }
+}
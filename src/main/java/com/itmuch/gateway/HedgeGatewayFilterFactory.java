@@ -0,0 +1,111 @@
+package com.itmuch.gateway;
+
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import com.itmuch.gateway.hedge.HedgingFilter;
+import com.itmuch.gateway.loadbalancer.AdaptiveLoadBalancer;
+import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.LoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * 请求对冲过滤器工厂 - 某个实例卡住（例如 GC 停顿）时，不让整个请求跟着等
+ *
+ * 只适用于 lb:// 路由上的幂等接口：
+ *      filters:
+ *        - Hedge
+ *      或
+ *        - name: Hedge
+ *          args:
+ *            percentile: 95
+ *            max-delay: 500ms
+ *            budget-ratio: 0.1
+ *            timeout: 3s
+ *
+ *  ~ 具体逻辑见 HedgingFilter ；实例列表来自 ServiceInstanceCache（gateway.load-balancer.adaptive.enabled=false 时
+ *      对冲请求在其他实例中随机选择）
+ *  ~ 过滤器的 Order 紧跟 LoadBalancerClientFilter ，此时第一次请求的实例已经选好
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private final ObjectProvider<ServiceInstanceCache> instanceCache;
+
+    private final ObjectProvider<AdaptiveLoadBalancer> balancer;
+
+    public HedgeGatewayFilterFactory(ObjectProvider<ServiceInstanceCache> instanceCache,
+                                     ObjectProvider<AdaptiveLoadBalancer> balancer) {
+        super(Config.class);
+        this.instanceCache = instanceCache;
+        this.balancer = balancer;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("percentile", "maxDelay");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        HedgingFilter.Settings settings = new HedgingFilter.Settings(
+                config.getMethods().isEmpty() ? Collections.emptySet() : EnumSet.copyOf(config.getMethods()),
+                config.getPercentile(), config.getInitialDelay(), config.getMinDelay(), config.getMaxDelay(),
+                config.getBudgetRatio(), config.getBudgetMinPerSecond(), config.getDeadlineHeader(),
+                config.getTimeout());
+        HedgingFilter filter = new HedgingFilter(settings, this.instanceCache.getIfAvailable(),
+                this.balancer.getIfAvailable());
+        return new OrderedGatewayFilter(filter, LoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1);
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 允许对冲的请求方法，必须是幂等的
+         */
+        private List<HttpMethod> methods = Arrays.asList(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+        /**
+         * 对冲延迟取首次响应耗时的哪个分位数
+         */
+        private double percentile = 95.0;
+
+        /**
+         * 样本不足时的对冲延迟
+         */
+        private Duration initialDelay = Duration.ofMillis(50);
+
+        private Duration minDelay = Duration.ofMillis(5);
+
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        /**
+         * 对冲 / 重试最多占原始请求的比例
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * 流量很小时每秒至少允许的对冲 / 重试次数
+         */
+        private double budgetMinPerSecond = 5.0;
+
+        /**
+         * 传递剩余时间（毫秒）的请求头，为空时不传递
+         */
+        private String deadlineHeader = "X-Request-Deadline-Ms";
+
+        /**
+         * 客户端没有传入截止时间时使用的超时，为空表示不限制
+         */
+        private Duration timeout;
+    }
+}
@@ -0,0 +1,163 @@
+package com.itmuch.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmuch.gateway.jwt.JwksSource;
+import com.itmuch.gateway.jwt.JwsAlgorithm;
+import com.itmuch.gateway.jwt.JwtAuthenticationFilter;
+import com.itmuch.gateway.jwt.JwtVerifier;
+import com.itmuch.gateway.jwt.VerifiedTokenCache;
+import lombok.Data;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JWT 认证过滤器工厂 - 在网关统一校验令牌签名，下游服务不再各自校验
+ *
+ *      filters:
+ *        - Jwt=https://auth.itmuch.com/.well-known/jwks.json
+ *      或
+ *        - name: Jwt
+ *          args:
+ *            jwks-uri: https://auth.itmuch.com/.well-known/jwks.json
+ *            issuer: https://auth.itmuch.com
+ *            audience: gateway
+ *            claim-headers: sub:X-User-Id,roles:X-User-Roles
+ *            cache-ttl: 5m
+ *
+ *  ~ 具体逻辑见 JwtAuthenticationFilter ；claim-headers 的格式为 claim:请求头
+ *  ~ 同一个 jwks-uri 的路由共享一个 JwksSource（刷新间隔以第一个路由的配置为准）；校验结果的缓存每个路由一份，
+ *      因为 issuer / audience / 转发的 claim 可能不同
+ *  ~ 放在路由过滤器的第一个，未认证的请求不占用限流、并发配额
+ */
+@Component
+public class JwtGatewayFilterFactory extends AbstractGatewayFilterFactory<JwtGatewayFilterFactory.Config>
+        implements DisposableBean {
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, JwksSource> sources = new ConcurrentHashMap<>();
+
+    public JwtGatewayFilterFactory(ObjectMapper objectMapper) {
+        super(Config.class);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("jwksUri", "issuer");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Assert.hasText(config.getJwksUri(), "Jwt filter requires jwks-uri");
+        Set<JwsAlgorithm> algorithms = EnumSet.noneOf(JwsAlgorithm.class);
+        for (String algorithm : config.getAlgorithms()) {
+            JwsAlgorithm parsed = JwsAlgorithm.of(algorithm.trim().toUpperCase(Locale.ROOT));
+            Assert.notNull(parsed, "Unsupported JWS algorithm: " + algorithm);
+            algorithms.add(parsed);
+        }
+        String[] claims = new String[config.getClaimHeaders().size()];
+        String[] headers = new String[claims.length];
+        for (int i = 0; i < claims.length; i++) {
+            String[] mapping = config.getClaimHeaders().get(i).split(":", 2);
+            Assert.isTrue(mapping.length == 2, "claim-headers entries must be claim:Header");
+            claims[i] = mapping[0].trim();
+            headers[i] = mapping[1].trim();
+        }
+
+        JwtVerifier verifier = new JwtVerifier(this.objectMapper, algorithms,
+                StringUtils.hasText(config.getIssuer()) ? config.getIssuer() : null,
+                StringUtils.hasText(config.getAudience()) ? config.getAudience() : null,
+                config.getClockSkew().getSeconds(), config.isRequireExpiry(), claims);
+        VerifiedTokenCache cache = new VerifiedTokenCache(verifier, config.getCacheSize(), config.getCacheTtl());
+        JwksSource source = this.sources.computeIfAbsent(config.getJwksUri(), location -> {
+            JwksSource created = new JwksSource(location, config.getRefreshInterval(),
+                    config.getMinRefreshInterval(), this.objectMapper);
+            created.start();
+            return created;
+        });
+        return new JwtAuthenticationFilter(source, cache, headers, config.getKeysTimeout(), config.isStripToken());
+    }
+
+    @Override
+    public void destroy() {
+        this.sources.values().forEach(JwksSource::close);
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * JWKS 地址：http(s):// 、file: 或 classpath:
+         */
+        private String jwksUri;
+
+        /**
+         * 期望的 iss ，为空时不检查
+         */
+        private String issuer;
+
+        /**
+         * 期望的 aud ，为空时不检查
+         */
+        private String audience;
+
+        private List<String> algorithms = new ArrayList<>(Arrays.asList("RS256", "RS384", "RS512",
+                "ES256", "ES384", "ES512"));
+
+        /**
+         * 转发给下游的 claim ，格式 claim:请求头
+         */
+        private List<String> claimHeaders = new ArrayList<>(Arrays.asList("sub:X-User-Id"));
+
+        /**
+         * 检查 exp / nbf 时允许的时钟偏差
+         */
+        private Duration clockSkew = Duration.ofSeconds(30);
+
+        /**
+         * 拒绝没有 exp 的令牌
+         */
+        private boolean requireExpiry = true;
+
+        /**
+         * 校验结果缓存的条目上限
+         */
+        private long cacheSize = 10000;
+
+        /**
+         * 校验结果最多缓存多久（令牌的 exp 更早时以 exp 为准）
+         */
+        private Duration cacheTtl = Duration.ofMinutes(5);
+
+        private Duration refreshInterval = Duration.ofMinutes(5);
+
+        /**
+         * 遇到未知 kid 时按需刷新 JWKS 的最小间隔
+         */
+        private Duration minRefreshInterval = Duration.ofSeconds(30);
+
+        /**
+         * 启动后 JWKS 还没有加载成功时，请求最多等待多久
+         */
+        private Duration keysTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 是否删除转发给下游的 Authorization 请求头
+         */
+        private boolean stripToken = false;
+    }
+}
@@ -1,13 +1,30 @@
 package com.itmuch.gateway;
 
+import com.itmuch.gateway.accesslog.AccessLogRecord;
+import com.itmuch.gateway.accesslog.AsyncAccessLogger;
+import com.itmuch.gateway.config.PreLogProperties;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AbstractNameValueGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
 /**
  * 编写一个自定义过滤器工厂 - 实现功能：记录打印日志
  *
@@ -15,12 +32,42 @@ import org.springframework.web.server.ServerWebExchange;
  * PreLog 与 application.yml 中的配置
  *      spring.cloud.gateway.routes.filters.-PreLog保持一致
  * 继承 AbstractNameValueGatewayFilterFactory ，实现 apply() 方法
+ *
+ * 生产模式（gateway.pre-log.mode=ASYNC）：
+ *      ~ 不再 mutate request/exchange（原来的 mutate().build() 没有修改任何内容，却多了两次对象分配和装饰层）
+ *      ~ 请求结束后生成一条结构化记录（路由、方法、路径、状态码、耗时、字节数），放入无锁环形缓冲区，由后台线程输出
+ *      ~ 支持按路由采样：- PreLog=a,b,0.1 表示只记录 10% 的请求
+ *      ~ 缓冲区满时丢弃记录并计数，不会阻塞 Netty 线程
+ * 因为多了采样率参数，这里改为继承 AbstractGatewayFilterFactory ，配置类扩展自 NameValueConfig ，原有的 - PreLog=a,b 写法不变
  */
 @Slf4j
 @Component
-public class PreLogGatewayFilterFactory extends AbstractNameValueGatewayFilterFactory {
+public class PreLogGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<PreLogGatewayFilterFactory.Config> implements DisposableBean {
+
+    private final PreLogProperties properties;
+
+    private final AsyncAccessLogger accessLogger;
+
+    public PreLogGatewayFilterFactory(PreLogProperties properties) {
+        super(Config.class);
+        this.properties = properties;
+        this.accessLogger = properties.getMode() == PreLogProperties.Mode.ASYNC
+                ? new AsyncAccessLogger(properties.getBufferSize())
+                : null;
+    }
+
     @Override
-    public GatewayFilter apply(NameValueConfig config) {
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList(NAME_KEY, VALUE_KEY, "sampleRate");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+
+        if (this.accessLogger != null) {
+            return asyncFilter(config);
+        }
 
         // 使用 lambda 表达式方式实现 匿名内部类 逻辑
         return ((exchange, chain) -> {
@@ -28,18 +75,8 @@ public class PreLogGatewayFilterFactory extends AbstractNameValueGatewayFilterFa
 
             log.info("请求进来了...{},{}", config.getName(), config.getValue());
 
-            // 获取 request , 修改请求 ，获取修改后的请求 （测试中没有修改）
-            ServerHttpRequest modifiedRequest = exchange.getRequest()
-                    .mutate()
-                    .build();
-
-            // 修改 exchange
-            ServerWebExchange modifiedExchange = exchange.mutate()
-                    .request(modifiedRequest)
-                    .build();
-
-            // 交给下一个过滤器
-            return chain.filter(modifiedExchange);
+            // 没有修改 request ，直接交给下一个过滤器，不需要 exchange.getRequest().mutate() / exchange.mutate()
+            return chain.filter(exchange);
         });
 
         /** 实现自定义 Filter 控制 Order */
@@ -66,4 +103,65 @@ public class PreLogGatewayFilterFactory extends AbstractNameValueGatewayFilterFa
         return new OrderedGatewayFilter(filter, 10000);*/
 
     }
+
+    /**
+     * 生产模式：采样 + 结构化记录 + 异步输出
+     */
+    private GatewayFilter asyncFilter(Config config) {
+        double sampleRate = config.getSampleRate() != null ? config.getSampleRate() : this.properties.getSampleRate();
+        return (exchange, chain) -> {
+            if (sampleRate < 1.0D && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return chain.filter(exchange);
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doFinally(signal -> this.accessLogger.submit(record(exchange, config, start)));
+        };
+    }
+
+    private static AccessLogRecord record(ServerWebExchange exchange, Config config, long start) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        HttpStatus status = response.getStatusCode();
+        return new AccessLogRecord(
+                route == null ? null : route.getId(),
+                request.getMethodValue(),
+                request.getPath().value(),
+                status == null ? 0 : status.value(),
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start),
+                response.getHeaders().getContentLength(),
+                config.getName(),
+                config.getValue());
+    }
+
+    /**
+     * 当前被丢弃的日志记录数（缓冲区满）
+     */
+    public long getDroppedRecords() {
+        return this.accessLogger == null ? 0L : this.accessLogger.getDropped();
+    }
+
+    /**
+     * 已经输出的日志记录数
+     */
+    public long getWrittenRecords() {
+        return this.accessLogger == null ? 0L : this.accessLogger.getWritten();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (this.accessLogger != null) {
+            this.accessLogger.destroy();
+        }
+    }
+
+    /**
+     * 在 name/value 之外增加采样率，不配置时使用 gateway.pre-log.sample-rate
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class Config extends AbstractNameValueGatewayFilterFactory.NameValueConfig {
+        private Double sampleRate;
+    }
 }
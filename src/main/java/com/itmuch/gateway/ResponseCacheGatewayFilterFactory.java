@@ -0,0 +1,86 @@
+package com.itmuch.gateway;
+
+import com.itmuch.gateway.cache.ResponseCacheFilter;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 本地响应缓存过滤器工厂 - 对读多写少的接口在网关层直接返回缓存的响应
+ *
+ * 配置方式与 PreLog 相同：
+ *      filters:
+ *        - ResponseCache=30s
+ *      或
+ *        - name: ResponseCache
+ *          args:
+ *            ttl: 30s
+ *            headers: Accept-Language,X-User-Id
+ *            max-size-bytes: 67108864
+ *            off-heap: true
+ *
+ *  ~ 每个路由一份独立的缓存（按 apply() 创建），具体逻辑见 ResponseCacheFilter
+ *  ~ 过滤器的 Order 为 NettyWriteResponseFilter 之前（-2），与 ModifyResponseBody 相同，才能拿到上游的响应体；
+ *      缓存命中时直接写出响应，Order 更大的路由过滤器不会再执行
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    public ResponseCacheGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("ttl", "maxSizeBytes");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        ResponseCacheFilter filter = new ResponseCacheFilter(config.getTtl(), config.getMaxSizeBytes(),
+                config.getMaxBodyBytes(), config.getHeaders(), config.isOffHeap(), config.getCoalesceTimeout());
+        return new OrderedGatewayFilter(filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 默认有效期，响应中有 Cache-Control: max-age 时以响应为准
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+
+        /**
+         * 单个路由缓存的总字节数上限
+         */
+        private long maxSizeBytes = 64L * 1024 * 1024;
+
+        /**
+         * 超过该大小的响应体不缓存
+         */
+        private long maxBodyBytes = 1024L * 1024;
+
+        /**
+         * 参与缓存 key 的请求头
+         */
+        private List<String> headers = new ArrayList<>();
+
+        /**
+         * 响应体是否存放在堆外内存
+         */
+        private boolean offHeap;
+
+        /**
+         * 并发未命中时，等待同 key 回源结果的最长时间
+         */
+        private Duration coalesceTimeout = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,78 @@
+package com.itmuch.gateway;
+
+import com.itmuch.gateway.body.StreamingBodyFilter;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式请求体检查过滤器工厂 - 限制请求体大小、校验 CRC32 、提取 JSON 字段，不在内存中缓存整个请求体
+ *
+ * 与内置的 RequestSize 相比，RequestSize 只检查 Content-Length ，分块传输的请求体不受限制：
+ *      filters:
+ *        - StreamingBody=10485760
+ *      或
+ *        - name: StreamingBody
+ *          args:
+ *            max-size: 10485760
+ *            fields: userId,order.tenantId
+ *            headers.[order.tenantId]: X-Tenant-Id
+ *            checksum-header: X-Content-CRC32
+ *
+ *  ~ 具体逻辑见 StreamingBodyFilter
+ *  ~ 要让限流使用提取到的字段（BodyFieldKeyResolver），需要把 StreamingBody 配置在 RequestRateLimiter 之前
+ */
+@Component
+public class StreamingBodyGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<StreamingBodyGatewayFilterFactory.Config> {
+
+    public StreamingBodyGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("maxSize", "fields");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new StreamingBodyFilter(config.getMaxSize(), config.getFields(), config.getInspectBytes(),
+                config.getHeaders(), config.getChecksumHeader());
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 请求体字节数上限，与 RequestSize 的默认值相同
+         */
+        private long maxSize = 5000000L;
+
+        /**
+         * 需要从 JSON 请求体中提取的字段，点号表示嵌套对象
+         */
+        private List<String> fields = new ArrayList<>();
+
+        /**
+         * 提取字段时最多预读的字节数
+         */
+        private long inspectBytes = 16L * 1024;
+
+        /**
+         * 字段 -> 转发给上游的请求头
+         */
+        private Map<String, String> headers = new LinkedHashMap<>();
+
+        /**
+         * 携带 CRC32 校验和的请求头，为空时不校验
+         */
+        private String checksumHeader;
+    }
+}
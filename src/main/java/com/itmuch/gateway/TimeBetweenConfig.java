@@ -2,14 +2,38 @@ package com.itmuch.gateway;
 
 import lombok.Data;
 
+import java.time.DayOfWeek;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
 
 /**
  * 自定义谓词工厂 泛型配置类进行承载
  * 实现 【配置类】 和 【配置文件】 的关系
+ *
+ *  ~ 简写形式只配置 start 和 end ：- TimeBetween=上午0:00,下午11:59
+ *  ~ 完整形式可以配置多个时间段、星期和时区：
+ *        - name: TimeBetween
+ *          args:
+ *            windows: 09:00-12:00,22:00-02:00
+ *            days: MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY
+ *            zone: Asia/Shanghai
  */
 @Data
 public class TimeBetweenConfig {
     private LocalTime start;
     private LocalTime end;
+    /**
+     * 额外的时间段，格式 HH:mm-HH:mm ，开始晚于结束表示跨午夜
+     */
+    private List<String> windows;
+    /**
+     * 时间段开始的星期，不配置表示每天
+     */
+    private Set<DayOfWeek> days;
+    /**
+     * 时区，不配置表示系统默认时区
+     */
+    private ZoneId zone;
 }
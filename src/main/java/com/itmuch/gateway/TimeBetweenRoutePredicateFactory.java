@@ -1,5 +1,8 @@
 package com.itmuch.gateway;
 
+import com.itmuch.gateway.timewindow.CoarseClock;
+import com.itmuch.gateway.timewindow.TimeWindow;
+import com.itmuch.gateway.timewindow.TimeWindowSchedule;
 import org.springframework.cloud.gateway.handler.predicate.AbstractRoutePredicateFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -7,6 +10,7 @@ import org.springframework.web.server.ServerWebExchange;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
@@ -32,19 +36,22 @@ import java.util.function.Predicate;
 public class TimeBetweenRoutePredicateFactory
     extends AbstractRoutePredicateFactory<TimeBetweenConfig> {
 
+    private final CoarseClock clock;
+
     // 必须创建构造方法，否则会报错，会提示创建，按照需求修改
-    public TimeBetweenRoutePredicateFactory() {
+    public TimeBetweenRoutePredicateFactory(CoarseClock clock) {
         super(TimeBetweenConfig.class);
+        this.clock = clock;
     }
 
     @Override
     public Predicate<ServerWebExchange> apply(TimeBetweenConfig config) {
         // 自定义谓词工厂的核心方法，控制路由的条件
 
-        LocalTime start = config.getStart();
+        /*LocalTime start = config.getStart();
         LocalTime end = config.getEnd();
 
-        /*return new Predicate<ServerWebExchange>() {
+        return new Predicate<ServerWebExchange>() {
             @Override
             public boolean test(ServerWebExchange serverWebExchange) {
                 LocalTime now = LocalTime.now();
@@ -52,11 +59,29 @@ public class TimeBetweenRoutePredicateFactory
             }
         };*/
 
+        // 在路由加载时把配置编译成 TimeWindowSchedule ：
+        //      每个请求只读取共享的粗粒度时钟，并与预先算好的下一次状态变化时刻比较一次
+        //      start/end 两端都包含，start 晚于 end 表示跨午夜
+        TimeWindowSchedule schedule = compile(config);
+
         // lambda 表达式实现 ，返回的就是一个 Predicate
-        return exchange -> {
-            LocalTime now = LocalTime.now();
-            return now.isAfter(start) && now.isBefore(end);
-        };
+        return exchange -> schedule.test(this.clock.currentTimeMillis());
+    }
+
+    static TimeWindowSchedule compile(TimeBetweenConfig config) {
+        List<TimeWindow> windows = new ArrayList<>();
+        if (config.getStart() != null && config.getEnd() != null) {
+            windows.add(new TimeWindow(config.getStart(), config.getEnd(), config.getDays()));
+        }
+        if (config.getWindows() != null) {
+            for (String window : config.getWindows()) {
+                windows.add(TimeWindow.parse(window, config.getDays()));
+            }
+        }
+        if (windows.isEmpty()) {
+            throw new IllegalArgumentException("TimeBetween requires start/end or windows");
+        }
+        return new TimeWindowSchedule(windows, config.getZone());
     }
 
     @Override
@@ -0,0 +1,26 @@
+package com.itmuch.gateway.accesslog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 结构化的访问日志记录
+ */
+@Getter
+@AllArgsConstructor
+public class AccessLogRecord {
+    private final String routeId;
+    private final String method;
+    private final String path;
+    private final int status;
+    private final long latencyMicros;
+    /**
+     * 响应体字节数（取自 Content-Length ，未知时为 -1）
+     */
+    private final long bytes;
+    /**
+     * PreLog 配置中的 name/value
+     */
+    private final String name;
+    private final String value;
+}
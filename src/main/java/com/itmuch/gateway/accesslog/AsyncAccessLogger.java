@@ -0,0 +1,106 @@
+package com.itmuch.gateway.accesslog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 异步访问日志：请求线程只把记录放入环形缓冲区，由后台线程统一输出
+ *
+ *  ~ 缓冲区满时丢弃记录并计数（dropped），不会阻塞 Netty 线程
+ *  ~ 输出格式为 key=value ，便于日志系统解析；格式化在后台线程完成
+ *  ~ destroy() 时先输出缓冲区中剩余的记录再退出
+ */
+@Slf4j
+public class AsyncAccessLogger implements DisposableBean {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MpscRingBuffer<AccessLogRecord> buffer;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private final Consumer<String> sink;
+
+    private final Thread drainer;
+
+    private volatile boolean running = true;
+
+    public AsyncAccessLogger(int bufferSize) {
+        this(bufferSize, log::info);
+    }
+
+    AsyncAccessLogger(int bufferSize, Consumer<String> sink) {
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+        this.sink = sink;
+        this.drainer = new Thread(this::drain, "access-log-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * 提交一条记录
+     *
+     * @return false 表示缓冲区已满，记录被丢弃
+     */
+    public boolean submit(AccessLogRecord record) {
+        if (this.buffer.offer(record)) {
+            return true;
+        }
+        this.dropped.increment();
+        return false;
+    }
+
+    private void drain() {
+        while (this.running) {
+            if (!drainOnce()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // 退出前输出缓冲区中剩余的记录
+        while (drainOnce()) {
+            // continue
+        }
+    }
+
+    private boolean drainOnce() {
+        AccessLogRecord record = this.buffer.poll();
+        if (record == null) {
+            return false;
+        }
+        this.sink.accept(format(record));
+        this.written.increment();
+        return true;
+    }
+
+    static String format(AccessLogRecord record) {
+        return "route=" + record.getRouteId()
+                + " method=" + record.getMethod()
+                + " path=" + record.getPath()
+                + " status=" + record.getStatus()
+                + " latencyMicros=" + record.getLatencyMicros()
+                + " bytes=" + record.getBytes()
+                + " name=" + record.getName()
+                + " value=" + record.getValue();
+    }
+
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    public long getWritten() {
+        return this.written.sum();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        this.running = false;
+        this.drainer.join(TimeUnit.SECONDS.toMillis(1));
+    }
+}
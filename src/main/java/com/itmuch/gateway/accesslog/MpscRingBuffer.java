@@ -0,0 +1,73 @@
+package com.itmuch.gateway.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界、无锁的多生产者单消费者环形缓冲区（Vyukov 算法）
+ *
+ *  ~ 每个槽位带一个序号：生产者通过 CAS 抢占 tail 后写入元素并推进序号，消费者按序号判断槽位是否可读
+ *  ~ 缓冲区满时 offer 直接返回 false ，调用方自行决定丢弃，永远不会阻塞生产者（Netty 事件循环线程）
+ *  ~ poll 只能由一个线程调用
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private long head;
+
+    public MpscRingBuffer(int requestedCapacity) {
+        int capacity = 1;
+        while (capacity < requestedCapacity) {
+            capacity <<= 1;
+        }
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(E element) {
+        for (;;) {
+            long position = this.tail.get();
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - position;
+            if (difference == 0L) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.buffer.lazySet(index, element);
+                    this.sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0L) {
+                // 槽位还没被消费：缓冲区已满
+                return false;
+            }
+        }
+    }
+
+    public E poll() {
+        long position = this.head;
+        int index = (int) position & this.mask;
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = this.buffer.get(index);
+        this.buffer.lazySet(index, null);
+        this.sequences.lazySet(index, position + this.mask + 1);
+        this.head = position + 1;
+        return element;
+    }
+
+    public int capacity() {
+        return this.mask + 1;
+    }
+}
@@ -0,0 +1,413 @@
+package com.itmuch.gateway.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.netty.Connection;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+
+/**
+ * 单个路由的请求合并（micro-batching）
+ *
+ *  ~ 适用于按 id 查询的接口（例如 GET /users/{id}）：同一路由的并发查询在一个很短的窗口内合并为一次批量请求
+ *      （例如 GET /users?ids=1,2,3），上游返回 JSON 数组后按 id 字段拆分，分别写回每个等待的请求
+ *  ~ 窗口：第一个请求开启一个批次，凑满 maxBatch 个 id 或等待 maxWait 后发出，先到者为准；
+ *      窗口内只有一个 id 时按原请求转发，不改写路径
+ *  ~ 相同的 id 只查询一次：已在批次中、或批次已发出还没有返回的 id ，后来的请求直接等待同一个结果
+ *  ~ 批量请求由开启批次的请求（leader）通过自己的过滤器链发出，沿用路由后续的过滤器、负载均衡与连接池；
+ *      请求头也取自 leader ，所以 keyHeaders 中的请求头（默认 Authorization）取值不同的请求不会合并到一起
+ *  ~ 只合并没有查询参数、没有请求体的 GET 请求；批量请求失败、响应不是 2xx 的 JSON 数组、
+ *      或者数组中没有某个 id 时，对应的请求各自按原请求转发，结果与没有本过滤器时一致
+ *  ~ 拆分出的单个响应只有状态码 200 、Content-Type 和响应体，批量响应的其他响应头不会复制
+ *  ~ 批量响应体直接从上游连接（CLIENT_RESPONSE_CONN_ATTR）读取，见 receive()
+ */
+public class BatchFilter implements GatewayFilter {
+
+    /**
+     * path 中表示 id 的变量名
+     */
+    public static final String ID_VARIABLE = "id";
+
+    private final PathPattern pattern;
+
+    private final String batchPath;
+
+    private final String idsParam;
+
+    private final String idField;
+
+    private final int maxBatch;
+
+    private final Duration maxWait;
+
+    private final List<String> keyHeaders;
+
+    private final Duration coalesceTimeout;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 正在收集 id 的批次，key 为 keyHeaders 的取值
+     */
+    private final ConcurrentHashMap<String, Batch> open = new ConcurrentHashMap<>();
+
+    /**
+     * 已加入批次、还没有结果的 id ，key 为 keyHeaders 的取值 + id
+     */
+    private final ConcurrentHashMap<String, MonoProcessor<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    public BatchFilter(Settings settings, ObjectMapper objectMapper) {
+        if (settings.maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch must be positive: " + settings.maxBatch);
+        }
+        this.pattern = new PathPatternParser().parse(settings.path);
+        this.batchPath = settings.batchPath;
+        this.idsParam = settings.idsParam;
+        this.idField = settings.idField;
+        this.maxBatch = settings.maxBatch;
+        this.maxWait = settings.maxWait;
+        this.keyHeaders = settings.keyHeaders;
+        this.coalesceTimeout = settings.coalesceTimeout;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String id = batchableId(exchange.getRequest());
+        if (id == null) {
+            return chain.filter(exchange);
+        }
+        String partition = partition(exchange.getRequest());
+        MonoProcessor<byte[]> created = MonoProcessor.create();
+        MonoProcessor<byte[]> existing = this.inFlight.putIfAbsent(partition + '\n' + id, created);
+        if (existing != null) {
+            // 同一个 id 已经在查询：等待它的结果
+            return await(exchange, chain, existing);
+        }
+        Batch started = join(partition, id, created);
+        if (started == null) {
+            return await(exchange, chain, created);
+        }
+        return lead(exchange, chain, started).then(Mono.defer(() -> await(exchange, chain, created)));
+    }
+
+    private String batchableId(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        if (request.getMethod() != HttpMethod.GET || request.getURI().getRawQuery() != null
+                || headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return null;
+        }
+        PathPattern.PathMatchInfo info = this.pattern.matchAndExtract(request.getPath().pathWithinApplication());
+        String id = info == null ? null : info.getUriVariables().get(ID_VARIABLE);
+        // 逗号是批量请求中 id 的分隔符
+        return id == null || id.isEmpty() || id.indexOf(',') >= 0 ? null : id;
+    }
+
+    private String partition(ServerHttpRequest request) {
+        if (this.keyHeaders.isEmpty()) {
+            return "";
+        }
+        HttpHeaders headers = request.getHeaders();
+        StringBuilder partition = new StringBuilder(64);
+        for (int i = 0; i < this.keyHeaders.size(); i++) {
+            String value = headers.getFirst(this.keyHeaders.get(i));
+            partition.append('|').append(value == null ? "" : value);
+        }
+        return partition.toString();
+    }
+
+    /**
+     * 加入当前批次，没有时开启一个新批次
+     *
+     * @return 新开启的批次（调用方成为 leader），加入已有批次时返回 null
+     */
+    private Batch join(String partition, String id, MonoProcessor<byte[]> processor) {
+        Batch[] started = new Batch[1];
+        Batch[] full = new Batch[1];
+        this.open.compute(partition, (key, batch) -> {
+            if (batch == null) {
+                batch = new Batch(partition);
+                started[0] = batch;
+            }
+            batch.processors.put(id, processor);
+            if (batch.processors.size() >= this.maxBatch) {
+                full[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            // 在 compute 之外唤醒 leader ，发出批量请求时不持有 ConcurrentHashMap 的锁
+            full[0].full.onComplete();
+        }
+        return started[0];
+    }
+
+    /**
+     * leader ：等批次凑满或者窗口到期，发出批量请求并分发结果；之后没有拿到结果的 id 都按原请求转发
+     */
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, Batch batch) {
+        return Mono.first(batch.full, Mono.delay(this.maxWait).then())
+                .then(Mono.defer(() -> {
+                    this.open.remove(batch.partition, batch);
+                    return batch.processors.size() == 1 ? Mono.<Void>empty() : send(exchange, chain, batch);
+                }))
+                // 批量请求失败时各自转发
+                .onErrorResume(ex -> Mono.empty())
+                .then(Mono.fromRunnable(() -> release(batch)))
+                // leader 被取消（客户端断开）时批次不再发出，已加入的请求各自转发
+                .doOnCancel(() -> release(batch))
+                .then();
+    }
+
+    /**
+     * 结束批次：先从 open 中移除，不再有新的 id 加入，再唤醒没有结果的等待者；可以重复调用
+     */
+    private void release(Batch batch) {
+        this.open.remove(batch.partition, batch);
+        for (Map.Entry<String, MonoProcessor<byte[]>> entry : batch.processors.entrySet()) {
+            this.inFlight.remove(batch.partition + '\n' + entry.getKey(), entry.getValue());
+            entry.getValue().onComplete();
+        }
+    }
+
+    private Mono<Void> send(ServerWebExchange exchange, GatewayFilterChain chain, Batch batch) {
+        URI uri = UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                .replacePath(this.batchPath)
+                .replaceQuery(null)
+                .queryParam(this.idsParam, String.join(",", batch.processors.keySet()))
+                .build()
+                .encode()
+                .toUri();
+        ServerHttpRequest request = exchange.getRequest().mutate().uri(uri).headers(headers -> {
+            // 需要能直接解析的完整响应体
+            headers.remove(HttpHeaders.ACCEPT_ENCODING);
+            headers.remove(HttpHeaders.IF_NONE_MATCH);
+            headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+            headers.remove(HttpHeaders.RANGE);
+        }).build();
+        BatchExchange batchExchange = new BatchExchange(exchange, request);
+        return chain.filter(batchExchange)
+                .then(Mono.defer(() -> receive(batchExchange)))
+                .then(Mono.fromRunnable(() -> split(batchExchange.response, batch)));
+    }
+
+    /**
+     * NettyRoutingFilter 只把上游连接放进 CLIENT_RESPONSE_CONN_ATTR ，响应体由排在路由过滤器之前的
+     * NettyWriteResponseFilter 写出，批量请求的过滤器链从本过滤器开始，走不到那里。
+     * 这里自己读完响应体：读完后连接由 reactor-netty 放回连接池；出错或被取消时关闭连接，不把读了一半的连接放回去
+     */
+    private static Mono<Void> receive(BatchExchange exchange) {
+        Connection connection = (Connection) exchange.getAttributes().get(CLIENT_RESPONSE_CONN_ATTR);
+        if (connection == null || exchange.response.body != null) {
+            return Mono.empty();
+        }
+        return connection.inbound().receive().aggregate().asByteArray()
+                .doOnNext(bytes -> exchange.response.body = bytes)
+                .doOnError(ex -> connection.dispose())
+                .doOnCancel(connection::dispose)
+                .then();
+    }
+
+    private void split(BatchResponse response, Batch batch) {
+        if (response.status == null || !response.status.is2xxSuccessful() || response.body == null) {
+            return;
+        }
+        JsonNode root;
+        try {
+            root = this.objectMapper.readTree(response.body);
+        } catch (IOException e) {
+            return;
+        }
+        if (root == null || !root.isArray()) {
+            return;
+        }
+        for (JsonNode element : root) {
+            JsonNode id = element.get(this.idField);
+            MonoProcessor<byte[]> processor = id == null || !id.isValueNode()
+                    ? null : batch.processors.get(id.asText());
+            if (processor == null) {
+                continue;
+            }
+            try {
+                processor.onNext(this.objectMapper.writeValueAsBytes(element));
+            } catch (IOException e) {
+                // 无法序列化的元素按原请求转发
+            }
+        }
+    }
+
+    private Mono<Void> await(ServerWebExchange exchange, GatewayFilterChain chain, MonoProcessor<byte[]> result) {
+        return result.timeout(this.coalesceTimeout, Mono.empty())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(body -> body.isPresent() ? write(exchange.getResponse(), body.get()) : chain.filter(exchange));
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, byte[] body) {
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON_UTF8);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * 一个批次：id -> 等待结果的 processor ，按加入顺序排列
+     *
+     *  ~ processors 只在 open.compute() 中修改；leader 从 open 中移除批次之后再读取，之后不会再有新的 id 加入
+     */
+    private static final class Batch {
+
+        private final String partition;
+
+        private final Map<String, MonoProcessor<byte[]>> processors = new LinkedHashMap<>();
+
+        private final MonoProcessor<Void> full = MonoProcessor.create();
+
+        private Batch(String partition) {
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * 批量请求：独立的属性（请求地址、连接、已路由标记）与响应，不修改 leader 真正的响应
+     */
+    private static final class BatchExchange extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+
+        private final ServerHttpRequest request;
+
+        private final BatchResponse response;
+
+        private BatchExchange(ServerWebExchange exchange, ServerHttpRequest request) {
+            super(exchange);
+            this.attributes = new HashMap<>(exchange.getAttributes());
+            this.request = request;
+            this.response = new BatchResponse(exchange.getResponse());
+        }
+
+        @Override
+        public ServerHttpRequest getRequest() {
+            return this.request;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return this.response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return this.attributes;
+        }
+    }
+
+    /**
+     * 记录批量响应的状态码、响应头；路由过滤器直接写响应体时（非 Netty 路由）在 writeWith 中聚合
+     */
+    private static final class BatchResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private HttpStatus status;
+
+        private byte[] body;
+
+        private BatchResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatus status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return this.status;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return this.headers;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(Flux.from(body)).doOnNext(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                this.body = bytes;
+            }).then();
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Flux.from(body).flatMapSequential(p -> p));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.empty();
+        }
+    }
+
+    /**
+     * 路由级配置，由 BatchGatewayFilterFactory 创建
+     */
+    public static class Settings {
+        private final String path;
+        private final String batchPath;
+        private final String idsParam;
+        private final String idField;
+        private final int maxBatch;
+        private final Duration maxWait;
+        private final List<String> keyHeaders;
+        private final Duration coalesceTimeout;
+
+        public Settings(String path, String batchPath, String idsParam, String idField, int maxBatch,
+                        Duration maxWait, List<String> keyHeaders, Duration coalesceTimeout) {
+            this.path = path;
+            this.batchPath = batchPath;
+            this.idsParam = idsParam;
+            this.idField = idField;
+            this.maxBatch = maxBatch;
+            this.maxWait = maxWait;
+            this.keyHeaders = keyHeaders;
+            this.coalesceTimeout = coalesceTimeout;
+        }
+    }
+}
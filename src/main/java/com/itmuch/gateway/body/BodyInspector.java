@@ -0,0 +1,121 @@
+package com.itmuch.gateway.body;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * 单个请求体的检查状态：累计字节数、CRC32 校验和、JSON 字段扫描
+ *
+ *  ~ 通过 DataBuffer.asByteBuffer() 读取，读取位置不变，原样的 DataBuffer 继续向下游传递
+ *  ~ 超过大小限制时释放当前 DataBuffer 并抛出 BodyRejectedException（413）
+ *  ~ 请求体结束时校验 CRC32 ，与请求头中的值不一致时抛出 BodyRejectedException（400）
+ *  ~ 带校验和时由 hold() 扣住最后一块，校验通过才交给下游：校验失败时上游收不到请求体的最后一个字节，
+ *      不会把一个完整但内容错误的请求体当作正常请求处理
+ */
+final class BodyInspector {
+
+    private final long maxSize;
+
+    private final JsonFieldScanner scanner;
+
+    private final long inspectLimit;
+
+    private final CRC32 checksum;
+
+    private final long expectedChecksum;
+
+    private long size;
+
+    private DataBuffer held;
+
+    BodyInspector(long maxSize, JsonFieldScanner scanner, long inspectLimit, Long expectedChecksum) {
+        this.maxSize = maxSize;
+        this.scanner = scanner;
+        this.inspectLimit = inspectLimit;
+        this.checksum = expectedChecksum == null ? null : new CRC32();
+        this.expectedChecksum = expectedChecksum == null ? 0L : expectedChecksum;
+    }
+
+    DataBuffer inspect(DataBuffer buffer) {
+        int readable = buffer.readableByteCount();
+        boolean scanning = !isLookaheadDone();
+        this.size += readable;
+        if (this.size > this.maxSize) {
+            DataBufferUtils.release(buffer);
+            throw new BodyRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request body exceeds the permissible limit of " + this.maxSize + " bytes");
+        }
+        if (readable == 0 || (this.checksum == null && !scanning)) {
+            return buffer;
+        }
+        ByteBuffer view = buffer.asByteBuffer();
+        if (this.checksum != null) {
+            this.checksum.update(view.duplicate());
+        }
+        if (scanning) {
+            this.scanner.feed(view);
+        }
+        return buffer;
+    }
+
+    /**
+     * 没有校验和时原样返回；否则扣住当前块，返回上一块（第一块时返回 null）
+     */
+    synchronized DataBuffer hold(DataBuffer buffer) {
+        if (this.checksum == null) {
+            return buffer;
+        }
+        DataBuffer previous = this.held;
+        this.held = buffer;
+        return previous;
+    }
+
+    /**
+     * 请求体结束：校验通过时返回扣住的最后一块（没有时返回 null）；不一致时释放它并抛出 BodyRejectedException
+     */
+    DataBuffer complete() {
+        DataBuffer last = take();
+        if (this.checksum != null && this.checksum.getValue() != this.expectedChecksum) {
+            if (last != null) {
+                DataBufferUtils.release(last);
+            }
+            throw new BodyRejectedException(HttpStatus.BAD_REQUEST, "Request body checksum mismatch");
+        }
+        return last;
+    }
+
+    /**
+     * 请求体被取消或出错时释放扣住的块；可以重复调用
+     */
+    void discard() {
+        DataBuffer last = take();
+        if (last != null) {
+            DataBufferUtils.release(last);
+        }
+    }
+
+    private synchronized DataBuffer take() {
+        DataBuffer last = this.held;
+        this.held = null;
+        return last;
+    }
+
+    /**
+     * 字段都已提取，或者已经读满检查窗口
+     */
+    boolean isLookaheadDone() {
+        return this.scanner == null || this.scanner.isDone() || this.size >= this.inspectLimit;
+    }
+
+    JsonFieldScanner getScanner() {
+        return this.scanner;
+    }
+
+    long getSize() {
+        return this.size;
+    }
+}
@@ -0,0 +1,172 @@
+package com.itmuch.gateway.body;
+
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 请求体预读：先读到字段提取完成（或读满检查窗口），再把已读的块和剩余的流一起交给下游
+ *
+ *  ~ 预读阶段每次只 request(1) ，最多持有检查窗口大小的原始 DataBuffer ，不复制、不合并
+ *  ~ 交给下游之后按下游的 request(n) 向上游请求，保持背压，大请求体不会在网关堆积
+ *  ~ 请求体只能订阅一次：ready() 完成后由 body() 交出，没有被订阅时由 discard() 释放已读的块
+ *  ~ 被 BodyInspector 扣住的块不交给下游，此时向上游补一个 request(1) ，下游的需求不会落空
+ */
+final class BodyLookahead extends BaseSubscriber<DataBuffer> {
+
+    private final BodyInspector inspector;
+
+    private final MonoProcessor<Void> ready = MonoProcessor.create();
+
+    private final List<DataBuffer> prefix = new ArrayList<>();
+
+    private FluxSink<DataBuffer> sink;
+
+    private boolean completed;
+
+    private Throwable error;
+
+    private boolean claimed;
+
+    BodyLookahead(Flux<DataBuffer> body, BodyInspector inspector) {
+        this.inspector = inspector;
+        body.subscribe(this);
+    }
+
+    Mono<Void> ready() {
+        return this.ready;
+    }
+
+    Flux<DataBuffer> body() {
+        return Flux.create(this::attach);
+    }
+
+    private void attach(FluxSink<DataBuffer> sink) {
+        synchronized (this) {
+            if (this.claimed) {
+                sink.error(new IllegalStateException("The request body can only be subscribed once"));
+                return;
+            }
+            this.claimed = true;
+            this.sink = sink;
+            this.prefix.forEach(sink::next);
+            this.prefix.clear();
+            if (this.error != null) {
+                sink.error(this.error);
+                return;
+            }
+            if (this.completed) {
+                sink.complete();
+                return;
+            }
+        }
+        sink.onRequest(this::request);
+        sink.onCancel(this::cancel);
+    }
+
+    /**
+     * 下游没有订阅请求体（例如请求在转发前被拒绝）时，取消上游并释放已读的块
+     */
+    void discard() {
+        synchronized (this) {
+            if (this.claimed) {
+                return;
+            }
+            this.claimed = true;
+            this.prefix.forEach(DataBufferUtils::release);
+            this.prefix.clear();
+        }
+        cancel();
+        this.inspector.discard();
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        subscription.request(1);
+    }
+
+    @Override
+    protected void hookOnNext(DataBuffer buffer) {
+        DataBuffer ready = this.inspector.hold(this.inspector.inspect(buffer));
+        boolean attached;
+        synchronized (this) {
+            attached = this.sink != null;
+            if (attached) {
+                if (ready != null) {
+                    this.sink.next(ready);
+                    return;
+                }
+            } else if (this.claimed) {
+                if (ready != null) {
+                    DataBufferUtils.release(ready);
+                }
+                this.inspector.discard();
+                return;
+            } else if (ready != null) {
+                this.prefix.add(ready);
+            }
+        }
+        if (!attached && this.inspector.isLookaheadDone()) {
+            markReady();
+        } else {
+            request(1);
+        }
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        DataBuffer last;
+        try {
+            last = this.inspector.complete();
+        } catch (BodyRejectedException ex) {
+            hookOnError(ex);
+            return;
+        }
+        synchronized (this) {
+            this.completed = true;
+            if (this.sink != null) {
+                if (last != null) {
+                    this.sink.next(last);
+                }
+                this.sink.complete();
+            } else if (this.claimed) {
+                if (last != null) {
+                    DataBufferUtils.release(last);
+                }
+            } else if (last != null) {
+                this.prefix.add(last);
+            }
+        }
+        markReady();
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+        this.inspector.discard();
+        boolean forwarded;
+        synchronized (this) {
+            this.error = throwable;
+            forwarded = this.sink != null;
+            if (forwarded) {
+                this.sink.error(throwable);
+            }
+        }
+        if (!forwarded && !this.ready.isTerminated()) {
+            this.ready.onError(throwable);
+        }
+    }
+
+    private void markReady() {
+        if (!this.ready.isTerminated()) {
+            this.ready.onComplete();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.itmuch.gateway.body;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 请求体在转发过程中被拒绝（超过大小限制、校验和不一致）
+ *
+ *  ~ 从请求体 Flux 中以错误信号抛出，由 StreamingBodyFilter 转换成响应状态码
+ *  ~ 不需要堆栈，避免大流量拒绝时填充堆栈的开销
+ */
+@Getter
+public class BodyRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public BodyRejectedException(HttpStatus status, String message) {
+        super(message, null, false, false);
+        this.status = status;
+    }
+}
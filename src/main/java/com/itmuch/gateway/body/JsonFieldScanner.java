@@ -0,0 +1,366 @@
+package com.itmuch.gateway.body;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 增量 JSON 扫描器：按到达的字节块逐字节推进状态机，提取指定字段的标量值
+ *
+ *  ~ 字段用点号表示对象路径，例如 userId 、order.tenantId ；数组内的元素不参与匹配
+ *  ~ 只记录与目标字段有关的 key 和值，其余内容只做结构跟踪，不产生字符串
+ *  ~ 状态跨字节块保留，字段、转义序列、多字节字符被拆在两个块之间也能正确解析
+ *  ~ 所有字段都找到、顶层值结束、或者 JSON 不合法时 isDone() 为 true ，之后的字节直接忽略
+ *  ~ 非线程安全，每个请求一个实例
+ */
+public final class JsonFieldScanner {
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final int MAX_TOKEN = 1024;
+
+    private static final int VALUE = 0;
+    private static final int VALUE_OR_END = 1;
+    private static final int KEY_OR_END = 2;
+    private static final int KEY = 3;
+    private static final int COLON = 4;
+    private static final int AFTER_VALUE = 5;
+    private static final int KEY_STRING = 6;
+    private static final int VALUE_STRING = 7;
+    private static final int LITERAL = 8;
+
+    private final Set<String> fields;
+
+    /**
+     * 目标字段的所有上级路径，只有这些对象内部的 key 才需要记录
+     */
+    private final Set<String> containers = new HashSet<>();
+
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    /**
+     * 每一层容器的路径，null 表示该层是数组或与目标字段无关
+     */
+    private final String[] paths = new String[MAX_DEPTH];
+
+    private final boolean[] arrays = new boolean[MAX_DEPTH];
+
+    private int depth;
+
+    private int state = VALUE;
+
+    private String key;
+
+    private String target;
+
+    private boolean capturing;
+
+    private byte[] token = new byte[32];
+
+    private int tokenLength;
+
+    private boolean escape;
+
+    private int unicodeDigits;
+
+    private int unicodeValue;
+
+    private char highSurrogate;
+
+    private boolean done;
+
+    private boolean failed;
+
+    public JsonFieldScanner(Collection<String> fields) {
+        this.fields = Collections.unmodifiableSet(new HashSet<>(fields));
+        this.containers.add("");
+        for (String field : this.fields) {
+            for (int i = field.indexOf('.'); i > 0; i = field.indexOf('.', i + 1)) {
+                this.containers.add(field.substring(0, i));
+            }
+        }
+        this.done = this.fields.isEmpty();
+    }
+
+    public void feed(ByteBuffer buffer) {
+        for (int i = buffer.position(), limit = buffer.limit(); i < limit && !this.done; i++) {
+            next(buffer.get(i));
+        }
+    }
+
+    public boolean isDone() {
+        return this.done;
+    }
+
+    /**
+     * JSON 不合法或嵌套过深时为 true ，此时已提取到的字段仍然有效
+     */
+    public boolean isFailed() {
+        return this.failed;
+    }
+
+    public Map<String, String> getValues() {
+        return Collections.unmodifiableMap(this.values);
+    }
+
+    private void next(byte b) {
+        switch (this.state) {
+            case VALUE:
+            case VALUE_OR_END:
+                if (isWhitespace(b)) {
+                    return;
+                }
+                if (b == ']' && this.state == VALUE_OR_END) {
+                    close();
+                    return;
+                }
+                startValue(b);
+                return;
+            case KEY_OR_END:
+            case KEY:
+                if (isWhitespace(b)) {
+                    return;
+                }
+                if (b == '}' && this.state == KEY_OR_END) {
+                    close();
+                } else if (b == '"') {
+                    this.capturing = this.paths[this.depth - 1] != null;
+                    this.tokenLength = 0;
+                    this.state = KEY_STRING;
+                } else {
+                    fail();
+                }
+                return;
+            case COLON:
+                if (b == ':') {
+                    this.state = VALUE;
+                } else if (!isWhitespace(b)) {
+                    fail();
+                }
+                return;
+            case AFTER_VALUE:
+                afterValue(b);
+                return;
+            case KEY_STRING:
+            case VALUE_STRING:
+                string(b);
+                return;
+            case LITERAL:
+                if (isLiteral(b)) {
+                    append(b);
+                    return;
+                }
+                endValue(this.capturing ? literal() : null);
+                if (!this.done) {
+                    afterValue(b);
+                }
+                return;
+            default:
+                fail();
+        }
+    }
+
+    private void startValue(byte b) {
+        String path = valuePath();
+        if (b == '{' || b == '[') {
+            if (this.depth == MAX_DEPTH) {
+                fail();
+                return;
+            }
+            boolean array = b == '[';
+            this.arrays[this.depth] = array;
+            this.paths[this.depth] = !array && path != null && this.containers.contains(path) ? path : null;
+            this.depth++;
+            this.state = array ? VALUE_OR_END : KEY_OR_END;
+            return;
+        }
+        this.target = path != null && this.fields.contains(path) ? path : null;
+        this.capturing = this.target != null;
+        this.tokenLength = 0;
+        if (b == '"') {
+            this.state = VALUE_STRING;
+        } else if (b == '-' || (b >= '0' && b <= '9') || b == 't' || b == 'f' || b == 'n') {
+            append(b);
+            this.state = LITERAL;
+        } else {
+            fail();
+        }
+    }
+
+    private String valuePath() {
+        if (this.depth == 0) {
+            return "";
+        }
+        String parent = this.paths[this.depth - 1];
+        if (parent == null || this.key == null) {
+            return null;
+        }
+        return parent.isEmpty() ? this.key : parent + '.' + this.key;
+    }
+
+    private void afterValue(byte b) {
+        if (isWhitespace(b)) {
+            return;
+        }
+        boolean array = this.arrays[this.depth - 1];
+        if (b == ',') {
+            this.state = array ? VALUE : KEY;
+        } else if (b == (array ? ']' : '}')) {
+            close();
+        } else {
+            fail();
+        }
+    }
+
+    private void close() {
+        this.depth--;
+        this.key = null;
+        this.state = AFTER_VALUE;
+        if (this.depth == 0) {
+            this.done = true;
+        }
+    }
+
+    private void endValue(String value) {
+        if (this.target != null && value != null) {
+            this.values.putIfAbsent(this.target, value);
+            if (this.values.size() == this.fields.size()) {
+                this.done = true;
+            }
+        }
+        this.target = null;
+        this.key = null;
+        this.state = AFTER_VALUE;
+        if (this.depth == 0) {
+            this.done = true;
+        }
+    }
+
+    private void string(byte b) {
+        if (this.unicodeDigits > 0) {
+            int digit = Character.digit(b, 16);
+            if (digit < 0) {
+                fail();
+                return;
+            }
+            this.unicodeValue = (this.unicodeValue << 4) | digit;
+            if (--this.unicodeDigits == 0) {
+                appendChar((char) this.unicodeValue);
+            }
+            return;
+        }
+        if (this.escape) {
+            this.escape = false;
+            switch (b) {
+                case 'u':
+                    this.unicodeDigits = 4;
+                    this.unicodeValue = 0;
+                    return;
+                case 'n':
+                    append((byte) '\n');
+                    return;
+                case 't':
+                    append((byte) '\t');
+                    return;
+                case 'r':
+                    append((byte) '\r');
+                    return;
+                case 'b':
+                    append((byte) '\b');
+                    return;
+                case 'f':
+                    append((byte) '\f');
+                    return;
+                default:
+                    append(b);
+                    return;
+            }
+        }
+        if (b == '\\') {
+            this.escape = true;
+        } else if (b == '"') {
+            String text = this.capturing && this.tokenLength >= 0
+                    ? new String(this.token, 0, this.tokenLength, StandardCharsets.UTF_8) : null;
+            if (this.state == KEY_STRING) {
+                this.key = text;
+                this.state = COLON;
+            } else {
+                endValue(text);
+            }
+        } else {
+            append(b);
+        }
+    }
+
+    private String literal() {
+        if (this.tokenLength < 0) {
+            return null;
+        }
+        String text = new String(this.token, 0, this.tokenLength, StandardCharsets.US_ASCII);
+        return "null".equals(text) ? null : text;
+    }
+
+    private void appendChar(char c) {
+        if (Character.isHighSurrogate(c)) {
+            this.highSurrogate = c;
+            return;
+        }
+        int codePoint = c;
+        if (Character.isLowSurrogate(c) && this.highSurrogate != 0) {
+            codePoint = Character.toCodePoint(this.highSurrogate, c);
+        }
+        this.highSurrogate = 0;
+        if (codePoint < 0x80) {
+            append((byte) codePoint);
+        } else if (codePoint < 0x800) {
+            append((byte) (0xC0 | (codePoint >> 6)));
+            append((byte) (0x80 | (codePoint & 0x3F)));
+        } else if (codePoint < 0x10000) {
+            append((byte) (0xE0 | (codePoint >> 12)));
+            append((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            append((byte) (0x80 | (codePoint & 0x3F)));
+        } else {
+            append((byte) (0xF0 | (codePoint >> 18)));
+            append((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            append((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            append((byte) (0x80 | (codePoint & 0x3F)));
+        }
+    }
+
+    /**
+     * 只在需要记录时保存字节；超过 MAX_TOKEN 的 key / 值标记为 -1 ，不参与匹配
+     */
+    private void append(byte b) {
+        if (!this.capturing || this.tokenLength < 0) {
+            return;
+        }
+        if (this.tokenLength == MAX_TOKEN) {
+            this.tokenLength = -1;
+            return;
+        }
+        if (this.tokenLength == this.token.length) {
+            byte[] grown = new byte[Math.min(MAX_TOKEN, this.token.length * 2)];
+            System.arraycopy(this.token, 0, grown, 0, this.tokenLength);
+            this.token = grown;
+        }
+        this.token[this.tokenLength++] = b;
+    }
+
+    private void fail() {
+        this.failed = true;
+        this.done = true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static boolean isLiteral(byte b) {
+        return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || b == '-' || b == '+' || b == '.' || b == 'E';
+    }
+}
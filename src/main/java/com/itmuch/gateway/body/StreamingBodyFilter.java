@@ -0,0 +1,154 @@
+package com.itmuch.gateway.body;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个路由的流式请求体检查，请求体按块到达、按块转发，网关不缓存整个请求体
+ *
+ *  ~ 大小限制：Content-Length 超限时直接返回 413 ；分块传输时累计到超限的那一块就中断转发并返回 413
+ *  ~ 没有 Content-Length 的请求（分块传输，或者 HTTP/2 不带 Transfer-Encoding）都按流式请求体处理，
+ *      只有 Content-Length 为 0 、或者没有 Content-Length 的 GET/HEAD 请求直接放行
+ *  ~ 校验和：请求带有校验和请求头（CRC32 ，16 进制）时边转发边计算，最后一块扣在网关，校验通过才转发；
+ *      不一致时中断转发并返回 400 ，上游收到的是不完整的请求体，不会当作正常请求处理
+ *  ~ JSON 字段：只对 JSON 请求体预读检查窗口（默认 16KB）以内的内容，提取到的字段
+ *      放入 exchange 属性 BODY_FIELDS_ATTR（供 BodyFieldKeyResolver 等使用），也可以写入转发的请求头；
+ *      字段在检查窗口之外时视为没有该字段
+ *  ~ 转发的是原始的 DataBuffer ，检查时只读不复制；预读最多持有检查窗口大小的数据
+ *  ~ 路由匹配在过滤器之前完成，提取的字段只能用于之后的过滤器（限流 key 等）和上游服务，不能改变路由
+ */
+public class StreamingBodyFilter implements GatewayFilter {
+
+    public static final String BODY_FIELDS_ATTR = StreamingBodyFilter.class.getName() + ".fields";
+
+    private final long maxSize;
+
+    private final List<String> fields;
+
+    private final long inspectBytes;
+
+    private final Map<String, String> fieldHeaders;
+
+    private final String checksumHeader;
+
+    public StreamingBodyFilter(long maxSize, List<String> fields, long inspectBytes,
+                               Map<String, String> fieldHeaders, String checksumHeader) {
+        this.maxSize = maxSize;
+        this.fields = fields;
+        this.inspectBytes = inspectBytes;
+        this.fieldHeaders = fieldHeaders;
+        this.checksumHeader = checksumHeader;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpHeaders headers = request.getHeaders();
+        long contentLength = headers.getContentLength();
+        if (contentLength > this.maxSize) {
+            return reject(exchange, new BodyRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request size is larger than permissible limit. Request size is " + contentLength
+                            + " where permissible limit is " + this.maxSize));
+        }
+        if (contentLength == 0 || (contentLength < 0 && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING)
+                && (request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD))) {
+            return chain.filter(exchange);
+        }
+
+        Long expectedChecksum;
+        try {
+            expectedChecksum = expectedChecksum(headers);
+        } catch (NumberFormatException ex) {
+            return reject(exchange, new BodyRejectedException(HttpStatus.BAD_REQUEST,
+                    "Invalid " + this.checksumHeader + " header"));
+        }
+        JsonFieldScanner scanner = this.fields.isEmpty() || !isJson(headers.getContentType())
+                ? null : new JsonFieldScanner(this.fields);
+        BodyInspector inspector = new BodyInspector(this.maxSize, scanner, this.inspectBytes, expectedChecksum);
+
+        if (scanner == null) {
+            Flux<DataBuffer> body = request.getBody()
+                    .map(inspector::inspect)
+                    .<DataBuffer>handle((buffer, sink) -> {
+                        DataBuffer ready = inspector.hold(buffer);
+                        if (ready != null) {
+                            sink.next(ready);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(inspector::complete))
+                    .doFinally(signal -> inspector.discard());
+            return forward(exchange, chain, request, body);
+        }
+
+        BodyLookahead lookahead = new BodyLookahead(request.getBody(), inspector);
+        return lookahead.ready()
+                .then(Mono.defer(() -> {
+                    Map<String, String> values = scanner.getValues();
+                    exchange.getAttributes().put(BODY_FIELDS_ATTR, values);
+                    ServerHttpRequest mutated = request;
+                    if (!this.fieldHeaders.isEmpty() && !values.isEmpty()) {
+                        mutated = request.mutate().headers(h -> this.fieldHeaders.forEach((field, header) -> {
+                            String value = values.get(field);
+                            if (value != null) {
+                                h.set(header, value);
+                            }
+                        })).build();
+                    }
+                    return forward(exchange, chain, mutated, lookahead.body());
+                }))
+                .onErrorResume(BodyRejectedException.class, ex -> reject(exchange, ex))
+                .doFinally(signal -> lookahead.discard());
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain,
+                               ServerHttpRequest request, Flux<DataBuffer> body) {
+        ServerHttpRequest decorated = new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return body;
+            }
+        };
+        return chain.filter(exchange.mutate().request(decorated).build())
+                .onErrorResume(BodyRejectedException.class, ex -> reject(exchange, ex));
+    }
+
+    private Long expectedChecksum(HttpHeaders headers) {
+        if (this.checksumHeader == null) {
+            return null;
+        }
+        String value = headers.getFirst(this.checksumHeader);
+        return value == null ? null : Long.parseLong(value.trim(), 16);
+    }
+
+    private static boolean isJson(MediaType contentType) {
+        return contentType != null && (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || contentType.getSubtype().endsWith("+json"));
+    }
+
+    /**
+     * 与 RequestSize 过滤器一致：设置状态码，原因放在 errorMessage 响应头中；响应已经提交时只能中断连接
+     */
+    private static Mono<Void> reject(ServerWebExchange exchange, BodyRejectedException ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(ex);
+        }
+        response.setStatusCode(ex.getStatus());
+        response.getHeaders().set("errorMessage", ex.getMessage());
+        return response.setComplete();
+    }
+}
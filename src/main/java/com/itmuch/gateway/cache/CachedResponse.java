@@ -0,0 +1,93 @@
+package com.itmuch.gateway.cache;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 缓存的响应：状态码、响应头、响应体
+ *
+ *  ~ 响应体可以放在堆内（byte[]）或堆外（DirectByteBuffer），堆外存储可以减轻大量缓存数据对 GC 的压力
+ *  ~ 不缓存逐跳（hop-by-hop）响应头
+ */
+public final class CachedResponse {
+
+    private static final List<String> HOP_BY_HOP_HEADERS = Arrays.asList(
+            HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE,
+            HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.UPGRADE);
+
+    private final HttpStatus status;
+
+    private final HttpHeaders headers;
+
+    private final byte[] heapBody;
+
+    private final ByteBuffer directBody;
+
+    private final long expiresAtNanos;
+
+    private CachedResponse(HttpStatus status, HttpHeaders headers, byte[] heapBody,
+                           ByteBuffer directBody, long expiresAtNanos) {
+        this.status = status;
+        this.headers = headers;
+        this.heapBody = heapBody;
+        this.directBody = directBody;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    static CachedResponse of(HttpStatus status, HttpHeaders source, byte[] body, boolean offHeap, long expiresAtNanos) {
+        HttpHeaders headers = new HttpHeaders();
+        source.forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.setContentLength(body.length);
+        if (offHeap) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(body.length);
+            direct.put(body).flip();
+            return new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), null, direct, expiresAtNanos);
+        }
+        return new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), body, null, expiresAtNanos);
+    }
+
+    /**
+     * 上游返回 304 后延长有效期，响应体保持不变
+     */
+    CachedResponse renew(long expiresAtNanos) {
+        return new CachedResponse(this.status, this.headers, this.heapBody, this.directBody, expiresAtNanos);
+    }
+
+    boolean isFresh(long now) {
+        return now < this.expiresAtNanos;
+    }
+
+    boolean hasValidators() {
+        return this.headers.getETag() != null || this.headers.getLastModified() >= 0;
+    }
+
+    DataBuffer body(DataBufferFactory bufferFactory) {
+        if (this.directBody != null) {
+            // duplicate 共享底层内存，不复制
+            return bufferFactory.wrap(this.directBody.duplicate());
+        }
+        return bufferFactory.wrap(this.heapBody);
+    }
+
+    int size() {
+        return this.directBody != null ? this.directBody.capacity() : this.heapBody.length;
+    }
+
+    HttpStatus getStatus() {
+        return this.status;
+    }
+
+    HttpHeaders getHeaders() {
+        return this.headers;
+    }
+}
@@ -0,0 +1,349 @@
+package com.itmuch.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个路由的响应缓存
+ *
+ *  ~ 只缓存 GET 请求的 200 响应；key = 方法 + 路径 + 查询参数 + 选定的请求头 + 响应 Vary 中列出的请求头
+ *  ~ 带 Authorization 或 Cookie 的请求默认不走缓存，避免把一个用户的响应返回给另一个用户；
+ *      路由的 headers 中列出了这两个请求头时，它们参与 key ，按用户分别缓存
+ *  ~ 响应的 Vary 按路径（不含 Vary 的 key）记录，之后的请求先查 Vary 再拼出完整的 key
+ *  ~ 存储使用 Caffeine（W-TinyLFU 淘汰策略），按响应体字节数限制总大小
+ *  ~ 有效期：响应的 Cache-Control: s-maxage / max-age 优先，否则使用路由配置的 ttl ；
+ *      no-store 、private 、Set-Cookie 、Vary: * 的响应不缓存；请求带 Cache-Control: no-cache 时跳过缓存直接回源
+ *  ~ 过期但带有 ETag / Last-Modified 的缓存：回源时带上 If-None-Match / If-Modified-Since ，上游返回 304 则续期并返回缓存内容
+ *  ~ 客户端的 If-None-Match 与缓存的 ETag 一致时直接返回 304
+ *  ~ 同一个 key 的并发未命中合并为一次回源，其余请求等待结果（等待超时、结果不可缓存、
+ *      或者响应的 Vary 与 key 不一致时各自回源）
+ *  ~ 响应体边转发边复制，超过 maxBodyBytes 后停止复制，剩余部分直接透传
+ */
+public class ResponseCacheFilter implements GatewayFilter {
+
+    public static final String CACHE_STATUS_HEADER = "X-Gateway-Cache";
+
+    /**
+     * 记录 Vary 的路径数上限
+     */
+    private static final int MAX_VARY_KEYS = 10_000;
+
+    private final Cache<String, CachedResponse> cache;
+
+    /**
+     * 不含 Vary 的 key -> 上游响应的 Vary 请求头
+     */
+    private final Cache<String, List<String>> varies;
+
+    private final ConcurrentHashMap<String, MonoProcessor<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+
+    private final long maxBodyBytes;
+
+    private final List<String> keyHeaders;
+
+    private final boolean offHeap;
+
+    private final Duration coalesceTimeout;
+
+    private final boolean keyedByAuthorization;
+
+    private final boolean keyedByCookie;
+
+    public ResponseCacheFilter(Duration ttl, long maxSizeBytes, long maxBodyBytes, List<String> keyHeaders,
+                               boolean offHeap, Duration coalesceTimeout) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((String key, CachedResponse value) -> key.length() + value.size())
+                .build();
+        this.varies = Caffeine.newBuilder().maximumSize(MAX_VARY_KEYS).build();
+        this.ttlNanos = ttl.toNanos();
+        this.maxBodyBytes = maxBodyBytes;
+        this.keyHeaders = keyHeaders;
+        this.offHeap = offHeap;
+        this.coalesceTimeout = coalesceTimeout;
+        this.keyedByAuthorization = keyHeaders.stream().anyMatch(HttpHeaders.AUTHORIZATION::equalsIgnoreCase);
+        this.keyedByCookie = keyHeaders.stream().anyMatch(HttpHeaders.COOKIE::equalsIgnoreCase);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET || personalized(request)) {
+            return chain.filter(exchange);
+        }
+        String base = key(request);
+        List<String> vary = this.varies.getIfPresent(base);
+        String key = vary == null ? base : variant(base, request, vary);
+        long now = System.nanoTime();
+
+        CachedResponse cached = noCache(request) ? null : this.cache.getIfPresent(key);
+        if (cached != null && cached.isFresh(now)) {
+            return write(request, exchange.getResponse(), cached, "HIT");
+        }
+
+        MonoProcessor<CachedResponse> created = MonoProcessor.create();
+        MonoProcessor<CachedResponse> leader = this.inFlight.putIfAbsent(key, created);
+        if (leader != null) {
+            // 已有请求在回源：等待它的结果
+            // write 本身是空的 Mono<Void> ，不能直接接 switchIfEmpty ，否则命中后还会再回源一次
+            return leader.timeout(this.coalesceTimeout, Mono.empty())
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(response -> response.isPresent()
+                            ? write(request, exchange.getResponse(), response.get(), "COALESCED")
+                            : chain.filter(exchange));
+        }
+
+        ServerWebExchange forwarded = exchange;
+        if (cached != null && cached.hasValidators()) {
+            forwarded = exchange.mutate().request(revalidate(request, cached)).build();
+        }
+        CapturingResponse capturing = new CapturingResponse(request, exchange.getResponse(), base, key,
+                cached, created);
+        return chain.filter(forwarded.mutate().response(capturing).build())
+                .doFinally(signal -> {
+                    this.inFlight.remove(key, created);
+                    // 没有写出响应体（出错或取消）时也要唤醒等待者
+                    created.onComplete();
+                });
+    }
+
+    private String key(ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(64).append(request.getURI().getRawPath());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        HttpHeaders headers = request.getHeaders();
+        for (int i = 0; i < this.keyHeaders.size(); i++) {
+            String value = headers.getFirst(this.keyHeaders.get(i));
+            key.append('|').append(value == null ? "" : value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 带身份信息、但身份信息不参与 key 的请求
+     */
+    private boolean personalized(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return (!this.keyedByAuthorization && headers.containsKey(HttpHeaders.AUTHORIZATION))
+                || (!this.keyedByCookie && headers.containsKey(HttpHeaders.COOKIE));
+    }
+
+    private static String variant(String base, ServerHttpRequest request, List<String> vary) {
+        StringBuilder key = new StringBuilder(base.length() + 32).append(base).append('#');
+        HttpHeaders headers = request.getHeaders();
+        for (int i = 0; i < vary.size(); i++) {
+            List<String> values = headers.get(vary.get(i));
+            key.append('|').append(values == null ? "" : String.join(",", values));
+        }
+        return key.toString();
+    }
+
+    private static boolean noCache(ServerHttpRequest request) {
+        String cacheControl = request.getHeaders().getCacheControl();
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-cache");
+    }
+
+    private static ServerHttpRequest revalidate(ServerHttpRequest request, CachedResponse cached) {
+        return request.mutate().headers(headers -> {
+            String etag = cached.getHeaders().getETag();
+            if (etag != null) {
+                headers.setIfNoneMatch(etag);
+            }
+            long lastModified = cached.getHeaders().getLastModified();
+            if (lastModified >= 0) {
+                headers.setIfModifiedSince(lastModified);
+            }
+        }).build();
+    }
+
+    private static Mono<Void> write(ServerHttpRequest request, ServerHttpResponse response,
+                                    CachedResponse cached, String cacheStatus) {
+        String etag = cached.getHeaders().getETag();
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        response.getHeaders().putAll(cached.getHeaders());
+        response.getHeaders().set(CACHE_STATUS_HEADER, cacheStatus);
+        if (etag != null && ifNoneMatch.contains(etag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.getStatus());
+        return response.writeWith(Mono.just(cached.body(response.bufferFactory())));
+    }
+
+    /**
+     * 响应的有效期（纳秒），返回 -1 表示不可缓存
+     */
+    private long ttl(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE) || headers.getVary().contains("*")) {
+            return -1L;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return this.ttlNanos;
+        }
+        String value = cacheControl.toLowerCase(Locale.ROOT);
+        if (value.contains("no-store") || value.contains("private") || value.contains("no-cache")) {
+            return -1L;
+        }
+        long maxAge = directive(value, "s-maxage=");
+        if (maxAge < 0) {
+            maxAge = directive(value, "max-age=");
+        }
+        return maxAge < 0 ? this.ttlNanos : TimeUnit.SECONDS.toNanos(maxAge);
+    }
+
+    private static long directive(String cacheControl, String name) {
+        int index = cacheControl.indexOf(name);
+        if (index < 0) {
+            return -1L;
+        }
+        int start = index + name.length();
+        int end = start;
+        while (end < cacheControl.length() && Character.isDigit(cacheControl.charAt(end))) {
+            end++;
+        }
+        return end == start ? -1L : Long.parseLong(cacheControl.substring(start, end));
+    }
+
+    /**
+     * 回源请求的响应装饰器：转发可缓存响应的同时复制响应体并写入缓存，其余响应原样透传
+     */
+    private final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerHttpRequest request;
+
+        private final String base;
+
+        private final String key;
+
+        private final CachedResponse stale;
+
+        private final MonoProcessor<CachedResponse> processor;
+
+        private byte[] captured;
+
+        private int capturedLength;
+
+        private CapturingResponse(ServerHttpRequest request, ServerHttpResponse delegate, String base, String key,
+                                  CachedResponse stale, MonoProcessor<CachedResponse> processor) {
+            super(delegate);
+            this.request = request;
+            this.base = base;
+            this.key = key;
+            this.stale = stale;
+            this.processor = processor;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatus status = getStatusCode();
+            HttpHeaders headers = getHeaders();
+
+            if (status == HttpStatus.NOT_MODIFIED && this.stale != null) {
+                // 上游确认缓存仍然有效：续期并返回缓存内容
+                long ttl = ttl(headers);
+                CachedResponse renewed = this.stale.renew(System.nanoTime() + Math.max(ttl, 0L));
+                if (ttl > 0) {
+                    cache.put(this.key, renewed);
+                }
+                this.processor.onNext(renewed);
+                // 用缓存的响应头替换上游 304 的响应头；客户端自己的 If-None-Match 仍然按原始请求判断
+                getDelegate().getHeaders().clear();
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> write(this.request, getDelegate(), renewed, "REVALIDATED")));
+            }
+
+            long ttl = status == HttpStatus.OK ? ttl(headers) : -1L;
+            long contentLength = headers.getContentLength();
+            if (ttl <= 0 || contentLength > maxBodyBytes) {
+                this.processor.onComplete();
+                return super.writeWith(body);
+            }
+
+            List<String> responseVary = headers.getVary();
+            String storeKey = responseVary.isEmpty() ? this.base : variant(this.base, this.request, responseVary);
+            if (!storeKey.equals(this.key)) {
+                // 等待者的 key 没有包含这次响应的 Vary ，不能共享结果
+                this.processor.onComplete();
+            }
+            this.captured = new byte[(int) Math.min(contentLength > 0 ? contentLength : 1024L, maxBodyBytes)];
+            headers.set(CACHE_STATUS_HEADER, "MISS");
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(this::capture)
+                    .doOnComplete(() -> store(status, headers, ttl, responseVary, storeKey)));
+        }
+
+        /**
+         * 复制一块响应体，不改变它的读位置；超过上限后丢弃已复制的内容，之后的数据直接透传
+         */
+        private void capture(DataBuffer buffer) {
+            if (this.captured == null) {
+                return;
+            }
+            int length = buffer.readableByteCount();
+            if (this.capturedLength + (long) length > maxBodyBytes) {
+                this.captured = null;
+                this.processor.onComplete();
+                return;
+            }
+            if (this.capturedLength + length > this.captured.length) {
+                this.captured = Arrays.copyOf(this.captured, (int) Math.min(
+                        Math.max(this.captured.length * 2L, this.capturedLength + (long) length), maxBodyBytes));
+            }
+            ByteBuffer source = buffer.asByteBuffer(buffer.readPosition(), length);
+            source.get(this.captured, this.capturedLength, length);
+            this.capturedLength += length;
+        }
+
+        private void store(HttpStatus status, HttpHeaders headers, long ttl, List<String> responseVary,
+                           String storeKey) {
+            if (this.captured == null) {
+                return;
+            }
+            byte[] bytes = this.capturedLength == this.captured.length
+                    ? this.captured : Arrays.copyOf(this.captured, this.capturedLength);
+            this.captured = null;
+            CachedResponse response = CachedResponse.of(status, headers, bytes, offHeap, System.nanoTime() + ttl);
+            if (responseVary.isEmpty()) {
+                varies.invalidate(this.base);
+            } else {
+                varies.put(this.base, Collections.unmodifiableList(responseVary));
+            }
+            cache.put(storeKey, response);
+            if (storeKey.equals(this.key)) {
+                this.processor.onNext(response);
+            }
+        }
+    }
+}
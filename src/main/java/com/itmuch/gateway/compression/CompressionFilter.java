@@ -0,0 +1,150 @@
+package com.itmuch.gateway.compression;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * 单个路由的响应压缩
+ *
+ *  ~ 按 Accept-Encoding 选择 gzip 或 deflate ，响应体逐块压缩后写出，不在网关聚合整个响应体
+ *  ~ 不压缩：HEAD 请求、没有响应体的状态码、上游已经设置了 Content-Encoding 、Content-Type 不在可压缩列表中、
+ *      Content-Length 小于 minSize 、带 Content-Range 或 Cache-Control: no-transform 的响应
+ *  ~ Content-Length 未知（chunked）的响应总是压缩
+ *  ~ 压缩后去掉 Content-Length ，强 ETag 改为弱 ETag ；可压缩类型的响应都带 Vary: Accept-Encoding
+ *  ~ writeAndFlushWith（SSE 等按条刷新的响应）不压缩，避免压缩缓冲导致消息延迟
+ *  ~ Deflater 来自按线程缓存的 DeflaterPool ，多个路由共享
+ */
+public class CompressionFilter implements GatewayFilter {
+
+    private final Function<ContentEncoding, DeflaterPool> pools;
+
+    private final List<ContentEncoding> encodings;
+
+    private final long minSize;
+
+    private final List<MediaType> mimeTypes;
+
+    /**
+     * @param pools     每种压缩格式使用的 Deflater 池
+     * @param encodings 允许的压缩格式，Accept-Encoding 的 q 值相同时靠前者优先
+     */
+    public CompressionFilter(Function<ContentEncoding, DeflaterPool> pools, List<ContentEncoding> encodings,
+                             long minSize, List<MediaType> mimeTypes) {
+        this.pools = pools;
+        this.encodings = encodings;
+        this.minSize = minSize;
+        this.mimeTypes = mimeTypes;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() == HttpMethod.HEAD) {
+            return chain.filter(exchange);
+        }
+        ContentEncoding encoding = ContentEncoding.negotiate(
+                request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING), this.encodings);
+        if (encoding == null) {
+            return chain.filter(exchange);
+        }
+        CompressingResponse response = new CompressingResponse(exchange.getResponse(), encoding);
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    private boolean compressible(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        for (MediaType mimeType : this.mimeTypes) {
+            if (mimeType.includes(contentType)) {
+                return true;
+            }
+        }
+        // application/*+json 、application/*+xml
+        String subtype = contentType.getSubtype().toLowerCase(Locale.ROOT);
+        return subtype.endsWith("+json") || subtype.endsWith("+xml");
+    }
+
+    private final class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final ContentEncoding encoding;
+
+        private CompressingResponse(ServerHttpResponse delegate, ContentEncoding encoding) {
+            super(delegate);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!shouldCompress()) {
+                return super.writeWith(body);
+            }
+            HttpHeaders headers = getHeaders();
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, this.encoding.getToken());
+            String etag = headers.getETag();
+            if (etag != null && !etag.startsWith("W/")) {
+                headers.setETag("W/" + etag);
+            }
+
+            StreamingCompressor compressor = new StreamingCompressor(pools.apply(this.encoding), bufferFactory());
+            Flux<DataBuffer> compressed = Flux.from(body)
+                    .<DataBuffer>handle((buffer, sink) -> {
+                        DataBuffer output = compressor.compress(buffer);
+                        if (output.readableByteCount() > 0) {
+                            sink.next(output);
+                        } else {
+                            DataBufferUtils.release(output);
+                        }
+                    })
+                    .concatWith(Mono.fromSupplier(compressor::finish))
+                    .doFinally(signal -> compressor.close());
+            return super.writeWith(compressed);
+        }
+
+        private boolean shouldCompress() {
+            HttpStatus status = getStatusCode();
+            if (status == HttpStatus.NO_CONTENT || status == HttpStatus.NOT_MODIFIED
+                    || (status != null && status.is1xxInformational())) {
+                return false;
+            }
+            HttpHeaders headers = getHeaders();
+            if (!compressible(headers.getContentType())) {
+                return false;
+            }
+            if (!headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING)) {
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding)) {
+                return false;
+            }
+            if (headers.containsKey(HttpHeaders.CONTENT_RANGE)) {
+                return false;
+            }
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-transform")) {
+                return false;
+            }
+            long contentLength = headers.getContentLength();
+            return contentLength < 0 || contentLength >= minSize;
+        }
+    }
+}
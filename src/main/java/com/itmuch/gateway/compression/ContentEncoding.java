@@ -0,0 +1,74 @@
+package com.itmuch.gateway.compression;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 支持的响应压缩格式
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip"),
+
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return this.token;
+    }
+
+    /**
+     * 按 Accept-Encoding 选择压缩格式：q 值最高者优先，q 值相同时按 allowed 的顺序；q=0 表示不接受
+     *
+     * @return 客户端不接受任何允许的格式时返回 null
+     */
+    static ContentEncoding negotiate(String acceptEncoding, List<ContentEncoding> allowed) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        ContentEncoding best = null;
+        double bestQ = 0.0;
+        double wildcardQ = -1.0;
+        double[] explicit = new double[values().length];
+        Arrays.fill(explicit, -1.0);
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0.0;
+                    }
+                }
+            }
+            if ("*".equals(name)) {
+                wildcardQ = q;
+            }
+            for (ContentEncoding encoding : values()) {
+                if (encoding.token.equals(name)) {
+                    explicit[encoding.ordinal()] = q;
+                }
+            }
+        }
+        for (ContentEncoding encoding : allowed) {
+            double q = explicit[encoding.ordinal()] >= 0 ? explicit[encoding.ordinal()] : wildcardQ;
+            // q 值相同时保留 allowed 中靠前的格式
+            if (q > bestQ) {
+                best = encoding;
+                bestQ = q;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,71 @@
+package com.itmuch.gateway.compression;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.ArrayDeque;
+import java.util.zip.Deflater;
+
+/**
+ * 按线程缓存的 Deflater 池
+ *
+ *  ~ Deflater 创建时分配几百 KB 的 zlib 堆外内存，每个响应 new 一个既慢又容易在 GC 前堆积；
+ *      这里每个线程（事件循环线程）保留最多 maxPerThread 个空闲实例，reset() 后复用
+ *  ~ 借出和归还一般在同一个事件循环线程，不需要同步；在其他线程归还时进入该线程的池，同样有上限
+ *  ~ 每个线程另有一块压缩输出用的临时数组，Java 8 的 Deflater 只能写入 byte[]
+ */
+public final class DeflaterPool {
+
+    private static final int SCRATCH_SIZE = 8192;
+
+    private static final FastThreadLocal<byte[]> SCRATCH = new FastThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_SIZE];
+        }
+    };
+
+    private final int level;
+
+    private final boolean nowrap;
+
+    private final int maxPerThread;
+
+    private final FastThreadLocal<ArrayDeque<Deflater>> idle = new FastThreadLocal<ArrayDeque<Deflater>>() {
+        @Override
+        protected ArrayDeque<Deflater> initialValue() {
+            return new ArrayDeque<>();
+        }
+    };
+
+    /**
+     * @param nowrap true 时输出裸 deflate 数据（gzip 自己写头尾），false 时带 zlib 头尾（Content-Encoding: deflate）
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxPerThread) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxPerThread = maxPerThread;
+    }
+
+    Deflater acquire() {
+        Deflater deflater = this.idle.get().pollFirst();
+        return deflater != null ? deflater : new Deflater(this.level, this.nowrap);
+    }
+
+    void release(Deflater deflater) {
+        ArrayDeque<Deflater> idle = this.idle.get();
+        if (idle.size() < this.maxPerThread) {
+            deflater.reset();
+            idle.offerFirst(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    boolean isNowrap() {
+        return this.nowrap;
+    }
+
+    static byte[] scratch() {
+        return SCRATCH.get();
+    }
+}
@@ -0,0 +1,142 @@
+package com.itmuch.gateway.compression;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 单个响应的流式压缩：每收到一块响应体就压缩一块，不聚合整个响应体
+ *
+ *  ~ gzip 格式自己写 10 字节头和 CRC32 + 长度尾，压缩数据用 nowrap 的 Deflater 生成
+ *  ~ 每块输入用 NO_FLUSH 压缩，压缩率与一次性压缩相同；deflater 内部暂存的数据在 finish() 时输出
+ *  ~ Deflater 在 finish() 或 close() 时归还到 DeflaterPool ；请求取消可能与写出并发，方法都加了同步
+ */
+final class StreamingCompressor {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final DeflaterPool pool;
+
+    private final DataBufferFactory bufferFactory;
+
+    private final boolean gzip;
+
+    private final CRC32 crc;
+
+    private Deflater deflater;
+
+    private boolean headerWritten;
+
+    private long bytesIn;
+
+    private long bytesOut;
+
+    StreamingCompressor(DeflaterPool pool, DataBufferFactory bufferFactory) {
+        this.pool = pool;
+        this.bufferFactory = bufferFactory;
+        this.gzip = pool.isNowrap();
+        this.crc = this.gzip ? new CRC32() : null;
+        this.deflater = pool.acquire();
+    }
+
+    /**
+     * 压缩一块响应体并释放它；输出可能为空（数据暂存在 deflater 中）
+     */
+    synchronized DataBuffer compress(DataBuffer input) {
+        try {
+            DataBuffer output = this.bufferFactory.allocateBuffer(Math.max(64, input.readableByteCount() / 2));
+            if (this.deflater == null) {
+                return output;
+            }
+            writeHeader(output);
+            ByteBuffer source = input.asByteBuffer();
+            byte[] bytes;
+            int offset;
+            int length = source.remaining();
+            if (source.hasArray()) {
+                bytes = source.array();
+                offset = source.arrayOffset() + source.position();
+            } else {
+                // Java 8 的 Deflater 只接受 byte[] ，堆外缓冲区需要复制一次
+                bytes = new byte[length];
+                source.get(bytes);
+                offset = 0;
+            }
+            if (this.crc != null) {
+                this.crc.update(bytes, offset, length);
+            }
+            this.bytesIn += length;
+            this.deflater.setInput(bytes, offset, length);
+            byte[] scratch = DeflaterPool.scratch();
+            while (!this.deflater.needsInput()) {
+                int n = this.deflater.deflate(scratch, 0, scratch.length, Deflater.NO_FLUSH);
+                output.write(scratch, 0, n);
+            }
+            // 输入已经全部进入 deflater 的窗口，不再引用 bytes
+            this.bytesOut += output.readableByteCount();
+            return output;
+        } finally {
+            DataBufferUtils.release(input);
+        }
+    }
+
+    /**
+     * 输出剩余的压缩数据（以及 gzip 尾），并归还 Deflater
+     */
+    synchronized DataBuffer finish() {
+        DataBuffer output = this.bufferFactory.allocateBuffer(256);
+        if (this.deflater == null) {
+            return output;
+        }
+        writeHeader(output);
+        this.deflater.finish();
+        byte[] scratch = DeflaterPool.scratch();
+        while (!this.deflater.finished()) {
+            int n = this.deflater.deflate(scratch, 0, scratch.length);
+            output.write(scratch, 0, n);
+        }
+        if (this.gzip) {
+            writeIntLE(output, (int) this.crc.getValue());
+            writeIntLE(output, (int) this.bytesIn);
+        }
+        this.bytesOut += output.readableByteCount();
+        close();
+        return output;
+    }
+
+    /**
+     * 归还 Deflater ，可重复调用
+     */
+    synchronized void close() {
+        if (this.deflater != null) {
+            this.pool.release(this.deflater);
+            this.deflater = null;
+        }
+    }
+
+    long getBytesIn() {
+        return this.bytesIn;
+    }
+
+    long getBytesOut() {
+        return this.bytesOut;
+    }
+
+    private void writeHeader(DataBuffer output) {
+        if (this.gzip && !this.headerWritten) {
+            output.write(GZIP_HEADER);
+        }
+        this.headerWritten = true;
+    }
+
+    private static void writeIntLE(DataBuffer output, int value) {
+        output.write((byte) value);
+        output.write((byte) (value >>> 8));
+        output.write((byte) (value >>> 16));
+        output.write((byte) (value >>> 24));
+    }
+}
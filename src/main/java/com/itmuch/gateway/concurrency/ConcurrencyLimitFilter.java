@@ -0,0 +1,126 @@
+package com.itmuch.gateway.concurrency;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个路由的自适应并发限制（load shedding）
+ *
+ *  ~ RequestRateLimiter 只限制每个 key 的速率，上游变慢时在途请求仍会不断堆积；这里直接限制在途请求数，
+ *      上限随上游 RTT 自动调整（GradientLimit）
+ *  ~ 超过上限：队列未满时排队等待最多 maxWait ，按优先级请求头（high / normal / low）出队；否则立即返回 503
+ *  ~ RTT 从获得许可到路由过滤器拿到上游响应头为止，不包含向客户端写响应体的时间
+ *  ~ 排队只是订阅一个 Mono ，不占用事件循环线程
+ */
+public class ConcurrencyLimitFilter implements GatewayFilter {
+
+    private final ConcurrencyLimiter limiter;
+
+    private final Duration maxWait;
+
+    private final String priorityHeader;
+
+    public ConcurrencyLimitFilter(Settings settings) {
+        this.limiter = new ConcurrencyLimiter(new GradientLimit(settings.initialLimit, settings.minLimit,
+                settings.maxLimit, settings.smoothing, settings.tolerance, settings.queueSize, settings.window),
+                settings.maxQueue);
+        this.maxWait = settings.maxWait;
+        this.priorityHeader = settings.priorityHeader;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        int inflight = this.limiter.tryAcquire();
+        if (inflight >= 0) {
+            return proceed(exchange, chain, inflight);
+        }
+        ConcurrencyLimiter.Waiter waiter = this.limiter.enqueue(priority(exchange));
+        if (waiter == null) {
+            return reject(exchange);
+        }
+        // 许可只能由一处归还：进入 flatMap 之后由 proceed 的 doFinally 归还，之前取消时由 abandon 归还
+        AtomicBoolean consumed = new AtomicBoolean();
+        return waiter.granted()
+                .timeout(this.maxWait)
+                .onErrorResume(TimeoutException.class,
+                        ex -> Mono.just(waiter.cancel() ? -1 : waiter.getInflightAtGrant()))
+                .doOnCancel(() -> {
+                    if (consumed.compareAndSet(false, true)) {
+                        this.limiter.abandon(waiter);
+                    }
+                })
+                .flatMap(granted -> {
+                    if (!consumed.compareAndSet(false, true)) {
+                        return Mono.empty();
+                    }
+                    return granted < 0 ? reject(exchange) : proceed(exchange, chain, granted);
+                });
+    }
+
+    private Mono<Void> proceed(ServerWebExchange exchange, GatewayFilterChain chain, int inflight) {
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> this.limiter.release(
+                System.nanoTime() - start, inflight, signal != SignalType.CANCEL));
+    }
+
+    private int priority(ServerWebExchange exchange) {
+        String value = this.priorityHeader == null ? null
+                : exchange.getRequest().getHeaders().getFirst(this.priorityHeader);
+        if ("high".equalsIgnoreCase(value)) {
+            return 0;
+        }
+        if ("low".equalsIgnoreCase(value)) {
+            return ConcurrencyLimiter.PRIORITIES - 1;
+        }
+        return 1;
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        return response.setComplete();
+    }
+
+    ConcurrencyLimiter getLimiter() {
+        return this.limiter;
+    }
+
+    /**
+     * 路由级配置，由 ConcurrencyLimitGatewayFilterFactory 创建
+     */
+    public static class Settings {
+        private final int initialLimit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final double smoothing;
+        private final double tolerance;
+        private final int queueSize;
+        private final int window;
+        private final int maxQueue;
+        private final Duration maxWait;
+        private final String priorityHeader;
+
+        public Settings(int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance,
+                        int queueSize, int window, int maxQueue, Duration maxWait, String priorityHeader) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.smoothing = smoothing;
+            this.tolerance = tolerance;
+            this.queueSize = queueSize;
+            this.window = window;
+            this.maxQueue = maxQueue;
+            this.maxWait = maxWait;
+            this.priorityHeader = priorityHeader;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.itmuch.gateway.concurrency;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个路由的并发许可：上限由 GradientLimit 计算，超出上限的请求进入按优先级划分的短队列
+ *
+ *  ~ 获取许可：在途数小于上限时 CAS 加一，没有锁
+ *  ~ 排队：每个优先级一个 ConcurrentLinkedQueue ，总长度由 AtomicInteger 限制；释放许可时按优先级从高到低交给等待者
+ *  ~ 等待者的状态 WAITING -> GRANTED / CANCELLED 只能 CAS 一次，超时取消与交付许可并发时不会丢失或重复许可
+ *  ~ 已取消的等待者留在队列里，由后续出队时跳过
+ */
+final class ConcurrencyLimiter {
+
+    static final int PRIORITIES = 3;
+
+    private final GradientLimit limit;
+
+    private final int maxQueue;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<Waiter>[] queues;
+
+    @SuppressWarnings("unchecked")
+    ConcurrencyLimiter(GradientLimit limit, int maxQueue) {
+        this.limit = limit;
+        this.maxQueue = maxQueue;
+        this.queues = new Queue[PRIORITIES];
+        for (int i = 0; i < PRIORITIES; i++) {
+            this.queues[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * @return 获取前的在途请求数；超过上限时返回 -1
+     */
+    int tryAcquire() {
+        for (;;) {
+            int current = this.inflight.get();
+            if (current >= this.limit.getLimit()) {
+                return -1;
+            }
+            if (this.inflight.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * @param priority 0 最高
+     * @return 队列已满时返回 null
+     */
+    Waiter enqueue(int priority) {
+        for (;;) {
+            int current = this.queued.get();
+            if (current >= this.maxQueue) {
+                return null;
+            }
+            if (this.queued.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        Waiter waiter = new Waiter();
+        this.queues[priority].offer(waiter);
+        // 入队之前许可可能刚好被释放，这里补一次分配
+        drain();
+        return waiter;
+    }
+
+    /**
+     * @param rttNanos 请求耗时
+     * @param inflight 请求开始时的在途请求数
+     * @param sample   是否作为 RTT 样本（请求被取消时不计）
+     */
+    void release(long rttNanos, int inflight, boolean sample) {
+        this.inflight.decrementAndGet();
+        if (sample) {
+            this.limit.onSample(rttNanos, inflight);
+        }
+        drain();
+    }
+
+    /**
+     * 等待者取消时，如果许可已经交付但还没有使用，归还许可
+     */
+    void abandon(Waiter waiter) {
+        if (!waiter.cancel()) {
+            release(0L, 0, false);
+        }
+    }
+
+    int getLimit() {
+        return this.limit.getLimit();
+    }
+
+    int getInflight() {
+        return this.inflight.get();
+    }
+
+    int getQueued() {
+        return this.queued.get();
+    }
+
+    private void drain() {
+        while (this.queued.get() > 0) {
+            int current = tryAcquire();
+            if (current < 0) {
+                return;
+            }
+            Waiter waiter = poll();
+            if (waiter == null) {
+                this.inflight.decrementAndGet();
+                return;
+            }
+            if (!waiter.grant(current)) {
+                this.inflight.decrementAndGet();
+            }
+        }
+    }
+
+    private Waiter poll() {
+        for (Queue<Waiter> queue : this.queues) {
+            Waiter waiter;
+            while ((waiter = queue.poll()) != null) {
+                if (waiter.isWaiting()) {
+                    return waiter;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 排队中的请求
+     */
+    final class Waiter {
+
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private final MonoProcessor<Integer> granted = MonoProcessor.create();
+
+        private volatile int inflightAtGrant;
+
+        Mono<Integer> granted() {
+            return this.granted;
+        }
+
+        int getInflightAtGrant() {
+            return this.inflightAtGrant;
+        }
+
+        private boolean isWaiting() {
+            return this.state.get() == WAITING;
+        }
+
+        private boolean grant(int inflight) {
+            this.inflightAtGrant = inflight;
+            if (!this.state.compareAndSet(WAITING, GRANTED)) {
+                return false;
+            }
+            ConcurrencyLimiter.this.queued.decrementAndGet();
+            this.granted.onNext(inflight);
+            return true;
+        }
+
+        /**
+         * @return false 表示许可已经交付
+         */
+        boolean cancel() {
+            if (this.state.compareAndSet(WAITING, CANCELLED)) {
+                ConcurrencyLimiter.this.queued.decrementAndGet();
+                return true;
+            }
+            return this.state.get() == CANCELLED;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.itmuch.gateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于 RTT 梯度的自适应并发上限（参考 Netflix concurrency-limits 的 Gradient2）
+ *
+ *  ~ longRtt ：RTT 的长期指数平均（约 window 个样本），代表上游“正常”时的延迟
+ *  ~ 每个样本：gradient = tolerance * longRtt / rtt ，限制在 [0.5, 1.0] ；
+ *      newLimit = limit * gradient + queueSize ，再按 smoothing 平滑
+ *      延迟上升时 gradient < 1 ，上限按比例下降；延迟正常时 gradient = 1 ，上限每次增加 queueSize * smoothing
+ *  ~ 在途请求不到上限一半时不增加上限（流量不足，样本说明不了上游还能承受更多）
+ *  ~ longRtt 远大于当前 RTT（上游恢复）时逐步调低 longRtt ，避免长期停留在高延迟的基线上
+ *  ~ 状态是不可变对象，更新用 CAS ，没有锁
+ */
+final class GradientLimit {
+
+    private static final int WARMUP_SAMPLES = 10;
+
+    private final AtomicReference<State> state;
+
+    private final double minLimit;
+
+    private final double maxLimit;
+
+    private final double smoothing;
+
+    private final double tolerance;
+
+    private final double queueSize;
+
+    private final double longRttFactor;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance, int queueSize,
+                  int window) {
+        this.state = new AtomicReference<>(new State(initialLimit, 0.0, 0));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.queueSize = queueSize;
+        this.longRttFactor = 2.0 / (window + 1);
+    }
+
+    int getLimit() {
+        return (int) this.state.get().limit;
+    }
+
+    /**
+     * @param rttNanos 本次请求的耗时
+     * @param inflight 请求开始时的在途请求数
+     */
+    void onSample(long rttNanos, int inflight) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        double rtt = rttNanos;
+        for (;;) {
+            State current = this.state.get();
+            State next = next(current, rtt, inflight);
+            if (this.state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private State next(State current, double rtt, int inflight) {
+        int samples = current.samples + 1;
+        double longRtt;
+        if (samples <= WARMUP_SAMPLES) {
+            longRtt = current.longRtt + (rtt - current.longRtt) / samples;
+        } else {
+            longRtt = current.longRtt * (1 - this.longRttFactor) + rtt * this.longRttFactor;
+        }
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        double limit = current.limit;
+        if (samples > WARMUP_SAMPLES && inflight >= limit / 2) {
+            double gradient = Math.max(0.5, Math.min(1.0, this.tolerance * longRtt / rtt));
+            double newLimit = limit * gradient + this.queueSize;
+            newLimit = limit * (1 - this.smoothing) + newLimit * this.smoothing;
+            limit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+        }
+        return new State(limit, longRtt, Math.min(samples, Integer.MAX_VALUE - 1));
+    }
+
+    private static final class State {
+        private final double limit;
+        private final double longRtt;
+        private final int samples;
+
+        private State(double limit, double longRtt, int samples) {
+            this.limit = limit;
+            this.longRtt = longRtt;
+            this.samples = samples;
+        }
+    }
+}
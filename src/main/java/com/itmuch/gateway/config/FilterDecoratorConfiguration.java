@@ -0,0 +1,73 @@
+package com.itmuch.gateway.config;
+
+import com.itmuch.gateway.route.DecoratingGatewayFilterFactory;
+import com.itmuch.gateway.route.GatewayFilterDecorator;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 过滤器装饰器（GatewayFilterDecorator）
+ *
+ *  ~ 过滤器在编译路由时才被包装，GatewayFilterFactory Bean 本身保持原样：
+ *      DisposableBean 等生命周期回调照常执行，按具体类型注入工厂也不受影响
+ *  ~ 装饰器按 order 排列，先后确定：offload 在里层，耗时统计在外层
+ *  ~ 路由索引（RouteIndexConfiguration）的 RouteCompiler 直接使用装饰后的工厂；
+ *      内置的 RouteDefinitionRouteLocator 由 GatewayAutoConfiguration 创建，在这里替换成使用装饰后工厂的实例
+ */
+@Configuration
+public class FilterDecoratorConfiguration {
+
+    @Bean
+    public static BeanPostProcessor decoratingRouteDefinitionRouteLocatorPostProcessor() {
+        return new DecoratingRouteLocatorPostProcessor();
+    }
+
+    /**
+     * 依赖在替换时才从容器中获取，避免过早初始化其他 Bean ；没有装饰器时不替换
+     */
+    static class DecoratingRouteLocatorPostProcessor implements BeanPostProcessor, ApplicationContextAware {
+
+        private ApplicationContext applicationContext;
+
+        @Override
+        public void setApplicationContext(ApplicationContext applicationContext) {
+            this.applicationContext = applicationContext;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            if (bean == null || bean.getClass() != RouteDefinitionRouteLocator.class) {
+                return bean;
+            }
+            List<GatewayFilterDecorator> decorators = this.applicationContext
+                    .getBeanProvider(GatewayFilterDecorator.class).orderedStream().collect(Collectors.toList());
+            if (decorators.isEmpty()) {
+                return bean;
+            }
+            List<RoutePredicateFactory> predicates = this.applicationContext
+                    .getBeanProvider(RoutePredicateFactory.class).orderedStream().collect(Collectors.toList());
+            List<GatewayFilterFactory> factories = this.applicationContext
+                    .getBeanProvider(GatewayFilterFactory.class).orderedStream().collect(Collectors.toList());
+            RouteDefinitionRouteLocator locator = new RouteDefinitionRouteLocator(
+                    this.applicationContext.getBean(RouteDefinitionLocator.class), predicates,
+                    DecoratingGatewayFilterFactory.decorate(factories, decorators),
+                    this.applicationContext.getBean(GatewayProperties.class));
+            locator.setBeanFactory(this.applicationContext);
+            locator.setApplicationEventPublisher(this.applicationContext);
+            return locator;
+        }
+    }
+}
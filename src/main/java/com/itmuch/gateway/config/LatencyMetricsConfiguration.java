@@ -0,0 +1,63 @@
+package com.itmuch.gateway.config;
+
+import com.itmuch.gateway.metrics.GatewayLatencyEndpoint;
+import com.itmuch.gateway.metrics.LatencyRegistry;
+import com.itmuch.gateway.metrics.RouteLatencyGlobalFilter;
+import com.itmuch.gateway.metrics.TimedGatewayFilterDecorator;
+import com.itmuch.gateway.route.RouteIndexManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 路由 / 过滤器延迟分布
+ *
+ *  ~ RouteLatencyGlobalFilter ：每个路由的整体耗时
+ *  ~ TimedGatewayFilterDecorator ：编译路由时包装每个过滤器，自动记录 pre 阶段耗时（见 FilterDecoratorConfiguration）
+ *      例如 user-center-id 路由上 RequestRateLimiter 、PreLog 各自的耗时
+ *  ~ 数据通过 /actuator/gatewaylatency 和 Micrometer（/actuator/metrics/gateway.route.latency）查看，
+ *      分位数只统计最近一个窗口（默认 1 分钟）内的请求
+ *
+ * 关闭：gateway.latency.enabled=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.latency.enabled", matchIfMissing = true)
+public class LatencyMetricsConfiguration {
+
+    /**
+     * 路由索引开启时，路由被删除后移除对应的记录器与 Meter
+     */
+    @Bean
+    public LatencyRegistry latencyRegistry(ObjectProvider<MeterRegistry> meterRegistry,
+                                           ObjectProvider<RouteIndexManager> routeIndexManager,
+                                           // 滑动窗口的时间片个数
+                                           @Value("${gateway.latency.window-slots:6}") int slots,
+                                           // 每个时间片的长度（毫秒），默认窗口为最近 1 分钟
+                                           @Value("${gateway.latency.slot-millis:10000}") long slotMillis) {
+        LatencyRegistry registry = new LatencyRegistry(meterRegistry.getIfAvailable(), slots, slotMillis);
+        routeIndexManager.ifAvailable(manager -> manager.addListener(diff -> {
+            if (!diff.getRemoved().isEmpty()) {
+                registry.remove(diff.getRemoved());
+            }
+        }));
+        return registry;
+    }
+
+    @Bean
+    public RouteLatencyGlobalFilter routeLatencyGlobalFilter(LatencyRegistry latencyRegistry) {
+        return new RouteLatencyGlobalFilter(latencyRegistry);
+    }
+
+    @Bean
+    public GatewayLatencyEndpoint gatewayLatencyEndpoint(LatencyRegistry latencyRegistry) {
+        return new GatewayLatencyEndpoint(latencyRegistry);
+    }
+
+    @Bean
+    public TimedGatewayFilterDecorator timedGatewayFilterDecorator(LatencyRegistry latencyRegistry) {
+        return new TimedGatewayFilterDecorator(latencyRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.itmuch.gateway.config;
+
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import com.itmuch.gateway.loadbalancer.AdaptiveLoadBalancer;
+import com.itmuch.gateway.loadbalancer.AdaptiveLoadBalancerClientFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * lb:// 路由的自适应负载均衡
+ *
+ * 默认的 Ribbon 轮询不关心实例当前的负载，慢实例和出错的实例分到的流量与其他实例一样多。
+ * 这里定义 LoadBalancerClientFilter 的子类，GatewayLoadBalancerClientAutoConfiguration 中的
+ * 默认过滤器（@ConditionalOnMissingBean）随之失效。实例列表来自 ServiceInstanceCacheConfiguration 注册的缓存。
+ *
+ * 关闭：gateway.load-balancer.adaptive.enabled=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.load-balancer.adaptive.enabled", matchIfMissing = true)
+public class LoadBalancerConfiguration {
+
+    /**
+     * 实例列表变化时清理已下线实例的统计信息
+     */
+    @Bean
+    public AdaptiveLoadBalancer adaptiveLoadBalancer(
+            ServiceInstanceCache serviceInstanceCache,
+            // peak-EWMA 的衰减时间常数（毫秒）
+            @Value("${gateway.load-balancer.adaptive.decay-millis:10000}") long decayMillis,
+            // 超过该耗时的请求按失败计（毫秒）
+            @Value("${gateway.load-balancer.adaptive.slow-call-millis:3000}") long slowCallMillis,
+            // 连续失败多少次后驱逐实例
+            @Value("${gateway.load-balancer.adaptive.failure-threshold:5}") int failureThreshold,
+            // 第一次驱逐的时长（毫秒），连续驱逐时按次数递增
+            @Value("${gateway.load-balancer.adaptive.base-ejection-millis:5000}") long baseEjectionMillis,
+            // 驱逐时长上限（毫秒）
+            @Value("${gateway.load-balancer.adaptive.max-ejection-millis:60000}") long maxEjectionMillis) {
+        AdaptiveLoadBalancer balancer = new AdaptiveLoadBalancer(new AdaptiveLoadBalancer.Settings(
+                decayMillis, slowCallMillis, failureThreshold, baseEjectionMillis, maxEjectionMillis));
+        serviceInstanceCache.addListener(balancer::retain);
+        return balancer;
+    }
+
+    @Bean
+    public AdaptiveLoadBalancerClientFilter loadBalancerClientFilter(LoadBalancerClient loadBalancerClient,
+                                                                     LoadBalancerProperties properties,
+                                                                     ServiceInstanceCache serviceInstanceCache,
+                                                                     AdaptiveLoadBalancer adaptiveLoadBalancer) {
+        return new AdaptiveLoadBalancerClientFilter(loadBalancerClient, properties, serviceInstanceCache,
+                adaptiveLoadBalancer);
+    }
+}
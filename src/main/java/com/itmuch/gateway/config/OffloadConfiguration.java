@@ -0,0 +1,48 @@
+package com.itmuch.gateway.config;
+
+import com.itmuch.gateway.offload.EventLoopBlockingDetector;
+import com.itmuch.gateway.offload.OffloadExecutor;
+import com.itmuch.gateway.offload.OffloadGatewayFilterDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpResources;
+
+/**
+ * 阻塞代码的 offload 机制
+ *
+ *  ~ 标注了 @Offload 、或者名称在 gateway.offload.filters 中的 GatewayFilterFactory ，生成的过滤器在编译路由时
+ *      由 OffloadGatewayFilterDecorator 包装，在 OffloadExecutor 上执行，例如 SYNC 模式的 PreLog
+ *  ~ 包装顺序固定：offload 在里层，耗时统计（TimedGatewayFilterDecorator）在外层，见 FilterDecoratorConfiguration
+ *  ~ KeyResolver 、Sentinel / Redis 的降级逻辑等不是过滤器的阻塞调用，注入 OffloadExecutor 后用 call() 执行
+ *  ~ EventLoopBlockingDetector 探测服务端事件循环（HttpResources）的延迟，卡顿时报告肇事的过滤器
+ *
+ * 关闭：gateway.offload.enabled=false ；只关闭阻塞检测：gateway.offload.detect-blocking=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.offload.enabled", matchIfMissing = true)
+public class OffloadConfiguration {
+
+    @Bean
+    public OffloadExecutor offloadExecutor(OffloadProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OffloadExecutor(properties.getThreads(), properties.getQueueCapacity(),
+                properties.isVirtualThreads(), meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.offload.detect-blocking", matchIfMissing = true)
+    public EventLoopBlockingDetector eventLoopBlockingDetector(OffloadProperties properties,
+                                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        return new EventLoopBlockingDetector(() -> HttpResources.get().onServer(true),
+                properties.getDetectIntervalMillis(), properties.getBlockingThresholdMillis(),
+                properties.getDetectPackages(), meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public OffloadGatewayFilterDecorator offloadGatewayFilterDecorator(OffloadExecutor offloadExecutor,
+                                                                       OffloadProperties properties) {
+        return new OffloadGatewayFilterDecorator(offloadExecutor, properties.getFilters());
+    }
+}
@@ -0,0 +1,46 @@
+package com.itmuch.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * offload 线程池与事件循环阻塞检测的配置
+ *
+ *  gateway:
+ *    offload:
+ *      # 按名称指定在 offload 线程池上执行的过滤器，与 @Offload 注解的效果相同
+ *      filters: PreLog
+ *      threads: 64
+ *      queue-capacity: 1000
+ *      # JDK 21 及以上使用虚拟线程
+ *      virtual-threads: true
+ *      # 事件循环卡住超过该时间时报告肇事的过滤器
+ *      blocking-threshold-millis: 100
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.offload")
+public class OffloadProperties {
+
+    private List<String> filters = new ArrayList<>();
+
+    private int threads = 64;
+
+    private int queueCapacity = 1000;
+
+    private boolean virtualThreads = true;
+
+    private long blockingThresholdMillis = 100L;
+
+    private long detectIntervalMillis = 50L;
+
+    /**
+     * 查找肇事者时只看这些包中的栈帧
+     */
+    private List<String> detectPackages = new ArrayList<>(Arrays.asList("com.itmuch.gateway"));
+}
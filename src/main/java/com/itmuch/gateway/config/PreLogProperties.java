@@ -0,0 +1,33 @@
+package com.itmuch.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * PreLog 过滤器的全局配置
+ *
+ *  gateway:
+ *    pre-log:
+ *      # SYNC：在请求线程直接打印（学习、调试时使用）；ASYNC：放入环形缓冲区由后台线程输出（生产环境）
+ *      mode: ASYNC
+ *      # 环形缓冲区大小，满了之后丢弃并计数
+ *      buffer-size: 8192
+ *      # 默认采样率，路由上可以单独配置
+ *      sample-rate: 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.pre-log")
+public class PreLogProperties {
+
+    private Mode mode = Mode.SYNC;
+
+    private int bufferSize = 8192;
+
+    private double sampleRate = 1.0D;
+
+    public enum Mode {
+        SYNC, ASYNC
+    }
+}
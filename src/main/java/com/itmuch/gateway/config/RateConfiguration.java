@@ -1,9 +1,24 @@
 package com.itmuch.gateway.config;
 
+import com.itmuch.gateway.keyresolver.BodyFieldKeyResolver;
+import com.itmuch.gateway.keyresolver.ClientIpKeyResolver;
+import com.itmuch.gateway.keyresolver.HeaderKeyResolver;
+import com.itmuch.gateway.keyresolver.PathTemplateKeyResolver;
+import com.itmuch.gateway.keyresolver.QueryParamKeyResolver;
+import com.itmuch.gateway.keyresolver.RouteIdKeyResolver;
+import com.itmuch.gateway.ratelimit.HybridRateLimiter;
+import com.itmuch.gateway.ratelimit.LocalRateLimiter;
+import com.itmuch.gateway.ratelimit.RedisTokenLeaseStore;
+import com.itmuch.gateway.ratelimit.ShardedRateLimiter;
+import com.itmuch.gateway.shard.LoopShards;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import reactor.core.publisher.Mono;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.validation.Validator;
 
 /**
  * 按照X限流，就写一个针对X的KeyResolver。
@@ -11,6 +26,75 @@ import reactor.core.publisher.Mono;
 @Configuration
 public class RateConfiguration {
 
+    /**
+     * 进程内令牌桶限流器
+     *
+     * 内置的 RedisRateLimiter 每个请求都要执行一次 Redis Lua 脚本，网络往返会直接拉高延迟。
+     * LocalRateLimiter 在本机内存中维护令牌桶，不需要 Redis 。
+     *
+     * RequestRateLimiter 过滤器工厂按类型注入 RateLimiter ，同时存在 redisRateLimiter 时需要用 @Primary 指定默认值；
+     * 路由上可以通过 rate-limiter: "#{@redisRateLimiter}" 或 "#{@localRateLimiter}" 单独选择。
+     *
+     * @param validator 与 RedisRateLimiter 使用相同的校验器，校验 replenishRate/burstCapacity
+     * @return LocalRateLimiter
+     */
+    @Bean
+    @Primary
+    public LocalRateLimiter localRateLimiter(
+            @Qualifier("defaultValidator") Validator validator,
+            // 每个路由最多保留的令牌桶数量
+            @Value("${gateway.local-rate-limiter.max-keys-per-route:100000}") int maxKeysPerRoute,
+            // 令牌桶表的分段数
+            @Value("${gateway.local-rate-limiter.stripes:16}") int stripes,
+            // 闲置令牌桶的清理间隔（秒）
+            @Value("${gateway.local-rate-limiter.evict-interval-seconds:60}") long evictIntervalSeconds) {
+        return new LocalRateLimiter(validator, maxKeysPerRoute, stripes, evictIntervalSeconds);
+    }
+
+    /**
+     * 按事件循环分片的进程内限流器
+     *
+     * LocalRateLimiter 中热点 key 只有一个令牌桶，核数多时所有 Netty 线程都在 CAS 同一个缓存行。
+     * ShardedRateLimiter 为每个事件循环保存一份令牌桶，全局限额按各事件循环的流量比例分配并定期调整。
+     * 路由上通过 rate-limiter: "#{@shardedRateLimiter}" 选择，参数前缀为 sharded-rate-limiter 。
+     *
+     * @return ShardedRateLimiter
+     */
+    @Bean
+    public ShardedRateLimiter shardedRateLimiter(
+            @Qualifier("defaultValidator") Validator validator,
+            // 每个路由最多保留的 key 数量
+            @Value("${gateway.sharded-rate-limiter.max-keys-per-route:100000}") int maxKeysPerRoute,
+            // 按流量重新分配限额的间隔（毫秒），越短份额跟得越快，后台遍历越频繁
+            @Value("${gateway.sharded-rate-limiter.rebalance-interval-millis:100}") long rebalanceIntervalMillis) {
+        return new ShardedRateLimiter(validator, LoopShards.DEFAULT, maxKeysPerRoute, rebalanceIntervalMillis);
+    }
+
+    /**
+     * 本地 + Redis 混合限流器
+     *
+     * 多节点部署时需要全局限额，但又不希望每个请求都访问 Redis ：
+     * 每个节点按 key 从 Redis 批量租借一批令牌，在本地消费，用完或过期后再续租。
+     * 路由上通过 rate-limiter: "#{@hybridRateLimiter}" 选择，参数前缀为 hybrid-rate-limiter 。
+     *
+     * @return HybridRateLimiter
+     */
+    @Bean
+    public HybridRateLimiter hybridRateLimiter(
+            ReactiveStringRedisTemplate redisTemplate,
+            @Qualifier("defaultValidator") Validator validator,
+            // 租约时长（毫秒），越长 Redis 访问越少，但节点间分配越不均匀
+            @Value("${gateway.hybrid-rate-limiter.lease-ttl-millis:1000}") long leaseTtlMillis,
+            // 单次 Redis 调用的超时（毫秒），超时后按 Redis 不可用处理，退回本地令牌桶
+            @Value("${gateway.hybrid-rate-limiter.lease-timeout-millis:200}") long leaseTimeoutMillis,
+            // 一次 Redis 调用最多处理的 key 数量
+            @Value("${gateway.hybrid-rate-limiter.max-batch-size:128}") int maxBatchSize,
+            // 每个路由最多保留的租约数量
+            @Value("${gateway.hybrid-rate-limiter.max-keys-per-route:100000}") int maxKeysPerRoute) {
+        return new HybridRateLimiter(new RedisTokenLeaseStore(redisTemplate), validator,
+                leaseTtlMillis, leaseTimeoutMillis, maxBatchSize, maxKeysPerRoute);
+    }
+
     /**
      * 按照Path限流
      *      限流规则即可作用在路径上。
@@ -21,41 +105,70 @@ public class RateConfiguration {
      *
      * 测试：
      * # 持续高速访问某个路径，速度过快时，返回 HTTP ERROR 429 。
+     *
+     * 路径按模板归一：/users/1 ... /users/N 都归为 /users/{id} ，共用一个令牌桶，避免每个 id 各占一个 key 。
+     * RequestRateLimiter 过滤器工厂按类型注入 KeyResolver ，存在多个 KeyResolver 时用 @Primary 指定默认值。
      * @return key
      */
     @Bean
-    public KeyResolver pathKeyResolver() {
-        return exchange -> Mono.just(
-                exchange.getRequest()
-                        .getPath()
-                        .toString()
-        );
+    @Primary
+    public KeyResolver pathKeyResolver(@Value("${gateway.key-resolver.max-cached-keys:10000}") int maxCachedKeys) {
+        return new PathTemplateKeyResolver(maxCachedKeys);
+    }
+
+    /**
+     * 按路由限流
+     * @return
+     */
+    @Bean
+    public KeyResolver routeKeyResolver(@Value("${gateway.key-resolver.max-cached-keys:10000}") int maxCachedKeys) {
+        return new RouteIdKeyResolver(maxCachedKeys);
     }
 
     /**
      * 实现针对用户的限流
+     *      没有 user 参数时 key 为空，由 RequestRateLimiter 的 deny-empty-key 决定是否拒绝
      * @return
      */
-    /*@Bean
-    public KeyResolver userKeyResolver() {
-        return exchange -> Mono.just(
-                exchange.getRequest()
-                        .getQueryParams()
-                        .getFirst("user")
-        );
-    }*/
+    @Bean
+    public KeyResolver userKeyResolver(@Value("${gateway.key-resolver.max-cached-keys:10000}") int maxCachedKeys) {
+        return new QueryParamKeyResolver("user", maxCachedKeys);
+    }
 
     /**
      * 针对来源IP的限流
+     *      默认只使用连接地址；网关前面有负载均衡时，把它的地址（IP 或 CIDR）配置到
+     *      gateway.key-resolver.trusted-proxies ，才会读取 X-Forwarded-For
+     * @return
+     */
+    @Bean
+    public KeyResolver ipKeyResolver(
+            @Value("${gateway.key-resolver.trusted-proxies:}") String[] trustedProxies,
+            @Value("${gateway.key-resolver.max-cached-keys:10000}") int maxCachedKeys) {
+        return new ClientIpKeyResolver(trustedProxies, maxCachedKeys);
+    }
+
+    /**
+     * 针对请求头的限流，请求头名称可通过 gateway.key-resolver.header 配置
      * @return
      */
-    /*@Bean
-    public KeyResolver ipKeyResolver() {
-        return exchange -> Mono.just(
-                exchange.getRequest()
-                        .getHeaders()
-                        .getFirst("X-Forwarded-For")
-        );
-    }*/
+    @Bean
+    public KeyResolver headerKeyResolver(
+            @Value("${gateway.key-resolver.header:X-User-Id}") String headerName,
+            @Value("${gateway.key-resolver.max-cached-keys:10000}") int maxCachedKeys) {
+        return new HeaderKeyResolver(headerName, maxCachedKeys);
+    }
+
+    /**
+     * 针对请求体中 JSON 字段的限流，字段名称可通过 gateway.key-resolver.body-field 配置
+     *      需要在路由上把 StreamingBody 配置在 RequestRateLimiter 之前
+     * @return
+     */
+    @Bean
+    public KeyResolver bodyFieldKeyResolver(
+            @Value("${gateway.key-resolver.body-field:userId}") String field,
+            @Value("${gateway.key-resolver.max-cached-keys:10000}") int maxCachedKeys) {
+        return new BodyFieldKeyResolver(field, maxCachedKeys);
+    }
 
 }
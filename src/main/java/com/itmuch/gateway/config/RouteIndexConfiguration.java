@@ -0,0 +1,134 @@
+package com.itmuch.gateway.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmuch.gateway.route.DecoratingGatewayFilterFactory;
+import com.itmuch.gateway.route.GatewayFilterDecorator;
+import com.itmuch.gateway.route.IndexedRoutePredicateHandlerMapping;
+import com.itmuch.gateway.route.RouteAdminEndpoint;
+import com.itmuch.gateway.route.RouteCompiler;
+import com.itmuch.gateway.route.RouteFileWatcher;
+import com.itmuch.gateway.route.RouteIndexManager;
+import com.itmuch.gateway.route.RouteSnapshot;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 路由索引
+ *
+ * 内置的 RoutePredicateHandlerMapping 对每个请求逐个执行所有路由的谓词，
+ * 开启服务发现后路由数量会随微服务数量增长。这里用 IndexedRoutePredicateHandlerMapping 替换它，
+ * 先按路径前缀树缩小候选集再执行谓词。
+ *
+ * 路由表由 RouteIndexManager 自己维护：路由变化时只编译变化的路由，再整体替换，
+ * 不再依赖 CachingRouteLocator 的全量重建。路由可以通过 gateway.dynamic-routes.file 指定的路由文件，
+ * 或者 RouteAdminEndpoint（需要配置 gateway.admin.token）动态修改。
+ *
+ * 关闭：gateway.route-index.enabled=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.route-index.enabled", matchIfMissing = true)
+public class RouteIndexConfiguration {
+
+    /**
+     * 过滤器工厂套上 GatewayFilterDecorator（耗时统计、offload 等），与 FilterDecoratorConfiguration 一致
+     */
+    @Bean
+    public RouteCompiler routeCompiler(List<RoutePredicateFactory> predicates,
+                                       List<GatewayFilterFactory> gatewayFilterFactories,
+                                       ObjectProvider<GatewayFilterDecorator> decorators,
+                                       GatewayProperties gatewayProperties) {
+        return new RouteCompiler(predicates, DecoratingGatewayFilterFactory.decorate(gatewayFilterFactories,
+                decorators.orderedStream().collect(Collectors.toList())), gatewayProperties);
+    }
+
+    /**
+     * 延迟编译与快照（gateway.startup）需要在第一次加载路由之前设置，见 StartupConfiguration
+     */
+    @Bean
+    public RouteIndexManager routeIndexManager(RouteDefinitionLocator routeDefinitionLocator,
+                                               RouteCompiler routeCompiler,
+                                               StartupProperties startupProperties,
+                                               ObjectMapper objectMapper) {
+        RouteIndexManager manager = new RouteIndexManager(routeDefinitionLocator, routeCompiler);
+        manager.setLazy(startupProperties.isLazyRoutes());
+        if (StringUtils.hasText(startupProperties.getSnapshotFile())) {
+            manager.setSnapshot(new RouteSnapshot(Paths.get(startupProperties.getSnapshotFile()), objectMapper));
+        }
+        return manager;
+    }
+
+    /**
+     * 路由文件：gateway.dynamic-routes.file=/etc/gateway/routes.json
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.dynamic-routes.file")
+    public RouteFileWatcher routeFileWatcher(@Value("${gateway.dynamic-routes.file}") String file,
+                                             RouteIndexManager routeIndexManager,
+                                             ObjectMapper objectMapper) {
+        return new RouteFileWatcher(Paths.get(file), routeIndexManager, objectMapper);
+    }
+
+    /**
+     * 路由管理端点：gateway.admin.token 没有配置时不注册，接口不可写
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.admin.token")
+    public RouteAdminEndpoint routeAdminEndpoint(RouteIndexManager routeIndexManager,
+                                                 @Value("${gateway.admin.token}") String token) {
+        return new RouteAdminEndpoint(routeIndexManager, token);
+    }
+
+    /**
+     * RoutePredicateHandlerMapping 由 GatewayAutoConfiguration 直接创建，无法通过 @ConditionalOnMissingBean 覆盖，
+     * 因此在它初始化完成后替换成带索引的子类。依赖在替换时才从容器中获取，避免过早初始化其他 Bean 。
+     */
+    @Bean
+    public static BeanPostProcessor indexedRoutePredicateHandlerMappingPostProcessor() {
+        return new IndexedHandlerMappingPostProcessor();
+    }
+
+    static class IndexedHandlerMappingPostProcessor implements BeanPostProcessor, ApplicationContextAware {
+
+        private ApplicationContext applicationContext;
+
+        @Override
+        public void setApplicationContext(ApplicationContext applicationContext) {
+            this.applicationContext = applicationContext;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            if (!(bean instanceof RoutePredicateHandlerMapping) || bean instanceof IndexedRoutePredicateHandlerMapping) {
+                return bean;
+            }
+            IndexedRoutePredicateHandlerMapping mapping = new IndexedRoutePredicateHandlerMapping(
+                    this.applicationContext.getBean(FilteringWebHandler.class),
+                    this.applicationContext.getBean(RouteLocator.class),
+                    this.applicationContext.getBean(GlobalCorsProperties.class),
+                    this.applicationContext.getEnvironment(),
+                    this.applicationContext.getBean(RouteIndexManager.class));
+            mapping.setApplicationContext(this.applicationContext);
+            return mapping;
+        }
+    }
+}
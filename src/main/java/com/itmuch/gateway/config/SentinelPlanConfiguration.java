@@ -0,0 +1,63 @@
+package com.itmuch.gateway.config;
+
+import com.alibaba.csp.sentinel.adapter.gateway.sc.SentinelGatewayFilter;
+import com.itmuch.gateway.route.RouteIndexManager;
+import com.itmuch.gateway.sentinel.CompiledSentinelGatewayFilter;
+import com.itmuch.gateway.sentinel.GatewayRulePlans;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sentinel 网关流控的预编译检查计划
+ *
+ * 内置的 SentinelGatewayFilter 每个请求都要：匹配所有 API 分组；对路由和命中的分组复制规则集合、
+ * 逐条规则解析 IP/Host/Header/URL 参数。这里把 SentinelGatewayFilter 替换成 CompiledSentinelGatewayFilter ，
+ * 这些工作在规则或路由变化时按路由编译一次（见 GatewayRulePlans）。
+ *
+ * 关闭：gateway.sentinel.compiled-plan.enabled=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.sentinel.compiled-plan.enabled", matchIfMissing = true)
+public class SentinelPlanConfiguration {
+
+    @Bean
+    public GatewayRulePlans gatewayRulePlans(ObjectProvider<RouteIndexManager> routeIndexManager) {
+        return new GatewayRulePlans(() -> {
+            RouteIndexManager manager = routeIndexManager.getIfAvailable();
+            return manager == null ? null : manager.table();
+        });
+    }
+
+    /**
+     * SentinelGatewayFilter 由 Spring Cloud Alibaba 的自动配置创建，这里在它初始化完成后替换，保留原来的 Order
+     */
+    @Bean
+    public static BeanPostProcessor compiledSentinelGatewayFilterPostProcessor() {
+        return new CompiledFilterPostProcessor();
+    }
+
+    static class CompiledFilterPostProcessor implements BeanPostProcessor, ApplicationContextAware {
+
+        private ApplicationContext applicationContext;
+
+        @Override
+        public void setApplicationContext(ApplicationContext applicationContext) {
+            this.applicationContext = applicationContext;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            if (!(bean instanceof SentinelGatewayFilter) || bean instanceof CompiledSentinelGatewayFilter) {
+                return bean;
+            }
+            return new CompiledSentinelGatewayFilter(((SentinelGatewayFilter) bean).getOrder(),
+                    this.applicationContext.getBean(GatewayRulePlans.class));
+        }
+    }
+}
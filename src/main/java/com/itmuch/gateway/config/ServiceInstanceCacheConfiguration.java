@@ -0,0 +1,29 @@
+package com.itmuch.gateway.config;
+
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 服务实例列表缓存
+ *
+ * 自适应负载均衡、请求对冲、连接池预热都从这里读取实例列表，与是否开启自适应负载均衡
+ * （gateway.load-balancer.adaptive.enabled）无关，因此单独注册。
+ */
+@Configuration
+public class ServiceInstanceCacheConfiguration {
+
+    @Bean
+    public ServiceInstanceCache serviceInstanceCache(
+            DiscoveryClient discoveryClient,
+            // 后台轮询注册中心的间隔（毫秒）
+            @Value("${gateway.instance-cache.refresh-millis:5000}") long refreshMillis,
+            // 启动预热最多等待的时间（毫秒）
+            @Value("${gateway.instance-cache.prewarm-timeout-millis:3000}") long prewarmTimeoutMillis,
+            // 连续多少次刷新都返回空列表时，才清空一个原来有实例的服务
+            @Value("${gateway.instance-cache.max-empty-refreshes:3}") int maxEmptyRefreshes) {
+        return new ServiceInstanceCache(discoveryClient, refreshMillis, prewarmTimeoutMillis, maxEmptyRefreshes);
+    }
+}
@@ -0,0 +1,59 @@
+package com.itmuch.gateway.config;
+
+import com.itmuch.gateway.route.RouteIndexManager;
+import com.itmuch.gateway.route.RouteTableLocator;
+import com.itmuch.gateway.startup.RouteStartup;
+import com.itmuch.gateway.startup.StartupEndpoint;
+import com.itmuch.gateway.startup.StartupTimings;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.route.CachingRouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 启动加速
+ *
+ *  ~ gateway.startup.lazy-routes=true ：路由延迟编译（RouteIndexManager#setLazy），
+ *      内置的 CachingRouteLocator 替换为 RouteTableLocator ，避免启动后把所有路由完整编译一遍
+ *  ~ gateway.startup.snapshot-file ：路由表快照，见 RouteSnapshot 与 RouteStartup
+ *  ~ 启动各阶段耗时：StartupRunListener 记录，/actuator/gatewaystartup 查看
+ *
+ * 依赖路由索引（gateway.route-index.enabled）
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.route-index.enabled", matchIfMissing = true)
+public class StartupConfiguration {
+
+    @Bean
+    public RouteStartup routeStartup(RouteIndexManager routeIndexManager, StartupProperties properties,
+                                     ObjectProvider<StartupTimings> timings) {
+        return new RouteStartup(routeIndexManager, routeIndexManager.getSnapshot(), properties.isWarmUp(),
+                timings.getIfAvailable(StartupTimings::new));
+    }
+
+    @Bean
+    public StartupEndpoint startupEndpoint(ObjectProvider<StartupTimings> timings) {
+        return new StartupEndpoint(timings.getIfAvailable(StartupTimings::new));
+    }
+
+    /**
+     * CachingRouteLocator 由 GatewayAutoConfiguration 创建（@Primary），在它初始化完成后替换
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.startup.lazy-routes")
+    public static BeanPostProcessor routeTableLocatorPostProcessor(ObjectProvider<RouteIndexManager> manager,
+                                                                   ObjectProvider<StartupProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof CachingRouteLocator) {
+                    return new RouteTableLocator(manager.getObject(), properties.getObject().getLoadTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.itmuch.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 启动方式
+ *
+ *  gateway:
+ *    startup:
+ *      # 路由在第一次匹配到时才编译（执行谓词工厂、过滤器工厂），就绪后在后台逐个编译其余路由
+ *      lazy-routes: true
+ *      # 路由表快照：启动时先按快照路由，不等服务发现
+ *      snapshot-file: /var/lib/gateway/routes.json
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.startup")
+public class StartupProperties {
+
+    private boolean lazyRoutes;
+
+    /**
+     * 为空时不保存、不恢复快照
+     */
+    private String snapshotFile;
+
+    /**
+     * 就绪后是否在后台编译剩余的路由
+     */
+    private boolean warmUp = true;
+
+    /**
+     * 没有路由表时，RouteTableLocator 等待第一次加载的最长时间
+     */
+    private Duration loadTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 启动报告中列出的最慢 Bean 数量（由 StartupRunListener 在上下文创建之前读取）
+     */
+    private int slowestBeans = 10;
+}
@@ -0,0 +1,74 @@
+package com.itmuch.gateway.config;
+
+import brave.Tracer;
+import brave.http.HttpSampler;
+import com.itmuch.gateway.route.RouteIndexManager;
+import com.itmuch.gateway.tracing.MicrometerReporterMetrics;
+import com.itmuch.gateway.tracing.RouteRateLimitedSampler;
+import com.itmuch.gateway.tracing.TailSamplingGlobalFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.sleuth.instrument.web.ServerSampler;
+import org.springframework.cloud.sleuth.zipkin2.ZipkinProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import zipkin2.Span;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.Reporter;
+import zipkin2.reporter.ReporterMetrics;
+import zipkin2.reporter.Sender;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 低开销的链路追踪
+ *
+ * spring.sleuth.sampler.probability: 1.0 时每个请求都创建 span 并上报 Zipkin ，流量大时追踪本身就占了不少 CPU 。
+ *  ~ 入口采样：RouteRateLimitedSampler 按路由限速（Sleuth 的 @ServerSampler 扩展点）
+ *  ~ 尾部采样：TailSamplingGlobalFilter 为没被采样的出错 / 慢请求补报 span
+ *  ~ 上报：替换 Sleuth 的 zipkinReporter ，有界的异步队列按批发送，编码由 spring.zipkin.encoder 决定（proto3 更紧凑）
+ *  ~ 统计：MicrometerReporterMetrics 替换默认的 InMemoryReporterMetrics ，丢弃的 span 数可以在 /actuator/metrics 中查看
+ *
+ * 关闭：gateway.tracing.adaptive.enabled=false ，恢复 Sleuth 的默认行为
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.tracing.adaptive.enabled", matchIfMissing = true)
+public class TracingConfiguration {
+
+    @Bean(name = ServerSampler.NAME)
+    public HttpSampler routeRateLimitedSampler(ObjectProvider<RouteIndexManager> routeIndexManager,
+                                               TracingProperties properties) {
+        return new RouteRateLimitedSampler(routeIndexManager, properties.getTracesPerSecond(), properties.getRoutes());
+    }
+
+    @Bean
+    public ReporterMetrics sleuthReporterMetrics(MeterRegistry meterRegistry) {
+        return new MicrometerReporterMetrics(meterRegistry);
+    }
+
+    /**
+     * 与 Sleuth 的 zipkinReporter 同名（@ConditionalOnMissingBean），Sleuth 不再创建默认的上报器
+     */
+    @Bean(name = "zipkinReporter")
+    public Reporter<Span> zipkinReporter(@Qualifier("zipkinSender") Sender sender, ReporterMetrics reporterMetrics,
+                                         ZipkinProperties zipkinProperties, TracingProperties properties) {
+        return AsyncReporter.builder(sender)
+                .queuedMaxSpans(properties.getQueuedMaxSpans())
+                .queuedMaxBytes(properties.getQueuedMaxBytes())
+                .messageTimeout(zipkinProperties.getMessageTimeout(), TimeUnit.SECONDS)
+                .metrics(reporterMetrics)
+                .build(zipkinProperties.getEncoder());
+    }
+
+    @Bean
+    public TailSamplingGlobalFilter tailSamplingGlobalFilter(Tracer tracer,
+                                                             @Qualifier("zipkinReporter") Reporter<Span> reporter,
+                                                             @Value("${spring.application.name:gateway}") String serviceName,
+                                                             TracingProperties properties) {
+        return new TailSamplingGlobalFilter(tracer, reporter, serviceName, properties.getSlowThresholdMillis(),
+                properties.getTailTracesPerSecond());
+    }
+}
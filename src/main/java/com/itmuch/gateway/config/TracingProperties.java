@@ -0,0 +1,48 @@
+package com.itmuch.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 链路追踪的采样与上报配置
+ *
+ *  gateway:
+ *    tracing:
+ *      # 每个路由每秒最多采样的链路数
+ *      traces-per-second: 10
+ *      # 按路由单独设置，0 表示该路由不主动采样（出错和慢请求仍会补报）
+ *      routes:
+ *        user-center-id: 20
+ *      # 没被采样的请求超过该耗时时补报 span
+ *      slow-threshold-millis: 1000
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.tracing")
+public class TracingProperties {
+
+    private int tracesPerSecond = 10;
+
+    private Map<String, Integer> routes = new LinkedHashMap<>();
+
+    private long slowThresholdMillis = 1000L;
+
+    /**
+     * 出错 / 慢请求补报 span 的每秒上限
+     */
+    private int tailTracesPerSecond = 50;
+
+    /**
+     * 上报队列最多缓存的 span 数，队列满时丢弃新的 span 并计数
+     */
+    private int queuedMaxSpans = 10000;
+
+    /**
+     * 上报队列最多缓存的字节数
+     */
+    private int queuedMaxBytes = 4 * 1024 * 1024;
+}
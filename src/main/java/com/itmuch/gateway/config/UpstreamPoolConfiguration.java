@@ -0,0 +1,36 @@
+package com.itmuch.gateway.config;
+
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import com.itmuch.gateway.upstream.RoutePoolRoutingFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 按路由划分的上游连接池
+ *
+ * 内置的 NettyRoutingFilter 所有路由共用一个 HttpClient 连接池，某个上游变慢、连接被占满时，
+ * 其他路由的请求也要在同一个池子里排队。gateway.upstream-pool 中为路由指定配置档后，
+ * 这些路由改用各自独立的连接池转发（见 UpstreamPoolProperties）。
+ *
+ * 注：当前 Spring Cloud Gateway 2.1 的路由还没有 metadata ，因此按路由 id 在 gateway.upstream-pool.routes 中配置；
+ *     reactor-netty 0.8 的 HttpClient 不支持 HTTP/2（h2c）客户端，升级后可以在配置档中增加协议选项。
+ */
+@Configuration
+public class UpstreamPoolConfiguration {
+
+    @Bean
+    public RoutePoolRoutingFilter routePoolRoutingFilter(UpstreamPoolProperties properties,
+                                                         HttpClientProperties httpClientProperties,
+                                                         ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                         RouteDefinitionLocator routeDefinitionLocator,
+                                                         ObjectProvider<ServiceInstanceCache> instanceCache) {
+        return new RoutePoolRoutingFilter(properties, httpClientProperties, headersFilters,
+                routeDefinitionLocator, instanceCache);
+    }
+}
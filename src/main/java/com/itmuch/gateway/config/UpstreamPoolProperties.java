@@ -0,0 +1,74 @@
+package com.itmuch.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按路由划分的上游连接池配置
+ *
+ *  gateway:
+ *    upstream-pool:
+ *      # 连接池配置档，名称自定义
+ *      profiles:
+ *        user-center:
+ *          max-connections: 200
+ *          max-pending-acquire: 400
+ *          acquire-timeout-millis: 2000
+ *          idle-timeout-millis: 30000
+ *          warmup-connections: 8
+ *          warmup-path: /actuator/health
+ *      # 路由 id -> 配置档；没有列出的路由继续使用全局的 HttpClient
+ *      routes:
+ *        user-center-id: user-center
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.upstream-pool")
+public class UpstreamPoolProperties {
+
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    private Map<String, String> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Profile {
+        /**
+         * 连接池最大连接数（每个上游地址）
+         */
+        private int maxConnections = 200;
+
+        /**
+         * 等待连接的请求数上限，超过后直接返回 503 ；-1 表示不限制
+         */
+        private int maxPendingAcquire = -1;
+
+        /**
+         * 等待连接的最长时间
+         */
+        private long acquireTimeoutMillis = 3000L;
+
+        /**
+         * 连接空闲超过该时间后关闭；0 表示不关闭
+         */
+        private long idleTimeoutMillis = 30000L;
+
+        /**
+         * 建立连接的超时时间；不配置时使用 spring.cloud.gateway.httpclient.connect-timeout
+         */
+        private Integer connectTimeoutMillis;
+
+        /**
+         * 启动后预先建立的连接数（每个上游实例）；0 表示不预热
+         */
+        private int warmupConnections;
+
+        /**
+         * 预热请求的路径，例如 /actuator/health ；不配置时只建立 TCP 连接，不发送请求
+         */
+        private String warmupPath;
+    }
+}
@@ -0,0 +1,262 @@
+package com.itmuch.gateway.discovery;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.ApplicationListener;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 服务实例列表缓存
+ *
+ *  ~ 所有服务的实例列表保存在一个不可变的 Map 中，由后台线程整体替换；请求线程只读取一个 volatile 引用，不访问注册中心
+ *  ~ 刷新时机：
+ *      01)、后台线程按固定间隔轮询：gateway.instance-cache.refresh-millis
+ *      02)、注册中心推送的 HeartbeatEvent（Nacos 的 NacosWatch 会定期发布），多次事件合并为一次刷新
+ *      03)、请求了一个还没有缓存的服务
+ *  ~ 缓存未命中：instances() 在 elastic 线程池上同步查询一次注册中心并放入缓存（同一服务的并发未命中共享一次查询），
+ *      不在事件循环上阻塞，也不会因为服务刚上线、还没有被轮询到而返回空列表（503）
+ *  ~ 注册中心不可用时保留上一次成功的列表（last-known-good）：
+ *      getServices()/getInstances() 抛出异常，或者原来有实例、本次返回空列表，都不会覆盖已有的列表；
+ *      连续 maxEmptyRefreshes 次都返回空列表时才认为服务确实没有实例了（例如全部下线），
+ *      否则已经下线的实例会一直留在列表中
+ *  ~ 预热：初始化时同步加载一次全部服务（最多等待 gateway.instance-cache.prewarm-timeout-millis），
+ *      发布后的第一批请求不需要等待注册中心
+ *  ~ 实例列表没有变化时沿用原来的 List 对象；有变化时通知 Listener（例如清理负载均衡的统计信息）
+ */
+@Slf4j
+public class ServiceInstanceCache implements InitializingBean, DisposableBean, ApplicationListener<HeartbeatEvent> {
+
+    private final DiscoveryClient discoveryClient;
+
+    private final long refreshMillis;
+
+    private final long prewarmTimeoutMillis;
+
+    private final int maxEmptyRefreshes;
+
+    private final ScheduledExecutorService refresher;
+
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Mono<List<ServiceInstance>>> loading = new ConcurrentHashMap<>();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 原来有实例、之后连续返回空列表的次数，只在 refresh() 中访问
+     */
+    private final Map<String, Integer> emptyRefreshes = new HashMap<>();
+
+    private volatile Map<String, List<ServiceInstance>> snapshot = Collections.emptyMap();
+
+    public ServiceInstanceCache(DiscoveryClient discoveryClient, long refreshMillis, long prewarmTimeoutMillis) {
+        this(discoveryClient, refreshMillis, prewarmTimeoutMillis, 3);
+    }
+
+    public ServiceInstanceCache(DiscoveryClient discoveryClient, long refreshMillis, long prewarmTimeoutMillis,
+                                int maxEmptyRefreshes) {
+        this.discoveryClient = discoveryClient;
+        this.refreshMillis = refreshMillis;
+        this.prewarmTimeoutMillis = prewarmTimeoutMillis;
+        this.maxEmptyRefreshes = maxEmptyRefreshes;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "instance-cache-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 请求路径上调用：只读取当前快照
+     *
+     * @return 不可修改的实例列表；服务还没有被缓存时返回空列表并触发一次异步刷新
+     */
+    public List<ServiceInstance> getInstances(String serviceId) {
+        List<ServiceInstance> instances = this.snapshot.get(serviceId);
+        if (instances != null) {
+            return instances;
+        }
+        if (this.requested.add(serviceId)) {
+            requestRefresh();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 请求路径上调用：命中时直接返回当前快照中的列表；未命中时在 elastic 线程池上查询注册中心，
+     * 注册中心异常时返回空列表
+     */
+    public Mono<List<ServiceInstance>> instances(String serviceId) {
+        List<ServiceInstance> instances = this.snapshot.get(serviceId);
+        if (instances != null) {
+            return Mono.just(instances);
+        }
+        return this.loading.computeIfAbsent(serviceId, key -> Mono.fromCallable(() -> fetch(key))
+                .subscribeOn(Schedulers.elastic())
+                .doFinally(signal -> this.loading.remove(key))
+                .cache());
+    }
+
+    private List<ServiceInstance> fetch(String serviceId) {
+        this.requested.add(serviceId);
+        List<ServiceInstance> loaded = load(serviceId);
+        return loaded == null ? Collections.emptyList() : put(serviceId, loaded);
+    }
+
+    /**
+     * 把单个服务加入快照；与 refresh() 互斥，刷新期间加入的服务由 requested 带进下一次刷新
+     */
+    private synchronized List<ServiceInstance> put(String serviceId, List<ServiceInstance> loaded) {
+        Map<String, List<ServiceInstance>> previous = this.snapshot;
+        List<ServiceInstance> current = previous.get(serviceId);
+        if (current != null) {
+            return current;
+        }
+        List<ServiceInstance> instances = Collections.unmodifiableList(new ArrayList<>(loaded));
+        Map<String, List<ServiceInstance>> next = new HashMap<>(previous);
+        next.put(serviceId, instances);
+        this.snapshot = Collections.unmodifiableMap(next);
+        for (Listener listener : this.listeners) {
+            listener.onChange(serviceId, instances);
+        }
+        return instances;
+    }
+
+    public void addListener(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws InterruptedException {
+        Future<?> prewarm = this.refresher.submit(this::refresh);
+        try {
+            prewarm.get(this.prewarmTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Service instance cache not prewarmed within {}ms, continuing in background",
+                    this.prewarmTimeoutMillis);
+        } catch (ExecutionException e) {
+            log.warn("Error prewarming service instance cache", e.getCause());
+        }
+        this.refresher.scheduleWithFixedDelay(this::refresh,
+                this.refreshMillis, this.refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onApplicationEvent(HeartbeatEvent event) {
+        requestRefresh();
+    }
+
+    private void requestRefresh() {
+        if (this.refreshPending.compareAndSet(false, true)) {
+            this.refresher.execute(() -> {
+                this.refreshPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    /**
+     * 重新加载所有服务的实例列表，只在刷新线程（或测试）中调用
+     */
+    synchronized void refresh() {
+        Map<String, List<ServiceInstance>> previous = this.snapshot;
+        Set<String> services = new LinkedHashSet<>(previous.keySet());
+        services.addAll(this.requested);
+        try {
+            services.addAll(this.discoveryClient.getServices());
+        } catch (RuntimeException e) {
+            log.warn("Error listing services, keeping last known services", e);
+        }
+
+        Map<String, List<ServiceInstance>> next = new HashMap<>(services.size() * 2);
+        List<String> changed = new ArrayList<>();
+        for (String serviceId : services) {
+            List<ServiceInstance> current = previous.get(serviceId);
+            List<ServiceInstance> loaded = load(serviceId);
+            if (loaded == null || (loaded.isEmpty() && current != null && !current.isEmpty()
+                    && this.emptyRefreshes.merge(serviceId, 1, Integer::sum) < this.maxEmptyRefreshes)) {
+                // 注册中心异常，或者空列表还没有连续出现足够多次：沿用上一次的列表
+                if (current != null) {
+                    next.put(serviceId, current);
+                }
+                continue;
+            }
+            this.emptyRefreshes.remove(serviceId);
+            if (current != null && sameInstances(current, loaded)) {
+                next.put(serviceId, current);
+            } else {
+                next.put(serviceId, Collections.unmodifiableList(new ArrayList<>(loaded)));
+                changed.add(serviceId);
+            }
+        }
+        this.snapshot = Collections.unmodifiableMap(next);
+
+        for (String serviceId : changed) {
+            List<ServiceInstance> instances = next.get(serviceId);
+            for (Listener listener : this.listeners) {
+                listener.onChange(serviceId, instances);
+            }
+        }
+    }
+
+    private List<ServiceInstance> load(String serviceId) {
+        try {
+            return this.discoveryClient.getInstances(serviceId);
+        } catch (RuntimeException e) {
+            log.warn("Error loading instances of {}, keeping last known instances", serviceId, e);
+            return null;
+        }
+    }
+
+    private static boolean sameInstances(List<ServiceInstance> a, List<ServiceInstance> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            ServiceInstance x = a.get(i);
+            ServiceInstance y = b.get(i);
+            if (x.getPort() != y.getPort() || !x.getHost().equals(y.getHost())
+                    || !x.getMetadata().equals(y.getMetadata())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        this.refresher.shutdownNow();
+    }
+
+    /**
+     * 实例列表变化的回调，在刷新线程或未命中时查询注册中心的线程中执行
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onChange(String serviceId, List<ServiceInstance> instances);
+    }
+}
@@ -0,0 +1,83 @@
+package com.itmuch.gateway.hedge;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * 对冲延迟：路由最近一段时间首次响应耗时的分位数（默认 p95）
+ *
+ *  ~ 写入使用 HdrHistogram 的 Recorder（wait-free），与 LatencyRecorder 相同
+ *  ~ 每个窗口（默认 1 秒）由一个线程抢到标记后重新计算，其余线程直接读取 volatile 的结果
+ *  ~ 样本不足 minSamples 时累计到下一个窗口，流量很小的路由也能得到稳定的值；
+ *      还没有足够样本之前使用 initial
+ *  ~ 结果限制在 [min, max] 之间：太小会让几乎每个请求都对冲，太大则失去对冲的意义
+ */
+final class HedgeDelay {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int MIN_SAMPLES = 50;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 2);
+
+    private final Histogram pending = new Histogram(HIGHEST_TRACKABLE_NANOS, 2);
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private final double percentile;
+
+    private final long minNanos;
+
+    private final long maxNanos;
+
+    private final long windowNanos;
+
+    private final LongSupplier clock;
+
+    private Histogram interval;
+
+    private volatile long delayNanos;
+
+    private volatile long nextRefresh;
+
+    HedgeDelay(double percentile, long initialNanos, long minNanos, long maxNanos, long windowNanos,
+               LongSupplier clock) {
+        this.percentile = percentile;
+        this.minNanos = minNanos;
+        this.maxNanos = maxNanos;
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+        this.delayNanos = clamp(initialNanos);
+        this.nextRefresh = clock.getAsLong() + windowNanos;
+    }
+
+    void record(long nanos) {
+        this.recorder.recordValue(Math.min(Math.max(nanos, 0L), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    long current() {
+        long now = this.clock.getAsLong();
+        if (now - this.nextRefresh >= 0 && this.refreshing.compareAndSet(false, true)) {
+            try {
+                this.interval = this.recorder.getIntervalHistogram(this.interval);
+                this.pending.add(this.interval);
+                if (this.pending.getTotalCount() >= MIN_SAMPLES) {
+                    this.delayNanos = clamp(this.pending.getValueAtPercentile(this.percentile));
+                    this.pending.reset();
+                }
+                this.nextRefresh = now + this.windowNanos;
+            } finally {
+                this.refreshing.set(false);
+            }
+        }
+        return this.delayNanos;
+    }
+
+    private long clamp(long nanos) {
+        return Math.min(this.maxNanos, Math.max(this.minNanos, nanos));
+    }
+}
@@ -0,0 +1,393 @@
+package com.itmuch.gateway.hedge;
+
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import com.itmuch.gateway.loadbalancer.AdaptiveLoadBalancer;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+/**
+ * 单个路由的请求对冲（hedging）与截止时间
+ *
+ *  ~ 位于 LoadBalancerClientFilter 之后：第一次请求发往负载均衡选中的实例；超过对冲延迟（该路由首次响应耗时的 p95）
+ *      仍没有响应时，向另一个实例再发一次，先返回响应头的一方胜出，另一方被取消（连接关闭）
+ *  ~ 第一次请求在拿到响应之前就失败（连接被拒绝等）时，不等对冲延迟，立即向另一个实例重试
+ *  ~ 对冲和重试都从 RetryBudget 中取令牌，额外请求量有上限；预算用完时只发第一次请求
+ *  ~ 只对幂等且没有请求体的请求对冲（默认 GET / HEAD / OPTIONS），请求体只能读取一次
+ *  ~ 截止时间：客户端通过 deadlineHeader 传入剩余毫秒数（或使用路由的 timeout），转发时改写为当前剩余的毫秒数，
+ *      上游可以据此放弃已经来不及的工作；到期还没有响应返回 504 ，已经到期的请求不再转发
+ *  ~ 每次尝试使用独立的 exchange 属性和响应头，只有胜出的一方写回真正的 exchange ，
+ *      之后由 NettyWriteResponseFilter 照常写出响应体
+ */
+public class HedgingFilter implements GatewayFilter {
+
+    /**
+     * 剩余时间不足 1 毫秒的请求不再转发
+     */
+    private static final long MIN_REMAINING_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final HedgeDelay delay;
+
+    private final RetryBudget budget;
+
+    private final ServiceInstanceCache instanceCache;
+
+    private final AdaptiveLoadBalancer balancer;
+
+    private final Set<HttpMethod> methods;
+
+    private final String deadlineHeader;
+
+    private final long timeoutNanos;
+
+    public HedgingFilter(Settings settings, ServiceInstanceCache instanceCache, AdaptiveLoadBalancer balancer) {
+        this.delay = new HedgeDelay(settings.percentile, settings.initialDelay.toNanos(), settings.minDelay.toNanos(),
+                settings.maxDelay.toNanos(), TimeUnit.SECONDS.toNanos(1), System::nanoTime);
+        this.budget = new RetryBudget(settings.budgetRatio, settings.budgetMinPerSecond, System::nanoTime);
+        this.instanceCache = instanceCache;
+        this.balancer = balancer;
+        this.methods = settings.methods;
+        this.deadlineHeader = settings.deadlineHeader;
+        this.timeoutNanos = settings.timeout == null ? 0L : settings.timeout.toNanos();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        long deadline = deadline(exchange.getRequest(), start);
+        if (deadline != 0L && deadline - start < MIN_REMAINING_NANOS) {
+            return reject(exchange);
+        }
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        String serviceId = serviceId(exchange);
+        if (url == null || serviceId == null || this.instanceCache == null || !isHedgeable(exchange.getRequest())) {
+            ServerWebExchange forwarded = deadline == 0L ? exchange : exchange.mutate()
+                    .request(withDeadline(exchange.getRequest(), deadline)).build();
+            return withTimeout(exchange, chain.filter(forwarded), deadline);
+        }
+
+        this.budget.deposit();
+        Race race = new Race(exchange, chain, url, serviceId, deadline);
+        Mono<Attempt> primary = race.attempt(url, null)
+                .doOnSuccess(attempt -> this.delay.record(System.nanoTime() - start))
+                .doOnCancel(() -> this.delay.record(System.nanoTime() - start))
+                .onErrorResume(ex -> race.second().switchIfEmpty(Mono.error(ex)));
+        Mono<Attempt> hedge = Mono.delay(Duration.ofNanos(this.delay.current()))
+                .flatMap(tick -> race.second());
+        Mono<Void> result = Flux.mergeDelayError(2, primary, hedge)
+                .next()
+                .doOnNext(attempt -> attempt.applyTo(exchange))
+                .then();
+        return withTimeout(exchange, result, deadline);
+    }
+
+    private boolean isHedgeable(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return this.methods.contains(request.getMethod())
+                && headers.getContentLength() <= 0 && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    /**
+     * 截止时间（System.nanoTime()），0 表示没有；最低位置 1 ，避免与 0 混淆
+     */
+    private long deadline(ServerHttpRequest request, long start) {
+        String value = this.deadlineHeader == null ? null : request.getHeaders().getFirst(this.deadlineHeader);
+        if (value != null) {
+            try {
+                return (start + TimeUnit.MILLISECONDS.toNanos(Long.parseLong(value.trim()))) | 1L;
+            } catch (NumberFormatException ignored) {
+                // 格式不对时按没有传入处理
+            }
+        }
+        return this.timeoutNanos == 0L ? 0L : (start + this.timeoutNanos) | 1L;
+    }
+
+    private ServerHttpRequest withDeadline(ServerHttpRequest request, long deadline) {
+        if (deadline == 0L || this.deadlineHeader == null) {
+            return request;
+        }
+        long remainingMillis = Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        return request.mutate().headers(headers -> headers.set(this.deadlineHeader, Long.toString(remainingMillis)))
+                .build();
+    }
+
+    private static Mono<Void> withTimeout(ServerWebExchange exchange, Mono<Void> result, long deadline) {
+        if (deadline == 0L) {
+            return result;
+        }
+        return result.timeout(Duration.ofNanos(Math.max(1L, deadline - System.nanoTime())))
+                .onErrorResume(TimeoutException.class, ex -> reject(exchange));
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.empty();
+        }
+        response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+        return response.setComplete();
+    }
+
+    /**
+     * lb:// 路由的服务名：LoadBalancerClientFilter 把原始的 lb:// 地址放在 GATEWAY_ORIGINAL_REQUEST_URL_ATTR 中
+     */
+    private static String serviceId(ServerWebExchange exchange) {
+        Set<URI> originals = exchange.getAttribute(GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+        if (originals == null) {
+            return null;
+        }
+        String serviceId = null;
+        for (URI original : originals) {
+            if ("lb".equals(original.getScheme())) {
+                serviceId = original.getHost();
+            }
+        }
+        return serviceId;
+    }
+
+    /**
+     * 一次请求中的多次尝试：只有一方能胜出，第二次尝试（对冲或重试）最多一次
+     */
+    private final class Race {
+
+        private final ServerWebExchange exchange;
+
+        private final GatewayFilterChain chain;
+
+        private final URI url;
+
+        private final String serviceId;
+
+        private final long deadline;
+
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+
+        private final AtomicBoolean secondStarted = new AtomicBoolean();
+
+        private Race(ServerWebExchange exchange, GatewayFilterChain chain, URI url, String serviceId, long deadline) {
+            this.exchange = exchange;
+            this.chain = chain;
+            this.url = url;
+            this.serviceId = serviceId;
+            this.deadline = deadline;
+        }
+
+        Mono<Attempt> attempt(URI target, AdaptiveLoadBalancer.Call call) {
+            return Mono.defer(() -> {
+                Attempt attempt = new Attempt(this.exchange, withDeadline(this.exchange.getRequest(), this.deadline),
+                        target);
+                return this.chain.filter(attempt).then(Mono.fromCallable(() -> {
+                    if (this.winner.compareAndSet(null, attempt)) {
+                        return attempt;
+                    }
+                    attempt.discard();
+                    return null;
+                }));
+            }).doOnSuccess(attempt -> {
+                if (call != null) {
+                    HttpStatus status = attempt == null ? null : attempt.response.status;
+                    call.end(status != null && status.is5xxServerError());
+                }
+            }).doOnError(ex -> {
+                if (call != null) {
+                    call.end(true);
+                }
+            }).doOnCancel(() -> {
+                if (call != null) {
+                    call.abort();
+                }
+            });
+        }
+
+        /**
+         * 第二次尝试：时间、预算、可用的其他实例都满足时才发出，否则为空
+         */
+        Mono<Attempt> second() {
+            return Mono.defer(() -> {
+                if (this.winner.get() != null
+                        || (this.deadline != 0L && this.deadline - System.nanoTime() < MIN_REMAINING_NANOS)) {
+                    return Mono.empty();
+                }
+                ServiceInstance instance = other();
+                if (instance == null || !this.secondStarted.compareAndSet(false, true)) {
+                    return Mono.empty();
+                }
+                if (!HedgingFilter.this.budget.tryWithdraw()) {
+                    // 预算不足时放弃这次机会，第一次请求随后失败时仍可以重试
+                    this.secondStarted.set(false);
+                    return Mono.empty();
+                }
+                URI target = UriComponentsBuilder.fromUri(this.url)
+                        .scheme(instance.isSecure() ? "https" : "http")
+                        .host(instance.getHost())
+                        .port(instance.getPort())
+                        .build(true)
+                        .toUri();
+                AdaptiveLoadBalancer balancer = HedgingFilter.this.balancer;
+                return attempt(target, balancer == null ? null : balancer.begin(this.serviceId, instance));
+            });
+        }
+
+        /**
+         * 换一个实例：排除第一次请求的实例后，由负载均衡器（没有时随机）选择
+         */
+        private ServiceInstance other() {
+            List<ServiceInstance> others = new ArrayList<>();
+            for (ServiceInstance instance : HedgingFilter.this.instanceCache.getInstances(this.serviceId)) {
+                if (!instance.getHost().equals(this.url.getHost()) || instance.getPort() != this.url.getPort()) {
+                    others.add(instance);
+                }
+            }
+            if (others.isEmpty()) {
+                return null;
+            }
+            AdaptiveLoadBalancer balancer = HedgingFilter.this.balancer;
+            return balancer != null ? balancer.choose(this.serviceId, others)
+                    : others.get(ThreadLocalRandom.current().nextInt(others.size()));
+        }
+    }
+
+    /**
+     * 一次尝试：独立的属性（请求地址、连接、已路由标记）与响应状态 / 响应头
+     */
+    private static final class Attempt extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+
+        private final ServerHttpRequest request;
+
+        private final AttemptResponse response;
+
+        private Attempt(ServerWebExchange exchange, ServerHttpRequest request, URI url) {
+            super(exchange);
+            this.attributes = new HashMap<>(exchange.getAttributes());
+            this.attributes.put(GATEWAY_REQUEST_URL_ATTR, url);
+            this.request = request;
+            this.response = new AttemptResponse(exchange.getResponse());
+        }
+
+        @Override
+        public ServerHttpRequest getRequest() {
+            return this.request;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return this.response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return this.attributes;
+        }
+
+        void applyTo(ServerWebExchange exchange) {
+            ServerHttpResponse target = exchange.getResponse();
+            if (this.response.status != null) {
+                target.setStatusCode(this.response.status);
+            }
+            target.getHeaders().putAll(this.response.headers);
+            exchange.getAttributes().putAll(this.attributes);
+        }
+
+        void discard() {
+            Connection connection = (Connection) this.attributes.get(CLIENT_RESPONSE_CONN_ATTR);
+            if (connection != null) {
+                connection.dispose();
+            }
+        }
+    }
+
+    /**
+     * 记录路由过滤器设置的状态码与响应头，不直接修改真正的响应
+     */
+    private static final class AttemptResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private HttpStatus status;
+
+        private AttemptResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatus status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return this.status;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return this.headers;
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.empty();
+        }
+    }
+
+    /**
+     * 路由级配置，由 HedgeGatewayFilterFactory 创建
+     */
+    public static class Settings {
+        private final Set<HttpMethod> methods;
+        private final double percentile;
+        private final Duration initialDelay;
+        private final Duration minDelay;
+        private final Duration maxDelay;
+        private final double budgetRatio;
+        private final double budgetMinPerSecond;
+        private final String deadlineHeader;
+        private final Duration timeout;
+
+        public Settings(Set<HttpMethod> methods, double percentile, Duration initialDelay, Duration minDelay,
+                        Duration maxDelay, double budgetRatio, double budgetMinPerSecond, String deadlineHeader,
+                        Duration timeout) {
+            this.methods = methods;
+            this.percentile = percentile;
+            this.initialDelay = initialDelay;
+            this.minDelay = minDelay;
+            this.maxDelay = maxDelay;
+            this.budgetRatio = budgetRatio;
+            this.budgetMinPerSecond = budgetMinPerSecond;
+            this.deadlineHeader = deadlineHeader;
+            this.timeout = timeout;
+        }
+    }
+}
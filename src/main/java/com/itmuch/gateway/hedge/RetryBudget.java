@@ -0,0 +1,91 @@
+package com.itmuch.gateway.hedge;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 重试预算：限制对冲 / 重试带来的额外请求量
+ *
+ *  ~ 每个原始请求存入 ratio 个令牌（例如 0.1），每次对冲取出 1 个，额外请求不会超过原始请求的 ratio 倍
+ *  ~ 另外每秒补充 minPerSecond 个令牌，流量很小时也能对冲
+ *  ~ 余额上限为 10 秒的最低补充量（至少 10 个），空闲之后不会攒下大量令牌一次性放出
+ *  ~ 故障期间请求普遍变慢，对冲只能用完预算，不会把上游的压力翻倍
+ *  ~ 以千分之一令牌为单位保存在 AtomicLong 中，存取都是一次 CAS
+ */
+final class RetryBudget {
+
+    private static final long UNIT = 1000L;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long REFILL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long deposit;
+
+    private final long refillPerSecond;
+
+    private final long maxBalance;
+
+    private final LongSupplier clock;
+
+    private final AtomicLong balance;
+
+    private final AtomicLong lastRefill;
+
+    RetryBudget(double ratio, double minPerSecond, LongSupplier clock) {
+        this.deposit = (long) (ratio * UNIT);
+        this.refillPerSecond = (long) (minPerSecond * UNIT);
+        this.maxBalance = Math.max(10L * UNIT, 10L * this.refillPerSecond);
+        this.clock = clock;
+        this.balance = new AtomicLong(this.refillPerSecond);
+        this.lastRefill = new AtomicLong(clock.getAsLong());
+    }
+
+    void deposit() {
+        add(this.deposit);
+    }
+
+    boolean tryWithdraw() {
+        refill();
+        for (;;) {
+            long current = this.balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (this.balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前可用的令牌数，便于监控与测试
+     */
+    double available() {
+        refill();
+        return (double) this.balance.get() / UNIT;
+    }
+
+    private void refill() {
+        if (this.refillPerSecond == 0) {
+            return;
+        }
+        long now = this.clock.getAsLong();
+        long last = this.lastRefill.get();
+        long elapsed = now - last;
+        if (elapsed >= REFILL_INTERVAL_NANOS && this.lastRefill.compareAndSet(last, now)) {
+            add(this.refillPerSecond * elapsed / NANOS_PER_SECOND);
+        }
+    }
+
+    private void add(long amount) {
+        for (;;) {
+            long current = this.balance.get();
+            long next = Math.min(this.maxBalance, current + amount);
+            if (next == current || this.balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.itmuch.gateway.jwt;
+
+/**
+ * 令牌校验失败（格式、签名、有效期、签发方、受众）
+ *
+ *  ~ message 是固定的描述，会作为 WWW-Authenticate 的 error_description 返回，不包含请求中的内容
+ *  ~ 不需要堆栈，避免大量无效令牌时填充堆栈的开销
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    /**
+     * 令牌的 kid 不在当前的 JWKS 中，可能需要刷新 JWKS
+     */
+    public static final String UNKNOWN_KEY = "unknown key";
+
+    public InvalidTokenException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,112 @@
+package com.itmuch.gateway.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次加载的 JWKS（kid -> 公钥），不可变
+ *
+ *  ~ 只保留签名用的 RSA / EC 公钥（use 为空或 sig），其余的 key 忽略
+ *  ~ 与上一次加载的结果相比没有变化的 key 沿用原来的 PublicKey 实例：
+ *      VerifiedTokenCache 按实例判断缓存的令牌是否仍然有效，无关的 key 轮换不会让整个缓存失效
+ */
+public final class JwkSet {
+
+    public static final JwkSet EMPTY = new JwkSet(Collections.emptyMap());
+
+    private final Map<String, PublicKey> keys;
+
+    JwkSet(Map<String, PublicKey> keys) {
+        this.keys = keys;
+    }
+
+    public static JwkSet parse(byte[] json, ObjectMapper objectMapper, JwkSet previous) throws IOException {
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+        for (JsonNode jwk : objectMapper.readTree(json).path("keys")) {
+            String use = jwk.path("use").asText("sig");
+            PublicKey key = "sig".equals(use) ? publicKey(jwk) : null;
+            if (key == null) {
+                continue;
+            }
+            String kid = jwk.path("kid").asText("");
+            PublicKey existing = previous == null ? null : previous.keys.get(kid);
+            keys.put(kid, key.equals(existing) ? existing : key);
+        }
+        return new JwkSet(Collections.unmodifiableMap(keys));
+    }
+
+    /**
+     * @param kid 令牌头中的 kid ，没有时只有一个 key 的 JWKS 返回这个 key
+     */
+    public PublicKey find(String kid) {
+        if (kid == null) {
+            return this.keys.size() == 1 ? this.keys.values().iterator().next() : null;
+        }
+        return this.keys.get(kid);
+    }
+
+    public boolean isEmpty() {
+        return this.keys.isEmpty();
+    }
+
+    public int size() {
+        return this.keys.size();
+    }
+
+    private static PublicKey publicKey(JsonNode jwk) {
+        try {
+            switch (jwk.path("kty").asText()) {
+                case "RSA":
+                    return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                            unsigned(jwk, "n"), unsigned(jwk, "e")));
+                case "EC":
+                    String curve = curve(jwk.path("crv").asText());
+                    if (curve == null) {
+                        return null;
+                    }
+                    AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                    parameters.init(new ECGenParameterSpec(curve));
+                    return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(
+                            new ECPoint(unsigned(jwk, "x"), unsigned(jwk, "y")),
+                            parameters.getParameterSpec(ECParameterSpec.class)));
+                default:
+                    return null;
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String curve(String crv) {
+        switch (crv) {
+            case "P-256":
+                return "secp256r1";
+            case "P-384":
+                return "secp384r1";
+            case "P-521":
+                return "secp521r1";
+            default:
+                return null;
+        }
+    }
+
+    private static BigInteger unsigned(JsonNode jwk, String field) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path(field).asText()));
+    }
+}
@@ -0,0 +1,156 @@
+package com.itmuch.gateway.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * JWKS 公钥集合，由后台线程定期刷新
+ *
+ *  ~ 请求线程只读取一个 volatile 引用，不访问认证服务
+ *  ~ location 支持 http(s):// 、file: 、classpath:
+ *  ~ 刷新时机：
+ *      01)、后台线程按固定间隔轮询：refreshInterval
+ *      02)、令牌的 kid 不在当前的 JWKS 中（认证服务刚轮换了 key），两次按需刷新至少间隔 minRefreshInterval ，
+ *          防止伪造 kid 的请求打满认证服务
+ *  ~ 加载失败或返回空的 JWKS 时保留上一次成功的结果（last-known-good）
+ */
+@Slf4j
+public class JwksSource implements Closeable {
+
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private final String location;
+
+    private final long refreshMillis;
+
+    private final long minRefreshNanos;
+
+    private final ObjectMapper objectMapper;
+
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private final MonoProcessor<JwkSet> ready = MonoProcessor.create();
+
+    private volatile ScheduledExecutorService refresher;
+
+    private volatile long lastRefresh = System.nanoTime();
+
+    private volatile JwkSet keys;
+
+    public JwksSource(String location, Duration refreshInterval, Duration minRefreshInterval,
+                      ObjectMapper objectMapper) {
+        this.location = location;
+        this.refreshMillis = refreshInterval.toMillis();
+        this.minRefreshNanos = minRefreshInterval.toNanos();
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 启动后台刷新线程，立即加载一次（不等待结果）
+     */
+    public synchronized void start() {
+        if (this.refresher != null) {
+            return;
+        }
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jwks-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher.scheduleWithFixedDelay(this::refresh, 0L, this.refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return 还没有加载成功过时返回 null
+     */
+    public JwkSet current() {
+        return this.keys;
+    }
+
+    /**
+     * 第一次加载成功时发出
+     */
+    public Mono<JwkSet> ready() {
+        return this.ready;
+    }
+
+    /**
+     * 令牌引用了未知的 kid 时调用
+     */
+    public void requestRefresh() {
+        ScheduledExecutorService refresher = this.refresher;
+        if (refresher == null || System.nanoTime() - this.lastRefresh < this.minRefreshNanos) {
+            return;
+        }
+        if (this.refreshPending.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                this.refreshPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    /**
+     * 重新加载，只在刷新线程（或测试）中调用
+     */
+    synchronized void refresh() {
+        this.lastRefresh = System.nanoTime();
+        JwkSet next;
+        try {
+            next = JwkSet.parse(fetch(), this.objectMapper, this.keys);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error loading JWKS from {}, keeping last known keys", this.location, e);
+            return;
+        }
+        if (next.isEmpty()) {
+            log.warn("No usable signing keys in JWKS from {}, keeping last known keys", this.location);
+            return;
+        }
+        this.keys = next;
+        if (!this.ready.isTerminated()) {
+            this.ready.onNext(next);
+        }
+    }
+
+    private byte[] fetch() throws IOException {
+        Resource resource = this.resourceLoader.getResource(this.location);
+        if (this.location.startsWith("http:") || this.location.startsWith("https:")) {
+            URLConnection connection = resource.getURL().openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setRequestProperty("Accept", "application/json");
+            try (InputStream in = connection.getInputStream()) {
+                return StreamUtils.copyToByteArray(in);
+            }
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService refresher = this.refresher;
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.itmuch.gateway.jwt;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+/**
+ * 支持的 JWS 签名算法（只支持公钥算法，网关不持有 HMAC 密钥）
+ *
+ *  ~ 每个线程缓存一个 Signature 实例，避免每次校验都查找 Provider
+ *  ~ ES* 的签名是 R || S 定长拼接（RFC 7518），校验前转换成 JCA 需要的 DER 编码；
+ *      同时要求公钥的曲线与算法一致，防止用 P-256 的公钥校验 ES512 的令牌之类的混用
+ *  ~ ES* 的 R 、S 必须在 [1, n-1] 内（n 为曲线的阶），否则直接拒绝，不交给 JCA ：
+ *      部分 JDK（CVE-2022-21449 ）会把全 0 的签名当作合法签名
+ */
+public enum JwsAlgorithm {
+
+    RS256("SHA256withRSA", 0),
+    RS384("SHA384withRSA", 0),
+    RS512("SHA512withRSA", 0),
+    ES256("SHA256withECDSA", 256),
+    ES384("SHA384withECDSA", 384),
+    ES512("SHA512withECDSA", 521);
+
+    private final String jcaName;
+
+    private final int curveBits;
+
+    private final ThreadLocal<Signature> signatures;
+
+    JwsAlgorithm(String jcaName, int curveBits) {
+        this.jcaName = jcaName;
+        this.curveBits = curveBits;
+        this.signatures = ThreadLocal.withInitial(this::newSignature);
+    }
+
+    /**
+     * @return 不支持的算法（包括 none 、HS256）返回 null
+     */
+    public static JwsAlgorithm of(String name) {
+        for (JwsAlgorithm algorithm : values()) {
+            if (algorithm.name().equals(name)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    public String getJcaName() {
+        return this.jcaName;
+    }
+
+    /**
+     * ES* 签名中 R 、S 各自的字节数，RS* 返回 0
+     */
+    public int componentSize() {
+        return (this.curveBits + 7) / 8;
+    }
+
+    boolean verify(PublicKey key, byte[] signingInput, byte[] signature) {
+        byte[] encoded = signature;
+        if (this.curveBits == 0) {
+            if (!(key instanceof RSAPublicKey)) {
+                return false;
+            }
+        } else {
+            if (!(key instanceof ECPublicKey)
+                    || ((ECPublicKey) key).getParams().getCurve().getField().getFieldSize() != this.curveBits
+                    || signature.length != componentSize() * 2
+                    || !inRange(signature, ((ECPublicKey) key).getParams().getOrder())) {
+                return false;
+            }
+            encoded = toDer(signature);
+        }
+        Signature verifier = this.signatures.get();
+        try {
+            verifier.initVerify(key);
+            verifier.update(signingInput);
+            return verifier.verify(encoded);
+        } catch (InvalidKeyException | SignatureException e) {
+            return false;
+        }
+    }
+
+    private Signature newSignature() {
+        try {
+            return Signature.getInstance(this.jcaName);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * R 、S 都在 [1, order) 内
+     */
+    private static boolean inRange(byte[] jose, BigInteger order) {
+        int half = jose.length / 2;
+        BigInteger r = new BigInteger(1, Arrays.copyOfRange(jose, 0, half));
+        BigInteger s = new BigInteger(1, Arrays.copyOfRange(jose, half, jose.length));
+        return r.signum() > 0 && r.compareTo(order) < 0 && s.signum() > 0 && s.compareTo(order) < 0;
+    }
+
+    /**
+     * R || S -> SEQUENCE { INTEGER r, INTEGER s }
+     */
+    private static byte[] toDer(byte[] jose) {
+        int half = jose.length / 2;
+        byte[] r = derInteger(jose, 0, half);
+        byte[] s = derInteger(jose, half, half);
+        int length = r.length + s.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + 3);
+        out.write(0x30);
+        if (length > 127) {
+            out.write(0x81);
+        }
+        out.write(length);
+        out.write(r, 0, r.length);
+        out.write(s, 0, s.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] derInteger(byte[] source, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end - 1 && source[start] == 0) {
+            start++;
+        }
+        int pad = (source[start] & 0x80) != 0 ? 1 : 0;
+        int size = end - start + pad;
+        byte[] out = new byte[size + 2];
+        out[0] = 0x02;
+        out[1] = (byte) size;
+        System.arraycopy(source, start, out, 2 + pad, end - start);
+        return out;
+    }
+}
@@ -0,0 +1,115 @@
+package com.itmuch.gateway.jwt;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * 单个路由的 JWT 认证：在网关校验一次签名，下游服务直接信任转发的 claim 请求头
+ *
+ *  ~ 令牌取自 Authorization: Bearer ；缺少或无效时返回 401 和 WWW-Authenticate（RFC 6750）
+ *  ~ 校验结果缓存在 VerifiedTokenCache ，同一个令牌后续的请求只计算一次 SHA-256 ，不做签名运算、不解析 JSON
+ *  ~ 转发的请求头值在校验时就已经生成，缓存命中的请求直接复用同一组 String ，不再按请求重新构建
+ *  ~ 客户端自己带上的同名请求头总会被删除，防止伪造身份
+ *  ~ JWKS 还没有加载成功（刚启动）时最多等待 keysTimeout ，之后返回 503
+ */
+public class JwtAuthenticationFilter implements GatewayFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final JwksSource source;
+
+    private final VerifiedTokenCache cache;
+
+    private final String[] claimHeaders;
+
+    private final Duration keysTimeout;
+
+    private final boolean stripToken;
+
+    /**
+     * @param claimHeaders 与 JwtVerifier 的 claims 一一对应的请求头名称
+     * @param stripToken   是否删除转发给下游的 Authorization 请求头
+     */
+    public JwtAuthenticationFilter(JwksSource source, VerifiedTokenCache cache, String[] claimHeaders,
+                                   Duration keysTimeout, boolean stripToken) {
+        this.source = source;
+        this.cache = cache;
+        this.claimHeaders = claimHeaders;
+        this.keysTimeout = keysTimeout;
+        this.stripToken = stripToken;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String token = bearer(exchange.getRequest());
+        if (token == null) {
+            return reject(exchange, null);
+        }
+        JwkSet keys = this.source.current();
+        if (keys != null) {
+            return authenticate(exchange, chain, token, keys);
+        }
+        return this.source.ready()
+                .timeout(this.keysTimeout, Mono.empty())
+                .defaultIfEmpty(JwkSet.EMPTY)
+                .flatMap(loaded -> loaded.isEmpty() ? unavailable(exchange)
+                        : authenticate(exchange, chain, token, loaded));
+    }
+
+    private Mono<Void> authenticate(ServerWebExchange exchange, GatewayFilterChain chain, String token,
+                                    JwkSet keys) {
+        VerifiedToken verified;
+        try {
+            verified = this.cache.verify(token, keys, System.currentTimeMillis());
+        } catch (InvalidTokenException e) {
+            if (InvalidTokenException.UNKNOWN_KEY.equals(e.getMessage())) {
+                this.source.requestRefresh();
+            }
+            return reject(exchange, e.getMessage());
+        }
+        ServerHttpRequest request = exchange.getRequest().mutate().headers(headers -> {
+            for (int i = 0; i < this.claimHeaders.length; i++) {
+                headers.remove(this.claimHeaders[i]);
+                String value = verified.claimValue(i);
+                if (value != null) {
+                    headers.set(this.claimHeaders[i], value);
+                }
+            }
+            if (this.stripToken) {
+                headers.remove(HttpHeaders.AUTHORIZATION);
+            }
+        }).build();
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    private static String bearer(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        String token = authorization.substring(BEARER.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, String description) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, description == null ? "Bearer"
+                : "Bearer error=\"invalid_token\", error_description=\"" + description + "\"");
+        return response.setComplete();
+    }
+
+    private static Mono<Void> unavailable(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        return response.setComplete();
+    }
+}
@@ -0,0 +1,161 @@
+package com.itmuch.gateway.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * JWS 紧凑格式（header.payload.signature）令牌的校验
+ *
+ *  ~ 依次检查：格式 -> alg 在允许的列表中 -> 按 kid 找到公钥并校验签名 -> exp / nbf（允许 clockSkew 的时钟偏差）
+ *      -> iss -> aud ；签名通过之前不解析 payload
+ *  ~ 校验通过后把需要转发的 claim 转换成请求头的值：字符串原样，数组用 ',' 连接，对象使用 JSON ；
+ *      包含控制字符（例如换行）的值不转发
+ *  ~ 线程安全，不做缓存（见 VerifiedTokenCache）
+ */
+public class JwtVerifier {
+
+    private final ObjectMapper objectMapper;
+
+    private final Set<JwsAlgorithm> algorithms;
+
+    private final String issuer;
+
+    private final String audience;
+
+    private final long clockSkewSeconds;
+
+    private final boolean requireExpiry;
+
+    private final String[] claims;
+
+    /**
+     * @param issuer   为 null 时不检查 iss
+     * @param audience 为 null 时不检查 aud
+     * @param claims   要转发的 claim 名称，VerifiedToken#claimValue 按这个顺序返回
+     */
+    public JwtVerifier(ObjectMapper objectMapper, Set<JwsAlgorithm> algorithms, String issuer, String audience,
+                       long clockSkewSeconds, boolean requireExpiry, String[] claims) {
+        this.objectMapper = objectMapper;
+        this.algorithms = algorithms;
+        this.issuer = issuer;
+        this.audience = audience;
+        this.clockSkewSeconds = clockSkewSeconds;
+        this.requireExpiry = requireExpiry;
+        this.claims = claims;
+    }
+
+    public long getClockSkewSeconds() {
+        return this.clockSkewSeconds;
+    }
+
+    public VerifiedToken verify(String token, JwkSet keys, long nowSeconds) {
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (second < 0 || token.indexOf('.', second + 1) >= 0) {
+            throw new InvalidTokenException("malformed token");
+        }
+        JsonNode header = json(token.substring(0, first));
+        JwsAlgorithm algorithm = JwsAlgorithm.of(header.path("alg").asText());
+        if (algorithm == null || !this.algorithms.contains(algorithm)) {
+            throw new InvalidTokenException("unsupported algorithm");
+        }
+        String kid = header.hasNonNull("kid") ? header.get("kid").asText() : null;
+        PublicKey key = keys.find(kid);
+        if (key == null) {
+            throw new InvalidTokenException(InvalidTokenException.UNKNOWN_KEY);
+        }
+        byte[] signingInput = token.substring(0, second).getBytes(StandardCharsets.US_ASCII);
+        if (!algorithm.verify(key, signingInput, decode(token.substring(second + 1)))) {
+            throw new InvalidTokenException("invalid signature");
+        }
+
+        JsonNode payload = json(token.substring(first + 1, second));
+        long expiresAt = Long.MAX_VALUE;
+        if (payload.hasNonNull("exp")) {
+            expiresAt = payload.get("exp").asLong();
+            if (nowSeconds >= expiresAt + this.clockSkewSeconds) {
+                throw new InvalidTokenException("token expired");
+            }
+        } else if (this.requireExpiry) {
+            throw new InvalidTokenException("missing exp");
+        }
+        if (payload.hasNonNull("nbf") && nowSeconds + this.clockSkewSeconds < payload.get("nbf").asLong()) {
+            throw new InvalidTokenException("token not yet valid");
+        }
+        if (this.issuer != null && !this.issuer.equals(payload.path("iss").asText(null))) {
+            throw new InvalidTokenException("invalid issuer");
+        }
+        if (this.audience != null && !hasAudience(payload.path("aud"))) {
+            throw new InvalidTokenException("invalid audience");
+        }
+
+        String[] values = new String[this.claims.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = headerValue(payload.path(this.claims[i]));
+        }
+        return new VerifiedToken(kid, key, expiresAt, values);
+    }
+
+    private boolean hasAudience(JsonNode aud) {
+        if (aud.isArray()) {
+            for (JsonNode value : aud) {
+                if (this.audience.equals(value.asText())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return this.audience.equals(aud.asText(null));
+    }
+
+    private JsonNode json(String segment) {
+        try {
+            JsonNode node = this.objectMapper.readTree(decode(segment));
+            if (node == null || !node.isObject()) {
+                throw new InvalidTokenException("malformed token");
+            }
+            return node;
+        } catch (IOException e) {
+            throw new InvalidTokenException("malformed token");
+        }
+    }
+
+    private static byte[] decode(String segment) {
+        try {
+            return Base64.getUrlDecoder().decode(segment);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("malformed token");
+        }
+    }
+
+    private static String headerValue(JsonNode claim) {
+        String value;
+        if (claim.isMissingNode() || claim.isNull()) {
+            return null;
+        } else if (claim.isArray()) {
+            StringBuilder joined = new StringBuilder();
+            for (JsonNode element : claim) {
+                if (joined.length() > 0) {
+                    joined.append(',');
+                }
+                joined.append(element.isValueNode() ? element.asText() : element.toString());
+            }
+            value = joined.toString();
+        } else {
+            value = claim.isValueNode() ? claim.asText() : claim.toString();
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c == 0x7f) {
+                return null;
+            }
+        }
+        return value;
+    }
+}
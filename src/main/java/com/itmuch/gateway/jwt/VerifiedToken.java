@@ -0,0 +1,49 @@
+package com.itmuch.gateway.jwt;
+
+import java.security.PublicKey;
+
+/**
+ * 校验通过的令牌
+ *
+ *  ~ 只保留判断缓存是否仍然有效需要的信息，以及要转发给下游的 claim 值（已经转换成请求头的值），不保留整个 payload
+ */
+public final class VerifiedToken {
+
+    private final String kid;
+
+    private final PublicKey key;
+
+    private final long expiresAt;
+
+    private final String[] claimValues;
+
+    VerifiedToken(String kid, PublicKey key, long expiresAt, String[] claimValues) {
+        this.kid = kid;
+        this.key = key;
+        this.expiresAt = expiresAt;
+        this.claimValues = claimValues;
+    }
+
+    /**
+     * exp（秒），令牌没有 exp 时为 Long.MAX_VALUE
+     */
+    public long getExpiresAt() {
+        return this.expiresAt;
+    }
+
+    /**
+     * @param index JwtVerifier 配置的第 index 个转发 claim
+     * @return 令牌中没有该 claim 时返回 null
+     */
+    public String claimValue(int index) {
+        return this.claimValues[index];
+    }
+
+    /**
+     * 没有过期，并且签名用的公钥仍在当前的 JWKS 中
+     */
+    boolean isValid(JwkSet keys, long nowSeconds, long clockSkewSeconds) {
+        return (this.expiresAt == Long.MAX_VALUE || nowSeconds < this.expiresAt + clockSkewSeconds)
+                && keys.find(this.kid) == this.key;
+    }
+}
@@ -0,0 +1,99 @@
+package com.itmuch.gateway.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 校验通过的令牌缓存：同一个令牌在有效期内只做一次签名校验
+ *
+ *  ~ key 是整个令牌的 SHA-256 ，不保存令牌原文；不能只用签名部分做 key ，否则可以把合法的签名拼到篡改过的 payload 上
+ *  ~ 每个条目的有效期 = min(令牌剩余有效期 + clockSkew , maxTtl)（Caffeine 的 expireAfter），数量超过 maxSize 时按 W-TinyLFU 淘汰
+ *  ~ 命中后仍然检查：令牌没有过期、签名用的公钥还在当前的 JWKS 中（key 被撤销后缓存立即失效）
+ *  ~ 校验失败的令牌不缓存
+ */
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final JwtVerifier verifier;
+
+    private final Cache<ByteBuffer, VerifiedToken> cache;
+
+    public VerifiedTokenCache(JwtVerifier verifier, long maxSize, Duration maxTtl) {
+        this.verifier = verifier;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(maxTtl.toNanos(), verifier.getClockSkewSeconds()))
+                .build();
+    }
+
+    /**
+     * @throws InvalidTokenException 令牌无效
+     */
+    public VerifiedToken verify(String token, JwkSet keys, long nowMillis) {
+        long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(nowMillis);
+        ByteBuffer key = hash(token);
+        VerifiedToken cached = this.cache.getIfPresent(key);
+        if (cached != null && cached.isValid(keys, nowSeconds, this.verifier.getClockSkewSeconds())) {
+            return cached;
+        }
+        VerifiedToken verified = this.verifier.verify(token, keys, nowSeconds);
+        this.cache.put(key, verified);
+        return verified;
+    }
+
+    public long size() {
+        return this.cache.estimatedSize();
+    }
+
+    private static ByteBuffer hash(String token) {
+        MessageDigest digest = SHA256.get();
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static final class TokenExpiry implements Expiry<ByteBuffer, VerifiedToken> {
+
+        private final long maxTtlNanos;
+
+        private final long clockSkewSeconds;
+
+        private TokenExpiry(long maxTtlNanos, long clockSkewSeconds) {
+            this.maxTtlNanos = maxTtlNanos;
+            this.clockSkewSeconds = clockSkewSeconds;
+        }
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, VerifiedToken value, long currentTime) {
+            if (value.getExpiresAt() == Long.MAX_VALUE) {
+                return this.maxTtlNanos;
+            }
+            long remaining = TimeUnit.SECONDS.toNanos(value.getExpiresAt() + this.clockSkewSeconds)
+                    - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+            return Math.max(0L, Math.min(remaining, this.maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
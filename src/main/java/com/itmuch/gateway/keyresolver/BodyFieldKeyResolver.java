@@ -0,0 +1,27 @@
+package com.itmuch.gateway.keyresolver;
+
+import com.itmuch.gateway.body.StreamingBodyFilter;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Map;
+
+/**
+ * 按请求体中的 JSON 字段限流，字段由路由上的 StreamingBody 过滤器提取
+ *
+ *  ~ 路由没有配置 StreamingBody 、请求体不是 JSON 或没有该字段时 key 为空
+ */
+public class BodyFieldKeyResolver extends CachingKeyResolver {
+
+    private final String field;
+
+    public BodyFieldKeyResolver(String field, int maxCachedKeys) {
+        super(maxCachedKeys);
+        this.field = field;
+    }
+
+    @Override
+    protected String extract(ServerWebExchange exchange) {
+        Map<String, String> fields = exchange.getAttribute(StreamingBodyFilter.BODY_FIELDS_ATTR);
+        return fields == null ? null : fields.get(this.field);
+    }
+}
@@ -0,0 +1,37 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * KeyResolver 基类：子类只负责从请求中提取 key ，Mono 的构建与缓存统一在这里处理
+ *
+ *  ~ 提取不到 key 时返回 Mono.empty() ，而不是 Mono.just(null)（会直接抛出 NPE）；
+ *      RequestRateLimiter 会按 deny-empty-key / empty-key-status-code 配置处理空 key
+ */
+public abstract class CachingKeyResolver implements KeyResolver {
+
+    private final KeyCache cache;
+
+    protected CachingKeyResolver(int maxCachedKeys) {
+        this.cache = new KeyCache(maxCachedKeys);
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        String key = extract(exchange);
+        if (key == null || key.isEmpty()) {
+            return Mono.empty();
+        }
+        return this.cache.mono(key);
+    }
+
+    /**
+     * 从请求中提取 key
+     *
+     * @param exchange exchange
+     * @return key ，提取不到时返回 null
+     */
+    protected abstract String extract(ServerWebExchange exchange);
+}
@@ -0,0 +1,130 @@
+package com.itmuch.gateway.keyresolver;
+
+import com.google.common.net.InetAddresses;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按来源 IP 限流
+ *
+ *  ~ 默认只使用连接的远端地址：X-Forwarded-For 可以由客户端任意填写，直接信任它相当于每个请求都能换一个令牌桶
+ *  ~ 只有连接来自 trustedProxies（IP 或 CIDR ，例如 10.0.0.0/8）时才读取 X-Forwarded-For ：
+ *      从右往左跳过可信代理追加的地址，取第一个不可信的地址 —— 它是最后一个可信代理实际看到的客户端；
+ *      全部是可信代理时取最左边的地址
+ *  ~ 只解析 IP 字面量，不做 DNS 查询
+ */
+public class ClientIpKeyResolver extends CachingKeyResolver {
+
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private final List<Cidr> trustedProxies = new ArrayList<>();
+
+    public ClientIpKeyResolver(int maxCachedKeys) {
+        this(new String[0], maxCachedKeys);
+    }
+
+    public ClientIpKeyResolver(String[] trustedProxies, int maxCachedKeys) {
+        super(maxCachedKeys);
+        for (String proxy : trustedProxies) {
+            if (StringUtils.hasText(proxy)) {
+                this.trustedProxies.add(Cidr.parse(proxy.trim()));
+            }
+        }
+    }
+
+    @Override
+    protected String extract(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return null;
+        }
+        InetAddress remote = remoteAddress.getAddress();
+        if (!isTrusted(remote)) {
+            return remote.getHostAddress();
+        }
+        List<String> forwardedFor = request.getHeaders().get(X_FORWARDED_FOR);
+        if (forwardedFor == null || forwardedFor.isEmpty()) {
+            return remote.getHostAddress();
+        }
+        // 多个请求头与逗号分隔的列表等价，按出现顺序拼接
+        String[] hops = StringUtils.commaDelimitedListToStringArray(String.join(",", forwardedFor));
+        String leftMost = null;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            leftMost = hop;
+            InetAddress address = literal(hop);
+            if (address == null || !isTrusted(address)) {
+                return hop;
+            }
+        }
+        return leftMost == null ? remote.getHostAddress() : leftMost;
+    }
+
+    private boolean isTrusted(InetAddress address) {
+        for (Cidr cidr : this.trustedProxies) {
+            if (cidr.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析 IP 字面量；不是合法的 IPv4/IPv6 字面量（例如 999.1.1.1 、主机名）时返回 null 。
+     * 不能交给 InetAddress.getByName ，它对无法按字面量解析的字符串会查询 DNS ，阻塞事件循环
+     */
+    static InetAddress literal(String value) {
+        return InetAddresses.isInetAddress(value) ? InetAddresses.forString(value) : null;
+    }
+
+    /**
+     * 可信代理的地址段
+     */
+    private static final class Cidr {
+
+        private final byte[] network;
+
+        private final int prefix;
+
+        private Cidr(byte[] network, int prefix) {
+            this.network = network;
+            this.prefix = prefix;
+        }
+
+        static Cidr parse(String value) {
+            int slash = value.indexOf('/');
+            InetAddress address = literal(slash < 0 ? value : value.substring(0, slash));
+            if (address == null) {
+                throw new IllegalArgumentException("Trusted proxy must be an IP address or CIDR: " + value);
+            }
+            byte[] network = address.getAddress();
+            int prefix = slash < 0 ? network.length * 8 : Integer.parseInt(value.substring(slash + 1));
+            return new Cidr(network, prefix);
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != this.network.length) {
+                return false;
+            }
+            int bits = this.prefix;
+            for (int i = 0; i < bytes.length && bits > 0; i++, bits -= 8) {
+                int mask = bits >= 8 ? 0xff : (0xff << (8 - bits)) & 0xff;
+                if ((bytes[i] & mask) != (this.network[i] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * 按请求头限流，例如按 X-User-Id
+ */
+public class HeaderKeyResolver extends CachingKeyResolver {
+
+    private final String headerName;
+
+    public HeaderKeyResolver(String headerName, int maxCachedKeys) {
+        super(maxCachedKeys);
+        this.headerName = headerName;
+    }
+
+    @Override
+    protected String extract(ServerWebExchange exchange) {
+        return exchange.getRequest().getHeaders().getFirst(this.headerName);
+    }
+}
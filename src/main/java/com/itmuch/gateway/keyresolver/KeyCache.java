@@ -0,0 +1,35 @@
+package com.itmuch.gateway.keyresolver;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Mono;
+
+/**
+ * 限流 key 的有界缓存：key -> 预先构建好的 Mono<String>
+ *
+ *  ~ 常见 key 直接复用缓存中的 Mono 实例（同时也复用了同一个 String 实例），每个请求不再 new Mono.just(...)
+ *  ~ 使用 Caffeine（W-TinyLFU 淘汰策略）限制条目数：key 可能来自客户端（IP 、请求体字段），
+ *      大量一次性的 key 只会被淘汰，不会把缓存占满，常用的 key 仍然留在缓存中
+ */
+public final class KeyCache {
+
+    private final Cache<String, Mono<String>> monos;
+
+    public KeyCache(int maxSize) {
+        this.monos = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public Mono<String> mono(String key) {
+        Mono<String> mono = this.monos.getIfPresent(key);
+        if (mono != null) {
+            return mono;
+        }
+        return this.monos.get(key, Mono::just);
+    }
+
+    public int size() {
+        return (int) this.monos.estimatedSize();
+    }
+}
@@ -0,0 +1,83 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * 按路径模板限流
+ *
+ *  ~ 把路径中"像 id 的"段替换成 {id} ，例如 /users/1 ... /users/N 都归一为 /users/{id} ，共用一个令牌桶
+ *  ~ 像 id 的段：纯数字、UUID 、长度不小于 16 的十六进制串
+ *  ~ 不使用正则，逐字符扫描；路径不需要改写时不产生任何新对象
+ */
+public class PathTemplateKeyResolver extends CachingKeyResolver {
+
+    public static final String PLACEHOLDER = "{id}";
+
+    private static final int MIN_HEX_ID_LENGTH = 16;
+
+    private static final int UUID_LENGTH = 36;
+
+    public PathTemplateKeyResolver(int maxCachedKeys) {
+        super(maxCachedKeys);
+    }
+
+    @Override
+    protected String extract(ServerWebExchange exchange) {
+        return normalize(exchange.getRequest().getPath().value());
+    }
+
+    static String normalize(String path) {
+        int length = path.length();
+        StringBuilder builder = null;
+        int segmentStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && path.charAt(i) != '/') {
+                continue;
+            }
+            if (i > segmentStart && isIdentifier(path, segmentStart, i)) {
+                if (builder == null) {
+                    builder = new StringBuilder(length).append(path, 0, segmentStart);
+                }
+                builder.append(PLACEHOLDER);
+            } else if (builder != null) {
+                builder.append(path, segmentStart, i);
+            }
+            if (i < length && builder != null) {
+                builder.append('/');
+            }
+            segmentStart = i + 1;
+        }
+        return builder == null ? path : builder.toString();
+    }
+
+    private static boolean isIdentifier(String path, int start, int end) {
+        int length = end - start;
+        boolean digits = true;
+        boolean hex = true;
+        int hyphens = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c == '-') {
+                hyphens++;
+                digits = false;
+            } else if (c >= '0' && c <= '9') {
+                continue;
+            } else {
+                digits = false;
+                if (!((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                    hex = false;
+                }
+            }
+            if (!digits && !hex) {
+                return false;
+            }
+        }
+        if (digits) {
+            return true;
+        }
+        if (hyphens == 0) {
+            return length >= MIN_HEX_ID_LENGTH;
+        }
+        return hyphens == 4 && length == UUID_LENGTH;
+    }
+}
@@ -0,0 +1,21 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * 按 URL 参数限流，例如按 ?user=xxx
+ */
+public class QueryParamKeyResolver extends CachingKeyResolver {
+
+    private final String paramName;
+
+    public QueryParamKeyResolver(String paramName, int maxCachedKeys) {
+        super(maxCachedKeys);
+        this.paramName = paramName;
+    }
+
+    @Override
+    protected String extract(ServerWebExchange exchange) {
+        return exchange.getRequest().getQueryParams().getFirst(this.paramName);
+    }
+}
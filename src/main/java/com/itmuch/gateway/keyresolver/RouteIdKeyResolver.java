@@ -0,0 +1,22 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 按路由限流：同一个路由下的所有请求共用一个令牌桶
+ */
+public class RouteIdKeyResolver extends CachingKeyResolver {
+
+    public RouteIdKeyResolver(int maxCachedKeys) {
+        super(maxCachedKeys);
+    }
+
+    @Override
+    protected String extract(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route == null ? null : route.getId();
+    }
+}
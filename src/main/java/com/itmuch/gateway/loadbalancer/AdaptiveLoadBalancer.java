@@ -0,0 +1,208 @@
+package com.itmuch.gateway.loadbalancer;
+
+import lombok.Getter;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 自适应负载均衡：power-of-two-choices + peak-EWMA
+ *
+ *  ~ 每次随机取两个实例，选择负载（延迟 * 在途请求数）更低的一个
+ *      与"全局最小负载"相比不需要遍历所有实例，也不会让所有节点同时涌向同一个最空闲的实例
+ *  ~ 被驱逐的实例跳过；全部被驱逐时忽略驱逐状态，宁可尝试也不直接返回 503
+ *  ~ 统计信息按 serviceId + host:port 保存（见 InstanceStats），实例下线后通过 retain() 清理
+ */
+public class AdaptiveLoadBalancer {
+
+    private final Map<String, Map<String, InstanceStats>> stats = new ConcurrentHashMap<>();
+
+    private final Settings settings;
+
+    private final LongSupplier nanoClock;
+
+    public AdaptiveLoadBalancer(Settings settings) {
+        this(settings, System::nanoTime);
+    }
+
+    AdaptiveLoadBalancer(Settings settings, LongSupplier nanoClock) {
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 选择一个实例，instances 不能为空
+     */
+    public ServiceInstance choose(String serviceId, List<ServiceInstance> instances) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        Map<String, InstanceStats> service = service(serviceId);
+        long now = this.nanoClock.getAsLong();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // 尝试几次避开被驱逐的实例，仍然没有可用实例时退化为普通的 P2C
+        for (int attempt = 0; attempt < 3; attempt++) {
+            ServiceInstance chosen = pick(service, instances, now, random, true);
+            if (chosen != null) {
+                return chosen;
+            }
+        }
+        return pick(service, instances, now, random, false);
+    }
+
+    private ServiceInstance pick(Map<String, InstanceStats> service, List<ServiceInstance> instances,
+                                 long now, ThreadLocalRandom random, boolean skipEjected) {
+        int size = instances.size();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+        ServiceInstance first = instances.get(i);
+        ServiceInstance second = instances.get(j);
+        InstanceStats a = stats(service, first, now);
+        InstanceStats b = stats(service, second, now);
+        if (skipEjected) {
+            boolean aEjected = a.isEjected(now);
+            boolean bEjected = b.isEjected(now);
+            if (aEjected && bEjected) {
+                return null;
+            }
+            if (aEjected) {
+                return second;
+            }
+            if (bEjected) {
+                return first;
+            }
+        }
+        double decay = this.settings.getDecayNanos();
+        return a.load(now, decay) <= b.load(now, decay) ? first : second;
+    }
+
+    /**
+     * 请求发出前调用，返回的 Call 在请求结束时调用 end()/abort()
+     */
+    public Call begin(String serviceId, ServiceInstance instance) {
+        long now = this.nanoClock.getAsLong();
+        InstanceStats instanceStats = stats(service(serviceId), instance, now);
+        instanceStats.begin();
+        return new Call(instanceStats, now);
+    }
+
+    /**
+     * 只保留仍然在线的实例的统计信息
+     */
+    public void retain(String serviceId, Collection<ServiceInstance> instances) {
+        Map<String, InstanceStats> service = this.stats.get(serviceId);
+        if (service == null) {
+            return;
+        }
+        Set<String> live = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            live.add(key(instance));
+        }
+        service.keySet().retainAll(live);
+    }
+
+    InstanceStats stats(String serviceId, ServiceInstance instance) {
+        return stats(service(serviceId), instance, this.nanoClock.getAsLong());
+    }
+
+    private Map<String, InstanceStats> service(String serviceId) {
+        Map<String, InstanceStats> service = this.stats.get(serviceId);
+        if (service == null) {
+            service = this.stats.computeIfAbsent(serviceId, k -> new ConcurrentHashMap<>());
+        }
+        return service;
+    }
+
+    private static InstanceStats stats(Map<String, InstanceStats> service, ServiceInstance instance, long now) {
+        String key = key(instance);
+        InstanceStats instanceStats = service.get(key);
+        if (instanceStats == null) {
+            InstanceStats created = new InstanceStats(now);
+            instanceStats = service.putIfAbsent(key, created);
+            if (instanceStats == null) {
+                instanceStats = created;
+            }
+        }
+        return instanceStats;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ':' + instance.getPort();
+    }
+
+    /**
+     * 一次请求的统计句柄
+     */
+    public final class Call {
+
+        private final InstanceStats instanceStats;
+
+        private final long start;
+
+        private Call(InstanceStats instanceStats, long start) {
+            this.instanceStats = instanceStats;
+            this.start = start;
+        }
+
+        /**
+         * 请求完成，failed 表示出错或 5xx
+         */
+        public void end(boolean failed) {
+            long now = AdaptiveLoadBalancer.this.nanoClock.getAsLong();
+            this.instanceStats.end(now, now - this.start, failed, AdaptiveLoadBalancer.this.settings);
+        }
+
+        /**
+         * 请求被取消，只释放在途计数，不计入延迟
+         */
+        public void abort() {
+            this.instanceStats.abort();
+        }
+    }
+
+    /**
+     * 负载均衡参数
+     */
+    @Getter
+    public static class Settings {
+
+        private final double decayNanos;
+
+        private final long slowCallNanos;
+
+        private final int failureThreshold;
+
+        private final long baseEjectionNanos;
+
+        private final long maxEjectionNanos;
+
+        /**
+         * @param decayMillis        EWMA 的衰减时间常数
+         * @param slowCallMillis     超过该耗时的请求按失败计
+         * @param failureThreshold   连续失败多少次后驱逐
+         * @param baseEjectionMillis 第一次驱逐的时长，之后按连续驱逐次数递增
+         * @param maxEjectionMillis  驱逐时长上限
+         */
+        public Settings(long decayMillis, long slowCallMillis, int failureThreshold,
+                        long baseEjectionMillis, long maxEjectionMillis) {
+            this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayMillis);
+            this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+            this.failureThreshold = failureThreshold;
+            this.baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionMillis);
+            this.maxEjectionNanos = TimeUnit.MILLISECONDS.toNanos(maxEjectionMillis);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.itmuch.gateway.loadbalancer;
+
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.LoadBalancerClientFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_SCHEME_PREFIX_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.qualify;
+
+/**
+ * 替换内置的 LoadBalancerClientFilter ：lb:// 路由改用 AdaptiveLoadBalancer 选择实例
+ *
+ *  ~ 只覆盖 choose() ，URI 重写、NotFoundException/503 的处理仍然沿用父类
+ *  ~ 实例列表从 ServiceInstanceCache 读取，请求路径上不访问注册中心；缓存未命中时先在 elastic 线程池上查询一次，
+ *      choose() 再从缓存中读取
+ *  ~ 请求结束时（包括写完响应）记录耗时与结果：异常或 5xx 记为失败，取消只释放在途计数
+ */
+public class AdaptiveLoadBalancerClientFilter extends LoadBalancerClientFilter {
+
+    static final String CALL_ATTR = qualify("adaptiveLoadBalancerCall");
+
+    private final ServiceInstanceCache instanceCache;
+
+    private final AdaptiveLoadBalancer balancer;
+
+    public AdaptiveLoadBalancerClientFilter(LoadBalancerClient loadBalancer, LoadBalancerProperties properties,
+                                            ServiceInstanceCache instanceCache, AdaptiveLoadBalancer balancer) {
+        super(loadBalancer, properties);
+        this.instanceCache = instanceCache;
+        this.balancer = balancer;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        String schemePrefix = exchange.getAttribute(GATEWAY_SCHEME_PREFIX_ATTR);
+        Mono<Void> loaded = url == null || url.getHost() == null
+                || (!"lb".equals(url.getScheme()) && !"lb".equals(schemePrefix))
+                ? Mono.empty() : this.instanceCache.instances(url.getHost()).then();
+        return loaded.then(Mono.defer(() -> super.filter(exchange, chain))).doFinally(signal -> {
+            AdaptiveLoadBalancer.Call call = exchange.getAttribute(CALL_ATTR);
+            if (call == null) {
+                return;
+            }
+            if (signal == SignalType.CANCEL) {
+                call.abort();
+                return;
+            }
+            HttpStatus status = exchange.getResponse().getStatusCode();
+            call.end(signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError()));
+        });
+    }
+
+    @Override
+    protected ServiceInstance choose(ServerWebExchange exchange) {
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        String serviceId = url.getHost();
+        List<ServiceInstance> instances = this.instanceCache.getInstances(serviceId);
+        if (instances.isEmpty()) {
+            return null;
+        }
+        ServiceInstance instance = this.balancer.choose(serviceId, instances);
+        exchange.getAttributes().put(CALL_ATTR, this.balancer.begin(serviceId, instance));
+        return instance;
+    }
+}
@@ -0,0 +1,133 @@
+package com.itmuch.gateway.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个实例的负载统计，全部无锁
+ *
+ *  ~ 在途请求数：LongAdder ，按线程分散到多个 cell 计数，多个 Netty 线程同时增减时不会争用同一个缓存行
+ *  ~ 延迟：peak-EWMA（取峰值的指数加权平均）
+ *      新样本大于当前值时直接取新样本（对变慢反应迅速）；否则按距离上次更新的时间衰减：
+ *      cost = cost * w + rtt * (1 - w) ，w = exp(-Δt / decay)
+ *      长时间没有请求时读取到的 cost 也会按时间衰减，被冷落的实例会重新获得流量
+ *  ~ 负载 = cost * (在途请求数 + 1)
+ *  ~ 驱逐：连续失败（含超过慢调用阈值的请求）达到阈值后，在一段时间内不再选择该实例；
+ *      每次驱逐的时长按连续驱逐次数递增，成功一次后清零
+ *  ~ 失败的请求按慢调用阈值计入 peak-EWMA ，避免"快速失败的实例负载最低"导致流量被吸过去
+ */
+final class InstanceStats {
+
+    /**
+     * 新实例还没有延迟样本时，按在途请求数给出的惩罚值，保证先试探、再放量
+     */
+    private static final double PENALTY = Integer.MAX_VALUE;
+
+    private static final AtomicLongFieldUpdater<InstanceStats> COST =
+            AtomicLongFieldUpdater.newUpdater(InstanceStats.class, "costBits");
+
+    private static final AtomicIntegerFieldUpdater<InstanceStats> FAILURES =
+            AtomicIntegerFieldUpdater.newUpdater(InstanceStats.class, "failures");
+
+    private static final AtomicLongFieldUpdater<InstanceStats> EJECTED_UNTIL =
+            AtomicLongFieldUpdater.newUpdater(InstanceStats.class, "ejectedUntil");
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private volatile long costBits;
+
+    private volatile long stamp;
+
+    private volatile int failures;
+
+    private volatile int ejections;
+
+    private volatile long ejectedUntil;
+
+    InstanceStats(long now) {
+        this.stamp = now;
+        this.ejectedUntil = now;
+    }
+
+    void begin() {
+        this.inFlight.increment();
+    }
+
+    void abort() {
+        this.inFlight.decrement();
+    }
+
+    void end(long now, long rttNanos, boolean failed, AdaptiveLoadBalancer.Settings settings) {
+        this.inFlight.decrement();
+        // 快速失败的实例延迟很低，只看延迟反而会被优先选择；失败按慢调用阈值计入延迟
+        observe(now, failed ? Math.max(rttNanos, settings.getSlowCallNanos()) : rttNanos, settings.getDecayNanos());
+        if (failed || rttNanos > settings.getSlowCallNanos()) {
+            if (FAILURES.incrementAndGet(this) >= settings.getFailureThreshold()) {
+                eject(now, settings);
+            }
+        } else {
+            // 只在需要时写，避免每个成功请求都弄脏缓存行
+            if (this.failures != 0) {
+                this.failures = 0;
+            }
+            if (this.ejections != 0) {
+                this.ejections = 0;
+            }
+        }
+    }
+
+    private void observe(long now, long rttNanos, double decayNanos) {
+        for (;;) {
+            long bits = this.costBits;
+            double cost = Double.longBitsToDouble(bits);
+            double next;
+            if (rttNanos > cost) {
+                next = rttNanos;
+            } else {
+                double w = Math.exp(-Math.max(now - this.stamp, 0L) / decayNanos);
+                next = cost * w + rttNanos * (1D - w);
+            }
+            if (COST.compareAndSet(this, bits, Double.doubleToRawLongBits(next))) {
+                this.stamp = now;
+                return;
+            }
+        }
+    }
+
+    private void eject(long now, AdaptiveLoadBalancer.Settings settings) {
+        long until = this.ejectedUntil;
+        if (now < until) {
+            return;
+        }
+        int count = Math.min(this.ejections + 1, 16);
+        long duration = Math.min(settings.getBaseEjectionNanos() * count, settings.getMaxEjectionNanos());
+        if (EJECTED_UNTIL.compareAndSet(this, until, now + duration)) {
+            this.ejections = count;
+            // 驱逐结束后重新计数，第一个失败的试探请求不会立刻再次驱逐
+            this.failures = 0;
+        }
+    }
+
+    double load(long now, double decayNanos) {
+        long pending = this.inFlight.sum();
+        double cost = Double.longBitsToDouble(this.costBits);
+        if (cost == 0D) {
+            return pending == 0L ? 0D : PENALTY + pending;
+        }
+        double w = Math.exp(-Math.max(now - this.stamp, 0L) / decayNanos);
+        return cost * w * (pending + 1);
+    }
+
+    boolean isEjected(long now) {
+        return now < this.ejectedUntil;
+    }
+
+    long inFlight() {
+        return this.inFlight.sum();
+    }
+
+    double cost() {
+        return Double.longBitsToDouble(this.costBits);
+    }
+}
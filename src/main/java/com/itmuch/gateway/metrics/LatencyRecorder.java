@@ -0,0 +1,146 @@
+package com.itmuch.gateway.metrics;
+
+import com.itmuch.gateway.shard.LoopShards;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单个路由 / 过滤器的延迟分布
+ *
+ *  ~ 写入使用 HdrHistogram 的 Recorder ：wait-free ，多个 Netty 线程并发记录不需要加锁
+ *  ~ Recorder 每次记录都要原子递增内部的计数器，所有线程共用一个 Recorder 时核数越多争用越严重：
+ *      这里按分片（LoopShards ，每个事件循环一份）各用一个 Recorder ，在该线程第一次记录时创建，
+ *      没有记录过的事件循环不占内存
+ *  ~ 读取时把所有分片的区间数据合并到当前时间片，只有读取（actuator / Micrometer 抓取）需要同步
+ *  ~ 滑动窗口：保留最近 slots 个时间片，rotate()（由 LatencyRegistry 定时调用）丢弃最旧的一片；
+ *      快照只反映窗口内的请求，几小时前的慢请求不会一直压在 p99 上
+ *  ~ getTotalCount() 是累计的请求数，不随窗口滑动减少，供 Micrometer 计数器使用
+ *  ~ 单位：纳秒记录，快照中以微秒输出
+ */
+public class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * 默认的时间片个数，与 LatencyRegistry 默认 10 秒一片合起来是最近 1 分钟
+     */
+    public static final int DEFAULT_SLOTS = 6;
+
+    private final String name;
+
+    private final LoopShards shards;
+
+    private final AtomicReferenceArray<Recorder> recorders;
+
+    /**
+     * 时间片，window[current] 是正在累积的一片
+     */
+    private final Histogram[] window;
+
+    private final Histogram merged = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+
+    private int current;
+
+    private long totalCount;
+
+    /**
+     * 每个分片的区间直方图，交给对应的 Recorder 复用（只能复用同一个 Recorder 返回的直方图）
+     */
+    private final Histogram[] intervals;
+
+    public LatencyRecorder(String name) {
+        this(name, LoopShards.DEFAULT);
+    }
+
+    public LatencyRecorder(String name, LoopShards shards) {
+        this(name, shards, DEFAULT_SLOTS);
+    }
+
+    public LatencyRecorder(String name, LoopShards shards, int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("slots must be positive: " + slots);
+        }
+        this.name = name;
+        this.shards = shards;
+        this.recorders = new AtomicReferenceArray<>(shards.count());
+        this.intervals = new Histogram[shards.count()];
+        this.window = new Histogram[slots];
+        for (int i = 0; i < slots; i++) {
+            this.window[i] = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        }
+    }
+
+    public void record(long nanos) {
+        int shard = this.shards.index();
+        Recorder recorder = this.recorders.get(shard);
+        if (recorder == null) {
+            recorder = recorder(shard);
+        }
+        recorder.recordValue(Math.min(Math.max(nanos, 0L), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    private Recorder recorder(int shard) {
+        Recorder created = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        return this.recorders.compareAndSet(shard, null, created) ? created : this.recorders.get(shard);
+    }
+
+    /**
+     * 窗口内（最近 slots 个时间片）的延迟分布
+     */
+    public synchronized LatencySnapshot snapshot() {
+        collect();
+        this.merged.reset();
+        for (Histogram slot : this.window) {
+            this.merged.add(slot);
+        }
+        return LatencySnapshot.of(this.name, this.merged);
+    }
+
+    /**
+     * 窗口前进一片，丢弃最旧的时间片
+     */
+    public synchronized void rotate() {
+        collect();
+        this.current = (this.current + 1) % this.window.length;
+        this.window[this.current].reset();
+    }
+
+    /**
+     * 清空窗口；累计请求数不清零
+     */
+    public synchronized void reset() {
+        collect();
+        for (Histogram slot : this.window) {
+            slot.reset();
+        }
+    }
+
+    public synchronized long getTotalCount() {
+        collect();
+        return this.totalCount;
+    }
+
+    /**
+     * 把各分片的区间数据合并到当前时间片
+     */
+    private void collect() {
+        Histogram slot = this.window[this.current];
+        for (int i = 0; i < this.intervals.length; i++) {
+            Recorder recorder = this.recorders.get(i);
+            if (recorder != null) {
+                this.intervals[i] = recorder.getIntervalHistogram(this.intervals[i]);
+                slot.add(this.intervals[i]);
+                this.totalCount += this.intervals[i].getTotalCount();
+            }
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+}
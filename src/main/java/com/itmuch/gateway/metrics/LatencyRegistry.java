@@ -0,0 +1,166 @@
+package com.itmuch.gateway.metrics;
+
+import com.itmuch.gateway.shard.LoopShards;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由与过滤器的延迟记录器注册表
+ *
+ *  ~ 路由：gateway.route.latency{route}
+ *  ~ 过滤器：gateway.filter.latency{route, filter}（过滤器的 pre 阶段耗时，见 TimedGatewayFilter）
+ *  ~ 每个记录器创建时注册到 Micrometer ：p50/p90/p99/p999 四个 Gauge 和一个计数器，抓取时才计算快照
+ *  ~ 分位数只统计滑动窗口（slots 个 slotMillis 长的时间片）内的请求，后台线程每隔 slotMillis 让所有记录器前进一片；
+ *      slotMillis 不大于 0 时不滑动，只能由 reset() 清空
+ *  ~ 路由被删除时调用 remove() ，该路由及其过滤器的记录器和 Meter 一起移除
+ */
+public class LatencyRegistry implements DisposableBean {
+
+    public static final String ROUTE_METRIC = "gateway.route.latency";
+
+    public static final String FILTER_METRIC = "gateway.filter.latency";
+
+    private static final double[] QUANTILES = {0.5D, 0.9D, 0.99D, 0.999D};
+
+    private final Map<String, LatencyRecorder> routes = new ConcurrentHashMap<>();
+
+    private final Map<String, LatencyRecorder> filters = new ConcurrentHashMap<>();
+
+    /**
+     * 每个记录器注册的 Meter ，移除记录器时一起从 MeterRegistry 中移除
+     */
+    private final Map<LatencyRecorder, List<Meter>> meters = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final int slots;
+
+    private final ScheduledExecutorService rotator;
+
+    public LatencyRegistry(MeterRegistry meterRegistry) {
+        this(meterRegistry, LatencyRecorder.DEFAULT_SLOTS, 0L);
+    }
+
+    public LatencyRegistry(MeterRegistry meterRegistry, int slots, long slotMillis) {
+        this.meterRegistry = meterRegistry;
+        this.slots = slots;
+        if (slotMillis <= 0L) {
+            this.rotator = null;
+            return;
+        }
+        this.rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "latency-window-rotator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rotator.scheduleAtFixedRate(this::rotate, slotMillis, slotMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public LatencyRecorder route(String routeId) {
+        LatencyRecorder recorder = this.routes.get(routeId);
+        if (recorder != null) {
+            return recorder;
+        }
+        return this.routes.computeIfAbsent(routeId,
+                id -> register(newRecorder(id), ROUTE_METRIC, Tags.of("route", id)));
+    }
+
+    public LatencyRecorder filter(String routeId, String filterName) {
+        // 路由 id 中可能有 / ，key 用换行分隔，remove() 按前缀查找时不会误删其他路由的过滤器
+        String key = routeId + '\n' + filterName;
+        LatencyRecorder recorder = this.filters.get(key);
+        if (recorder != null) {
+            return recorder;
+        }
+        return this.filters.computeIfAbsent(key, k -> register(newRecorder(routeId + "/" + filterName),
+                FILTER_METRIC, Tags.of("route", routeId, "filter", filterName)));
+    }
+
+    private LatencyRecorder newRecorder(String name) {
+        return new LatencyRecorder(name, LoopShards.DEFAULT, this.slots);
+    }
+
+    private LatencyRecorder register(LatencyRecorder recorder, String metric, Tags tags) {
+        if (this.meterRegistry == null) {
+            return recorder;
+        }
+        List<Meter> registered = new ArrayList<>(QUANTILES.length + 1);
+        for (double quantile : QUANTILES) {
+            registered.add(Gauge.builder(metric, recorder, r -> r.snapshot().getValueAtQuantile(quantile))
+                    .tags(tags)
+                    .tag("quantile", Double.toString(quantile))
+                    .baseUnit("microseconds")
+                    .register(this.meterRegistry));
+        }
+        registered.add(FunctionCounter.builder(metric + ".count", recorder, LatencyRecorder::getTotalCount)
+                .tags(tags)
+                .register(this.meterRegistry));
+        this.meters.put(recorder, registered);
+        return recorder;
+    }
+
+    /**
+     * 移除已删除路由的记录器：路由本身以及它的所有过滤器
+     */
+    public void remove(Collection<String> routeIds) {
+        for (String routeId : routeIds) {
+            unregister(this.routes.remove(routeId));
+            String prefix = routeId + '\n';
+            this.filters.entrySet().removeIf(entry -> {
+                if (!entry.getKey().startsWith(prefix)) {
+                    return false;
+                }
+                unregister(entry.getValue());
+                return true;
+            });
+        }
+    }
+
+    private void unregister(LatencyRecorder recorder) {
+        List<Meter> registered = recorder == null ? null : this.meters.remove(recorder);
+        if (registered != null) {
+            registered.forEach(this.meterRegistry::remove);
+        }
+    }
+
+    public Collection<LatencyRecorder> routes() {
+        return this.routes.values();
+    }
+
+    public Collection<LatencyRecorder> filters() {
+        return this.filters.values();
+    }
+
+    /**
+     * 所有记录器的窗口前进一片，由后台线程定时调用
+     */
+    public void rotate() {
+        this.routes.values().forEach(LatencyRecorder::rotate);
+        this.filters.values().forEach(LatencyRecorder::rotate);
+    }
+
+    public void reset() {
+        this.routes.values().forEach(LatencyRecorder::reset);
+        this.filters.values().forEach(LatencyRecorder::reset);
+    }
+
+    @Override
+    public void destroy() {
+        if (this.rotator != null) {
+            this.rotator.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.itmuch.gateway.metrics;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+/**
+ * 延迟分布快照（微秒）
+ */
+@Getter
+public class LatencySnapshot {
+
+    private static final double NANOS_PER_MICRO = 1000.0D;
+
+    private final String name;
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    private LatencySnapshot(String name, long count, double mean, double p50, double p90,
+                            double p99, double p999, double max) {
+        this.name = name;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    static LatencySnapshot of(String name, Histogram histogram) {
+        return new LatencySnapshot(name,
+                histogram.getTotalCount(),
+                histogram.getMean() / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(50.0D) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(90.0D) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99.0D) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99.9D) / NANOS_PER_MICRO,
+                histogram.getMaxValue() / NANOS_PER_MICRO);
+    }
+
+    public double getValueAtQuantile(double quantile) {
+        if (quantile >= 0.999D) {
+            return this.p999;
+        }
+        if (quantile >= 0.99D) {
+            return this.p99;
+        }
+        if (quantile >= 0.9D) {
+            return this.p90;
+        }
+        return this.p50;
+    }
+}
@@ -0,0 +1,41 @@
+package com.itmuch.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 全局过滤器：记录每个路由从进入过滤器链到响应完成的耗时
+ *
+ *  ~ Order 为最高优先级，覆盖所有全局过滤器与路由过滤器
+ */
+public class RouteLatencyGlobalFilter implements GlobalFilter, Ordered {
+
+    private final LatencyRegistry registry;
+
+    public RouteLatencyGlobalFilter(LatencyRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        LatencyRecorder recorder = this.registry.route(route.getId());
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> recorder.record(System.nanoTime() - start));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,100 @@
+package com.itmuch.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * GatewayFilter 包装：记录过滤器 pre 阶段的耗时
+ *
+ *  ~ pre 阶段：从进入过滤器到它调用下一个过滤器（chain.filter）为止，
+ *      对 RequestRateLimiter 这类异步过滤器，包含等待限流结果的时间
+ *  ~ 过滤器没有调用下一个过滤器（例如限流返回 429）时，以过滤器完成的时间为准
+ *  ~ 一个过滤器实例只属于一个路由，记录器在第一次请求时查找并缓存
+ */
+public class TimedGatewayFilter implements GatewayFilter {
+
+    private final GatewayFilter delegate;
+
+    private final String filterName;
+
+    private final LatencyRegistry registry;
+
+    private volatile LatencyRecorder recorder;
+
+    TimedGatewayFilter(GatewayFilter delegate, String filterName, LatencyRegistry registry) {
+        this.delegate = delegate;
+        this.filterName = filterName;
+        this.registry = registry;
+    }
+
+    /**
+     * 包装过滤器，保留原过滤器的 Order
+     */
+    public static GatewayFilter wrap(GatewayFilter delegate, String filterName, LatencyRegistry registry) {
+        if (delegate instanceof Ordered) {
+            return new OrderedTimedGatewayFilter(delegate, filterName, registry, ((Ordered) delegate).getOrder());
+        }
+        return new TimedGatewayFilter(delegate, filterName, registry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        LatencyRecorder recorder = recorder(exchange);
+        if (recorder == null) {
+            return this.delegate.filter(exchange, chain);
+        }
+        long start = System.nanoTime();
+        boolean[] recorded = new boolean[1];
+        GatewayFilterChain timedChain = next -> {
+            recorded[0] = true;
+            recorder.record(System.nanoTime() - start);
+            return chain.filter(next);
+        };
+        return this.delegate.filter(exchange, timedChain)
+                .doFinally(signal -> {
+                    if (!recorded[0]) {
+                        recorder.record(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private LatencyRecorder recorder(ServerWebExchange exchange) {
+        LatencyRecorder current = this.recorder;
+        if (current != null) {
+            return current;
+        }
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return null;
+        }
+        current = this.registry.filter(route.getId(), this.filterName);
+        this.recorder = current;
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return "Timed[" + this.filterName + "]" + this.delegate;
+    }
+
+    static final class OrderedTimedGatewayFilter extends TimedGatewayFilter implements Ordered {
+
+        private final int order;
+
+        OrderedTimedGatewayFilter(GatewayFilter delegate, String filterName, LatencyRegistry registry, int order) {
+            super(delegate, filterName, registry);
+            this.order = order;
+        }
+
+        @Override
+        public int getOrder() {
+            return this.order;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.itmuch.gateway.metrics;
+
+import com.itmuch.gateway.route.GatewayFilterDecorator;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+
+/**
+ * 编译路由时给每个过滤器套上 TimedGatewayFilter ，记录 pre 阶段耗时
+ *
+ *  ~ 位于最外层：offload 等装饰器的排队时间也计入该过滤器的耗时
+ */
+public class TimedGatewayFilterDecorator implements GatewayFilterDecorator {
+
+    public static final int ORDER = 1000;
+
+    private final LatencyRegistry registry;
+
+    public TimedGatewayFilterDecorator(LatencyRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public GatewayFilter decorate(GatewayFilter filter, GatewayFilterFactory<?> factory) {
+        return TimedGatewayFilter.wrap(filter, factory.name(), this.registry);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
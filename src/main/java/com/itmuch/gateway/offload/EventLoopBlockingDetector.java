@@ -0,0 +1,234 @@
+package com.itmuch.gateway.offload;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.netty.util.concurrent.ThreadProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 事件循环阻塞检测
+ *
+ *  ~ 后台线程每隔 intervalMillis 向每个事件循环提交一个空任务（探针），任务开始执行时记录延迟：
+ *      gateway.eventloop.lag ，正常情况下接近 0
+ *  ~ 探针超过 thresholdMillis 还没有执行，说明事件循环被卡住：抓取该线程的堆栈，取第一个属于 packages 的栈帧
+ *      （线程在提交探针时就从 SingleThreadEventExecutor.threadProperties() 取得，
+ *      启动后第一个探针就被卡住也能定位，而不是等探针执行过一次才知道是哪个线程）
+ *      （例如 PreLogGatewayFilterFactory.lambda$apply$0）作为肇事者，打印告警并计入
+ *      gateway.eventloop.blocked{filter} ；同一次卡顿只报告一次
+ *  ~ 找到的过滤器可以加上 @Offload 或配置到 gateway.offload.filters ，改到 offload 线程池执行
+ *  ~ 只有后台线程读写探针状态（check() 是 synchronized），事件循环线程只执行探针本身
+ */
+@Slf4j
+public class EventLoopBlockingDetector implements InitializingBean, DisposableBean {
+
+    public static final String LAG_METRIC = "gateway.eventloop.lag";
+
+    public static final String BLOCKED_METRIC = "gateway.eventloop.blocked";
+
+    static final String UNKNOWN = "unknown";
+
+    private final Supplier<? extends Iterable<? extends EventExecutor>> loops;
+
+    private final long intervalMillis;
+
+    private final long thresholdNanos;
+
+    private final List<String> packages;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer lagTimer;
+
+    private final ScheduledExecutorService checker;
+
+    private final Map<EventExecutor, Probe> probes = new LinkedHashMap<>();
+
+    private final Map<String, LongAdder> blocked = new ConcurrentHashMap<>();
+
+    private volatile long maxLagNanos;
+
+    public EventLoopBlockingDetector(Supplier<? extends Iterable<? extends EventExecutor>> loops, long intervalMillis,
+                                     long thresholdMillis, List<String> packages, MeterRegistry meterRegistry) {
+        this.loops = loops;
+        this.intervalMillis = intervalMillis;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.packages = packages;
+        this.meterRegistry = meterRegistry;
+        this.lagTimer = meterRegistry == null ? null : Timer.builder(LAG_METRIC)
+                .publishPercentiles(0.5D, 0.99D, 0.999D)
+                .register(meterRegistry);
+        this.checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "eventloop-blocking-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.checker.scheduleWithFixedDelay(this::check, this.intervalMillis, this.intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 一轮检测：空闲的事件循环提交新探针，探针超时的事件循环报告一次，只在检测线程（或测试）中调用
+     */
+    synchronized void check() {
+        Iterable<? extends EventExecutor> executors;
+        try {
+            executors = this.loops.get();
+        } catch (RuntimeException e) {
+            log.debug("Event loops not available yet", e);
+            return;
+        }
+        long now = System.nanoTime();
+        for (EventExecutor loop : executors) {
+            Probe probe = this.probes.computeIfAbsent(loop, Probe::new);
+            if (!probe.pending) {
+                probe.submit(now);
+            } else if (!probe.reported && now - probe.submittedAt >= this.thresholdNanos) {
+                probe.reported = true;
+                report(probe, now - probe.submittedAt);
+            }
+        }
+    }
+
+    private void report(Probe probe, long stalledNanos) {
+        String name = UNKNOWN;
+        String culprit = UNKNOWN;
+        if (probe.properties != null) {
+            name = probe.properties.name();
+            culprit = culprit(probe.properties.stackTrace());
+        } else if (probe.thread != null) {
+            name = probe.thread.getName();
+            culprit = culprit(probe.thread.getStackTrace());
+        }
+        LongAdder counter = this.blocked.computeIfAbsent(culprit, this::register);
+        counter.increment();
+        log.warn("Event loop {} blocked for more than {}ms in {}", name,
+                TimeUnit.NANOSECONDS.toMillis(stalledNanos), culprit);
+    }
+
+    private LongAdder register(String culprit) {
+        LongAdder counter = new LongAdder();
+        if (this.meterRegistry != null) {
+            FunctionCounter.builder(BLOCKED_METRIC, counter, LongAdder::sum)
+                    .tag("filter", culprit)
+                    .register(this.meterRegistry);
+        }
+        return counter;
+    }
+
+    /**
+     * 第一个属于 packages 的栈帧：简单类名.方法名
+     */
+    String culprit(StackTraceElement[] stack) {
+        for (StackTraceElement element : stack) {
+            String className = element.getClassName();
+            for (String prefix : this.packages) {
+                if (className.startsWith(prefix)) {
+                    return className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName();
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private void recordLag(long lagNanos) {
+        if (this.lagTimer != null) {
+            this.lagTimer.record(lagNanos, TimeUnit.NANOSECONDS);
+        }
+        if (lagNanos > this.maxLagNanos) {
+            // 只有事件循环线程写入，各个事件循环之间偶尔覆盖不影响判断
+            this.maxLagNanos = lagNanos;
+        }
+    }
+
+    /**
+     * 启动以来探针的最大延迟（纳秒）
+     */
+    public long getMaxLagNanos() {
+        return this.maxLagNanos;
+    }
+
+    /**
+     * 肇事者 -> 报告次数
+     */
+    public Map<String, Long> getBlockingFilters() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.blocked.forEach((culprit, count) -> result.put(culprit, count.sum()));
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        this.checker.shutdownNow();
+    }
+
+    private final class Probe implements Runnable {
+
+        private final EventExecutor loop;
+
+        private volatile boolean pending;
+
+        private volatile long submittedAt;
+
+        /**
+         * 不是 SingleThreadEventExecutor 的事件循环，只能在探针执行时记下线程
+         */
+        private volatile Thread thread;
+
+        /**
+         * 只在检测线程中读写
+         */
+        private boolean reported;
+
+        /**
+         * 事件循环线程的句柄，只在检测线程中读写；线程在事件循环的生命周期内不变，取一次即可
+         */
+        private ThreadProperties properties;
+
+        private Probe(EventExecutor loop) {
+            this.loop = loop;
+        }
+
+        private void submit(long now) {
+            this.submittedAt = now;
+            this.reported = false;
+            this.pending = true;
+            try {
+                if (this.properties == null && this.loop instanceof SingleThreadEventExecutor) {
+                    // 线程已启动时直接返回；尚未启动时会先启动线程并等待一个空任务，此时事件循环上还没有业务任务
+                    this.properties = ((SingleThreadEventExecutor) this.loop).threadProperties();
+                }
+                this.loop.execute(this);
+            } catch (RejectedExecutionException e) {
+                // 事件循环已经关闭
+                this.pending = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            this.thread = Thread.currentThread();
+            recordLag(System.nanoTime() - this.submittedAt);
+            this.pending = false;
+        }
+    }
+}
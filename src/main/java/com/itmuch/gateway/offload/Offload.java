@@ -0,0 +1,19 @@
+package com.itmuch.gateway.offload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在 GatewayFilterFactory 上：它生成的过滤器在 offload 线程池上执行（见 OffloadGatewayFilter）
+ *
+ *  ~ 用于内部有阻塞调用的自定义过滤器，例如同步写日志、调用阻塞的客户端；
+ *      不方便修改代码的过滤器可以在 gateway.offload.filters 中按名称配置
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Offload {
+}
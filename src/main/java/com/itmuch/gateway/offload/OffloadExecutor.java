@@ -0,0 +1,163 @@
+package com.itmuch.gateway.offload;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 有界的 offload 线程池：把会阻塞的代码从 Netty 事件循环线程上移走
+ *
+ *  ~ 固定 threads 个线程；JDK 21 及以上且 virtualThreads=true 时使用虚拟线程（通过反射创建，编译目标仍是 Java 8），
+ *      阻塞时不占用平台线程，threads 可以配得更大
+ *  ~ 执行中 + 排队的任务数不超过 threads + queueCapacity ，超过时立即失败（OffloadRejectedException），
+ *      不会在事件循环线程上等待
+ *  ~ submit() 在 offload 线程上组装并订阅 Mono ：同步部分（包括阻塞调用）在 offload 线程执行，
+ *      遇到第一个异步边界后线程即被释放，之后的信号在产生它的线程上继续
+ *  ~ 指标：gateway.offload.queue（排队数）、gateway.offload.active（执行中）、
+ *      gateway.offload.wait（排队等待时间）、gateway.offload.rejected（拒绝数）
+ */
+public class OffloadExecutor implements DisposableBean {
+
+    public static final String QUEUE_METRIC = "gateway.offload.queue";
+
+    public static final String ACTIVE_METRIC = "gateway.offload.active";
+
+    public static final String WAIT_METRIC = "gateway.offload.wait";
+
+    public static final String REJECTED_METRIC = "gateway.offload.rejected";
+
+    private final ThreadPoolExecutor pool;
+
+    private final Semaphore permits;
+
+    private final boolean virtualThreads;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final Timer waitTimer;
+
+    public OffloadExecutor(int threads, int queueCapacity, boolean virtualThreads, MeterRegistry meterRegistry) {
+        ThreadFactory factory = virtualThreads ? virtualThreadFactory() : null;
+        this.virtualThreads = factory != null;
+        if (factory == null) {
+            AtomicInteger counter = new AtomicInteger();
+            factory = r -> {
+                Thread thread = new Thread(r, "offload-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        // 队列长度由 permits 限制
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        this.permits = new Semaphore(threads + queueCapacity);
+
+        if (meterRegistry == null) {
+            this.waitTimer = null;
+            return;
+        }
+        Gauge.builder(QUEUE_METRIC, this.pool, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder(ACTIVE_METRIC, this.pool, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        FunctionCounter.builder(REJECTED_METRIC, this.rejected, LongAdder::sum).register(meterRegistry);
+        this.waitTimer = Timer.builder(WAIT_METRIC)
+                .publishPercentiles(0.5D, 0.99D)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在 offload 线程上调用 work 并订阅它返回的 Mono ；取消时如果任务还在排队则不再执行
+     */
+    public <T> Mono<T> submit(Supplier<? extends Mono<T>> work) {
+        return Mono.create(sink -> {
+            if (!this.permits.tryAcquire()) {
+                this.rejected.increment();
+                sink.error(OffloadRejectedException.INSTANCE);
+                return;
+            }
+            Disposable.Swap subscription = Disposables.swap();
+            sink.onCancel(subscription);
+            long queuedAt = System.nanoTime();
+            Runnable task = () -> {
+                if (this.waitTimer != null) {
+                    this.waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                }
+                try {
+                    if (!subscription.isDisposed()) {
+                        subscription.update(work.get()
+                                .subscriberContext(sink.currentContext())
+                                .subscribe(sink::success, sink::error, sink::success));
+                    }
+                } catch (Throwable e) {
+                    sink.error(e);
+                } finally {
+                    this.permits.release();
+                }
+            };
+            try {
+                this.pool.execute(task);
+            } catch (RejectedExecutionException e) {
+                // 已经关闭
+                this.permits.release();
+                sink.error(e);
+            }
+        });
+    }
+
+    /**
+     * 在 offload 线程上执行阻塞调用，例如 KeyResolver 中查询 Redis / 数据库
+     */
+    public <T> Mono<T> call(Callable<T> callable) {
+        return submit(() -> Mono.fromCallable(callable));
+    }
+
+    public int getQueueDepth() {
+        return this.pool.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return this.pool.getActiveCount();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    public boolean isVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    @Override
+    public void destroy() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * Thread.ofVirtual().name("offload-", 0).factory() ；JDK 21 之前返回 null
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "offload-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.itmuch.gateway.offload;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * GatewayFilter 包装：在 OffloadExecutor 上执行过滤器，事件循环线程不会被过滤器中的阻塞调用卡住
+ *
+ *  ~ 过滤器的 filter() 调用与订阅都在 offload 线程上；它调用 chain.filter() 后，
+ *      后续过滤器继续在 offload 线程上执行，直到第一个异步边界（例如转发请求），之后回到 Netty 线程
+ *  ~ offload 线程池已满时返回 503 ，与 ConcurrencyLimit 的拒绝方式相同
+ */
+public class OffloadGatewayFilter implements GatewayFilter {
+
+    private final GatewayFilter delegate;
+
+    private final String filterName;
+
+    private final OffloadExecutor executor;
+
+    OffloadGatewayFilter(GatewayFilter delegate, String filterName, OffloadExecutor executor) {
+        this.delegate = delegate;
+        this.filterName = filterName;
+        this.executor = executor;
+    }
+
+    /**
+     * 包装过滤器，保留原过滤器的 Order
+     */
+    public static GatewayFilter wrap(GatewayFilter delegate, String filterName, OffloadExecutor executor) {
+        if (delegate instanceof Ordered) {
+            return new OrderedOffloadGatewayFilter(delegate, filterName, executor, ((Ordered) delegate).getOrder());
+        }
+        return new OffloadGatewayFilter(delegate, filterName, executor);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return this.executor.submit(() -> this.delegate.filter(exchange, chain))
+                .onErrorResume(OffloadRejectedException.class, ex -> reject(exchange));
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        return response.setComplete();
+    }
+
+    @Override
+    public String toString() {
+        return "Offload[" + this.filterName + "]" + this.delegate;
+    }
+
+    static final class OrderedOffloadGatewayFilter extends OffloadGatewayFilter implements Ordered {
+
+        private final int order;
+
+        OrderedOffloadGatewayFilter(GatewayFilter delegate, String filterName, OffloadExecutor executor, int order) {
+            super(delegate, filterName, executor);
+            this.order = order;
+        }
+
+        @Override
+        public int getOrder() {
+            return this.order;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.itmuch.gateway.offload;
+
+import com.itmuch.gateway.route.GatewayFilterDecorator;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.util.Collection;
+
+/**
+ * 编译路由时把阻塞的过滤器套上 OffloadGatewayFilter
+ *
+ *  ~ 工厂类标注了 @Offload ，或者工厂名称在 filters（gateway.offload.filters）中时才包装
+ *  ~ 位于最里层，先于耗时统计包装：记录的耗时包含在 OffloadExecutor 上排队的时间
+ */
+public class OffloadGatewayFilterDecorator implements GatewayFilterDecorator {
+
+    public static final int ORDER = 0;
+
+    private final OffloadExecutor executor;
+
+    private final Collection<String> filters;
+
+    public OffloadGatewayFilterDecorator(OffloadExecutor executor, Collection<String> filters) {
+        this.executor = executor;
+        this.filters = filters;
+    }
+
+    @Override
+    public GatewayFilter decorate(GatewayFilter filter, GatewayFilterFactory<?> factory) {
+        if (AnnotationUtils.findAnnotation(factory.getClass(), Offload.class) != null
+                || this.filters.contains(factory.name())) {
+            return OffloadGatewayFilter.wrap(filter, factory.name(), this.executor);
+        }
+        return filter;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
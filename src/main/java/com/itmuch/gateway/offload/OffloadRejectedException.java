@@ -0,0 +1,15 @@
+package com.itmuch.gateway.offload;
+
+/**
+ * offload 线程池已满（执行中 + 排队的任务达到上限）
+ *
+ *  ~ 不需要堆栈：过载时会大量出现，只用来返回 503
+ */
+public class OffloadRejectedException extends RuntimeException {
+
+    static final OffloadRejectedException INSTANCE = new OffloadRejectedException();
+
+    private OffloadRejectedException() {
+        super("offload executor saturated", null, false, false);
+    }
+}
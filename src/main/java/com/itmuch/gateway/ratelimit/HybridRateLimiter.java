@@ -0,0 +1,427 @@
+package com.itmuch.gateway.ratelimit;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.validation.Validator;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.LongSupplier;
+
+/**
+ * 本地 + Redis 混合限流器 —— 多节点共享全局限额，但不必每个请求都访问 Redis
+ *
+ *  ~ 全局令牌桶仍然保存在 Redis 中（算法与 RedisRateLimiter 一致），参数前缀为 hybrid-rate-limiter
+ *  ~ 每个节点按 key 从 Redis 一次"租借"一批令牌，在本地消费，直到用完或租约过期
+ *  ~ 需要续租的 key 按路由放入队列，每个路由同一时刻只有一个 Redis 调用在途，期间积累的 key 在下一次调用中批量处理；
+ *      每次调用最多等待 leaseTimeoutMillis ，某个路由的调用卡住不会影响其他路由，超时后该路由的队列继续处理
+ *  ~ 租借数量按每个 key 观测到的请求速率（EWMA）自适应：速率 * 租约时长，且不超过 burstCapacity * maxLeaseFraction
+ *  ~ Redis 中令牌不足时（只租到部分或 0 个），用完已租到的令牌后在本地拒绝一段时间（按缺少的令牌数估算）再重试，
+ *      避免过载时每个请求都访问 Redis
+ *  ~ 准确性：令牌全部来自 Redis 中的全局令牌桶，不会超发；租约过期时未用完的令牌直接丢弃，因此只可能偏保守
+ *  ~ Redis 不可用（出错或超时）时退回到本节点的令牌桶（TokenBucket），按同样的 replenishRate/burstCapacity 在本地限流：
+ *      此时每个节点各自计数，整体最多放行 节点数 倍的限额，但不会无限放行；一个租约时长内不再访问 Redis
+ *
+ *  配置示例：
+ *            filters:
+ *              - name: RequestRateLimiter
+ *                args:
+ *                  rate-limiter: "#{@hybridRateLimiter}"
+ *                  hybrid-rate-limiter.replenishRate: 100
+ *                  hybrid-rate-limiter.burstCapacity: 200
+ *                  key-resolver: "#{@pathKeyResolver}"
+ */
+@Slf4j
+public class HybridRateLimiter extends AbstractRateLimiter<HybridRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 速率 EWMA 的平滑系数
+     */
+    private static final double RATE_ALPHA = 0.5D;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Lease, MonoProcessor> REFILL =
+            AtomicReferenceFieldUpdater.newUpdater(Lease.class, MonoProcessor.class, "refill");
+
+    private final TokenLeaseStore store;
+
+    private final LongSupplier nanoClock;
+
+    private final long leaseTtlNanos;
+
+    private final Duration leaseTimeout;
+
+    private final int maxBatchSize;
+
+    private final int maxKeysPerRoute;
+
+    private final Map<String, Map<String, Lease>> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 路由 -> 续租队列
+     */
+    private final Map<String, RefillQueue> refills = new ConcurrentHashMap<>();
+
+    private final Disposable evictor;
+
+    public HybridRateLimiter(TokenLeaseStore store, Validator validator, long leaseTtlMillis,
+                             long leaseTimeoutMillis, int maxBatchSize, int maxKeysPerRoute) {
+        this(store, validator, leaseTtlMillis, leaseTimeoutMillis, maxBatchSize, maxKeysPerRoute, System::nanoTime);
+    }
+
+    HybridRateLimiter(TokenLeaseStore store, Validator validator, long leaseTtlMillis, long leaseTimeoutMillis,
+                      int maxBatchSize, int maxKeysPerRoute, LongSupplier nanoClock) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, validator);
+        this.store = store;
+        this.nanoClock = nanoClock;
+        this.leaseTtlNanos = TimeUnit.MILLISECONDS.toNanos(leaseTtlMillis);
+        this.leaseTimeout = Duration.ofMillis(leaseTimeoutMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.maxKeysPerRoute = maxKeysPerRoute;
+        this.evictor = Schedulers.single().schedulePeriodically(
+                this::evictExpired, leaseTtlMillis * 10, leaseTtlMillis * 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config routeConfig = getConfig().get(routeId);
+        if (routeConfig == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId);
+        }
+
+        Lease lease = lease(routeId, id);
+        lease.demand.incrementAndGet();
+
+        long now = this.nanoClock.getAsLong();
+        if (now < lease.unavailableUntil) {
+            return Mono.just(fallback(lease, routeConfig));
+        }
+        if (now < lease.expiresAt) {
+            long remaining = lease.take();
+            if (remaining >= 0 || (lease.exhausted && now < lease.retryAt)) {
+                return Mono.just(response(routeConfig, remaining));
+            }
+        }
+
+        return refill(routeId, routeId + ":" + id, lease, routeConfig)
+                .map(stored -> stored
+                        ? response(routeConfig, lease.take())
+                        : fallback(lease, routeConfig));
+    }
+
+    /**
+     * Redis 不可用时按本节点的令牌桶判断
+     */
+    private Response fallback(Lease lease, Config config) {
+        long now = this.nanoClock.getAsLong();
+        long interval = NANOS_PER_SECOND / config.getReplenishRate();
+        long burst = interval * config.getBurstCapacity();
+        return response(config, lease.fallback(now).tryAcquire(now, interval, burst, 1));
+    }
+
+    private Lease lease(String routeId, String id) {
+        Map<String, Lease> routeLeases = this.leases.get(routeId);
+        if (routeLeases == null) {
+            routeLeases = this.leases.computeIfAbsent(routeId, k -> new ConcurrentHashMap<>());
+        }
+        Lease lease = routeLeases.get(id);
+        if (lease == null) {
+            Lease created = new Lease();
+            lease = routeLeases.putIfAbsent(id, created);
+            if (lease == null) {
+                lease = created;
+                if (routeLeases.size() > this.maxKeysPerRoute) {
+                    evictExpired(routeLeases, this.nanoClock.getAsLong());
+                }
+            }
+        }
+        return lease;
+    }
+
+    /**
+     * 为某个 key 发起续租，同一个 key 同时只有一个续租在途，其余请求共享结果
+     *
+     * @return true 表示续租完成；false 表示 Redis 不可用
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<Boolean> refill(String routeId, String key, Lease lease, Config config) {
+        for (;;) {
+            MonoProcessor<Boolean> current = lease.refill;
+            if (current != null) {
+                return current;
+            }
+            MonoProcessor<Boolean> created = MonoProcessor.create();
+            if (REFILL.compareAndSet(lease, null, created)) {
+                RefillQueue queue = refillQueue(routeId);
+                queue.pending.offer(new PendingLease(key, lease, config));
+                flush(queue);
+                return created;
+            }
+        }
+    }
+
+    private RefillQueue refillQueue(String routeId) {
+        RefillQueue queue = this.refills.get(routeId);
+        if (queue == null) {
+            queue = this.refills.computeIfAbsent(routeId, k -> new RefillQueue());
+        }
+        return queue;
+    }
+
+    /**
+     * 把某个路由队列中积累的续租请求合并成一次调用；每个路由同一时刻只有一次调用在途
+     */
+    private void flush(RefillQueue queue) {
+        while (!queue.pending.isEmpty() && queue.inFlight.compareAndSet(false, true)) {
+            List<PendingLease> batch = new ArrayList<>();
+            PendingLease next;
+            while (batch.size() < this.maxBatchSize && (next = queue.pending.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                queue.inFlight.set(false);
+                continue;
+            }
+
+            long now = this.nanoClock.getAsLong();
+            List<TokenLeaseStore.LeaseRequest> requests = new ArrayList<>(batch.size());
+            for (PendingLease p : batch) {
+                p.requested = leaseSize(p.lease, p.config, now);
+                requests.add(new TokenLeaseStore.LeaseRequest(
+                        p.key, p.config.getReplenishRate(), p.config.getBurstCapacity(), p.requested));
+            }
+
+            Mono.defer(() -> this.store.lease(requests))
+                    .timeout(this.leaseTimeout)
+                    .onErrorResume(error -> {
+                        log.error("Error leasing tokens from redis", error);
+                        return Mono.empty();
+                    })
+                    // 存储出错、超时或没有返回结果时视为不可用
+                    .defaultIfEmpty(Collections.emptyList())
+                    .subscribe(granted -> complete(queue, batch, granted));
+        }
+    }
+
+    private void complete(RefillQueue queue, List<PendingLease> batch, List<Long> granted) {
+        try {
+            long now = this.nanoClock.getAsLong();
+            boolean stored = granted.size() == batch.size();
+            for (int i = 0; i < batch.size(); i++) {
+                PendingLease p = batch.get(i);
+                if (stored) {
+                    p.lease.renew(granted.get(i), p.requested, p.config, now, this.leaseTtlNanos);
+                } else {
+                    p.lease.unavailableUntil = now + this.leaseTtlNanos;
+                }
+                MonoProcessor<Boolean> processor = p.lease.refill;
+                REFILL.set(p.lease, null);
+                if (processor != null) {
+                    processor.onNext(stored);
+                }
+            }
+        } finally {
+            queue.inFlight.set(false);
+        }
+        flush(queue);
+    }
+
+    /**
+     * 自适应租借数量：观测速率 * 租约时长，限制在 [1, burstCapacity * maxLeaseFraction]
+     */
+    private long leaseSize(Lease lease, Config config, long now) {
+        lease.observe(now);
+        long max = Math.max(1L, (long) (config.getBurstCapacity() * config.getMaxLeaseFraction()));
+        long size = (long) Math.ceil(lease.rate * this.leaseTtlNanos / NANOS_PER_SECOND);
+        return Math.min(max, Math.max(1L, size));
+    }
+
+    private Response response(Config config, long remaining) {
+        boolean allowed = remaining >= 0;
+        return new Response(allowed, headers(config, allowed ? remaining : 0L));
+    }
+
+    private Map<String, String> headers(Config config, long tokensLeft) {
+        Map<String, String> headers = new HashMap<>(4);
+        headers.put(RedisRateLimiter.REMAINING_HEADER, Long.toString(tokensLeft));
+        headers.put(RedisRateLimiter.REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(RedisRateLimiter.BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        return headers;
+    }
+
+    private void evictExpired() {
+        long now = this.nanoClock.getAsLong();
+        this.leases.values().forEach(routeLeases -> evictExpired(routeLeases, now));
+    }
+
+    private void evictExpired(Map<String, Lease> routeLeases, long now) {
+        routeLeases.entrySet().removeIf(e -> e.getValue().refill == null && e.getValue().expiresAt <= now);
+    }
+
+    @Override
+    public void destroy() {
+        this.evictor.dispose();
+    }
+
+    /**
+     * 某个 key 在本节点上的租约
+     */
+    static final class Lease {
+
+        final AtomicLong tokens = new AtomicLong();
+
+        /**
+         * 自上次续租以来的请求数（包括被拒绝的请求），用于估算速率
+         */
+        final AtomicLong demand = new AtomicLong();
+
+        volatile long expiresAt;
+
+        /**
+         * 上次续租时全局令牌不足
+         */
+        volatile boolean exhausted;
+
+        /**
+         * 全局令牌不足时，下次允许续租的时间
+         */
+        volatile long retryAt;
+
+        volatile long leasedAt;
+
+        /**
+         * 每秒请求数的 EWMA
+         */
+        volatile double rate;
+
+        volatile MonoProcessor<Boolean> refill;
+
+        /**
+         * 上次续租失败（Redis 出错或超时）后，在此之前直接使用本地令牌桶
+         */
+        volatile long unavailableUntil;
+
+        /**
+         * Redis 不可用时使用的本地令牌桶，第一次需要时创建
+         */
+        volatile TokenBucket fallback;
+
+        TokenBucket fallback(long now) {
+            TokenBucket bucket = this.fallback;
+            if (bucket == null) {
+                // 并发创建时偶尔多一个桶，只影响这一瞬间的计数
+                bucket = new TokenBucket(now);
+                this.fallback = bucket;
+            }
+            return bucket;
+        }
+
+        long take() {
+            for (;;) {
+                long current = this.tokens.get();
+                if (current <= 0) {
+                    return -1L;
+                }
+                if (this.tokens.compareAndSet(current, current - 1)) {
+                    return current - 1;
+                }
+            }
+        }
+
+        void observe(long now) {
+            long count = this.demand.getAndSet(0L);
+            long elapsed = now - this.leasedAt;
+            if (this.leasedAt == 0L || elapsed <= 0L) {
+                return;
+            }
+            double observed = count * (double) NANOS_PER_SECOND / elapsed;
+            this.rate = this.rate == 0D ? observed : RATE_ALPHA * observed + (1 - RATE_ALPHA) * this.rate;
+        }
+
+        void renew(long granted, long requested, Config config, long now, long leaseTtlNanos) {
+            if (now < this.expiresAt) {
+                // 租约未过期（只是用完或在等待重试），剩余令牌继续有效
+                this.tokens.addAndGet(granted);
+            } else {
+                // 租约已过期，丢弃未用完的令牌
+                this.tokens.set(granted);
+            }
+            this.exhausted = granted < requested;
+            this.leasedAt = now;
+            this.expiresAt = now + leaseTtlNanos;
+            if (this.exhausted) {
+                // 全局令牌不足：等缺少的令牌大致补充回来再重试
+                long interval = NANOS_PER_SECOND / config.getReplenishRate();
+                long backoff = interval * Math.max(1L, requested - granted);
+                this.retryAt = now + Math.min(leaseTtlNanos, backoff);
+            }
+        }
+    }
+
+    /**
+     * 单个路由的续租队列
+     */
+    private static final class RefillQueue {
+        private final Queue<PendingLease> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+    }
+
+    private static final class PendingLease {
+        private final String key;
+        private final Lease lease;
+        private final Config config;
+        private long requested;
+
+        private PendingLease(String key, Lease lease, Config config) {
+            this.key = key;
+            this.lease = lease;
+            this.config = config;
+        }
+    }
+
+    /**
+     * 路由级配置：replenishRate/burstCapacity 是所有节点共享的全局限额
+     */
+    @Data
+    @Validated
+    public static class Config {
+        @Min(1)
+        private int replenishRate;
+
+        @Min(1)
+        private int burstCapacity = 1;
+
+        /**
+         * 单次租借最多占用桶容量的比例，节点越多应设置得越小
+         */
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double maxLeaseFraction = 0.25D;
+    }
+}
@@ -0,0 +1,131 @@
+package com.itmuch.gateway.ratelimit;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.validation.Validator;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.constraints.Min;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内令牌桶限流器 —— 不依赖 Redis
+ *
+ *  ~ 继承 AbstractRateLimiter ，与 RedisRateLimiter 一样由 RequestRateLimiter 过滤器工厂调用
+ *  ~ 参数与 RedisRateLimiter 相同：replenishRate（每秒填充速率）、burstCapacity（桶容量）
+ *      只是前缀换成了 local-rate-limiter ，例如：
+ *            filters:
+ *              - name: RequestRateLimiter
+ *                args:
+ *                  # 按路由选择限流器
+ *                  rate-limiter: "#{@localRateLimiter}"
+ *                  local-rate-limiter.replenishRate: 1
+ *                  local-rate-limiter.burstCapacity: 2
+ *                  key-resolver: "#{@pathKeyResolver}"
+ *  ~ 每个路由一张分段令牌桶表（TokenBucketTable），桶的数量有上限，闲置的桶会被定期淘汰
+ *  ~ 判断是否放行只有一次 CAS ，没有网络往返，也不需要 Redis
+ *  ~ 注意：限流状态只在当前节点内有效，多节点部署时每个节点各自计数
+ */
+@Slf4j
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, TokenBucketTable> tables = new ConcurrentHashMap<>();
+
+    private final int maxKeysPerRoute;
+
+    private final int stripes;
+
+    private final Disposable evictor;
+
+    public LocalRateLimiter(Validator validator, int maxKeysPerRoute, int stripes, long evictIntervalSeconds) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, validator);
+        this.maxKeysPerRoute = maxKeysPerRoute;
+        this.stripes = stripes;
+        this.evictor = Schedulers.single().schedulePeriodically(
+                this::evictIdle, evictIntervalSeconds, evictIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config routeConfig = getConfig().get(routeId);
+        if (routeConfig == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId);
+        }
+        return Mono.just(tryAcquire(routeId, id, routeConfig, 1));
+    }
+
+    /**
+     * 同步版本的判断逻辑，便于其他限流器（例如混合限流）直接复用
+     */
+    Response tryAcquire(String routeId, String id, Config routeConfig, int permits) {
+        long interval = NANOS_PER_SECOND / routeConfig.getReplenishRate();
+        long burst = interval * routeConfig.getBurstCapacity();
+        long now = System.nanoTime();
+
+        TokenBucket bucket = table(routeId).bucket(id, now);
+        long remaining = bucket.tryAcquire(now, interval, burst, permits);
+        boolean allowed = remaining >= 0;
+        return new Response(allowed, headers(routeConfig, allowed ? remaining : 0L));
+    }
+
+    private TokenBucketTable table(String routeId) {
+        TokenBucketTable table = this.tables.get(routeId);
+        if (table == null) {
+            table = this.tables.computeIfAbsent(routeId,
+                    k -> new TokenBucketTable(this.maxKeysPerRoute, this.stripes));
+        }
+        return table;
+    }
+
+    static Map<String, String> headers(Config config, long tokensLeft) {
+        Map<String, String> headers = new HashMap<>(4);
+        headers.put(RedisRateLimiter.REMAINING_HEADER, Long.toString(tokensLeft));
+        headers.put(RedisRateLimiter.REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(RedisRateLimiter.BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        return headers;
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        this.tables.values().forEach(table -> table.evictIdle(now));
+    }
+
+    /**
+     * 当前某个路由下的桶数量，便于监控与测试
+     */
+    public int size(String routeId) {
+        TokenBucketTable table = this.tables.get(routeId);
+        return table == null ? 0 : table.size();
+    }
+
+    @Override
+    public void destroy() {
+        this.evictor.dispose();
+    }
+
+    /**
+     * 路由级配置，与 RedisRateLimiter.Config 字段保持一致
+     */
+    @Data
+    @Validated
+    public static class Config {
+        @Min(1)
+        private int replenishRate;
+
+        @Min(1)
+        private int burstCapacity = 1;
+    }
+}
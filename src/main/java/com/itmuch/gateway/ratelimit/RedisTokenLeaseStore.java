@@ -0,0 +1,64 @@
+package com.itmuch.gateway.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于 Redis 的全局令牌存储
+ *
+ *  ~ 脚本：META-INF/scripts/hybrid_token_lease.lua ，与内置 request_rate_limiter.lua 的令牌桶算法一致，
+ *      区别是一次可以租借多个令牌，并且一次调用处理多个 key
+ *  ~ key 格式：hybrid_rate_limiter.{key}.tokens / hybrid_rate_limiter.{key}.timestamp
+ *  ~ 注意：一次脚本调用包含多个 key ，Redis Cluster 下要求这些 key 在同一个 slot ，因此仅适用于单机/哨兵模式
+ */
+@Slf4j
+public class RedisTokenLeaseStore implements TokenLeaseStore {
+
+    public static final String SCRIPT_LOCATION = "META-INF/scripts/hybrid_token_lease.lua";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final RedisScript<List<Long>> script;
+
+    public RedisTokenLeaseStore(ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.script = leaseScript();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<Long>> leaseScript() {
+        DefaultRedisScript redisScript = new DefaultRedisScript<>();
+        redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(SCRIPT_LOCATION)));
+        redisScript.setResultType(List.class);
+        return redisScript;
+    }
+
+    @Override
+    public Mono<List<Long>> lease(List<LeaseRequest> requests) {
+        List<String> keys = new ArrayList<>(requests.size() * 2);
+        List<String> args = new ArrayList<>(requests.size() * 3 + 1);
+        args.add(Long.toString(System.currentTimeMillis()));
+        for (LeaseRequest request : requests) {
+            String prefix = "hybrid_rate_limiter.{" + request.getKey();
+            keys.add(prefix + "}.tokens");
+            keys.add(prefix + "}.timestamp");
+            args.add(Integer.toString(request.getReplenishRate()));
+            args.add(Integer.toString(request.getBurstCapacity()));
+            args.add(Long.toString(request.getRequested()));
+        }
+        return this.redisTemplate.execute(this.script, keys, args)
+                .reduce(new ArrayList<Long>(requests.size()), (longs, l) -> {
+                    longs.addAll(l);
+                    return longs;
+                })
+                .map(results -> (List<Long>) results);
+    }
+}
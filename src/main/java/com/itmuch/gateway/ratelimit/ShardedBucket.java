@@ -0,0 +1,151 @@
+package com.itmuch.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按分片拆开的令牌桶：一个 key 的全局限额按各分片（事件循环）的流量比例分给每个分片
+ *
+ *  ~ 每个分片一个槽位：本地令牌桶（TokenBucket）、请求计数、份额 share ；请求线程只读写自己的槽位
+ *  ~ 槽位的补充速率 = replenishRate * share ，桶容量 = max(1, burstCapacity * share)（GCRA 的时间容差不变）；
+ *      所有槽位的 share 之和为 1 ，所以整体速率与单个令牌桶相同
+ *  ~ 重新分配（rebalance）由后台线程定期执行：按每个槽位这一周期的请求数（EWMA）计算比例，
+ *      每个槽位至少保留 MIN_SHARE / 槽位数 ，流量刚转移过来的事件循环不会被完全拒绝
+ *  ~ 第一个槽位的 share 为 1 ；之后新建的槽位在下一次重新分配之前先按 1 / 槽位数 计算，
+ *      这段时间（一个重新分配周期）内整体可能多放行一些
+ *  ~ 请求计数只由所属线程写入（lazySet ，没有 CAS），偶尔有其他线程共用分片时可能少计，只影响分配比例
+ */
+final class ShardedBucket {
+
+    /**
+     * 所有槽位保底份额之和
+     */
+    static final double MIN_SHARE = 0.1D;
+
+    /**
+     * 请求速率 EWMA 的平滑系数
+     */
+    private static final double RATE_ALPHA = 0.5D;
+
+    private static final AtomicIntegerFieldUpdater<ShardedBucket> ACTIVE =
+            AtomicIntegerFieldUpdater.newUpdater(ShardedBucket.class, "active");
+
+    private final AtomicReferenceArray<Slot> slots;
+
+    private volatile int active;
+
+    ShardedBucket(int shards) {
+        this.slots = new AtomicReferenceArray<>(shards);
+    }
+
+    /**
+     * 在分片 shard 上尝试获取令牌
+     *
+     * @param intervalNanos 全局限额下每个令牌的补充间隔
+     * @param burstNanos    全局桶容量对应的时间容差
+     * @return 获取成功后该分片剩余的令牌数；获取失败返回 -1
+     */
+    long tryAcquire(int shard, long now, long intervalNanos, long burstNanos, int permits) {
+        Slot slot = this.slots.get(shard);
+        if (slot == null) {
+            slot = slot(shard, now);
+        }
+        Slot.DEMAND.lazySet(slot, slot.demand + permits);
+        double share = slot.share;
+        long localInterval = share >= 1.0D ? intervalNanos : (long) Math.ceil(intervalNanos / share);
+        return slot.bucket.tryAcquire(now, localInterval, Math.max(localInterval, burstNanos), permits);
+    }
+
+    private Slot slot(int shard, long now) {
+        int others = this.active;
+        Slot created = new Slot(new TokenBucket(now), others == 0 ? 1.0D : 1.0D / (others + 1));
+        if (this.slots.compareAndSet(shard, null, created)) {
+            ACTIVE.incrementAndGet(this);
+            return created;
+        }
+        return this.slots.get(shard);
+    }
+
+    /**
+     * 按这一周期各槽位的请求数重新分配份额，只在后台线程（或测试）中调用
+     *
+     * @return 是否闲置：这一周期没有请求，且所有槽位的桶都已填满；闲置的桶与新建的桶等价，可以淘汰
+     */
+    boolean rebalance(long now) {
+        int count = 0;
+        double total = 0D;
+        boolean idle = true;
+        for (int i = 0; i < this.slots.length(); i++) {
+            Slot slot = this.slots.get(i);
+            if (slot == null) {
+                continue;
+            }
+            long demand = slot.demand;
+            long delta = demand - slot.lastDemand;
+            slot.lastDemand = demand;
+            slot.rate = slot.rate * (1D - RATE_ALPHA) + delta * RATE_ALPHA;
+            total += slot.rate;
+            count++;
+            if (delta != 0L || !slot.bucket.isIdle(now)) {
+                idle = false;
+            }
+        }
+        if (count <= 1) {
+            return idle;
+        }
+        double floor = MIN_SHARE / count;
+        for (int i = 0; i < this.slots.length(); i++) {
+            Slot slot = this.slots.get(i);
+            if (slot != null) {
+                slot.share = total <= 0D ? 1.0D / count : floor + (1D - MIN_SHARE) * slot.rate / total;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * 所有槽位的桶是否都已填满（不看请求计数），容量超限时用来挑选可以淘汰的桶
+     */
+    boolean isIdle(long now) {
+        for (int i = 0; i < this.slots.length(); i++) {
+            Slot slot = this.slots.get(i);
+            if (slot != null && !slot.bucket.isIdle(now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 分片当前的份额，没有槽位时返回 0
+     */
+    double share(int shard) {
+        Slot slot = this.slots.get(shard);
+        return slot == null ? 0D : slot.share;
+    }
+
+    private static final class Slot {
+
+        private static final AtomicLongFieldUpdater<Slot> DEMAND =
+                AtomicLongFieldUpdater.newUpdater(Slot.class, "demand");
+
+        private final TokenBucket bucket;
+
+        private volatile long demand;
+
+        private volatile double share;
+
+        /**
+         * 以下两个字段只在重新分配时读写
+         */
+        private long lastDemand;
+
+        private double rate;
+
+        private Slot(TokenBucket bucket, double share) {
+            this.bucket = bucket;
+            this.share = share;
+        }
+    }
+}
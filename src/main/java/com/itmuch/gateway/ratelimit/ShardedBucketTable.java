@@ -0,0 +1,77 @@
+package com.itmuch.gateway.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个路由的分片令牌桶表，key -> ShardedBucket
+ *
+ *  ~ 定期重新分配时顺带淘汰闲置的桶（见 ShardedBucket#rebalance）
+ *  ~ 超过容量上限时与 TokenBucketTable 相同：先淘汰已经填满的桶，仍然超限时任意淘汰一些（偏宽松，不会误杀请求）
+ */
+final class ShardedBucketTable {
+
+    private final ConcurrentHashMap<String, ShardedBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final int shards;
+
+    private final int maxKeys;
+
+    ShardedBucketTable(int shards, int maxKeys) {
+        this.shards = shards;
+        this.maxKeys = maxKeys;
+    }
+
+    ShardedBucket bucket(String key, long now) {
+        // 先 get 再 putIfAbsent ，避免 JDK 8 的 computeIfAbsent 在命中时也要锁住桶位
+        ShardedBucket bucket = this.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        ShardedBucket created = new ShardedBucket(this.shards);
+        bucket = this.buckets.putIfAbsent(key, created);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (this.buckets.size() > this.maxKeys) {
+            sweep(now);
+        }
+        return created;
+    }
+
+    /**
+     * 重新分配所有桶的份额并淘汰闲置的桶，只在后台线程（或测试）中调用
+     */
+    synchronized void rebalance(long now) {
+        this.buckets.values().removeIf(bucket -> bucket.rebalance(now));
+    }
+
+    ShardedBucket find(String key) {
+        return this.buckets.get(key);
+    }
+
+    int size() {
+        return this.buckets.size();
+    }
+
+    private void sweep(long now) {
+        if (!this.sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.buckets.values().removeIf(bucket -> bucket.isIdle(now));
+            int overflow = this.buckets.size() - this.maxKeys;
+            Iterator<Map.Entry<String, ShardedBucket>> it = this.buckets.entrySet().iterator();
+            while (overflow-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            this.sweeping.set(false);
+        }
+    }
+}
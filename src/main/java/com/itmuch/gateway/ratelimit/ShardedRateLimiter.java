@@ -0,0 +1,127 @@
+package com.itmuch.gateway.ratelimit;
+
+import com.itmuch.gateway.shard.LoopShards;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.validation.Validator;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按事件循环分片的进程内限流器
+ *
+ *  ~ LocalRateLimiter 中一个 key 只有一个令牌桶：热点 key 上所有 Netty 线程 CAS 同一个 long ，
+ *      核数多时这个缓存行在核之间来回传递，CAS 失败重试，吞吐不再随核数增长
+ *  ~ 这里每个 key 为每个事件循环保存一份令牌桶（ShardedBucket），请求只读写当前事件循环自己的那一份；
+ *      全局限额（replenishRate / burstCapacity）按各事件循环的流量比例分给每一份，
+ *      后台线程每隔 rebalanceIntervalMillis 重新分配一次，同时淘汰闲置的 key ；
+ *      重新分配使用自己的线程，key 很多时也不会占用 Schedulers.single() 上其他组件的定时任务
+ *  ~ 参数与 LocalRateLimiter 相同，前缀换成 sharded-rate-limiter ：
+ *            filters:
+ *              - name: RequestRateLimiter
+ *                args:
+ *                  rate-limiter: "#{@shardedRateLimiter}"
+ *                  sharded-rate-limiter.replenishRate: 1000
+ *                  sharded-rate-limiter.burstCapacity: 2000
+ *                  key-resolver: "#{@routeKeyResolver}"
+ *  ~ 代价：流量在事件循环之间突然转移时，要等一个重新分配周期份额才跟上（每份至少保留 10% / 事件循环数）；
+ *      返回的剩余令牌数是当前事件循环那一份的剩余量。限额很小（每秒几个）的 key 用 LocalRateLimiter 更精确
+ */
+public class ShardedRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "sharded-rate-limiter";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, ShardedBucketTable> tables = new ConcurrentHashMap<>();
+
+    private final LoopShards shards;
+
+    private final int maxKeysPerRoute;
+
+    private final ScheduledExecutorService rebalancer;
+
+    public ShardedRateLimiter(Validator validator, LoopShards shards, int maxKeysPerRoute,
+                              long rebalanceIntervalMillis) {
+        super(LocalRateLimiter.Config.class, CONFIGURATION_PROPERTY_NAME, validator);
+        this.shards = shards;
+        this.maxKeysPerRoute = maxKeysPerRoute;
+        this.rebalancer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sharded-rate-limiter-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rebalancer.scheduleWithFixedDelay(this::rebalance,
+                rebalanceIntervalMillis, rebalanceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        LocalRateLimiter.Config routeConfig = getConfig().get(routeId);
+        if (routeConfig == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId);
+        }
+        return Mono.just(tryAcquire(routeId, id, routeConfig, 1, this.shards.index(), System.nanoTime()));
+    }
+
+    /**
+     * 同步版本的判断逻辑，分片和时间由调用方传入，便于测试模拟多个事件循环
+     */
+    Response tryAcquire(String routeId, String id, LocalRateLimiter.Config routeConfig, int permits,
+                        int shard, long now) {
+        long interval = NANOS_PER_SECOND / routeConfig.getReplenishRate();
+        long burst = interval * routeConfig.getBurstCapacity();
+
+        ShardedBucket bucket = table(routeId).bucket(id, now);
+        long remaining = bucket.tryAcquire(shard, now, interval, burst, permits);
+        boolean allowed = remaining >= 0;
+        return new Response(allowed, LocalRateLimiter.headers(routeConfig, allowed ? remaining : 0L));
+    }
+
+    private ShardedBucketTable table(String routeId) {
+        ShardedBucketTable table = this.tables.get(routeId);
+        if (table == null) {
+            table = this.tables.computeIfAbsent(routeId,
+                    k -> new ShardedBucketTable(this.shards.count(), this.maxKeysPerRoute));
+        }
+        return table;
+    }
+
+    private void rebalance() {
+        rebalance(System.nanoTime());
+    }
+
+    /**
+     * 按流量重新分配所有 key 的份额并淘汰闲置的 key
+     */
+    void rebalance(long now) {
+        this.tables.values().forEach(table -> table.rebalance(now));
+    }
+
+    /**
+     * 当前某个路由下的 key 数量，便于监控与测试
+     */
+    public int size(String routeId) {
+        ShardedBucketTable table = this.tables.get(routeId);
+        return table == null ? 0 : table.size();
+    }
+
+    /**
+     * 某个 key 在分片 shard 上当前的份额，便于测试
+     */
+    double share(String routeId, String id, int shard) {
+        ShardedBucketTable table = this.tables.get(routeId);
+        ShardedBucket bucket = table == null ? null : table.find(id);
+        return bucket == null ? 0D : bucket.share(shard);
+    }
+
+    @Override
+    public void destroy() {
+        this.rebalancer.shutdownNow();
+    }
+}
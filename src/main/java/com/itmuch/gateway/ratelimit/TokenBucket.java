@@ -0,0 +1,64 @@
+package com.itmuch.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 无锁令牌桶
+ *
+ *  ~ 采用 GCRA（通用信元速率算法）表示令牌桶：只保存一个 long —— 理论到达时间 tat（纳秒）
+ *      每个令牌对应的时间间隔 interval = 1s / replenishRate
+ *      桶容量对应的时间容差 burst = interval * burstCapacity
+ *  ~ 取令牌：newTat = max(tat, now) + interval * permits ，若 newTat - now > burst 则拒绝，否则 CAS 写回
+ *  ~ 与 RedisRateLimiter 中 Lua 脚本的 tokens/timestamp 两个值等价，但只需一次 CAS，不需要加锁
+ *  ~ tat <= now 表示桶已经填满，此时的桶与新建的桶没有区别，可以直接淘汰（见 TokenBucketTable）
+ */
+final class TokenBucket {
+
+    private static final AtomicLongFieldUpdater<TokenBucket> TAT =
+            AtomicLongFieldUpdater.newUpdater(TokenBucket.class, "tat");
+
+    private volatile long tat;
+
+    TokenBucket(long now) {
+        this.tat = now;
+    }
+
+    /**
+     * 尝试获取令牌
+     *
+     * @param now           当前时间（纳秒）
+     * @param intervalNanos 每个令牌的补充间隔
+     * @param burstNanos    桶容量对应的时间容差
+     * @param permits       需要的令牌数
+     * @return 获取成功后桶内剩余的令牌数；获取失败返回 -1
+     */
+    long tryAcquire(long now, long intervalNanos, long burstNanos, int permits) {
+        long cost = intervalNanos * permits;
+        for (;;) {
+            long current = this.tat;
+            long next = Math.max(current, now) + cost;
+            long debt = next - now;
+            if (debt > burstNanos) {
+                return -1L;
+            }
+            if (TAT.compareAndSet(this, current, next)) {
+                return (burstNanos - debt) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * 桶内当前可用的令牌数（不消耗）
+     */
+    long available(long now, long intervalNanos, long burstNanos) {
+        long debt = Math.max(this.tat - now, 0L);
+        return (burstNanos - debt) / intervalNanos;
+    }
+
+    /**
+     * 是否已经填满（闲置）
+     */
+    boolean isIdle(long now) {
+        return this.tat <= now;
+    }
+}
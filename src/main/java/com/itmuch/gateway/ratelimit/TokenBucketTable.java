@@ -0,0 +1,101 @@
+package com.itmuch.gateway.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 分段（striped）的令牌桶表，key -> TokenBucket
+ *
+ *  ~ 按 key 的 hash 分成若干段，每段一个 ConcurrentHashMap ，容量上限按段均分
+ *  ~ 某段超过上限时，由抢到 sweeping 标记的线程清理该段：
+ *      01)、先淘汰已经填满的桶（tat <= now），这些桶与新建的桶等价，淘汰不会改变限流结果
+ *      02)、仍然超限时，再任意淘汰一些桶，被淘汰的 key 下次访问时会拿到一个满桶（偏宽松，不会误杀请求）
+ *  ~ 清理只发生在单个段内，不会扫描整张表，也不会阻塞其他线程（抢不到标记的线程直接跳过）
+ */
+final class TokenBucketTable {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    TokenBucketTable(int maxKeys, int stripeCount) {
+        int n = 1;
+        while (n < stripeCount) {
+            n <<= 1;
+        }
+        this.stripes = new Stripe[n];
+        this.mask = n - 1;
+        int perStripe = Math.max(1, maxKeys / n);
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    TokenBucket bucket(String key, long now) {
+        Stripe stripe = this.stripes[spread(key.hashCode()) & this.mask];
+        // 先 get 再 putIfAbsent ，避免 JDK 8 的 computeIfAbsent 在命中时也要锁住桶位
+        TokenBucket bucket = stripe.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        TokenBucket created = new TokenBucket(now);
+        bucket = stripe.buckets.putIfAbsent(key, created);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.buckets.size() > stripe.maxSize) {
+            stripe.sweep(now);
+        }
+        return created;
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    /**
+     * 主动清理所有段中的闲置桶，供定时任务调用
+     */
+    void evictIdle(long now) {
+        for (Stripe stripe : this.stripes) {
+            stripe.sweep(now);
+        }
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    private static final class Stripe {
+
+        private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+        private final AtomicBoolean sweeping = new AtomicBoolean();
+        private final int maxSize;
+
+        private Stripe(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private void sweep(long now) {
+            if (!this.sweeping.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                this.buckets.entrySet().removeIf(e -> e.getValue().isIdle(now));
+                int overflow = this.buckets.size() - this.maxSize;
+                Iterator<Map.Entry<String, TokenBucket>> it = this.buckets.entrySet().iterator();
+                while (overflow-- > 0 && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            } finally {
+                this.sweeping.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.itmuch.gateway.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 全局令牌存储：按 key 批量租借令牌
+ *
+ *  ~ 生产环境使用 RedisTokenLeaseStore ，一次 Lua 脚本调用处理一批 key
+ *  ~ 测试与压测时可以替换成内存实现，不需要 Redis
+ */
+public interface TokenLeaseStore {
+
+    /**
+     * 批量租借令牌
+     *
+     * @param requests 每个 key 的租借请求
+     * @return 与 requests 顺序一致的实际租到的令牌数
+     */
+    Mono<List<Long>> lease(List<LeaseRequest> requests);
+
+    @Getter
+    @AllArgsConstructor
+    class LeaseRequest {
+        private final String key;
+        private final int replenishRate;
+        private final int burstCapacity;
+        private final long requested;
+    }
+}
@@ -0,0 +1,86 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 过滤器工厂的视图：生成过滤器后依次交给 GatewayFilterDecorator 包装
+ *
+ *  ~ 只在编译路由时使用，不注册为 Bean ；名称、配置类、简写参数等全部委托给原工厂，application.yml 中的写法不变
+ */
+public class DecoratingGatewayFilterFactory<C> implements GatewayFilterFactory<C> {
+
+    private final GatewayFilterFactory<C> delegate;
+
+    private final List<GatewayFilterDecorator> decorators;
+
+    DecoratingGatewayFilterFactory(GatewayFilterFactory<C> delegate, List<GatewayFilterDecorator> decorators) {
+        this.delegate = delegate;
+        this.decorators = decorators;
+    }
+
+    /**
+     * 为每个工厂套上装饰器；没有装饰器时返回原列表
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static List<GatewayFilterFactory> decorate(List<GatewayFilterFactory> factories,
+                                                      List<GatewayFilterDecorator> decorators) {
+        if (factories == null || decorators == null || decorators.isEmpty()) {
+            return factories;
+        }
+        List<GatewayFilterDecorator> sorted = new ArrayList<>(decorators);
+        AnnotationAwareOrderComparator.sort(sorted);
+        List<GatewayFilterFactory> decorated = new ArrayList<>(factories.size());
+        for (GatewayFilterFactory factory : factories) {
+            decorated.add(new DecoratingGatewayFilterFactory(factory, sorted));
+        }
+        return decorated;
+    }
+
+    @Override
+    public GatewayFilter apply(C config) {
+        GatewayFilter filter = this.delegate.apply(config);
+        for (GatewayFilterDecorator decorator : this.decorators) {
+            filter = decorator.decorate(filter, this.delegate);
+        }
+        return filter;
+    }
+
+    @Override
+    public String name() {
+        return this.delegate.name();
+    }
+
+    @Override
+    public Class<C> getConfigClass() {
+        return this.delegate.getConfigClass();
+    }
+
+    @Override
+    public C newConfig() {
+        return this.delegate.newConfig();
+    }
+
+    @Override
+    public ShortcutType shortcutType() {
+        return this.delegate.shortcutType();
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return this.delegate.shortcutFieldOrder();
+    }
+
+    @Override
+    public String shortcutFieldPrefix() {
+        return this.delegate.shortcutFieldPrefix();
+    }
+
+    public GatewayFilterFactory<C> getDelegate() {
+        return this.delegate;
+    }
+}
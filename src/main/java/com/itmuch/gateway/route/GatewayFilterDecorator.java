@@ -0,0 +1,24 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.core.Ordered;
+
+/**
+ * 在编译路由时包装过滤器工厂生成的过滤器，例如记录耗时（metrics）、改到 offload 线程池执行（offload）
+ *
+ *  ~ 过滤器工厂 Bean 本身不被替换：DisposableBean 等生命周期回调、按具体类型注入都不受影响
+ *  ~ 多个装饰器按 getOrder() 从小到大依次包装：order 越小越靠里（越接近原过滤器），越大越靠外
+ *  ~ RouteCompiler 与内置的 RouteDefinitionRouteLocator 都通过 DecoratingGatewayFilterFactory 调用装饰器
+ */
+public interface GatewayFilterDecorator extends Ordered {
+
+    /**
+     * 包装过滤器
+     *
+     * @param filter  工厂生成的过滤器（可能已经被 order 更小的装饰器包装过）
+     * @param factory 生成过滤器的原工厂
+     * @return 包装后的过滤器；不需要包装时原样返回
+     */
+    GatewayFilter decorate(GatewayFilter filter, GatewayFilterFactory<?> factory);
+}
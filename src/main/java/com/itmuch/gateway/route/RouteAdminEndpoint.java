@@ -0,0 +1,78 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 路由管理端点：http://localhost:8040/actuator/gatewayroutes
+ *
+ *  ~ GET    /actuator/gatewayroutes        ：当前生效的路由定义
+ *  ~ POST   /actuator/gatewayroutes        ：新增或修改路由（RouteDefinition 数组），只重新编译有变化的路由
+ *  ~ DELETE /actuator/gatewayroutes/{id}   ：删除路由
+ *  ~ 只有配置了 gateway.admin.token 才会注册；每个请求都要带 X-Gateway-Admin-Token 请求头，不一致时返回 401
+ *  ~ 参数中不能有 SpEL（#{...}），由 RouteIndexManager.upsert() 拒绝，返回 400
+ *  ~ 端点跟随 management.server.port ，生产环境应把管理端口与业务端口分开，只在内网开放
+ */
+@RestControllerEndpoint(id = "gatewayroutes")
+public class RouteAdminEndpoint {
+
+    public static final String TOKEN_HEADER = "X-Gateway-Admin-Token";
+
+    private final RouteIndexManager manager;
+
+    private final byte[] token;
+
+    public RouteAdminEndpoint(RouteIndexManager manager, String token) {
+        this.manager = manager;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @GetMapping
+    public Collection<RouteDefinition> routes(@RequestHeader(name = TOKEN_HEADER, required = false) String token) {
+        authenticate(token);
+        RouteTable table = this.manager.table();
+        if (table == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Routes not loaded yet");
+        }
+        return table.getDefinitions().values();
+    }
+
+    @PostMapping
+    public Mono<RouteDiff> upsert(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                  @RequestBody List<RouteDefinition> definitions) {
+        authenticate(token);
+        return this.manager.upsert(definitions)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<RouteDiff> delete(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                  @PathVariable String id) {
+        authenticate(token);
+        return this.manager.delete(id);
+    }
+
+    /**
+     * 定长比较，避免按响应时间逐字节猜出 token
+     */
+    private void authenticate(String token) {
+        if (token == null || !MessageDigest.isEqual(this.token, token.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid admin token");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 把 RouteDefinition 编译成 Route（谓词链 + 过滤器链）
+ *
+ *  ~ 直接复用 RouteDefinitionRouteLocator 的转换逻辑，只是每次只传入需要编译的那几个定义
+ *  ~ 设置 BeanFactory 与事件发布器后，SpEL（#{@localRateLimiter}）与 FilterArgsEvent 的行为与内置实现一致：
+ *      RequestRateLimiter 的参数变化会通过 FilterArgsEvent 更新到对应限流器的路由配置中
+ *  ~ 任何一个定义编译失败时整体失败，调用方保留原来的路由
+ *  ~ placeholder() 生成延迟编译用的占位路由，不调用任何谓词工厂或过滤器工厂
+ */
+public class RouteCompiler implements BeanFactoryAware, ApplicationEventPublisherAware {
+
+    private final List<RoutePredicateFactory> predicates;
+
+    private final List<GatewayFilterFactory> gatewayFilterFactories;
+
+    private final GatewayProperties gatewayProperties;
+
+    private BeanFactory beanFactory;
+
+    private ApplicationEventPublisher publisher;
+
+    public RouteCompiler(List<RoutePredicateFactory> predicates, List<GatewayFilterFactory> gatewayFilterFactories,
+                         GatewayProperties gatewayProperties) {
+        this.predicates = predicates;
+        this.gatewayFilterFactories = gatewayFilterFactories;
+        this.gatewayProperties = gatewayProperties;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * 编译给定的路由定义，返回顺序与参数顺序一致；只能在允许阻塞的线程上调用
+     */
+    public List<Route> compile(List<RouteDefinition> definitions) {
+        if (definitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        RouteDefinitionRouteLocator locator = new RouteDefinitionRouteLocator(
+                () -> Flux.fromIterable(definitions), this.predicates, this.gatewayFilterFactories,
+                this.gatewayProperties);
+        locator.setBeanFactory(this.beanFactory);
+        locator.setApplicationEventPublisher(this.publisher);
+        return locator.getRoutes().collectList().block();
+    }
+
+    /**
+     * 占位路由：id 、uri 、order 与定义一致，谓词恒为 false ，没有过滤器
+     */
+    public Route placeholder(RouteDefinition definition) {
+        return Route.async().id(definition.getId()).uri(definition.getUri()).order(definition.getOrder())
+                .asyncPredicate(exchange -> Mono.just(false)).build();
+    }
+}
@@ -0,0 +1,197 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 从 RouteDefinition 中解析出的、可用于预筛选的路由条件
+ *
+ *  ~ Path   ：每个模式在第一个通配符（* ? {）之前的字面量段，例如 /users/** -> [users]
+ *  ~ Method ：允许的请求方法
+ *  ~ Host   ：不含通配符的主机名
+ *  ~ Header ：必须存在的请求头
+ *  ~ 只做"肯定不匹配"的判断：无法解析或含通配符的条件一律视为不限制，最终结果仍以完整的谓词链为准
+ */
+final class RouteConstraints {
+
+    static final RouteConstraints NONE = new RouteConstraints(null, null, null, Collections.emptyList());
+
+    private static final String GENERATED_KEY_PREFIX = "_genkey_";
+
+    /**
+     * 路径字面量前缀；null 表示不限制路径
+     */
+    private final List<List<String>> pathPrefixes;
+
+    private final Set<HttpMethod> methods;
+
+    private final Set<String> hosts;
+
+    private final List<String> headers;
+
+    private RouteConstraints(List<List<String>> pathPrefixes, Set<HttpMethod> methods,
+                             Set<String> hosts, List<String> headers) {
+        this.pathPrefixes = pathPrefixes;
+        this.methods = methods;
+        this.hosts = hosts;
+        this.headers = headers;
+    }
+
+    static RouteConstraints of(RouteDefinition definition) {
+        if (definition == null) {
+            return NONE;
+        }
+        List<List<String>> pathPrefixes = null;
+        Set<HttpMethod> methods = null;
+        Set<String> hosts = null;
+        List<String> headers = new ArrayList<>();
+        for (PredicateDefinition predicate : definition.getPredicates()) {
+            List<String> values = values(predicate.getArgs());
+            switch (predicate.getName()) {
+                case "Path":
+                    // 多个 Path 谓词之间是"与"的关系，取其中一个作为索引条件即可
+                    if (pathPrefixes == null) {
+                        pathPrefixes = pathPrefixes(values);
+                    }
+                    break;
+                case "Method":
+                    methods = methods(values);
+                    break;
+                case "Host":
+                    hosts = hosts(values);
+                    break;
+                case "Header":
+                    String header = headerName(predicate.getArgs());
+                    if (header != null) {
+                        headers.add(header);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new RouteConstraints(pathPrefixes, methods, hosts, headers);
+    }
+
+    /**
+     * 简写形式的参数名是 _genkey_0 、_genkey_1 ...；完整形式的参数值可能是逗号分隔的列表
+     */
+    private static List<String> values(Map<String, String> args) {
+        List<String> values = new ArrayList<>();
+        for (String value : args.values()) {
+            if (value == null) {
+                continue;
+            }
+            for (String part : value.split(",")) {
+                String trimmed = part.trim();
+                if (!trimmed.isEmpty()) {
+                    values.add(trimmed);
+                }
+            }
+        }
+        return values;
+    }
+
+    private static List<List<String>> pathPrefixes(List<String> patterns) {
+        List<List<String>> prefixes = new ArrayList<>();
+        for (String pattern : patterns) {
+            // Path 简写的最后一个参数可能是 matchOptionalTrailingSeparator
+            if ("true".equalsIgnoreCase(pattern) || "false".equalsIgnoreCase(pattern)) {
+                continue;
+            }
+            List<String> prefix = new ArrayList<>();
+            for (String segment : pattern.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if (isWildcard(segment)) {
+                    break;
+                }
+                prefix.add(segment);
+            }
+            prefixes.add(prefix);
+        }
+        // 没有解析出任何模式时不做限制
+        return prefixes.isEmpty() ? null : prefixes;
+    }
+
+    private static Set<HttpMethod> methods(List<String> values) {
+        Set<HttpMethod> methods = EnumSet.noneOf(HttpMethod.class);
+        for (String value : values) {
+            HttpMethod method = HttpMethod.resolve(value.toUpperCase(Locale.ROOT));
+            if (method == null) {
+                return null;
+            }
+            methods.add(method);
+        }
+        return methods.isEmpty() ? null : methods;
+    }
+
+    private static Set<String> hosts(List<String> values) {
+        Set<String> hosts = new HashSet<>();
+        for (String value : values) {
+            if (isWildcard(value)) {
+                return null;
+            }
+            hosts.add(value.toLowerCase(Locale.ROOT));
+        }
+        return hosts.isEmpty() ? null : hosts;
+    }
+
+    private static String headerName(Map<String, String> args) {
+        String name = args.get("header");
+        if (name == null) {
+            name = args.get(GENERATED_KEY_PREFIX + 0);
+        }
+        return name == null || name.trim().isEmpty() ? null : name.trim();
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
+    }
+
+    List<List<String>> getPathPrefixes() {
+        return this.pathPrefixes;
+    }
+
+    /**
+     * 方法、主机、请求头是否可能匹配
+     */
+    boolean accepts(ServerHttpRequest request) {
+        if (this.methods != null && !this.methods.contains(request.getMethod())) {
+            return false;
+        }
+        HttpHeaders headers = request.getHeaders();
+        if (this.hosts != null) {
+            String host = headers.getFirst(HttpHeaders.HOST);
+            if (host == null) {
+                return false;
+            }
+            // Host 谓词匹配的是完整的 Host 头（可能带端口），这里带端口、不带端口都接受，只会放宽不会误判
+            String fullHost = host.toLowerCase(Locale.ROOT);
+            int colon = fullHost.indexOf(':');
+            if (!this.hosts.contains(fullHost)
+                    && (colon < 0 || !this.hosts.contains(fullHost.substring(0, colon)))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < this.headers.size(); i++) {
+            if (!headers.containsKey(this.headers.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.itmuch.gateway.route;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 一次路由变更的结果：新增、修改、删除的路由 id ，以及变更后的路由总数
+ */
+@Getter
+@AllArgsConstructor
+public class RouteDiff {
+
+    private final List<String> added;
+
+    private final List<String> updated;
+
+    private final List<String> removed;
+
+    private final int total;
+
+    public boolean isEmpty() {
+        return this.added.isEmpty() && this.updated.isEmpty() && this.removed.isEmpty();
+    }
+}
@@ -0,0 +1,114 @@
+package com.itmuch.gateway.route;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 监听路由文件，文件变化后把其中的路由作为 file 层交给 RouteIndexManager 应用差异
+ *
+ *  ~ 文件格式为 RouteDefinition 的 JSON 数组，谓词与过滤器可以使用简写：
+ *      [{"id": "user-center-id", "uri": "lb://user-center",
+ *        "predicates": ["Path=/users/**", "TimeBetween=上午9:00,下午5:00"],
+ *        "filters": [{"name": "RequestRateLimiter", "args": {"rate-limiter": "#{@localRateLimiter}",
+ *                     "local-rate-limiter.replenishRate": "10", "local-rate-limiter.burstCapacity": "20"}}]}]
+ *  ~ 文件被删除时清空 file 层；解析失败时保留当前路由
+ *  ~ 一次保存可能触发多个事件，重复应用相同的内容不会产生任何变更
+ */
+@Slf4j
+public class RouteFileWatcher implements InitializingBean, DisposableBean {
+
+    private static final TypeReference<List<RouteDefinition>> ROUTES = new TypeReference<List<RouteDefinition>>() {
+    };
+
+    private final Path file;
+
+    private final RouteIndexManager manager;
+
+    private final ObjectMapper objectMapper;
+
+    private WatchService watchService;
+
+    private Thread watcher;
+
+    public RouteFileWatcher(Path file, RouteIndexManager manager, ObjectMapper objectMapper) {
+        this.file = file.toAbsolutePath();
+        this.manager = manager;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        load();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.watcher = new Thread(this::watch, "route-file-watcher");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+    }
+
+    private void watch() {
+        try {
+            for (;;) {
+                WatchKey key = this.watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && this.file.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    load();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void load() {
+        List<RouteDefinition> definitions;
+        try {
+            definitions = Files.exists(this.file)
+                    ? this.objectMapper.readValue(Files.readAllBytes(this.file), ROUTES)
+                    : Collections.emptyList();
+        } catch (IOException e) {
+            log.error("Error reading route file {}, keeping current routes", this.file, e);
+            return;
+        }
+        this.manager.replaceFileRoutes(definitions).subscribe(diff -> {
+            if (!diff.isEmpty()) {
+                log.info("Route file {} applied: added={} updated={} removed={}",
+                        this.file, diff.getAdded(), diff.getUpdated(), diff.getRemoved());
+            }
+        }, error -> log.error("Error applying route file {}, keeping current routes", this.file, error));
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (this.watcher != null) {
+            this.watcher.interrupt();
+        }
+        if (this.watchService != null) {
+            this.watchService.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路由索引：按路径字面量段组织的前缀树
+ *
+ *  ~ 每个 Path 模式按第一个通配符之前的字面量段插入前缀树，例如 /users/** 插入到 users 节点
+ *  ~ 每个节点预先算好"候选路由"：根到该节点路径上所有路由 + 不限制路径的路由，按原路由顺序排列
+ *  ~ 查找时沿请求路径的段走到最深的节点，直接返回该节点的候选列表，不需要在请求时合并或排序
+ *  ~ Path 谓词按解码、去掉矩阵参数（;a=b）之后的段匹配，例如 /us%65rs/1 、/users;v=1/1 都能匹配 /users/** ：
+ *      遇到含 % 或 ; 的段时无法按字面量查找，返回当前节点整棵子树的路由（同样预先算好），交给谓词链判断
+ *  ~ 候选路由再经过 Method/Host/Header 的快速筛选，最后才执行完整的谓词链（包括 TimeBetween 等自定义谓词）
+ *  ~ 索引不可变，路由刷新时整体重建后一次性替换；未变化的 RouteDefinition 复用上一次解析的结果
+ */
+public final class RouteIndex {
+
+    static final RouteIndex EMPTY = new RouteIndex(new Node(), Collections.emptyMap(), 0);
+
+    private final Node root;
+
+    private final Map<RouteDefinition, RouteConstraints> constraintsCache;
+
+    private final int size;
+
+    private RouteIndex(Node root, Map<RouteDefinition, RouteConstraints> constraintsCache, int size) {
+        this.root = root;
+        this.constraintsCache = constraintsCache;
+        this.size = size;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param routes      按匹配顺序排列的路由
+     * @param definitions routeId -> RouteDefinition ，Java DSL 创建的路由没有定义，视为不限制
+     * @param previous    上一次的索引，用于复用未变化路由的解析结果
+     */
+    public static RouteIndex build(List<Route> routes, Map<String, RouteDefinition> definitions, RouteIndex previous) {
+        Map<RouteDefinition, RouteConstraints> cache = new HashMap<>();
+        Node root = new Node();
+        List<Entry> unconstrained = new ArrayList<>();
+
+        for (int position = 0; position < routes.size(); position++) {
+            Route route = routes.get(position);
+            RouteDefinition definition = definitions.get(route.getId());
+            RouteConstraints constraints = RouteConstraints.NONE;
+            if (definition != null) {
+                constraints = previous == null ? null : previous.constraintsCache.get(definition);
+                if (constraints == null) {
+                    constraints = RouteConstraints.of(definition);
+                }
+                cache.put(definition, constraints);
+            }
+
+            Entry entry = new Entry(route, position, constraints);
+            List<List<String>> prefixes = constraints.getPathPrefixes();
+            if (prefixes == null) {
+                unconstrained.add(entry);
+                continue;
+            }
+            for (List<String> prefix : prefixes) {
+                Node node = root;
+                for (String segment : prefix) {
+                    node = node.children.computeIfAbsent(segment, k -> new Node());
+                }
+                if (!node.own.contains(entry)) {
+                    node.own.add(entry);
+                }
+            }
+        }
+
+        root.complete(unconstrained);
+        return new RouteIndex(root, cache, routes.size());
+    }
+
+    /**
+     * 按请求路径查找候选路由，结果按原路由顺序排列
+     */
+    public List<Entry> candidates(String path) {
+        Node node = this.root;
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                if (isEncoded(path, start, end)) {
+                    // 解码后可能是子树中任意一个字面量段，返回整棵子树
+                    return node.subtree;
+                }
+                Node child = node.children.get(path.substring(start, end));
+                if (child == null) {
+                    break;
+                }
+                node = child;
+            }
+            start = end + 1;
+        }
+        return node.candidates;
+    }
+
+    private static boolean isEncoded(String path, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c == '%' || c == ';') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * 索引中的一条路由
+     */
+    public static final class Entry {
+        private final Route route;
+        private final int position;
+        private final RouteConstraints constraints;
+
+        private Entry(Route route, int position, RouteConstraints constraints) {
+            this.route = route;
+            this.position = position;
+            this.constraints = constraints;
+        }
+
+        public Route getRoute() {
+            return this.route;
+        }
+
+        RouteConstraints getConstraints() {
+            return this.constraints;
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        private final List<Entry> own = new ArrayList<>();
+
+        private List<Entry> candidates = Collections.emptyList();
+
+        /**
+         * 候选列表 + 所有子孙节点的路由，按 position 排列
+         */
+        private List<Entry> subtree = Collections.emptyList();
+
+        /**
+         * 自顶向下计算每个节点的候选列表：父节点候选 + 本节点路由，按 position 归并去重；
+         * 返回时自底向上合并出子树列表
+         */
+        private List<Entry> complete(List<Entry> inherited) {
+            this.candidates = Collections.unmodifiableList(merge(inherited, this.own));
+            List<Entry> subtree = this.candidates;
+            for (Node child : this.children.values()) {
+                subtree = merge(subtree, child.complete(this.candidates));
+            }
+            this.subtree = Collections.unmodifiableList(subtree);
+            return this.subtree;
+        }
+
+        private static List<Entry> merge(List<Entry> a, List<Entry> b) {
+            List<Entry> sortedB = new ArrayList<>(b);
+            sortedB.sort((x, y) -> Integer.compare(x.position, y.position));
+            List<Entry> merged = new ArrayList<>(a.size() + sortedB.size());
+            Map<Entry, Boolean> seen = new IdentityHashMap<>();
+            int i = 0;
+            int j = 0;
+            while (i < a.size() || j < sortedB.size()) {
+                Entry next;
+                if (j >= sortedB.size() || (i < a.size() && a.get(i).position <= sortedB.get(j).position)) {
+                    next = a.get(i++);
+                } else {
+                    next = sortedB.get(j++);
+                }
+                if (seen.put(next, Boolean.TRUE) == null) {
+                    merged.add(next);
+                }
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.itmuch.gateway.route;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 维护当前的路由表（RouteTable）及其索引
+ *
+ *  ~ 路由定义分三层，后者覆盖前者：
+ *      01)、base：RouteDefinitionLocator 提供的定义（application.yml 、服务发现）
+ *      02)、file：RouteFileWatcher 监听的路由文件
+ *      03)、api：RouteAdminEndpoint 提交的新增/修改/删除；参数中不允许 SpEL（#{...}），只保存在内存中
+ *  ~ 任何一层变化后，与当前路由表按 RouteDefinition 逐个比较，只编译新增和修改的路由，
+ *      未变化的路由沿用原来的 Route 对象（谓词、过滤器实例以及其中的缓存、限流状态都不会丢失），
+ *      最后生成新的 RouteTable 并通过 volatile 引用一次性替换
+ *  ~ 所有修改都在单独的写线程上串行执行，请求线程只读取引用，不会被阻塞
+ *  ~ 编译失败时整个修改不生效：各层定义恢复到修改之前，路由表保持不变，之后的修改不会再带上失败的定义
+ *  ~ 收到 RefreshRoutesEvent 时只把 base 标记为过期，下一次请求时在写线程上重新读取并比较；
+ *      比较期间请求继续使用原来的路由表。只有第一次加载完成之前 current() 返回 null（退回原来的逐个匹配）
+ *  ~ 延迟编译（setLazy）：新增和修改的路由先以占位路由进入路由表，不调用谓词工厂和过滤器工厂；
+ *      请求第一次匹配到时由 resolve() 编译（同一路由的并发请求共享一次编译），再由写线程替换占位路由；
+ *      warmUp() 在写线程上逐个编译剩余的路由
+ *  ~ 路由表替换后在写线程上通知 Listener（例如移除已删除路由的延迟统计）
+ *  ~ 快照（setSnapshot）：base 或 file 变化后保存这两层的定义（不包含 api 层）；restore() 在 base 加载之前用快照建立路由表
+ */
+@Slf4j
+public class RouteIndexManager implements ApplicationListener<RefreshRoutesEvent>, DisposableBean {
+
+    private final RouteDefinitionLocator routeDefinitionLocator;
+
+    private final RouteCompiler compiler;
+
+    private final Scheduler writer = Schedulers.fromExecutorService(Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "route-table-writer");
+        thread.setDaemon(true);
+        return thread;
+    }));
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private volatile RouteTable table;
+
+    private volatile long tableGeneration = -1L;
+
+    private volatile boolean lazy;
+
+    private volatile RouteSnapshot snapshot;
+
+    private final Map<String, Mono<Route>> resolving = new ConcurrentHashMap<>();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final MonoProcessor<RouteDiff> baseLoaded = MonoProcessor.create();
+
+    // 以下字段只在写线程上访问
+
+    private Map<String, RouteDefinition> base;
+
+    private Map<String, RouteDefinition> file = new LinkedHashMap<>();
+
+    private final Map<String, RouteDefinition> api = new LinkedHashMap<>();
+
+    private final Set<String> deleted = new HashSet<>();
+
+    public RouteIndexManager(RouteDefinitionLocator routeDefinitionLocator, RouteCompiler compiler) {
+        this.routeDefinitionLocator = routeDefinitionLocator;
+        this.compiler = compiler;
+    }
+
+    /**
+     * 延迟编译模式，需要在第一次加载路由之前设置
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public void setSnapshot(RouteSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public RouteSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    public void addListener(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesEvent event) {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * 当前可用的索引；还没有加载过路由时返回 null 。base 过期时触发后台重新加载，但仍返回当前的索引
+     */
+    public RouteIndex current() {
+        RouteTable current = currentTable();
+        return current == null ? null : current.getIndex();
+    }
+
+    /**
+     * 同 current() ，返回整张路由表
+     */
+    public RouteTable currentTable() {
+        RouteTable current = this.table;
+        if (this.tableGeneration != this.generation.get()) {
+            refresh();
+        }
+        return current;
+    }
+
+    /**
+     * 当前的路由表，还没有加载过时返回 null
+     */
+    public RouteTable table() {
+        return this.table;
+    }
+
+    /**
+     * 在后台重新读取 base 定义，同一时刻只有一个任务
+     */
+    public void refresh() {
+        if (!this.reloading.compareAndSet(false, true)) {
+            return;
+        }
+        long target = this.generation.get();
+        reload()
+                .doFinally(signal -> {
+                    // 出错时也记为已处理，避免每个请求都重试；下一次刷新事件会再次加载
+                    this.tableGeneration = target;
+                    this.reloading.set(false);
+                    if (this.generation.get() != target) {
+                        refresh();
+                    }
+                })
+                .subscribe(diff -> {
+                    if (!this.baseLoaded.isTerminated()) {
+                        this.baseLoaded.onNext(diff);
+                    }
+                    if (!diff.isEmpty()) {
+                        log.info("Routes reloaded: added={} updated={} removed={} total={}",
+                                diff.getAdded(), diff.getUpdated(), diff.getRemoved(), diff.getTotal());
+                    }
+                }, error -> log.error("Error reloading routes", error));
+    }
+
+    /**
+     * 第一次通过 refresh() 加载 base 定义完成时发出结果
+     */
+    public Mono<RouteDiff> baseLoaded() {
+        return this.baseLoaded;
+    }
+
+    /**
+     * 用快照中的定义作为 base 建立路由表；base 已经加载过时不做任何修改
+     */
+    public Mono<RouteDiff> restore(Collection<RouteDefinition> definitions) {
+        return Mono.fromCallable(() -> {
+            if (this.base != null) {
+                List<String> none = Collections.emptyList();
+                return new RouteDiff(none, none, none, this.table == null ? 0 : this.table.getRoutes().size());
+            }
+            return commit(() -> this.base = toMap(definitions), false);
+        }).subscribeOn(this.writer);
+    }
+
+    /**
+     * 取得可以执行的路由：占位路由在这里编译，其他路由返回最新路由表中的版本
+     */
+    public Mono<Route> resolve(Route route) {
+        RouteTable current = this.table;
+        if (current == null) {
+            return Mono.just(route);
+        }
+        if (current.getPending().contains(route.getId())) {
+            return compilePending(current, route.getId());
+        }
+        Route latest = current.getRoute(route.getId());
+        return Mono.just(latest != null ? latest : route);
+    }
+
+    /**
+     * 在写线程上逐个编译所有占位路由
+     *
+     * @return 编译的路由数
+     */
+    public Mono<Integer> warmUp() {
+        return Flux.defer(() -> {
+            RouteTable current = this.table;
+            return current == null ? Flux.<String>empty() : Flux.fromIterable(new ArrayList<>(current.getPending()));
+        })
+                .concatMap(id -> Mono.defer(() -> {
+                    RouteTable current = this.table;
+                    return current.getPending().contains(id) ? compilePending(current, id) : Mono.<Route>empty();
+                })
+                        .subscribeOn(this.writer)
+                        .onErrorResume(e -> {
+                            log.warn("Error compiling route {}", id, e);
+                            return Mono.empty();
+                        }))
+                .count()
+                .map(Long::intValue);
+    }
+
+    /**
+     * RouteCompiler 内部会 block() ，不能在请求所在的事件循环（NonBlocking 线程）上执行，放到写线程上编译
+     */
+    private Mono<Route> compilePending(RouteTable current, String id) {
+        RouteDefinition definition = current.getDefinitions().get(id);
+        return this.resolving.computeIfAbsent(id, key -> Mono
+                .fromCallable(() -> this.compiler.compile(Collections.singletonList(definition)).get(0))
+                .subscribeOn(this.writer)
+                .doOnNext(route -> install(definition, route))
+                .doOnError(e -> this.resolving.remove(id))
+                .cache());
+    }
+
+    /**
+     * 用编译好的路由替换占位路由；定义在编译期间被修改时丢弃
+     */
+    private void install(RouteDefinition definition, Route route) {
+        this.writer.schedule(() -> {
+            try {
+                RouteTable current = this.table;
+                if (!current.getPending().contains(route.getId())
+                        || !definition.equals(current.getDefinitions().get(route.getId()))) {
+                    return;
+                }
+                List<Route> routes = new ArrayList<>(current.getRoutes());
+                for (int i = 0; i < routes.size(); i++) {
+                    if (routes.get(i).getId().equals(route.getId())) {
+                        routes.set(i, route);
+                    }
+                }
+                Set<String> pending = new HashSet<>(current.getPending());
+                pending.remove(route.getId());
+                this.table = new RouteTable(routes, current.getDefinitions(),
+                        RouteIndex.build(routes, current.getDefinitions(), current.getIndex()), pending);
+            } finally {
+                this.resolving.remove(route.getId());
+            }
+        });
+    }
+
+    /**
+     * 重新读取 base 定义并应用差异
+     */
+    public Mono<RouteDiff> reload() {
+        // 服务发现的路由定义（Nacos）可能阻塞，在写线程上读取，不占用请求线程或启动线程
+        return this.routeDefinitionLocator.getRouteDefinitions()
+                .collectList()
+                .subscribeOn(this.writer)
+                .publishOn(this.writer)
+                .map(definitions -> commit(() -> this.base = toMap(definitions), true));
+    }
+
+    /**
+     * 新增或修改路由（api 层）；参数中有 SpEL 时以 IllegalArgumentException 失败，不做任何修改
+     */
+    public Mono<RouteDiff> upsert(Collection<RouteDefinition> definitions) {
+        for (RouteDefinition definition : definitions) {
+            String arg = findExpression(definition);
+            if (arg != null) {
+                return Mono.error(new IllegalArgumentException(
+                        "Route " + definition.getId() + " argument must not contain an expression: " + arg));
+            }
+        }
+        return write(() -> {
+            for (RouteDefinition definition : definitions) {
+                this.api.put(definition.getId(), definition);
+                this.deleted.remove(definition.getId());
+            }
+        }, false);
+    }
+
+    /**
+     * 删除路由（api 层），对 base 与 file 中的同名路由同样生效
+     */
+    public Mono<RouteDiff> delete(String id) {
+        return write(() -> {
+            this.api.remove(id);
+            this.deleted.add(id);
+        }, false);
+    }
+
+    /**
+     * 用路由文件的内容整体替换 file 层
+     */
+    public Mono<RouteDiff> replaceFileRoutes(Collection<RouteDefinition> definitions) {
+        return write(() -> this.file = toMap(definitions), true);
+    }
+
+    /**
+     * @param persist 是否保存快照；api 层的修改不保存
+     */
+    private Mono<RouteDiff> write(Runnable change, boolean persist) {
+        return Mono.fromCallable(() -> {
+            if (this.base == null) {
+                this.base = toMap(this.routeDefinitionLocator.getRouteDefinitions().collectList().block());
+            }
+            return commit(change, persist);
+        }).subscribeOn(this.writer);
+    }
+
+    /**
+     * 修改定义层并重新生成路由表；编译失败时恢复修改之前的各层定义再抛出异常。只在写线程上调用
+     */
+    private RouteDiff commit(Runnable change, boolean persist) {
+        Map<String, RouteDefinition> base = this.base;
+        Map<String, RouteDefinition> file = this.file;
+        Map<String, RouteDefinition> api = new LinkedHashMap<>(this.api);
+        Set<String> deleted = new HashSet<>(this.deleted);
+        change.run();
+        try {
+            return publish(persist);
+        } catch (RuntimeException e) {
+            this.base = base;
+            this.file = file;
+            this.api.clear();
+            this.api.putAll(api);
+            this.deleted.clear();
+            this.deleted.addAll(deleted);
+            throw e;
+        }
+    }
+
+    /**
+     * 合并三层定义，与当前路由表比较，只编译变化的部分，生成新的路由表并替换。只在写线程上调用
+     *
+     * @param persist 是否保存快照
+     */
+    private RouteDiff publish(boolean persist) {
+        Map<String, RouteDefinition> effective = new LinkedHashMap<>(this.base);
+        effective.putAll(this.file);
+        effective.putAll(this.api);
+        effective.keySet().removeAll(this.deleted);
+
+        RouteTable previous = this.table != null ? this.table : RouteTable.EMPTY;
+        List<String> added = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        List<RouteDefinition> changed = new ArrayList<>();
+        for (RouteDefinition definition : effective.values()) {
+            RouteDefinition old = previous.getDefinitions().get(definition.getId());
+            if (old == null) {
+                added.add(definition.getId());
+                changed.add(definition);
+            } else if (!old.equals(definition) || previous.getRoute(definition.getId()) == null) {
+                updated.add(definition.getId());
+                changed.add(definition);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String id : previous.getDefinitions().keySet()) {
+            if (!effective.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        RouteDiff diff = new RouteDiff(added, updated, removed, effective.size());
+        if (diff.isEmpty() && this.table != null) {
+            return diff;
+        }
+
+        Set<String> pending = new HashSet<>();
+        for (String id : previous.getPending()) {
+            if (effective.containsKey(id)) {
+                pending.add(id);
+            }
+        }
+        Map<String, Route> compiled = new LinkedHashMap<>();
+        if (this.lazy) {
+            for (RouteDefinition definition : changed) {
+                compiled.put(definition.getId(), this.compiler.placeholder(definition));
+                pending.add(definition.getId());
+            }
+        } else {
+            for (Route route : this.compiler.compile(changed)) {
+                compiled.put(route.getId(), route);
+                pending.remove(route.getId());
+            }
+        }
+        List<Route> routes = new ArrayList<>(effective.size());
+        for (String id : effective.keySet()) {
+            Route route = compiled.containsKey(id) ? compiled.get(id) : previous.getRoute(id);
+            if (route != null) {
+                routes.add(route);
+            }
+        }
+        // 稳定排序：order 相同的路由保持定义的先后顺序，与 CachingRouteLocator 一致
+        AnnotationAwareOrderComparator.sort(routes);
+
+        this.table = new RouteTable(routes, effective, RouteIndex.build(routes, effective, previous.getIndex()), pending);
+        RouteSnapshot snapshot = this.snapshot;
+        if (persist && snapshot != null) {
+            // 通过接口提交的路由不进入快照，重启后只恢复配置与路由文件中的定义
+            Map<String, RouteDefinition> persisted = new LinkedHashMap<>(this.base);
+            persisted.putAll(this.file);
+            snapshot.save(persisted.values());
+        }
+        for (Listener listener : this.listeners) {
+            listener.onChange(diff);
+        }
+        return diff;
+    }
+
+    /**
+     * 谓词、过滤器参数中的 SpEL 会在编译时用容器的 BeanFactory 求值，接口提交的定义不能带有；返回第一个含 #{ 的参数值
+     */
+    private static String findExpression(RouteDefinition definition) {
+        List<Map<String, String>> args = new ArrayList<>();
+        for (PredicateDefinition predicate : definition.getPredicates()) {
+            args.add(predicate.getArgs());
+        }
+        for (FilterDefinition filter : definition.getFilters()) {
+            args.add(filter.getArgs());
+        }
+        for (Map<String, String> arg : args) {
+            for (String value : arg.values()) {
+                if (value != null && value.contains("#{")) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, RouteDefinition> toMap(Collection<RouteDefinition> definitions) {
+        Map<String, RouteDefinition> map = new LinkedHashMap<>();
+        for (RouteDefinition definition : definitions) {
+            map.put(definition.getId(), definition);
+        }
+        return map;
+    }
+
+    @Override
+    public void destroy() {
+        this.writer.dispose();
+    }
+
+    /**
+     * 路由表变化的回调，在写线程中执行
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onChange(RouteDiff diff);
+    }
+}
@@ -0,0 +1,65 @@
+package com.itmuch.gateway.route;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 路由表快照：最近一次生效的全部路由定义
+ *
+ *  ~ 每次路由表变化后由 RouteIndexManager 在写线程上保存；启动时先用快照建立路由表，
+ *      不必等服务发现（Nacos）返回，之后 base 加载完成时按差异更新
+ *  ~ 格式与路由文件相同（RouteDefinition 的 JSON 数组）；先写临时文件再原子替换，进程中途退出不会留下半个文件
+ *  ~ 快照不存在或解析失败时返回 null ，按没有快照处理
+ */
+@Slf4j
+public class RouteSnapshot {
+
+    private static final TypeReference<List<RouteDefinition>> ROUTES = new TypeReference<List<RouteDefinition>>() {
+    };
+
+    private final Path file;
+
+    private final ObjectMapper objectMapper;
+
+    public RouteSnapshot(Path file, ObjectMapper objectMapper) {
+        this.file = file.toAbsolutePath();
+        this.objectMapper = objectMapper;
+    }
+
+    public List<RouteDefinition> load() {
+        if (!Files.isRegularFile(this.file)) {
+            return null;
+        }
+        try {
+            return this.objectMapper.readValue(this.file.toFile(), ROUTES);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable route snapshot {}", this.file, e);
+            return null;
+        }
+    }
+
+    void save(Collection<RouteDefinition> definitions) {
+        try {
+            Files.createDirectories(this.file.getParent());
+            Path temp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".tmp");
+            try {
+                this.objectMapper.writeValue(temp.toFile(), new ArrayList<>(definitions));
+                Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("Error saving route snapshot {}", this.file, e);
+        }
+    }
+}
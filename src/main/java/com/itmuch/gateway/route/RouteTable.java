@@ -0,0 +1,101 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 某一时刻的全部路由：定义、编译结果与索引，不可变
+ *
+ *  ~ 由 RouteIndexManager 在写线程上生成，通过 volatile 引用整体替换
+ *  ~ 未变化的路由直接沿用上一张表中的 Route 对象（以及其中的过滤器实例、缓存等）
+ *  ~ 延迟编译模式下，还没有编译的路由以占位 Route 出现在表中（id 、uri 、order 与定义一致，谓词恒为 false），
+ *      由 RouteIndexManager#resolve 在第一次匹配到时编译
+ */
+public final class RouteTable {
+
+    static final RouteTable EMPTY = new RouteTable(Collections.emptyList(), Collections.emptyMap(), RouteIndex.EMPTY,
+            Collections.emptySet());
+
+    private final List<Route> routes;
+
+    private final Map<String, RouteDefinition> definitions;
+
+    private final Map<String, Route> routesById;
+
+    private final RouteIndex index;
+
+    private final Set<String> pending;
+
+    RouteTable(List<Route> routes, Map<String, RouteDefinition> definitions, RouteIndex index, Set<String> pending) {
+        this.routes = Collections.unmodifiableList(routes);
+        this.definitions = Collections.unmodifiableMap(definitions);
+        Map<String, Route> routesById = new HashMap<>(routes.size() * 2);
+        for (Route route : routes) {
+            routesById.put(route.getId(), route);
+        }
+        this.routesById = routesById;
+        this.index = index;
+        this.pending = Collections.unmodifiableSet(pending);
+    }
+
+    /**
+     * 按匹配顺序排列的路由
+     */
+    public List<Route> getRoutes() {
+        return this.routes;
+    }
+
+    /**
+     * routeId -> 当前生效的路由定义，按定义的先后顺序排列
+     */
+    public Map<String, RouteDefinition> getDefinitions() {
+        return this.definitions;
+    }
+
+    Route getRoute(String id) {
+        return this.routesById.get(id);
+    }
+
+    public RouteIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * 还没有编译的路由 id（延迟编译模式）
+     */
+    public Set<String> getPending() {
+        return this.pending;
+    }
+
+    /**
+     * 路由 Path 谓词的字面量前缀，例如 /users/** -> /users/
+     *
+     * @return 路由不存在或不限制路径时返回 null
+     */
+    public List<String> pathPrefixes(String routeId) {
+        RouteDefinition definition = this.definitions.get(routeId);
+        if (definition == null) {
+            return null;
+        }
+        List<List<String>> prefixes = RouteConstraints.of(definition).getPathPrefixes();
+        if (prefixes == null) {
+            return null;
+        }
+        List<String> paths = new ArrayList<>(prefixes.size());
+        for (List<String> prefix : prefixes) {
+            StringBuilder path = new StringBuilder("/");
+            for (String segment : prefix) {
+                path.append(segment).append('/');
+            }
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+}
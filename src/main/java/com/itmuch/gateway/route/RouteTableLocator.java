@@ -0,0 +1,38 @@
+package com.itmuch.gateway.route;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * 由 RouteIndexManager 的路由表提供路由的 RouteLocator
+ *
+ *  ~ 延迟编译模式下替换内置的 CachingRouteLocator ：后者会用 RouteDefinitionRouteLocator 把所有路由再完整编译一遍，
+ *      延迟编译就失去了意义，而且同一路由会有两份过滤器实例
+ *  ~ 路由表还没有建立时等待第一次加载（最多 loadTimeout）
+ *  ~ 占位路由在读取时编译，逐个进行；只有退回原来的逐个匹配或 /actuator/gateway/routes 会走到这里
+ */
+public class RouteTableLocator implements RouteLocator {
+
+    private final RouteIndexManager manager;
+
+    private final Duration loadTimeout;
+
+    public RouteTableLocator(RouteIndexManager manager, Duration loadTimeout) {
+        this.manager = manager;
+        this.loadTimeout = loadTimeout;
+    }
+
+    @Override
+    public Flux<Route> getRoutes() {
+        return Mono.defer(() -> Mono.justOrEmpty(this.manager.currentTable()))
+                .switchIfEmpty(this.manager.baseLoaded()
+                        .timeout(this.loadTimeout, Mono.empty())
+                        .flatMap(diff -> Mono.justOrEmpty(this.manager.table())))
+                .flatMapMany(table -> Flux.fromIterable(table.getRoutes()))
+                .concatMap(this.manager::resolve, 1);
+    }
+}
@@ -0,0 +1,183 @@
+package com.itmuch.gateway.sentinel;
+
+import com.alibaba.csp.sentinel.adapter.gateway.common.SentinelGatewayConstants;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.ApiDefinition;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.ApiPathPredicateItem;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.ApiPredicateGroupItem;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.ApiPredicateItem;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.GatewayApiDefinitionManager;
+import com.alibaba.csp.sentinel.adapter.gateway.common.rule.GatewayFlowRule;
+import com.alibaba.csp.sentinel.adapter.gateway.common.rule.GatewayRuleManager;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.api.GatewayApiMatcherManager;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.api.matcher.WebExchangeApiMatcher;
+import com.alibaba.csp.sentinel.property.DynamicSentinelProperty;
+import com.itmuch.gateway.route.RouteTable;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 按路由/API 分组编译、缓存 Sentinel 网关规则的检查计划
+ *
+ *  ~ 把 GatewayRuleManager 与 GatewayApiDefinitionManager 的规则源替换成带版本号的 SentinelProperty ：
+ *      规则通过 loadRules()/loadApiDefinitions()（控制台推送、代码中手动加载）更新时，先由原来的监听器完成转换，
+ *      再递增版本号，所有计划随之失效，下一次请求时按需重新编译
+ *  ~ 路由表（RouteIndexManager）替换后同样失效，因为 API 分组与路由的对应关系依赖路由的 Path
+ *  ~ 注意：如果之后又通过 register2Property() 注册了其他规则源（例如 Sentinel 数据源），需要重新调用 install()
+ */
+public class GatewayRulePlans implements InitializingBean {
+
+    private final Supplier<RouteTable> routeTable;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Plans plans = new Plans(-1L, null);
+
+    public GatewayRulePlans(Supplier<RouteTable> routeTable) {
+        this.routeTable = routeTable;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        install();
+    }
+
+    /**
+     * 接管规则源，保留当前已加载的规则
+     */
+    public void install() {
+        Set<GatewayFlowRule> rules = GatewayRuleManager.getRules();
+        VersionedProperty<Set<GatewayFlowRule>> ruleProperty = new VersionedProperty<>(this.version);
+        GatewayRuleManager.register2Property(ruleProperty);
+        ruleProperty.updateValue(rules);
+
+        Set<ApiDefinition> apis = GatewayApiDefinitionManager.getApiDefinitions();
+        VersionedProperty<Set<ApiDefinition>> apiProperty = new VersionedProperty<>(this.version);
+        GatewayApiDefinitionManager.register2Property(apiProperty);
+        apiProperty.updateValue(apis);
+    }
+
+    RoutePlan route(String routeId) {
+        Plans current = current();
+        RoutePlan plan = current.routes.get(routeId);
+        if (plan == null) {
+            plan = new RoutePlan(
+                    ParamPlan.compile(GatewayRuleManager.getRulesForResource(routeId),
+                            SentinelGatewayConstants.RESOURCE_MODE_ROUTE_ID),
+                    apiMatchers(current.table == null ? null : current.table.pathPrefixes(routeId)));
+            current.routes.put(routeId, plan);
+        }
+        return plan;
+    }
+
+    ParamPlan api(String apiName) {
+        Plans current = current();
+        ParamPlan plan = current.apis.get(apiName);
+        if (plan == null) {
+            plan = ParamPlan.compile(GatewayRuleManager.getRulesForResource(apiName),
+                    SentinelGatewayConstants.RESOURCE_MODE_CUSTOM_API_NAME);
+            current.apis.put(apiName, plan);
+        }
+        return plan;
+    }
+
+    private Plans current() {
+        Plans current = this.plans;
+        long version = this.version.get();
+        RouteTable table = this.routeTable.get();
+        if (current.version != version || current.table != table) {
+            // 并发时可能重复创建，结果相同，不需要加锁
+            current = new Plans(version, table);
+            this.plans = current;
+        }
+        return current;
+    }
+
+    private static WebExchangeApiMatcher[] apiMatchers(List<String> routePrefixes) {
+        Map<String, WebExchangeApiMatcher> matchers = GatewayApiMatcherManager.getApiMatcherMap();
+        List<WebExchangeApiMatcher> candidates = new ArrayList<>(matchers.size());
+        for (WebExchangeApiMatcher matcher : matchers.values()) {
+            if (routePrefixes == null || overlaps(matcher.getApiDefinition().getPredicateItems(), routePrefixes)) {
+                candidates.add(matcher);
+            }
+        }
+        return candidates.toArray(new WebExchangeApiMatcher[0]);
+    }
+
+    private static boolean overlaps(Set<ApiPredicateItem> items, List<String> routePrefixes) {
+        for (ApiPredicateItem item : items) {
+            if (item instanceof ApiPredicateGroupItem) {
+                if (overlaps(((ApiPredicateGroupItem) item).getItems(), routePrefixes)) {
+                    return true;
+                }
+            } else if (item instanceof ApiPathPredicateItem) {
+                String apiPrefix = literalPrefix((ApiPathPredicateItem) item);
+                for (String routePrefix : routePrefixes) {
+                    if (apiPrefix.startsWith(routePrefix) || routePrefix.startsWith(apiPrefix)) {
+                        return true;
+                    }
+                }
+            } else {
+                // 不认识的条件类型，保守处理
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * API 路径条件的字面量前缀，截断到最后一个 '/'，例如 /users/** -> /users/ ，/users/1 -> /users/
+     */
+    private static String literalPrefix(ApiPathPredicateItem item) {
+        String pattern = item.getPattern() == null ? "/" : item.getPattern();
+        String meta = item.getMatchStrategy() == SentinelGatewayConstants.URL_MATCH_STRATEGY_REGEX
+                ? ".[]()*+?^$\\{|" : "*?{";
+        int end = 0;
+        while (end < pattern.length() && meta.indexOf(pattern.charAt(end)) < 0) {
+            end++;
+        }
+        int slash = pattern.lastIndexOf('/', end == pattern.length() ? end - 1 : end);
+        return slash < 0 ? "/" : pattern.substring(0, slash + 1);
+    }
+
+    private static final class Plans {
+
+        private final long version;
+
+        private final RouteTable table;
+
+        private final Map<String, RoutePlan> routes = new ConcurrentHashMap<>();
+
+        private final Map<String, ParamPlan> apis = new ConcurrentHashMap<>();
+
+        private Plans(long version, RouteTable table) {
+            this.version = version;
+            this.table = table;
+        }
+    }
+
+    /**
+     * 原监听器处理完新规则后递增版本号
+     */
+    private static final class VersionedProperty<T> extends DynamicSentinelProperty<T> {
+
+        private final AtomicLong version;
+
+        private VersionedProperty(AtomicLong version) {
+            this.version = version;
+        }
+
+        @Override
+        public boolean updateValue(T newValue) {
+            boolean updated = super.updateValue(newValue);
+            this.version.incrementAndGet();
+            return updated;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.itmuch.gateway.sentinel;
+
+import com.alibaba.csp.sentinel.adapter.gateway.common.SentinelGatewayConstants;
+import com.alibaba.csp.sentinel.adapter.gateway.common.rule.GatewayFlowRule;
+import com.alibaba.csp.sentinel.adapter.gateway.common.rule.GatewayParamFlowItem;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 一个 Sentinel 资源（路由或 API 分组）的参数提取计划
+ *
+ *  ~ 结果与 GatewayParamParser#parseParameterFor 一致：参数位置取自规则的 paramItem.index ，
+ *      有非参数规则时最后一位是 GATEWAY_DEFAULT_PARAM ；资源上的参数规则不全属于当前资源类型时返回空数组
+ *  ~ 区别在于这些判断在规则变化时做一次，而不是每个请求都遍历、复制规则集合：
+ *      01)、只提取规则实际引用到的属性（IP 、Host 、某个 Header/URL 参数/Cookie），每种属性只提取一次，多条规则共享
+ *      02)、正则匹配的模式预先编译
+ */
+final class ParamPlan {
+
+    static final ParamPlan NONE = new ParamPlan(0, false, new Attribute[0], new Slot[0]);
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final int size;
+
+    private final boolean defaultParam;
+
+    private final Attribute[] attributes;
+
+    private final Slot[] slots;
+
+    private ParamPlan(int size, boolean defaultParam, Attribute[] attributes, Slot[] slots) {
+        this.size = size;
+        this.defaultParam = defaultParam;
+        this.attributes = attributes;
+        this.slots = slots;
+    }
+
+    /**
+     * @param rules        资源上的全部网关规则
+     * @param resourceMode 当前资源的类型：RESOURCE_MODE_ROUTE_ID 或 RESOURCE_MODE_CUSTOM_API_NAME
+     */
+    static ParamPlan compile(Collection<GatewayFlowRule> rules, int resourceMode) {
+        List<GatewayFlowRule> paramRules = new ArrayList<>();
+        boolean hasNonParamRule = false;
+        for (GatewayFlowRule rule : rules) {
+            if (rule.getParamItem() == null) {
+                hasNonParamRule = true;
+            } else if (rule.getResourceMode() != resourceMode || rule.getParamItem().getIndex() == null) {
+                return NONE;
+            } else {
+                paramRules.add(rule);
+            }
+        }
+        if (!hasNonParamRule && paramRules.isEmpty()) {
+            return NONE;
+        }
+
+        Map<String, Attribute> attributes = new LinkedHashMap<>();
+        Slot[] slots = new Slot[paramRules.size()];
+        for (int i = 0; i < slots.length; i++) {
+            GatewayParamFlowItem item = paramRules.get(i).getParamItem();
+            String key = item.getParseStrategy() + ":" + item.getFieldName();
+            Attribute attribute = attributes.get(key);
+            if (attribute == null) {
+                attribute = new Attribute(attributes.size(), item.getParseStrategy(), item.getFieldName());
+                attributes.put(key, attribute);
+            }
+            slots[i] = new Slot(item.getIndex(), attribute.position, item.getMatchStrategy(), item.getPattern());
+        }
+        int size = hasNonParamRule ? slots.length + 1 : slots.length;
+        return new ParamPlan(size, hasNonParamRule, attributes.values().toArray(new Attribute[0]), slots);
+    }
+
+    Object[] parse(ServerWebExchange exchange) {
+        if (this.size == 0) {
+            return EMPTY;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String[] values = new String[this.attributes.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.attributes[i].extract(request);
+        }
+        Object[] params = new Object[this.size];
+        for (Slot slot : this.slots) {
+            params[slot.index] = slot.match(values[slot.attribute]);
+        }
+        if (this.defaultParam) {
+            params[this.size - 1] = SentinelGatewayConstants.GATEWAY_DEFAULT_PARAM;
+        }
+        return params;
+    }
+
+    private static final class Attribute {
+
+        private final int position;
+
+        private final int parseStrategy;
+
+        private final String fieldName;
+
+        private Attribute(int position, int parseStrategy, String fieldName) {
+            this.position = position;
+            this.parseStrategy = parseStrategy;
+            this.fieldName = fieldName;
+        }
+
+        private String extract(ServerHttpRequest request) {
+            switch (this.parseStrategy) {
+                case SentinelGatewayConstants.PARAM_PARSE_STRATEGY_CLIENT_IP:
+                    InetSocketAddress remoteAddress = request.getRemoteAddress();
+                    return remoteAddress == null ? null : remoteAddress.getAddress().getHostAddress();
+                case SentinelGatewayConstants.PARAM_PARSE_STRATEGY_HOST:
+                    return request.getHeaders().getFirst("Host");
+                case SentinelGatewayConstants.PARAM_PARSE_STRATEGY_HEADER:
+                    return request.getHeaders().getFirst(this.fieldName);
+                case SentinelGatewayConstants.PARAM_PARSE_STRATEGY_URL_PARAM:
+                    return request.getQueryParams().getFirst(this.fieldName);
+                case SentinelGatewayConstants.PARAM_PARSE_STRATEGY_COOKIE:
+                    HttpCookie cookie = request.getCookies().getFirst(this.fieldName);
+                    return cookie == null ? null : cookie.getValue();
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final class Slot {
+
+        private final int index;
+
+        private final int attribute;
+
+        private final int matchStrategy;
+
+        private final String pattern;
+
+        private final Pattern regex;
+
+        private Slot(int index, int attribute, int matchStrategy, String pattern) {
+            this.index = index;
+            this.attribute = attribute;
+            this.matchStrategy = matchStrategy;
+            this.pattern = pattern == null || pattern.isEmpty() ? null : pattern;
+            this.regex = this.pattern != null && matchStrategy == SentinelGatewayConstants.PARAM_MATCH_STRATEGY_REGEX
+                    ? Pattern.compile(this.pattern) : null;
+        }
+
+        private String match(String value) {
+            if (this.pattern == null || value == null) {
+                return value;
+            }
+            boolean matched;
+            switch (this.matchStrategy) {
+                case SentinelGatewayConstants.PARAM_MATCH_STRATEGY_EXACT:
+                    matched = value.equals(this.pattern);
+                    break;
+                case SentinelGatewayConstants.PARAM_MATCH_STRATEGY_PREFIX:
+                    matched = value.startsWith(this.pattern);
+                    break;
+                case SentinelGatewayConstants.PARAM_MATCH_STRATEGY_REGEX:
+                    matched = this.regex.matcher(value).matches();
+                    break;
+                case SentinelGatewayConstants.PARAM_MATCH_STRATEGY_CONTAINS:
+                    matched = value.contains(this.pattern);
+                    break;
+                default:
+                    return value;
+            }
+            return matched ? value : SentinelGatewayConstants.GATEWAY_NOT_MATCH_PARAM;
+        }
+    }
+}
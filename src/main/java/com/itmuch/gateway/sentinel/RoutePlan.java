@@ -0,0 +1,29 @@
+package com.itmuch.gateway.sentinel;
+
+import com.alibaba.csp.sentinel.adapter.gateway.sc.api.matcher.WebExchangeApiMatcher;
+
+/**
+ * 一个路由的 Sentinel 检查计划：路由资源的参数提取计划 + 可能覆盖该路由的 API 分组
+ */
+final class RoutePlan {
+
+    private final ParamPlan params;
+
+    private final WebExchangeApiMatcher[] apiMatchers;
+
+    RoutePlan(ParamPlan params, WebExchangeApiMatcher[] apiMatchers) {
+        this.params = params;
+        this.apiMatchers = apiMatchers;
+    }
+
+    ParamPlan getParams() {
+        return this.params;
+    }
+
+    /**
+     * 路径前缀与该路由有交集的 API 分组，没有交集的分组不需要在请求时匹配
+     */
+    WebExchangeApiMatcher[] getApiMatchers() {
+        return this.apiMatchers;
+    }
+}
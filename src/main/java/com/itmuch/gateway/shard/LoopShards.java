@@ -0,0 +1,70 @@
+package com.itmuch.gateway.shard;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 线程 -> 分片下标，让每个 Netty 事件循环线程只写自己的那一份状态
+ *
+ *  ~ 分片数默认与 reactor-netty 的事件循环线程数相同：reactor.netty.ioWorkerCount ，默认 max(CPU 核数, 4)
+ *  ~ 线程第一次访问时分到一个下标，记在 FastThreadLocal 中（事件循环线程上只是一次数组读取）：
+ *      reactor-netty 的事件循环线程（reactor-http-nio-1 、reactor-http-epoll-2 ...）按线程名中的序号取下标，
+ *      与访问先后无关，也不会被 Reactor 的 parallel 线程、其他 Netty 线程占用，各自独占一个分片；
+ *      其他线程（parallel 、offload 、定时任务等）用一个计数器从最后一个分片倒序分配，
+ *      可能与事件循环共用分片，所以分片上的写入仍然使用 CAS ，只是几乎不会失败，缓存行也不会在核之间来回传递
+ *  ~ 分片状态由所属线程第一次访问时创建，分配在该线程自己的 TLAB 中，与其他分片的状态一般不在同一个缓存行
+ */
+public final class LoopShards {
+
+    public static final LoopShards DEFAULT = new LoopShards(Integer.getInteger("reactor.netty.ioWorkerCount",
+            Math.max(Runtime.getRuntime().availableProcessors(), 4)));
+
+    private final int count;
+
+    /**
+     * reactor-netty 默认 LoopResources 的工作线程名：前缀 reactor-http ，之后是 nio/epoll/kqueue 与从 1 开始的序号
+     */
+    private static final Pattern LOOP_THREAD = Pattern.compile("reactor-http-(?:nio|epoll|kqueue)-(\\d{1,9})");
+
+    private final AtomicInteger nextOther = new AtomicInteger();
+
+    private final FastThreadLocal<Integer> index = new FastThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            int loop = loopNumber(Thread.currentThread().getName());
+            if (loop > 0) {
+                return (loop - 1) % count;
+            }
+            return count - 1 - (nextOther.getAndIncrement() & Integer.MAX_VALUE) % count;
+        }
+    };
+
+    public LoopShards(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        this.count = count;
+    }
+
+    /**
+     * 当前线程的分片下标，范围 [0, count)
+     */
+    public int index() {
+        return this.index.get();
+    }
+
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * reactor-netty 事件循环线程的序号，其他线程返回 0
+     */
+    static int loopNumber(String threadName) {
+        Matcher matcher = LOOP_THREAD.matcher(threadName);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+}
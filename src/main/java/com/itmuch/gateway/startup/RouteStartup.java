@@ -0,0 +1,74 @@
+package com.itmuch.gateway.startup;
+
+import com.itmuch.gateway.route.RouteIndexManager;
+import com.itmuch.gateway.route.RouteSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.context.ApplicationListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时的路由加载顺序
+ *
+ *  ~ 所有单例创建完成后（Netty 开始监听之前）：有快照时先用快照建立路由表，然后在写线程上开始加载 base 定义
+ *      （服务发现返回之前请求按快照路由）
+ *  ~ 应用就绪后：在写线程上逐个编译延迟编译模式下剩余的占位路由
+ *  ~ 各阶段记录到 StartupTimings ：routes-snapshot-restored 、routes-loaded 、routes-compiled
+ */
+@Slf4j
+public class RouteStartup implements SmartInitializingSingleton, ApplicationListener<ApplicationReadyEvent> {
+
+    private final RouteIndexManager manager;
+
+    private final RouteSnapshot snapshot;
+
+    private final boolean warmUp;
+
+    private final StartupTimings timings;
+
+    public RouteStartup(RouteIndexManager manager, RouteSnapshot snapshot, boolean warmUp, StartupTimings timings) {
+        this.manager = manager;
+        this.snapshot = snapshot;
+        this.warmUp = warmUp;
+        this.timings = timings;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (this.snapshot != null) {
+            long start = System.nanoTime();
+            List<RouteDefinition> definitions = this.snapshot.load();
+            if (definitions != null) {
+                this.manager.restore(definitions).block();
+                this.timings.mark("routes-snapshot-restored");
+                log.info("Restored {} routes from snapshot in {}ms", definitions.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+        this.manager.baseLoaded().subscribe(diff -> {
+            this.timings.mark("routes-loaded");
+            log.info("Routes loaded: {} routes, {} changed since snapshot", diff.getTotal(),
+                    diff.getAdded().size() + diff.getUpdated().size() + diff.getRemoved().size());
+        });
+        this.manager.refresh();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!this.warmUp) {
+            return;
+        }
+        long start = System.nanoTime();
+        this.manager.warmUp().subscribe(compiled -> {
+            this.timings.mark("routes-compiled");
+            if (compiled > 0) {
+                log.info("Compiled {} routes in background in {}ms", compiled,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }, error -> log.error("Error compiling routes", error));
+    }
+}
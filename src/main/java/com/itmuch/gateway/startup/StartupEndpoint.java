@@ -0,0 +1,28 @@
+package com.itmuch.gateway.startup;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * 启动耗时端点：http://localhost:8040/actuator/gatewaystartup
+ *
+ *  ~ phases：各阶段距 JVM 启动的毫秒数
+ *  ~ durations：各阶段距上一阶段的毫秒数
+ *  ~ slowestBeans：创建最慢的 Bean（毫秒，包含其依赖的创建时间）
+ */
+@Endpoint(id = "gatewaystartup")
+public class StartupEndpoint {
+
+    private final StartupTimings timings;
+
+    public StartupEndpoint(StartupTimings timings) {
+        this.timings = timings;
+    }
+
+    @ReadOperation
+    public Map<String, Object> startup() {
+        return this.timings.report();
+    }
+}
@@ -0,0 +1,115 @@
+package com.itmuch.gateway.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录 SpringApplication 各阶段的时间点（META-INF/spring.factories 注册）
+ *
+ *  ~ starting -> environment-prepared -> context-prepared -> context-loaded -> context-refreshed -> ready
+ *  ~ context-prepared 时把 StartupTimings 注册为单例，路由相关的阶段（快照恢复、路由加载、后台编译）由 RouteStartup 补充
+ *  ~ 同时注册一个 BeanPostProcessor 记录每个 Bean 的创建耗时
+ *  ~ Spring Cloud 的 bootstrap 上下文也会经过这里，只处理主应用（主类带 @SpringBootApplication）
+ */
+@Slf4j
+public class StartupRunListener implements SpringApplicationRunListener {
+
+    public static final String BEAN_NAME = "startupTimings";
+
+    private final StartupTimings timings;
+
+    public StartupRunListener(SpringApplication application, String[] args) {
+        boolean main = application.getAllSources().stream().anyMatch(source ->
+                source instanceof Class && ((Class<?>) source).isAnnotationPresent(SpringBootApplication.class));
+        this.timings = main ? new StartupTimings() : null;
+    }
+
+    @Override
+    public void starting() {
+        mark("starting");
+    }
+
+    @Override
+    public void environmentPrepared(ConfigurableEnvironment environment) {
+        if (this.timings != null) {
+            this.timings.setSlowestBeans(environment.getProperty("gateway.startup.slowest-beans", Integer.class, 10));
+        }
+        mark("environment-prepared");
+    }
+
+    @Override
+    public void contextPrepared(ConfigurableApplicationContext context) {
+        if (this.timings != null) {
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            beanFactory.registerSingleton(BEAN_NAME, this.timings);
+            beanFactory.addBeanPostProcessor(new BeanTimer(this.timings));
+        }
+        mark("context-prepared");
+    }
+
+    @Override
+    public void contextLoaded(ConfigurableApplicationContext context) {
+        mark("context-loaded");
+    }
+
+    @Override
+    public void started(ConfigurableApplicationContext context) {
+        mark("context-refreshed");
+    }
+
+    @Override
+    public void running(ConfigurableApplicationContext context) {
+        mark("ready");
+        if (this.timings != null) {
+            log.info("Startup timings: {}", this.timings.report());
+        }
+    }
+
+    @Override
+    public void failed(ConfigurableApplicationContext context, Throwable exception) {
+    }
+
+    private void mark(String phase) {
+        if (this.timings != null) {
+            this.timings.mark(phase);
+        }
+    }
+
+    /**
+     * 从实例化之前到初始化之后的耗时
+     */
+    private static final class BeanTimer implements InstantiationAwareBeanPostProcessor {
+
+        private final StartupTimings timings;
+
+        private final Map<String, Long> started = new ConcurrentHashMap<>();
+
+        private BeanTimer(StartupTimings timings) {
+            this.timings = timings;
+        }
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+            this.started.putIfAbsent(beanName, System.nanoTime());
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            Long start = this.started.remove(beanName);
+            if (start != null) {
+                this.timings.bean(beanName, System.nanoTime() - start);
+            }
+            return bean;
+        }
+    }
+}
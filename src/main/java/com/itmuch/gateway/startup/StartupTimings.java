@@ -0,0 +1,64 @@
+package com.itmuch.gateway.startup;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动各阶段的耗时
+ *
+ *  ~ 阶段时间点以 JVM 启动为起点（毫秒），包含 main() 之前的类加载时间；同一阶段只记录第一次
+ *  ~ Bean 耗时从实例化开始到初始化完成，包含期间创建的依赖，只保留最慢的几个
+ *  ~ 通过 /actuator/gatewaystartup 查看，应用就绪时打印到日志
+ */
+public class StartupTimings {
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private final Map<String, Long> beanNanos = new ConcurrentHashMap<>();
+
+    private volatile int slowestBeans = 10;
+
+    void setSlowestBeans(int slowestBeans) {
+        this.slowestBeans = slowestBeans;
+    }
+
+    public synchronized void mark(String phase) {
+        this.phases.putIfAbsent(phase, System.currentTimeMillis() - this.jvmStartMillis);
+    }
+
+    void bean(String name, long nanos) {
+        this.beanNanos.put(name, nanos);
+    }
+
+    /**
+     * @return phases：阶段 -> 距 JVM 启动的毫秒数；durations：阶段 -> 距上一阶段的毫秒数；
+     *      slowestBeans：Bean 名称 -> 创建耗时（毫秒）
+     */
+    public synchronized Map<String, Object> report() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        long previous = 0L;
+        for (Map.Entry<String, Long> phase : this.phases.entrySet()) {
+            durations.put(phase.getKey(), phase.getValue() - previous);
+            previous = phase.getValue();
+        }
+        List<Map.Entry<String, Long>> beans = new ArrayList<>(this.beanNanos.entrySet());
+        beans.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        Map<String, Long> slowest = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> bean : beans.subList(0, Math.min(this.slowestBeans, beans.size()))) {
+            slowest.put(bean.getKey(), TimeUnit.NANOSECONDS.toMillis(bean.getValue()));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("phases", new LinkedHashMap<>(this.phases));
+        report.put("durations", durations);
+        report.put("slowestBeans", slowest);
+        return report;
+    }
+}
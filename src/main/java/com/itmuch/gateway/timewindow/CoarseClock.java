@@ -0,0 +1,46 @@
+package com.itmuch.gateway.timewindow;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 粗粒度共享时钟
+ *
+ *  ~ 由一个后台线程按固定间隔（默认 10ms）刷新当前时间，请求线程只读取一个 volatile long
+ *  ~ 适用于对精度要求为"毫秒~秒级"的判断（例如 TimeBetween 时间段），避免每个请求都调用 LocalTime.now()
+ *  ~ 精度等于刷新间隔：gateway.coarse-clock.tick-millis
+ */
+@Component
+public class CoarseClock implements DisposableBean {
+
+    private final ScheduledExecutorService ticker;
+
+    private volatile long currentTimeMillis = System.currentTimeMillis();
+
+    public CoarseClock(@Value("${gateway.coarse-clock.tick-millis:10}") long tickMillis) {
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "coarse-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        this.currentTimeMillis = System.currentTimeMillis();
+    }
+
+    public long currentTimeMillis() {
+        return this.currentTimeMillis;
+    }
+
+    @Override
+    public void destroy() {
+        this.ticker.shutdownNow();
+    }
+}
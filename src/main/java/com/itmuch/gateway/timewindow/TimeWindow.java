@@ -0,0 +1,56 @@
+package com.itmuch.gateway.timewindow;
+
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 一个时间段：[start, end] ，两端都包含
+ *
+ *  ~ start > end 表示跨午夜，例如 22:00-02:00
+ *  ~ start == end 表示全天
+ *  ~ days 限定时间段"开始"的星期，例如 FRIDAY 的 22:00-02:00 覆盖周五晚到周六凌晨
+ */
+@Getter
+public final class TimeWindow {
+
+    private final LocalTime start;
+    private final LocalTime end;
+    private final Set<DayOfWeek> days;
+
+    public TimeWindow(LocalTime start, LocalTime end, Set<DayOfWeek> days) {
+        this.start = start;
+        this.end = end;
+        this.days = days == null || days.isEmpty() ? EnumSet.allOf(DayOfWeek.class) : EnumSet.copyOf(days);
+    }
+
+    /**
+     * 解析 HH:mm-HH:mm 形式的时间段
+     */
+    public static TimeWindow parse(String text, Set<DayOfWeek> days) {
+        int separator = text.indexOf('-');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid time window, expected HH:mm-HH:mm: " + text);
+        }
+        return new TimeWindow(LocalTime.parse(text.substring(0, separator).trim()),
+                LocalTime.parse(text.substring(separator + 1).trim()), days);
+    }
+
+    /**
+     * 时间段长度（开区间的结束点 = 开始 + 长度）；end 包含在内，所以加 1 毫秒
+     */
+    Duration length() {
+        if (this.start.equals(this.end)) {
+            return Duration.ofDays(1);
+        }
+        Duration length = Duration.between(this.start, this.end);
+        if (length.isNegative()) {
+            length = length.plusDays(1);
+        }
+        return length.plusMillis(1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.itmuch.gateway.timewindow;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的时间段判断
+ *
+ *  ~ 缓存一个快照：当前是否在时间段内（open）以及下一次状态可能变化的时刻（nextTransition）
+ *  ~ 判断时只要 now < nextTransition 就直接返回 open ，只做一次 long 比较；
+ *      到达 nextTransition 后才按时区重新计算一次（一天只有几次）
+ *  ~ 支持多个时间段、星期过滤、时区、跨午夜，夏令时由 ZonedDateTime 处理
+ */
+public final class TimeWindowSchedule {
+
+    /**
+     * 重新计算时向前、向后查看的天数：前一天用于跨午夜的时间段，后 8 天覆盖一整周的星期过滤
+     */
+    private static final int DAYS_BEFORE = 1;
+    private static final int DAYS_AFTER = 8;
+
+    private final List<TimeWindow> windows;
+
+    private final ZoneId zone;
+
+    private volatile Snapshot snapshot = new Snapshot(false, Long.MIN_VALUE, Long.MAX_VALUE);
+
+    public TimeWindowSchedule(List<TimeWindow> windows, ZoneId zone) {
+        this.windows = new ArrayList<>(windows);
+        this.zone = zone == null ? ZoneId.systemDefault() : zone;
+    }
+
+    public boolean test(long nowMillis) {
+        Snapshot current = this.snapshot;
+        // 时钟回拨（now < computedAt）时也重新计算
+        if (nowMillis < current.nextTransition && nowMillis >= current.computedAt) {
+            return current.open;
+        }
+        current = compute(nowMillis);
+        this.snapshot = current;
+        return current.open;
+    }
+
+    private Snapshot compute(long nowMillis) {
+        LocalDate today = Instant.ofEpochMilli(nowMillis).atZone(this.zone).toLocalDate();
+        boolean open = false;
+        long next = Long.MAX_VALUE;
+        for (int offset = -DAYS_BEFORE; offset <= DAYS_AFTER; offset++) {
+            LocalDate date = today.plusDays(offset);
+            for (TimeWindow window : this.windows) {
+                if (!window.getDays().contains(date.getDayOfWeek())) {
+                    continue;
+                }
+                ZonedDateTime opening = ZonedDateTime.of(date, window.getStart(), this.zone);
+                long openAt = opening.toInstant().toEpochMilli();
+                long closeAt = opening.plus(window.length()).toInstant().toEpochMilli();
+                if (openAt <= nowMillis && nowMillis < closeAt) {
+                    open = true;
+                }
+                if (openAt > nowMillis) {
+                    next = Math.min(next, openAt);
+                }
+                if (closeAt > nowMillis) {
+                    next = Math.min(next, closeAt);
+                }
+            }
+        }
+        return new Snapshot(open, next, nowMillis);
+    }
+
+    private static final class Snapshot {
+        private final boolean open;
+        private final long nextTransition;
+        private final long computedAt;
+
+        private Snapshot(boolean open, long nextTransition, long computedAt) {
+            this.open = open;
+            this.nextTransition = nextTransition;
+            this.computedAt = computedAt;
+        }
+    }
+}
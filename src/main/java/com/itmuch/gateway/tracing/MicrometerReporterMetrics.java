@@ -0,0 +1,91 @@
+package com.itmuch.gateway.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import zipkin2.reporter.ReporterMetrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * span 上报的统计，替代 Sleuth 默认的 InMemoryReporterMetrics（只在内存里，外部看不到）
+ *
+ *  ~ zipkin.reporter.spans{result=reported|dropped} ：进入上报队列 / 被丢弃的 span 数，队列满或者发送失败都会丢弃
+ *  ~ zipkin.reporter.messages{result=sent|dropped} ：发往 Zipkin 的批次数
+ *  ~ zipkin.reporter.span.bytes 、zipkin.reporter.message.bytes ：编码后的字节数
+ *  ~ zipkin.reporter.queue.spans 、zipkin.reporter.queue.bytes ：队列中等待发送的 span 数和字节数
+ */
+public class MicrometerReporterMetrics implements ReporterMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Counter messages;
+
+    private final Counter messageBytes;
+
+    private final Counter spans;
+
+    private final Counter spanBytes;
+
+    private final Counter spansDropped;
+
+    private final AtomicInteger queuedSpans = new AtomicInteger();
+
+    private final AtomicInteger queuedBytes = new AtomicInteger();
+
+    public MicrometerReporterMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.messages = registry.counter("zipkin.reporter.messages", "result", "sent");
+        this.messageBytes = registry.counter("zipkin.reporter.message.bytes");
+        this.spans = registry.counter("zipkin.reporter.spans", "result", "reported");
+        this.spanBytes = registry.counter("zipkin.reporter.span.bytes");
+        this.spansDropped = registry.counter("zipkin.reporter.spans", "result", "dropped");
+        Gauge.builder("zipkin.reporter.queue.spans", this.queuedSpans, AtomicInteger::get).register(registry);
+        Gauge.builder("zipkin.reporter.queue.bytes", this.queuedBytes, AtomicInteger::get).register(registry);
+    }
+
+    @Override
+    public void incrementMessages() {
+        this.messages.increment();
+    }
+
+    @Override
+    public void incrementMessagesDropped(Throwable cause) {
+        this.registry.counter("zipkin.reporter.messages", "result", "dropped",
+                "cause", cause.getClass().getSimpleName()).increment();
+    }
+
+    @Override
+    public void incrementSpans(int quantity) {
+        this.spans.increment(quantity);
+    }
+
+    @Override
+    public void incrementSpanBytes(int quantity) {
+        this.spanBytes.increment(quantity);
+    }
+
+    @Override
+    public void incrementMessageBytes(int quantity) {
+        this.messageBytes.increment(quantity);
+    }
+
+    @Override
+    public void incrementSpansDropped(int quantity) {
+        this.spansDropped.increment(quantity);
+    }
+
+    @Override
+    public void updateQueuedSpans(int update) {
+        this.queuedSpans.set(update);
+    }
+
+    @Override
+    public void updateQueuedBytes(int update) {
+        this.queuedBytes.set(update);
+    }
+
+    public double getSpansDropped() {
+        return this.spansDropped.count();
+    }
+}
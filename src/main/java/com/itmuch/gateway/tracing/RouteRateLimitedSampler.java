@@ -0,0 +1,68 @@
+package com.itmuch.gateway.tracing;
+
+import brave.http.HttpAdapter;
+import brave.http.HttpSampler;
+import brave.sampler.RateLimitingSampler;
+import brave.sampler.Sampler;
+import com.itmuch.gateway.route.RouteIndex;
+import com.itmuch.gateway.route.RouteIndexManager;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按路由限速的入口采样器，替代固定比例的 spring.sleuth.sampler.probability
+ *
+ *  ~ 每个路由每秒最多采样 N 条链路（Brave 的 RateLimitingSampler），流量越大采样比例越低，追踪开销有上限
+ *  ~ 采样发生在路由匹配之前，这里用路由索引按路径找到第一个候选路由；没有候选路由的请求共用 default 限额
+ *  ~ 上游已经带了采样标记（X-B3-Sampled）的请求不会走到这里，沿用上游的决定
+ *  ~ 没被采样的请求如果出错或者很慢，由 TailSamplingGlobalFilter 补报一个 span
+ */
+public class RouteRateLimitedSampler extends HttpSampler {
+
+    static final String DEFAULT_ROUTE = "default";
+
+    private final ObjectProvider<RouteIndexManager> routeIndexManager;
+
+    private final int defaultTracesPerSecond;
+
+    private final Map<String, Integer> routeTracesPerSecond;
+
+    private final Map<String, Sampler> samplers = new ConcurrentHashMap<>();
+
+    public RouteRateLimitedSampler(ObjectProvider<RouteIndexManager> routeIndexManager, int defaultTracesPerSecond,
+                                   Map<String, Integer> routeTracesPerSecond) {
+        this.routeIndexManager = routeIndexManager;
+        this.defaultTracesPerSecond = defaultTracesPerSecond;
+        this.routeTracesPerSecond = routeTracesPerSecond;
+    }
+
+    @Override
+    public <Req> Boolean trySample(HttpAdapter<Req, ?> adapter, Req request) {
+        String path = adapter.path(request);
+        return sampler(path == null ? DEFAULT_ROUTE : routeId(path)).isSampled(0L);
+    }
+
+    String routeId(String path) {
+        RouteIndexManager manager = this.routeIndexManager.getIfAvailable();
+        RouteIndex index = manager == null ? null : manager.current();
+        if (index == null) {
+            return DEFAULT_ROUTE;
+        }
+        List<RouteIndex.Entry> candidates = index.candidates(path);
+        return candidates.isEmpty() ? DEFAULT_ROUTE : candidates.get(0).getRoute().getId();
+    }
+
+    private Sampler sampler(String routeId) {
+        Sampler sampler = this.samplers.get(routeId);
+        if (sampler == null) {
+            sampler = this.samplers.computeIfAbsent(routeId, id -> {
+                int rate = this.routeTracesPerSecond.getOrDefault(id, this.defaultTracesPerSecond);
+                return rate <= 0 ? Sampler.NEVER_SAMPLE : RateLimitingSampler.create(rate);
+            });
+        }
+        return sampler;
+    }
+}
@@ -0,0 +1,113 @@
+package com.itmuch.gateway.tracing;
+
+import brave.Span;
+import brave.Tracer;
+import brave.propagation.TraceContext;
+import brave.sampler.RateLimitingSampler;
+import brave.sampler.Sampler;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import zipkin2.Endpoint;
+import zipkin2.reporter.Reporter;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 尾部采样：入口没被采样的请求，出错（5xx 或异常）或者耗时超过阈值时补报一个 server span
+ *
+ *  ~ 没被采样的请求 Brave 不会记录任何 span ，这里只多了一次 System.nanoTime() ，正常请求几乎没有额外开销
+ *  ~ 补报的 span 使用当前链路的 traceId / spanId ，标签 sampling=error 或 slow ，可以在 Zipkin 中按标签查询
+ *  ~ 补报也有每秒上限，故障期间大量出错的请求不会把上报队列挤满
+ */
+public class TailSamplingGlobalFilter implements GlobalFilter, Ordered {
+
+    private final Tracer tracer;
+
+    private final Reporter<zipkin2.Span> reporter;
+
+    private final Endpoint localEndpoint;
+
+    private final long slowThresholdNanos;
+
+    private final Sampler limiter;
+
+    public TailSamplingGlobalFilter(Tracer tracer, Reporter<zipkin2.Span> reporter, String serviceName,
+                                    long slowThresholdMillis, int tailTracesPerSecond) {
+        this.tracer = tracer;
+        this.reporter = reporter;
+        this.localEndpoint = Endpoint.newBuilder().serviceName(serviceName).build();
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.limiter = tailTracesPerSecond <= 0 ? Sampler.NEVER_SAMPLE : RateLimitingSampler.create(tailTracesPerSecond);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Span span = this.tracer.currentSpan();
+        if (span == null || !span.isNoop()) {
+            return chain.filter(exchange);
+        }
+        TraceContext context = span.context();
+        long startMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(v -> finish(exchange, context, startMicros, start, null))
+                .doOnError(ex -> finish(exchange, context, startMicros, start, ex));
+    }
+
+    private void finish(ServerWebExchange exchange, TraceContext context, long startMicros, long start, Throwable ex) {
+        long elapsed = System.nanoTime() - start;
+        HttpStatus status = exchange.getResponse().getStatusCode();
+        boolean error = ex != null || (status != null && status.is5xxServerError());
+        if (!error && elapsed < this.slowThresholdNanos) {
+            return;
+        }
+        if (!this.limiter.isSampled(context.traceId())) {
+            return;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        zipkin2.Span.Builder builder = zipkin2.Span.newBuilder()
+                .traceId(context.traceIdHigh(), context.traceId())
+                .id(context.spanId())
+                .kind(zipkin2.Span.Kind.SERVER)
+                .name(request.getMethodValue().toLowerCase(Locale.ROOT))
+                .timestamp(startMicros)
+                .duration(Math.max(1L, TimeUnit.NANOSECONDS.toMicros(elapsed)))
+                .localEndpoint(this.localEndpoint)
+                .putTag("http.method", request.getMethodValue())
+                .putTag("http.path", request.getPath().value())
+                .putTag("sampling", error ? "error" : "slow");
+        Long parentId = context.parentId();
+        if (parentId != null) {
+            builder.parentId(parentId);
+        }
+        if (status != null) {
+            builder.putTag("http.status_code", String.valueOf(status.value()));
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route != null) {
+            builder.putTag("gateway.route", route.getId());
+        }
+        if (ex != null) {
+            builder.putTag("error", ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage());
+        } else if (error) {
+            builder.putTag("error", String.valueOf(status.value()));
+        }
+        this.reporter.report(builder.build());
+    }
+
+    /**
+     * 在所有过滤器之前开始计时，耗时包含整个过滤器链
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,157 @@
+package com.itmuch.gateway.upstream;
+
+import com.itmuch.gateway.config.UpstreamPoolProperties;
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * 按路由使用独立连接池转发请求
+ *
+ *  ~ Order 比 NettyRoutingFilter 小 1 ：配置了连接池的路由由对应配置档的 NettyRoutingFilter 转发并标记为已转发，
+ *      全局的 NettyRoutingFilter 随后直接跳过；其他路由不受影响
+ *  ~ 在途请求数超过"最大连接数 + 等待上限"时直接返回 503 ，不进入连接池排队
+ *      （在途请求从进入连接池算起，到收到上游响应头为止）
+ *  ~ 应用启动完成后按配置档的 warmup-connections 预热每个上游实例：默认只建立 TCP 连接（DNS 、握手路径），不发送请求；
+ *      配置了 warmup-path 时向该路径发送 GET 请求，建立的连接留在连接池中（路径应当是上游的健康检查等无副作用的接口）
+ */
+@Slf4j
+public class RoutePoolRoutingFilter
+        implements GlobalFilter, Ordered, DisposableBean, ApplicationListener<ApplicationReadyEvent> {
+
+    private final Map<String, UpstreamPool> routePools;
+
+    private final RouteDefinitionLocator routeDefinitionLocator;
+
+    private final ObjectProvider<ServiceInstanceCache> instanceCache;
+
+    public RoutePoolRoutingFilter(UpstreamPoolProperties properties,
+                                  HttpClientProperties httpClientProperties,
+                                  ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                  RouteDefinitionLocator routeDefinitionLocator,
+                                  ObjectProvider<ServiceInstanceCache> instanceCache) {
+        Map<String, UpstreamPool> pools = new HashMap<>();
+        properties.getProfiles().forEach((name, profile) ->
+                pools.put(name, new UpstreamPool(name, profile, httpClientProperties, headersFilters)));
+        Map<String, UpstreamPool> routePools = new HashMap<>();
+        properties.getRoutes().forEach((routeId, profileName) -> {
+            UpstreamPool pool = pools.get(profileName);
+            if (pool == null) {
+                throw new IllegalArgumentException(
+                        "Unknown upstream pool profile " + profileName + " for route " + routeId);
+            }
+            routePools.put(routeId, pool);
+        });
+        this.routePools = Collections.unmodifiableMap(routePools);
+        this.routeDefinitionLocator = routeDefinitionLocator;
+        this.instanceCache = instanceCache;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || isAlreadyRouted(exchange)) {
+            return chain.filter(exchange);
+        }
+        UpstreamPool pool = this.routePools.get(route.getId());
+        if (pool == null) {
+            return chain.filter(exchange);
+        }
+        if (!pool.tryAcquire()) {
+            setAlreadyRouted(exchange);
+            setResponseStatus(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        }
+        return pool.getRoutingFilter().filter(exchange, chain)
+                .doFinally(signal -> pool.release());
+    }
+
+    @Override
+    public int getOrder() {
+        // NettyRoutingFilter 的 Order 为 LOWEST_PRECEDENCE
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        this.routeDefinitionLocator.getRouteDefinitions()
+                .filter(definition -> this.routePools.containsKey(definition.getId()))
+                .flatMap(this::warmUp)
+                .subscribe(null, error -> log.warn("Error warming up upstream pools", error));
+    }
+
+    private Flux<Void> warmUp(RouteDefinition definition) {
+        UpstreamPool pool = this.routePools.get(definition.getId());
+        UpstreamPoolProperties.Profile profile = pool.getProfile();
+        if (profile.getWarmupConnections() <= 0) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(targets(definition.getUri()))
+                .flatMap(target -> Flux.range(0, profile.getWarmupConnections())
+                        .flatMap(i -> warmUp(pool, target)
+                                .onErrorResume(error -> {
+                                    log.debug("Warm-up request to {} failed", target, error);
+                                    return Mono.empty();
+                                })))
+                .doOnComplete(() -> log.info("Upstream pool {} warmed up for route {}",
+                        pool.getName(), definition.getId()));
+    }
+
+    private static Mono<Void> warmUp(UpstreamPool pool, URI target) {
+        String path = pool.getProfile().getWarmupPath();
+        if (!StringUtils.hasText(path)) {
+            return pool.connect(target);
+        }
+        return pool.getHttpClient().get()
+                .uri(target.resolve(path).toString())
+                .responseContent()
+                .then();
+    }
+
+    private List<URI> targets(URI uri) {
+        if (!"lb".equals(uri.getScheme())) {
+            return Collections.singletonList(uri);
+        }
+        ServiceInstanceCache cache = this.instanceCache.getIfAvailable();
+        if (cache == null) {
+            return Collections.emptyList();
+        }
+        return cache.getInstances(uri.getHost()).stream()
+                .map(ServiceInstance::getUri)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void destroy() {
+        this.routePools.values().stream().distinct().forEach(UpstreamPool::dispose);
+    }
+}
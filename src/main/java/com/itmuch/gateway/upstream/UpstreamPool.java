@@ -0,0 +1,205 @@
+package com.itmuch.gateway.upstream;
+
+import com.itmuch.gateway.config.UpstreamPoolProperties;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.ProxyProvider;
+import reactor.netty.tcp.TcpClient;
+
+import java.net.URI;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个连接池配置档对应的 HttpClient 、连接池与转发过滤器
+ *
+ *  ~ 独立的 ConnectionProvider ：某个上游连接耗尽、排队时，不影响其他配置档的路由
+ *  ~ 连接超时、代理、SSL 与全局的 spring.cloud.gateway.httpclient 一致（与 GatewayAutoConfiguration 创建 HttpClient 的方式相同），
+ *      配置档中的 connect-timeout-millis 可以单独覆盖连接超时
+ *  ~ 等待连接的请求数上限：reactor-netty 0.8 的连接池没有该参数，这里按"在途请求数 > 最大连接数 + 等待上限"在进入连接池前拒绝
+ *  ~ 空闲连接回收：reactor-netty 0.8 的连接池不支持空闲淘汰，连接归还到连接池（RELEASED）时在 pipeline 上加 IdleStateHandler ，
+ *      再次被取出（ACQUIRED）时移除；只有留在池中空闲超过 idleTimeout 的连接会被关闭，正在使用的长请求不受影响
+ */
+final class UpstreamPool {
+
+    private static final String IDLE_HANDLER = "gateway.upstream.idle";
+
+    private final String name;
+
+    private final UpstreamPoolProperties.Profile profile;
+
+    private final ConnectionProvider connectionProvider;
+
+    private final HttpClient httpClient;
+
+    private final TcpClient warmupClient;
+
+    private final NettyRoutingFilter routingFilter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final int limit;
+
+    UpstreamPool(String name, UpstreamPoolProperties.Profile profile, HttpClientProperties properties,
+                 ObjectProvider<List<HttpHeadersFilter>> headersFilters) {
+        this.name = name;
+        this.profile = profile;
+        this.connectionProvider = ConnectionProvider.fixed("upstream-" + name,
+                profile.getMaxConnections(), profile.getAcquireTimeoutMillis());
+        this.httpClient = httpClient(this.connectionProvider, profile, properties);
+        this.warmupClient = tcpClient(TcpClient.newConnection(), profile, properties);
+        this.routingFilter = new NettyRoutingFilter(this.httpClient, headersFilters, properties);
+        this.limit = profile.getMaxPendingAcquire() < 0
+                ? Integer.MAX_VALUE : profile.getMaxConnections() + profile.getMaxPendingAcquire();
+    }
+
+    static HttpClient httpClient(ConnectionProvider connectionProvider, UpstreamPoolProperties.Profile profile,
+                                 HttpClientProperties properties) {
+        long idleTimeout = profile.getIdleTimeoutMillis();
+        HttpClient httpClient = HttpClient.create(connectionProvider).tcpConfiguration(tcpClient -> {
+            tcpClient = tcpClient(tcpClient, profile, properties);
+            if (idleTimeout > 0) {
+                tcpClient = tcpClient.observe((connection, state) -> {
+                    if (state == ConnectionObserver.State.RELEASED) {
+                        idle(connection.channel(), idleTimeout);
+                    } else if (state == ConnectionObserver.State.ACQUIRED) {
+                        busy(connection.channel());
+                    }
+                });
+            }
+            return tcpClient;
+        });
+        return secure(httpClient, properties.getSsl());
+    }
+
+    /**
+     * 连接超时与代理
+     */
+    private static TcpClient tcpClient(TcpClient tcpClient, UpstreamPoolProperties.Profile profile,
+                                       HttpClientProperties properties) {
+        Integer connectTimeout = profile.getConnectTimeoutMillis() != null
+                ? profile.getConnectTimeoutMillis() : properties.getConnectTimeout();
+        if (connectTimeout != null) {
+            tcpClient = tcpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
+        }
+        HttpClientProperties.Proxy proxy = properties.getProxy();
+        if (StringUtils.hasText(proxy.getHost())) {
+            tcpClient = tcpClient.proxy(proxySpec -> {
+                ProxyProvider.Builder builder = proxySpec.type(ProxyProvider.Proxy.HTTP).host(proxy.getHost());
+                PropertyMapper map = PropertyMapper.get();
+                map.from(proxy::getPort).whenNonNull().to(builder::port);
+                map.from(proxy::getUsername).whenHasText().to(builder::username);
+                map.from(proxy::getPassword).whenHasText().to(password -> builder.password(s -> password));
+                map.from(proxy::getNonProxyHostsPattern).whenHasText().to(builder::nonProxyHosts);
+            });
+        }
+        return tcpClient;
+    }
+
+    private static HttpClient secure(HttpClient httpClient, HttpClientProperties.Ssl ssl) {
+        X509Certificate[] trusted = ssl.getTrustedX509CertificatesForTrustManager();
+        if (trusted.length == 0 && !ssl.isUseInsecureTrustManager()) {
+            return httpClient;
+        }
+        return httpClient.secure(sslContextSpec -> {
+            SslContextBuilder sslContextBuilder = SslContextBuilder.forClient();
+            if (trusted.length > 0) {
+                sslContextBuilder.trustManager(trusted);
+            } else {
+                sslContextBuilder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+            }
+            sslContextSpec.sslContext(sslContextBuilder)
+                    .defaultConfiguration(ssl.getDefaultConfigurationType())
+                    .handshakeTimeout(ssl.getHandshakeTimeout())
+                    .closeNotifyFlushTimeout(ssl.getCloseNotifyFlushTimeout())
+                    .closeNotifyReadTimeout(ssl.getCloseNotifyReadTimeout());
+        });
+    }
+
+    private static void idle(Channel channel, long idleTimeout) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (channel.isActive() && pipeline.get(IDLE_HANDLER) == null) {
+            pipeline.addFirst(IDLE_HANDLER, new CloseOnIdleHandler(idleTimeout));
+        }
+    }
+
+    private static void busy(Channel channel) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.get(IDLE_HANDLER) != null) {
+            pipeline.remove(IDLE_HANDLER);
+        }
+    }
+
+    /**
+     * 只建立 TCP 连接后立即关闭，不发送任何请求
+     */
+    Mono<Void> connect(URI target) {
+        int port = target.getPort() > 0 ? target.getPort() : "https".equals(target.getScheme()) ? 443 : 80;
+        return this.warmupClient.host(target.getHost()).port(port).connect()
+                .doOnNext(Connection::dispose)
+                .then();
+    }
+
+    boolean tryAcquire() {
+        if (this.inFlight.incrementAndGet() > this.limit) {
+            this.inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        this.inFlight.decrementAndGet();
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    UpstreamPoolProperties.Profile getProfile() {
+        return this.profile;
+    }
+
+    HttpClient getHttpClient() {
+        return this.httpClient;
+    }
+
+    NettyRoutingFilter getRoutingFilter() {
+        return this.routingFilter;
+    }
+
+    void dispose() {
+        this.connectionProvider.dispose();
+    }
+
+    private static final class CloseOnIdleHandler extends IdleStateHandler {
+
+        private CloseOnIdleHandler(long idleTimeout) {
+            super(0, 0, idleTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) {
+            ctx.close();
+        }
+    }
+}
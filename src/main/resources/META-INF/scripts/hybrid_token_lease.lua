@@ -0,0 +1,41 @@
+-- 批量租借令牌：一次调用处理多个 key
+-- KEYS: 每个 key 占两个位置 tokens_key, timestamp_key
+-- ARGV[1]: 当前时间（毫秒）
+-- ARGV[2 + (i-1)*3 .. 4 + (i-1)*3]: 第 i 个 key 的 rate（每秒）, capacity, requested
+-- 返回：每个 key 实际租到的令牌数（可能小于 requested）
+local now = tonumber(ARGV[1])
+local results = {}
+local n = #KEYS / 2
+
+for i = 1, n do
+  local tokens_key = KEYS[2 * i - 1]
+  local timestamp_key = KEYS[2 * i]
+  local base = 1 + (i - 1) * 3
+  local rate = tonumber(ARGV[base + 1])
+  local capacity = tonumber(ARGV[base + 2])
+  local requested = tonumber(ARGV[base + 3])
+
+  local fill_time = capacity / rate
+  local ttl = math.floor(fill_time * 2) + 1
+
+  local last_tokens = tonumber(redis.call("get", tokens_key))
+  if last_tokens == nil then
+    last_tokens = capacity
+  end
+
+  local last_refreshed = tonumber(redis.call("get", timestamp_key))
+  if last_refreshed == nil then
+    last_refreshed = 0
+  end
+
+  local delta = math.max(0, now - last_refreshed)
+  local filled_tokens = math.min(capacity, last_tokens + (delta * rate / 1000))
+  local granted = math.min(requested, math.floor(filled_tokens))
+
+  redis.call("setex", tokens_key, ttl, filled_tokens - granted)
+  redis.call("setex", timestamp_key, ttl, now)
+
+  results[i] = granted
+end
+
+return results
@@ -0,0 +1,143 @@
+package com.itmuch.gateway;
+
+import com.itmuch.gateway.support.SharesPayload;
+import com.itmuch.gateway.config.PreLogProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractNameValueGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 自定义过滤器单独执行一次的耗时（包含上游写出响应体），以直接透传（none）和内置的 AddRequestHeader 作为参照
+ *
+ *  ~ 过滤器通过各自的工厂和默认配置创建，与 application.yml 中的用法一致
+ *  ~ 上游固定返回 20 条分享的 JSON（约 8KB），请求带 Accept-Encoding: gzip ；每次调用使用新的 exchange
+ *  ~ PreLog 使用生产配置（ASYNC）；ResponseCache 除第一次外都是命中；StreamingBody 是没有请求体的 GET
+ *  ~ Hedge 需要负载均衡后的实例、Jwt 需要 JWKS ，分别见 HedgingFilterTests 和 JwtBenchmark
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GatewayFilterBenchmark {
+
+    private static final Route ROUTE = Route.async()
+            .id("content-center-id")
+            .uri(URI.create("lb://content-center"))
+            .order(0)
+            .asyncPredicate(exchange -> Mono.just(true))
+            .build();
+
+    @Param({"none", "AddRequestHeader", "PreLog", "ConcurrencyLimit", "StreamingBody", "ResponseCache", "Compress"})
+    public String filter;
+
+    private byte[] body;
+
+    private PreLogGatewayFilterFactory preLog;
+
+    private GatewayFilter gatewayFilter;
+
+    private GatewayFilterChain upstream;
+
+    @Setup
+    public void setUp() {
+        this.body = SharesPayload.json(20);
+        this.upstream = exchange -> {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(this.body.length);
+            return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(this.body)));
+        };
+        this.gatewayFilter = create(this.filter);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (this.preLog != null) {
+            this.preLog.destroy();
+        }
+    }
+
+    @Benchmark
+    public Object filter() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/shares/1")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        this.gatewayFilter.filter(exchange, this.upstream).block();
+        return exchange.getResponse().getStatusCode();
+    }
+
+    private GatewayFilter create(String name) {
+        switch (name) {
+            case "none":
+                return (exchange, chain) -> chain.filter(exchange);
+            case "AddRequestHeader":
+                AddRequestHeaderGatewayFilterFactory addRequestHeader = new AddRequestHeaderGatewayFilterFactory();
+                return addRequestHeader.apply(nameValue(addRequestHeader.newConfig(), "X-Request-Foo", "Bar"));
+            case "PreLog":
+                PreLogProperties properties = new PreLogProperties();
+                properties.setMode(PreLogProperties.Mode.ASYNC);
+                this.preLog = new PreLogGatewayFilterFactory(properties);
+                return this.preLog.apply(nameValue(this.preLog.newConfig(), "aa", "bb"));
+            case "ConcurrencyLimit":
+                ConcurrencyLimitGatewayFilterFactory concurrencyLimit = new ConcurrencyLimitGatewayFilterFactory();
+                return concurrencyLimit.apply(concurrencyLimit.newConfig());
+            case "StreamingBody":
+                StreamingBodyGatewayFilterFactory streamingBody = new StreamingBodyGatewayFilterFactory();
+                return streamingBody.apply(streamingBody.newConfig());
+            case "ResponseCache":
+                ResponseCacheGatewayFilterFactory responseCache = new ResponseCacheGatewayFilterFactory();
+                return responseCache.apply(responseCache.newConfig());
+            case "Compress":
+                CompressGatewayFilterFactory compress = new CompressGatewayFilterFactory();
+                return compress.apply(compress.newConfig());
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    private static <C extends AbstractNameValueGatewayFilterFactory.NameValueConfig> C nameValue(
+            C config, String name, String value) {
+        config.setName(name);
+        config.setValue(value);
+        return config;
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        JmhRunner.run(GatewayFilterBenchmark.class);
+    }
+}
@@ -0,0 +1,35 @@
+package com.itmuch.gateway;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+/**
+ * 在测试中启动 JMH ，供 @Tag("benchmark") 的测试方法调用（mvn test -P benchmark）
+ */
+public final class JmhRunner {
+
+    private JmhRunner() {
+    }
+
+    public static Collection<RunResult> run(Class<?> benchmark) throws RunnerException {
+        return new Runner(new OptionsBuilder()
+                .include(benchmark.getName())
+                .shouldFailOnError(true)
+                .build()).run();
+    }
+
+    /**
+     * 指定并发线程数，覆盖 benchmark 上的 @Threads ，用于测量随核数的扩展性
+     */
+    public static Collection<RunResult> run(Class<?> benchmark, int threads) throws RunnerException {
+        return new Runner(new OptionsBuilder()
+                .include(benchmark.getName())
+                .threads(threads)
+                .shouldFailOnError(true)
+                .build()).run();
+    }
+}
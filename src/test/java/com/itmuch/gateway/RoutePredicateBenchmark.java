@@ -0,0 +1,97 @@
+package com.itmuch.gateway;
+
+import com.itmuch.gateway.timewindow.CoarseClock;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 自定义谓词每次匹配的耗时，以内置的 Path 谓词作为参照
+ *
+ *  ~ TimeBetween ：简写形式（- TimeBetween=上午0:00,下午11:59）
+ *  ~ TimeBetweenWindows ：完整形式，两个时间段（其中一个跨午夜）、工作日、指定时区
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePredicateBenchmark {
+
+    @Param({"Path", "TimeBetween", "TimeBetweenWindows"})
+    public String predicate;
+
+    private CoarseClock clock;
+
+    private Predicate<ServerWebExchange> test;
+
+    private ServerWebExchange exchange;
+
+    @Setup
+    public void setUp() {
+        this.clock = new CoarseClock(10);
+        TimeBetweenRoutePredicateFactory timeBetween = new TimeBetweenRoutePredicateFactory(this.clock);
+        switch (this.predicate) {
+            case "Path":
+                PathRoutePredicateFactory.Config path = new PathRoutePredicateFactory.Config();
+                path.setPatterns(Arrays.asList("/shares/**", "/admin/**"));
+                this.test = new PathRoutePredicateFactory().apply(path);
+                break;
+            case "TimeBetween":
+                TimeBetweenConfig shortcut = new TimeBetweenConfig();
+                shortcut.setStart(LocalTime.of(0, 0));
+                shortcut.setEnd(LocalTime.of(23, 59));
+                this.test = timeBetween.apply(shortcut);
+                break;
+            default:
+                TimeBetweenConfig windows = new TimeBetweenConfig();
+                windows.setWindows(Arrays.asList("09:00-12:00", "22:00-02:00"));
+                windows.setDays(EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY));
+                windows.setZone(ZoneId.of("Asia/Shanghai"));
+                this.test = timeBetween.apply(windows);
+        }
+        this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/shares/1"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.clock.destroy();
+    }
+
+    @Benchmark
+    public boolean test() {
+        return this.test.test(this.exchange);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        JmhRunner.run(RoutePredicateBenchmark.class);
+    }
+}
@@ -0,0 +1,79 @@
+package com.itmuch.gateway.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncAccessLoggerTests {
+
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+
+    @Test
+    void recordsAreFormattedAsKeyValuePairs() {
+        AccessLogRecord record = new AccessLogRecord("user-center-id", "GET", "/users/1", 200, 1500L, 42L, "a", "b");
+
+        assertEquals("route=user-center-id method=GET path=/users/1 status=200 latencyMicros=1500 bytes=42 name=a value=b",
+                AsyncAccessLogger.format(record));
+    }
+
+    @Test
+    void fullBufferDropsAndCounts() throws InterruptedException {
+        CountDownLatch draining = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncAccessLogger logger = new AsyncAccessLogger(2, line -> {
+            draining.countDown();
+            await(release);
+            this.lines.add(line);
+        });
+
+        // 第一条被后台线程取走后卡在输出上，之后缓冲区只能再放 2 条
+        assertTrue(logger.submit(record(0)));
+        assertTrue(draining.await(5, TimeUnit.SECONDS));
+        assertTrue(logger.submit(record(1)));
+        assertTrue(logger.submit(record(2)));
+        assertFalse(logger.submit(record(3)));
+        assertEquals(1L, logger.getDropped());
+
+        release.countDown();
+        logger.destroy();
+        assertEquals(3L, logger.getWritten());
+    }
+
+    @Test
+    void destroyFlushesBufferedRecords() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncAccessLogger logger = new AsyncAccessLogger(64, line -> {
+            await(release);
+            this.lines.add(line);
+        });
+        for (int i = 0; i < 10; i++) {
+            assertTrue(logger.submit(record(i)));
+        }
+
+        release.countDown();
+        logger.destroy();
+
+        assertEquals(10, this.lines.size());
+        assertTrue(this.lines.get(9).contains("path=/users/9"));
+        assertEquals(0L, logger.getDropped());
+    }
+
+    private static AccessLogRecord record(int i) {
+        return new AccessLogRecord("user-center-id", "GET", "/users/" + i, 200, 10L, -1L, "a", "b");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
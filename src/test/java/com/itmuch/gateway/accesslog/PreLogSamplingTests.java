@@ -0,0 +1,82 @@
+package com.itmuch.gateway.accesslog;
+
+import com.itmuch.gateway.PreLogGatewayFilterFactory;
+import com.itmuch.gateway.config.PreLogProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreLogSamplingTests {
+
+    private static final int REQUESTS = 2000;
+
+    private final GatewayFilterChain chain = exchange -> Mono.empty();
+
+    private PreLogGatewayFilterFactory factory;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        this.factory.destroy();
+    }
+
+    @Test
+    void routeSampleRateOverridesDefault() throws InterruptedException {
+        this.factory = factory(1.0D);
+
+        serve(filter(0.0D));
+        this.factory.destroy();
+
+        assertEquals(0L, this.factory.getWrittenRecords());
+    }
+
+    @Test
+    void defaultSampleRateRecordsEverything() throws InterruptedException {
+        this.factory = factory(1.0D);
+
+        serve(filter(null));
+        this.factory.destroy();
+
+        assertEquals(REQUESTS, this.factory.getWrittenRecords());
+    }
+
+    @Test
+    void partialSampleRateRecordsAFraction() throws InterruptedException {
+        this.factory = factory(1.0D);
+
+        serve(filter(0.25D));
+        this.factory.destroy();
+
+        long written = this.factory.getWrittenRecords();
+        assertTrue(written > REQUESTS * 0.15D && written < REQUESTS * 0.35D, "written " + written);
+        assertEquals(0L, this.factory.getDroppedRecords());
+    }
+
+    private PreLogGatewayFilterFactory factory(double sampleRate) {
+        PreLogProperties properties = new PreLogProperties();
+        properties.setMode(PreLogProperties.Mode.ASYNC);
+        properties.setBufferSize(REQUESTS * 2);
+        properties.setSampleRate(sampleRate);
+        return new PreLogGatewayFilterFactory(properties);
+    }
+
+    private GatewayFilter filter(Double sampleRate) {
+        PreLogGatewayFilterFactory.Config config = new PreLogGatewayFilterFactory.Config();
+        config.setName("a");
+        config.setValue("b");
+        config.setSampleRate(sampleRate);
+        return this.factory.apply(config);
+    }
+
+    private void serve(GatewayFilter filter) {
+        for (int i = 0; i < REQUESTS; i++) {
+            filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/users/" + i)), this.chain).block();
+        }
+    }
+}
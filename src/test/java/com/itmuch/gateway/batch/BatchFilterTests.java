@@ -0,0 +1,194 @@
+package com.itmuch.gateway.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.Connection;
+import reactor.netty.NettyInbound;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+
+class BatchFilterTests {
+
+    private final List<String> upstreamCalls = new CopyOnWriteArrayList<>();
+
+    private final BatchFilter filter = new BatchFilter(new BatchFilter.Settings("/users/{id}", "/users", "ids", "id",
+            32, Duration.ofMillis(50), Collections.emptyList(), Duration.ofSeconds(5)), new ObjectMapper());
+
+    @Test
+    void concurrentLookupsAreSentAsOneBatch() {
+        MockServerWebExchange first = get("/users/1");
+        MockServerWebExchange second = get("/users/2");
+        MockServerWebExchange third = get("/users/3");
+        GatewayFilterChain upstream = upstream();
+
+        Mono.when(this.filter.filter(first, upstream), this.filter.filter(second, upstream),
+                this.filter.filter(third, upstream)).block();
+
+        assertEquals(Collections.singletonList("/users?ids=1,2,3"), this.upstreamCalls);
+        assertEquals("{\"id\":1,\"name\":\"user-1\"}", first.getResponse().getBodyAsString().block());
+        assertEquals("{\"id\":2,\"name\":\"user-2\"}", second.getResponse().getBodyAsString().block());
+        assertEquals("{\"id\":3,\"name\":\"user-3\"}", third.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void identicalIdsAreQueriedOnce() {
+        MockServerWebExchange first = get("/users/7");
+        MockServerWebExchange second = get("/users/7");
+        MockServerWebExchange third = get("/users/8");
+        GatewayFilterChain upstream = upstream();
+
+        Mono.when(this.filter.filter(first, upstream), this.filter.filter(second, upstream),
+                this.filter.filter(third, upstream)).block();
+
+        assertEquals(Collections.singletonList("/users?ids=7,8"), this.upstreamCalls);
+        assertEquals("{\"id\":7,\"name\":\"user-7\"}", second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void missingIdFallsBackToSingleRequest() {
+        MockServerWebExchange found = get("/users/1");
+        MockServerWebExchange missing = get("/users/404");
+        GatewayFilterChain upstream = upstream();
+
+        Mono.when(this.filter.filter(found, upstream), this.filter.filter(missing, upstream)).block();
+
+        assertEquals(Arrays.asList("/users?ids=1,404", "/users/404"), this.upstreamCalls);
+        assertEquals(HttpStatus.NOT_FOUND, missing.getResponse().getStatusCode());
+    }
+
+    @Test
+    void singleLookupIsForwardedUnchanged() {
+        MockServerWebExchange only = get("/users/5");
+
+        this.filter.filter(only, upstream()).block();
+
+        assertEquals(Collections.singletonList("/users/5"), this.upstreamCalls);
+        assertEquals("{\"id\":5,\"name\":\"user-5\"}", only.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void batchResponseIsReadFromTheUpstreamConnection() {
+        MockServerWebExchange first = get("/users/1");
+        MockServerWebExchange second = get("/users/2");
+        Connection connection = connection(Flux.just("[" + user("1") + ",", user("2") + "]"));
+
+        Mono.when(this.filter.filter(first, nettyUpstream(connection)),
+                this.filter.filter(second, nettyUpstream(connection))).block();
+
+        assertEquals(Collections.singletonList("/users?ids=1,2"), this.upstreamCalls);
+        assertEquals("{\"id\":1,\"name\":\"user-1\"}", first.getResponse().getBodyAsString().block());
+        assertEquals("{\"id\":2,\"name\":\"user-2\"}", second.getResponse().getBodyAsString().block());
+        // 读完的连接由 reactor-netty 放回连接池，不能关闭
+        verify(connection, never()).dispose();
+    }
+
+    @Test
+    void brokenBatchResponseClosesTheConnection() {
+        MockServerWebExchange first = get("/users/1");
+        MockServerWebExchange second = get("/users/2");
+        Connection connection = connection(Flux.concat(Flux.just("[" + user("1")),
+                Flux.<String>error(new IOException("Connection reset by peer"))));
+
+        Mono.when(this.filter.filter(first, nettyUpstream(connection)),
+                this.filter.filter(second, nettyUpstream(connection))).block();
+
+        verify(connection).dispose();
+        assertEquals(Arrays.asList("/users/1", "/users/2", "/users?ids=1,2"), sorted(this.upstreamCalls));
+        assertEquals("{\"id\":2,\"name\":\"user-2\"}", second.getResponse().getBodyAsString().block());
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    /**
+     * 模拟用户中心：GET /users?ids=... 返回数组（跳过 404），GET /users/{id} 返回单个用户
+     */
+    private GatewayFilterChain upstream() {
+        return exchange -> Mono.defer(() -> {
+            String path = exchange.getRequest().getURI().getRawPath();
+            String ids = exchange.getRequest().getQueryParams().getFirst("ids");
+            this.upstreamCalls.add(ids == null ? path : path + "?ids=" + ids);
+            ServerHttpResponse response = exchange.getResponse();
+            String body;
+            if (ids != null) {
+                StringJoiner users = new StringJoiner(",", "[", "]");
+                for (String id : ids.split(",")) {
+                    if (!"404".equals(id)) {
+                        users.add(user(id));
+                    }
+                }
+                body = users.toString();
+            } else if (path.endsWith("/404")) {
+                response.setStatusCode(HttpStatus.NOT_FOUND);
+                return response.setComplete();
+            } else {
+                body = user(path.substring(path.lastIndexOf('/') + 1));
+            }
+            response.setStatusCode(HttpStatus.OK);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+        });
+    }
+
+    /**
+     * 模拟 NettyRoutingFilter ：批量请求只设置状态码并把连接放进 CLIENT_RESPONSE_CONN_ATTR ，不写响应体；
+     * 单个请求（各自转发）照常写出
+     */
+    private GatewayFilterChain nettyUpstream(Connection connection) {
+        GatewayFilterChain single = upstream();
+        return exchange -> Mono.defer(() -> {
+            String ids = exchange.getRequest().getQueryParams().getFirst("ids");
+            if (ids == null) {
+                return single.filter(exchange);
+            }
+            this.upstreamCalls.add(exchange.getRequest().getURI().getRawPath() + "?ids=" + ids);
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getAttributes().put(CLIENT_RESPONSE_CONN_ATTR, connection);
+            return Mono.empty();
+        });
+    }
+
+    private static Connection connection(Flux<String> body) {
+        Connection connection = mock(Connection.class);
+        NettyInbound inbound = mock(NettyInbound.class);
+        when(connection.inbound()).thenReturn(inbound);
+        when(inbound.receive()).thenReturn(ByteBufFlux.fromInbound(
+                body.map(chunk -> Unpooled.copiedBuffer(chunk, StandardCharsets.UTF_8))));
+        return connection;
+    }
+
+    private static List<String> sorted(List<String> calls) {
+        List<String> sorted = new ArrayList<>(calls);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static String user(String id) {
+        return "{\"id\":" + id + ",\"name\":\"user-" + id + "\"}";
+    }
+}
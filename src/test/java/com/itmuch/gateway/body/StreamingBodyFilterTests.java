@@ -0,0 +1,168 @@
+package com.itmuch.gateway.body;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingBodyFilterTests {
+
+    private static final String JSON = "{\"items\":[{\"userId\":\"nested\"}],\"note\":\"a \\\"quoted\\\" \\u4e2d\\u6587\","
+            + "\"order\":{\"tenantId\":\"t-\\u00e9\",\"total\":12.5e1},\"userId\":42,\"tail\":\"" + repeat('x', 4096) + "\"}";
+
+    private final DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private Flux<DataBuffer> chunks(String text, int chunkSize) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize).map(i -> this.factory.wrap(
+                Arrays.copyOfRange(bytes, i * chunkSize, Math.min(bytes.length, (i + 1) * chunkSize))));
+    }
+
+    private MockServerWebExchange exchange(String body, HttpHeaders extra) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/shares")
+                .header(HttpHeaders.TRANSFER_ENCODING, "chunked")
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(extra)
+                .body(chunks(body, 7)));
+    }
+
+    @Test
+    void scannerSurvivesAnySplit() {
+        byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+        JsonFieldScanner scanner = new JsonFieldScanner(Arrays.asList("userId", "order.tenantId", "order.total", "note"));
+        for (byte b : bytes) {
+            scanner.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+        assertTrue(scanner.isDone());
+        assertFalse(scanner.isFailed());
+        Map<String, String> values = scanner.getValues();
+        assertEquals("42", values.get("userId"));
+        assertEquals("t-é", values.get("order.tenantId"));
+        assertEquals("12.5e1", values.get("order.total"));
+        assertEquals("a \"quoted\" 中文", values.get("note"));
+    }
+
+    @Test
+    void forwardsBodyAndExtractedFields() {
+        StreamingBodyFilter filter = new StreamingBodyFilter(1024 * 1024, Arrays.asList("userId", "order.tenantId"),
+                16 * 1024, Collections.singletonMap("order.tenantId", "X-Tenant-Id"), null);
+        MockServerWebExchange exchange = exchange(JSON, new HttpHeaders());
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        AtomicReference<String> body = new AtomicReference<>();
+        GatewayFilterChain chain = e -> {
+            forwarded.set(e);
+            return DataBufferUtils.join(e.getRequest().getBody()).doOnNext(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                body.set(new String(bytes, StandardCharsets.UTF_8));
+                DataBufferUtils.release(joined);
+            }).then();
+        };
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(JSON, body.get());
+        assertEquals("t-é", forwarded.get().getRequest().getHeaders().getFirst("X-Tenant-Id"));
+        Map<String, String> fields = exchange.getAttribute(StreamingBodyFilter.BODY_FIELDS_ATTR);
+        assertEquals("42", fields.get("userId"));
+        assertNull(exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void rejectsOversizedAndCorruptedBodies() {
+        GatewayFilterChain chain = e -> DataBufferUtils.join(e.getRequest().getBody())
+                .doOnNext(DataBufferUtils::release).then();
+
+        MockServerWebExchange tooLarge = exchange(JSON, new HttpHeaders());
+        new StreamingBodyFilter(1024, Collections.emptyList(), 0, Collections.emptyMap(), null)
+                .filter(tooLarge, chain).block();
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tooLarge.getResponse().getStatusCode());
+
+        CRC32 crc = new CRC32();
+        crc.update(JSON.getBytes(StandardCharsets.UTF_8));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Content-CRC32", Long.toHexString(crc.getValue() ^ 1));
+        MockServerWebExchange corrupted = exchange(JSON, headers);
+        new StreamingBodyFilter(1024 * 1024, Collections.singletonList("userId"), 16, Collections.emptyMap(),
+                "X-Content-CRC32").filter(corrupted, chain).block();
+        assertEquals(HttpStatus.BAD_REQUEST, corrupted.getResponse().getStatusCode());
+    }
+
+    @Test
+    void lastChunkIsHeldUntilChecksumPasses() {
+        byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+        int lastChunk = bytes.length % 7 == 0 ? 7 : bytes.length % 7;
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        AtomicLong received = new AtomicLong();
+        GatewayFilterChain chain = e -> e.getRequest().getBody().doOnNext(buffer -> {
+            received.addAndGet(buffer.readableByteCount());
+            DataBufferUtils.release(buffer);
+        }).then();
+
+        for (List<String> fields : Arrays.asList(Collections.<String>emptyList(), Collections.singletonList("userId"))) {
+            StreamingBodyFilter filter = new StreamingBodyFilter(1024 * 1024, fields, 16, Collections.emptyMap(),
+                    "X-Content-CRC32");
+
+            HttpHeaders corrupted = new HttpHeaders();
+            corrupted.set("X-Content-CRC32", Long.toHexString(crc.getValue() ^ 1));
+            MockServerWebExchange rejected = exchange(JSON, corrupted);
+            received.set(0);
+            filter.filter(rejected, chain).block();
+            assertEquals(HttpStatus.BAD_REQUEST, rejected.getResponse().getStatusCode());
+            assertEquals(bytes.length - lastChunk, received.get());
+
+            HttpHeaders valid = new HttpHeaders();
+            valid.set("X-Content-CRC32", Long.toHexString(crc.getValue()));
+            MockServerWebExchange accepted = exchange(JSON, valid);
+            received.set(0);
+            filter.filter(accepted, chain).block();
+            assertNull(accepted.getResponse().getStatusCode());
+            assertEquals(bytes.length, received.get());
+        }
+    }
+
+    @Test
+    void bodyWithoutContentLengthIsInspected() {
+        // HTTP/2 请求可以既没有 Content-Length 也没有 Transfer-Encoding
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/shares")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(chunks(JSON, 7)));
+        GatewayFilterChain chain = e -> DataBufferUtils.join(e.getRequest().getBody())
+                .doOnNext(DataBufferUtils::release).then();
+
+        new StreamingBodyFilter(1024, Collections.emptyList(), 0, Collections.emptyMap(), null)
+                .filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exchange.getResponse().getStatusCode());
+    }
+}
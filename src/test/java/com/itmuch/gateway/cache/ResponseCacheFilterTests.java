@@ -0,0 +1,139 @@
+package com.itmuch.gateway.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResponseCacheFilterTests {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(Duration.ofMinutes(1), 1024 * 1024, 1024,
+            Collections.emptyList(), false, Duration.ofSeconds(5));
+
+    @Test
+    void secondRequestIsServedFromCache() {
+        MockServerWebExchange first = get("/shares/1");
+        this.filter.filter(first, upstream("hello", null, Duration.ZERO)).block();
+        MockServerWebExchange second = get("/shares/1");
+        this.filter.filter(second, upstream("hello", null, Duration.ZERO)).block();
+
+        assertEquals(1, this.upstreamCalls.get());
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals("hello", second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void concurrentMissesAreCoalesced() {
+        MockServerWebExchange first = get("/shares/2");
+        MockServerWebExchange second = get("/shares/2");
+        GatewayFilterChain slow = upstream("slow", null, Duration.ofMillis(100));
+
+        Mono.when(this.filter.filter(first, slow), this.filter.filter(second, slow)).block();
+
+        assertEquals(1, this.upstreamCalls.get());
+        assertEquals("slow", first.getResponse().getBodyAsString().block());
+        assertEquals("slow", second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void privateResponsesAreNotCached() {
+        this.filter.filter(get("/shares/3"), upstream("secret", "private", Duration.ZERO)).block();
+        this.filter.filter(get("/shares/3"), upstream("secret", "private", Duration.ZERO)).block();
+
+        assertEquals(2, this.upstreamCalls.get());
+    }
+
+    @Test
+    void differentAuthorizationValuesDoNotShareEntries() {
+        // 默认不缓存带 Authorization 的请求
+        assertEquals("alice", getWith(this.filter, HttpHeaders.AUTHORIZATION, "Bearer alice", "alice"));
+        assertEquals("bob", getWith(this.filter, HttpHeaders.AUTHORIZATION, "Bearer bob", "bob"));
+        assertEquals(2, this.upstreamCalls.get());
+
+        // Authorization 参与 key 时按用户分别缓存
+        ResponseCacheFilter keyed = new ResponseCacheFilter(Duration.ofMinutes(1), 1024 * 1024, 1024,
+                Collections.singletonList(HttpHeaders.AUTHORIZATION), false, Duration.ofSeconds(5));
+        assertEquals("alice", getWith(keyed, HttpHeaders.AUTHORIZATION, "Bearer alice", "alice"));
+        assertEquals("bob", getWith(keyed, HttpHeaders.AUTHORIZATION, "Bearer bob", "bob"));
+        assertEquals("alice", getWith(keyed, HttpHeaders.AUTHORIZATION, "Bearer alice", "other"));
+        assertEquals(4, this.upstreamCalls.get());
+    }
+
+    @Test
+    void varyHeadersArePartOfTheKey() {
+        assertEquals("en", getWith(this.filter, HttpHeaders.ACCEPT_LANGUAGE, "en", "en"));
+        assertEquals("de", getWith(this.filter, HttpHeaders.ACCEPT_LANGUAGE, "de", "de"));
+        assertEquals("en", getWith(this.filter, HttpHeaders.ACCEPT_LANGUAGE, "en", "other"));
+        assertEquals("de", getWith(this.filter, HttpHeaders.ACCEPT_LANGUAGE, "de", "other"));
+
+        assertEquals(2, this.upstreamCalls.get());
+    }
+
+    @Test
+    void oversizedBodyIsStreamedWithoutCaching() {
+        char[] chunk = new char[600];
+        Arrays.fill(chunk, 'x');
+        String part = new String(chunk);
+        GatewayFilterChain large = exchange -> {
+            this.upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            return response.writeWith(Flux.just(part, part)
+                    .map(s -> response.bufferFactory().wrap(s.getBytes(StandardCharsets.UTF_8))));
+        };
+
+        MockServerWebExchange first = get("/shares/4");
+        this.filter.filter(first, large).block();
+        MockServerWebExchange second = get("/shares/4");
+        this.filter.filter(second, large).block();
+
+        assertEquals(2, this.upstreamCalls.get());
+        assertEquals(part + part, first.getResponse().getBodyAsString().block());
+        assertEquals("MISS", second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+    }
+
+    /**
+     * 带一个请求头请求 /shares/vary ，上游返回 body 并声明 Vary: Accept-Language
+     */
+    private String getWith(ResponseCacheFilter filter, String header, String value, String body) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/shares/vary").header(header, value));
+        filter.filter(exchange, forwarded -> {
+            forwarded.getResponse().getHeaders().setVary(Collections.singletonList(HttpHeaders.ACCEPT_LANGUAGE));
+            return upstream(body, null, Duration.ZERO).filter(forwarded);
+        }).block();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    private GatewayFilterChain upstream(String body, String cacheControl, Duration delay) {
+        return exchange -> Mono.delay(delay).then(Mono.defer(() -> {
+            this.upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            if (cacheControl != null) {
+                response.getHeaders().set(HttpHeaders.CACHE_CONTROL, cacheControl);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+        }));
+    }
+}
@@ -0,0 +1,108 @@
+package com.itmuch.gateway.compression;
+
+import com.itmuch.gateway.JmhRunner;
+import com.itmuch.gateway.support.SharesPayload;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * /shares/** 响应的压缩开销：节省的字节数 vs 每个响应的 CPU 时间
+ *
+ *  ~ 响应体为 shares 条分享记录的 JSON（SharesPayload），按 8KB 分块流式压缩
+ *  ~ pooled ：DeflaterPool 复用 Deflater（CompressionFilter 的实现）
+ *  ~ fresh ：每个响应 new Deflater 、用完 end()
+ *  ~ 压缩率在 JMH 之前单独计算并打印
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final int CHUNK = 8192;
+
+    private static final DataBufferFactory BUFFERS = new DefaultDataBufferFactory();
+
+    @Param({"2", "20", "200"})
+    public int shares;
+
+    @Param({"1", "5", "9"})
+    public int level;
+
+    private byte[][] chunks;
+
+    private DeflaterPool pool;
+
+    @Setup
+    public void setUp() {
+        this.chunks = chunks(SharesPayload.json(this.shares));
+        this.pool = new DeflaterPool(this.level, true, 8);
+    }
+
+    @Benchmark
+    public long pooled() {
+        return compress(this.chunks, this.pool);
+    }
+
+    @Benchmark
+    public long fresh() {
+        DeflaterPool unpooled = new DeflaterPool(this.level, true, 0);
+        return compress(this.chunks, unpooled);
+    }
+
+    private static long compress(byte[][] chunks, DeflaterPool pool) {
+        StreamingCompressor compressor = new StreamingCompressor(pool, BUFFERS);
+        for (byte[] chunk : chunks) {
+            DataBufferUtils.release(compressor.compress(BUFFERS.wrap(chunk)));
+        }
+        DataBuffer tail = compressor.finish();
+        DataBufferUtils.release(tail);
+        return compressor.getBytesOut();
+    }
+
+    private static byte[][] chunks(byte[] body) {
+        byte[][] chunks = new byte[(body.length + CHUNK - 1) / CHUNK][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Arrays.copyOfRange(body, i * CHUNK, Math.min(body.length, (i + 1) * CHUNK));
+        }
+        return chunks;
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        System.out.println(String.format("%8s %6s %10s %10s %8s", "shares", "level", "bytes", "gzip", "saved"));
+        for (int shares : new int[]{2, 20, 200}) {
+            byte[] body = SharesPayload.json(shares);
+            for (int level : new int[]{Deflater.BEST_SPEED, 5, Deflater.BEST_COMPRESSION}) {
+                long out = compress(chunks(body), new DeflaterPool(level, true, 0));
+                System.out.println(String.format("%8d %6d %10d %10d %7.1f%%",
+                        shares, level, body.length, out, 100.0 * (body.length - out) / body.length));
+            }
+        }
+        JmhRunner.run(CompressionBenchmark.class);
+    }
+}
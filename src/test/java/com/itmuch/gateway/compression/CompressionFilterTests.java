@@ -0,0 +1,131 @@
+package com.itmuch.gateway.compression;
+
+import com.itmuch.gateway.support.SharesPayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionFilterTests {
+
+    private final DeflaterPool gzip = new DeflaterPool(5, true, 4);
+
+    private final DeflaterPool deflate = new DeflaterPool(5, false, 4);
+
+    private final CompressionFilter filter = new CompressionFilter(
+            encoding -> encoding == ContentEncoding.GZIP ? this.gzip : this.deflate,
+            Arrays.asList(ContentEncoding.GZIP, ContentEncoding.DEFLATE), 1024,
+            Collections.singletonList(MediaType.APPLICATION_JSON));
+
+    @Test
+    void streamedBodyIsGzipped() throws IOException {
+        byte[] body = SharesPayload.json(50);
+        MockServerWebExchange exchange = get("gzip, deflate, br");
+        this.filter.filter(exchange, upstream(body, 1000, -1)).block();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(-1, headers.getContentLength());
+        assertTrue(headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        byte[] compressed = bytes(exchange);
+        assertTrue(compressed.length < body.length / 4, "compressed " + compressed.length + " of " + body.length);
+        assertArrayEquals(body, inflate(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+
+        // 复用归还的 Deflater
+        MockServerWebExchange again = get("gzip");
+        this.filter.filter(again, upstream(body, 4096, body.length)).block();
+        assertArrayEquals(body, inflate(new GZIPInputStream(new ByteArrayInputStream(bytes(again)))));
+    }
+
+    @Test
+    void deflateWhenPreferred() throws IOException {
+        byte[] body = SharesPayload.json(10);
+        MockServerWebExchange exchange = get("gzip;q=0.5, deflate");
+        this.filter.filter(exchange, upstream(body, 512, body.length)).block();
+
+        assertEquals("deflate", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(body, inflate(new InflaterInputStream(new ByteArrayInputStream(bytes(exchange)))));
+    }
+
+    @Test
+    void smallOrEncodedBodiesPassThrough() {
+        byte[] small = SharesPayload.json(1);
+        MockServerWebExchange exchange = get("gzip");
+        this.filter.filter(exchange, upstream(small, 1024, small.length)).block();
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(small, bytes(exchange));
+
+        byte[] body = SharesPayload.json(20);
+        MockServerWebExchange encoded = get("gzip");
+        this.filter.filter(encoded, upstreamExchange -> {
+            upstreamExchange.getResponse().getHeaders().set(HttpHeaders.CONTENT_ENCODING, "br");
+            return upstream(body, 1024, body.length).filter(upstreamExchange);
+        }).block();
+        assertEquals("br", encoded.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(body, bytes(encoded));
+
+        MockServerWebExchange refused = get("gzip;q=0, deflate;q=0");
+        this.filter.filter(refused, upstream(body, 1024, body.length)).block();
+        assertNull(refused.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private static MockServerWebExchange get(String acceptEncoding) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/shares/1")
+                .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+    }
+
+    /**
+     * 上游按 chunkSize 分块返回响应体
+     */
+    private static GatewayFilterChain upstream(byte[] body, int chunkSize, long contentLength) {
+        return exchange -> {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON_UTF8);
+            if (contentLength >= 0) {
+                response.getHeaders().setContentLength(contentLength);
+            }
+            return response.writeWith(Flux.range(0, (body.length + chunkSize - 1) / chunkSize)
+                    .map(i -> response.bufferFactory().wrap(Arrays.copyOfRange(body, i * chunkSize,
+                            Math.min(body.length, (i + 1) * chunkSize)))));
+        };
+    }
+
+    private static byte[] bytes(MockServerWebExchange exchange) {
+        DataBuffer joined = DataBufferUtils.join(exchange.getResponse().getBody()).block();
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        return bytes;
+    }
+
+    private static byte[] inflate(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,138 @@
+package com.itmuch.gateway.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTests {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void limitFollowsLatency() {
+        GradientLimit limit = new GradientLimit(100, 4, 500, 0.2, 1.5, 4, 600);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(10 * MILLIS, limit.getLimit());
+        }
+        int healthy = limit.getLimit();
+        assertTrue(healthy > 100, "limit should grow while latency is stable: " + healthy);
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(100 * MILLIS, limit.getLimit());
+        }
+        int degraded = limit.getLimit();
+        assertTrue(degraded < healthy / 2, "limit should drop when latency rises: " + degraded);
+
+        // 流量不足时不增加上限
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(10 * MILLIS, 1);
+        }
+        assertEquals(degraded, limit.getLimit());
+    }
+
+    @Test
+    void queuedRequestsAreGrantedByPriority() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientLimit(2, 2, 2, 0.2, 1.5, 4, 600), 10);
+        assertEquals(0, limiter.tryAcquire());
+        assertEquals(1, limiter.tryAcquire());
+        assertEquals(-1, limiter.tryAcquire());
+
+        ConcurrencyLimiter.Waiter low = limiter.enqueue(2);
+        ConcurrencyLimiter.Waiter normal = limiter.enqueue(1);
+        ConcurrencyLimiter.Waiter high = limiter.enqueue(0);
+        assertEquals(3, limiter.getQueued());
+        assertFalse(high.granted().toFuture().isDone());
+
+        limiter.release(MILLIS, 0, true);
+        assertTrue(high.granted().toFuture().isDone());
+        assertFalse(normal.granted().toFuture().isDone());
+
+        // 取消的等待者被跳过，许可交给下一个
+        assertTrue(normal.cancel());
+        limiter.release(MILLIS, 0, true);
+        assertTrue(low.granted().toFuture().isDone());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(2, limiter.getInflight());
+
+        // 许可已经交付，取消失败
+        assertFalse(low.cancel());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new ConcurrencyLimitFilter.Settings(
+                1, 1, 1, 0.2, 1.5, 4, 600, 1, Duration.ofMillis(100), "X-Priority"));
+        GatewayFilterChain stalled = exchange -> Mono.never();
+        GatewayFilterChain fast = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        };
+
+        MockServerWebExchange first = exchange();
+        Disposable running = filter.filter(first, stalled).subscribe();
+        assertEquals(1, filter.getLimiter().getInflight());
+
+        MockServerWebExchange queued = exchange();
+        filter.filter(queued, fast).subscribe();
+        assertEquals(1, filter.getLimiter().getQueued());
+
+        MockServerWebExchange rejected = exchange();
+        filter.filter(rejected, fast).block(Duration.ofSeconds(1));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+
+        // 第一个请求结束后，排队的请求拿到许可
+        running.dispose();
+        assertEquals(HttpStatus.OK, queued.getResponse().getStatusCode());
+        assertEquals(0, filter.getLimiter().getInflight());
+        assertEquals(0, filter.getLimiter().getQueued());
+    }
+
+    @Test
+    void queuedRequestTimesOut() {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new ConcurrencyLimitFilter.Settings(
+                1, 1, 1, 0.2, 1.5, 4, 600, 1, Duration.ofMillis(20), "X-Priority"));
+        Disposable running = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+
+        MockServerWebExchange queued = exchange();
+        filter.filter(queued, exchange -> Mono.empty()).block(Duration.ofSeconds(1));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, queued.getResponse().getStatusCode());
+        assertEquals(0, filter.getLimiter().getQueued());
+
+        running.dispose();
+        assertEquals(0, filter.getLimiter().getInflight());
+    }
+
+    @Test
+    void cancelAfterGrantReleasesOnce() {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new ConcurrencyLimitFilter.Settings(
+                1, 1, 1, 0.2, 1.5, 4, 600, 1, Duration.ofSeconds(5), "X-Priority"));
+        Disposable running = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+        Disposable queued = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+        assertEquals(1, filter.getLimiter().getQueued());
+
+        // 排队的请求拿到许可并开始执行，之后客户端断开
+        running.dispose();
+        assertEquals(0, filter.getLimiter().getQueued());
+        assertEquals(1, filter.getLimiter().getInflight());
+        queued.dispose();
+
+        assertEquals(0, filter.getLimiter().getInflight());
+        assertEquals(0, filter.getLimiter().tryAcquire());
+        assertEquals(-1, filter.getLimiter().tryAcquire());
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/shares/1").build());
+    }
+}
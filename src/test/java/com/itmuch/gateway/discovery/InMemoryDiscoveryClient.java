@@ -0,0 +1,65 @@
+package com.itmuch.gateway.discovery;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存版的注册中心，用于测试：可以随时增删实例，或者模拟注册中心不可用
+ */
+class InMemoryDiscoveryClient implements DiscoveryClient {
+
+    private final Map<String, List<ServiceInstance>> services = new ConcurrentHashMap<>();
+
+    private volatile boolean unavailable;
+
+    private volatile int calls;
+
+    InMemoryDiscoveryClient register(String serviceId, String host, int port) {
+        this.services.computeIfAbsent(serviceId, k -> Collections.synchronizedList(new ArrayList<>()))
+                .add(new DefaultServiceInstance(serviceId + "-" + host + ":" + port, serviceId, host, port, false));
+        return this;
+    }
+
+    InMemoryDiscoveryClient deregister(String serviceId) {
+        this.services.remove(serviceId);
+        return this;
+    }
+
+    void setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    int calls() {
+        return this.calls;
+    }
+
+    @Override
+    public String description() {
+        return "in-memory";
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceId) {
+        this.calls++;
+        if (this.unavailable) {
+            throw new IllegalStateException("registry unavailable");
+        }
+        List<ServiceInstance> instances = this.services.get(serviceId);
+        return instances == null ? Collections.emptyList() : new ArrayList<>(instances);
+    }
+
+    @Override
+    public List<String> getServices() {
+        if (this.unavailable) {
+            throw new IllegalStateException("registry unavailable");
+        }
+        return new ArrayList<>(this.services.keySet());
+    }
+}
@@ -0,0 +1,112 @@
+package com.itmuch.gateway.discovery;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceInstanceCacheTests {
+
+    private final InMemoryDiscoveryClient registry = new InMemoryDiscoveryClient()
+            .register("user-center", "10.0.0.1", 8080)
+            .register("user-center", "10.0.0.2", 8080)
+            .register("content-center", "10.0.0.3", 8081);
+
+    private final ServiceInstanceCache cache = new ServiceInstanceCache(this.registry, 60000L, 3000L);
+
+    @AfterEach
+    void destroy() {
+        this.cache.destroy();
+    }
+
+    @Test
+    void prewarmLoadsAllServicesAndRequestsDoNotHitTheRegistry() throws InterruptedException {
+        this.cache.afterPropertiesSet();
+        int calls = this.registry.calls();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(2, this.cache.getInstances("user-center").size());
+            assertEquals(1, this.cache.getInstances("content-center").size());
+        }
+        assertEquals(calls, this.registry.calls());
+    }
+
+    @Test
+    void changesAreSwappedInAndReported() {
+        List<String> changed = new ArrayList<>();
+        this.cache.addListener((serviceId, instances) -> changed.add(serviceId));
+        this.cache.refresh();
+        List<ServiceInstance> before = this.cache.getInstances("content-center");
+        changed.clear();
+
+        this.registry.register("user-center", "10.0.0.4", 8080);
+        this.cache.refresh();
+
+        assertEquals(3, this.cache.getInstances("user-center").size());
+        assertSame(before, this.cache.getInstances("content-center"));
+        assertEquals(1, changed.size());
+        assertEquals("user-center", changed.get(0));
+    }
+
+    @Test
+    void lastKnownGoodIsKeptWhenRegistryFails() {
+        this.cache.refresh();
+
+        this.registry.setUnavailable(true);
+        this.cache.refresh();
+        assertEquals(2, this.cache.getInstances("user-center").size());
+
+        this.registry.setUnavailable(false);
+        this.registry.deregister("content-center");
+        this.cache.refresh();
+        assertEquals(1, this.cache.getInstances("content-center").size());
+    }
+
+    @Test
+    void emptyListIsAcceptedAfterConsecutiveEmptyRefreshes() {
+        this.cache.refresh();
+        this.registry.deregister("content-center");
+
+        this.cache.refresh();
+        this.cache.refresh();
+        assertEquals(1, this.cache.getInstances("content-center").size());
+
+        this.cache.refresh();
+        assertTrue(this.cache.getInstances("content-center").isEmpty());
+
+        // 重新注册后计数从头开始
+        this.registry.register("content-center", "10.0.0.3", 8081);
+        this.cache.refresh();
+        this.registry.deregister("content-center");
+        this.cache.refresh();
+        assertEquals(1, this.cache.getInstances("content-center").size());
+    }
+
+    @Test
+    void unknownServiceReturnsEmpty() {
+        this.cache.refresh();
+        assertTrue(this.cache.getInstances("unknown").isEmpty());
+    }
+
+    @Test
+    void missIsLoadedFromTheRegistryAndCached() {
+        // 未预热、也没有刷新过：原来返回空列表（503），现在查询一次注册中心
+        List<ServiceInstance> instances = Mono.defer(() -> this.cache.instances("user-center"))
+                .subscribeOn(Schedulers.parallel())
+                .block();
+
+        assertEquals(2, instances.size());
+        assertSame(instances, this.cache.getInstances("user-center"));
+        int calls = this.registry.calls();
+        assertSame(instances, this.cache.instances("user-center").block());
+        assertEquals(calls, this.registry.calls());
+    }
+}
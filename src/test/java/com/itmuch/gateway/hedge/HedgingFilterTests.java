@@ -0,0 +1,142 @@
+package com.itmuch.gateway.hedge;
+
+import com.itmuch.gateway.discovery.ServiceInstanceCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingFilterTests {
+
+    private static final String DEADLINE_HEADER = "X-Request-Deadline-Ms";
+
+    private ServiceInstanceCache instanceCache;
+
+    private HedgingFilter filter;
+
+    /**
+     * stalled 实例 2 秒后才响应，healthy 实例 10 毫秒响应
+     */
+    private final GatewayFilterChain chain = exchange -> {
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        long millis = "stalled".equals(url.getHost()) ? 2000 : 10;
+        return Mono.delay(Duration.ofMillis(millis)).then(Mono.fromRunnable(() -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().set("X-Instance", url.getHost());
+            String deadline = exchange.getRequest().getHeaders().getFirst(DEADLINE_HEADER);
+            if (deadline != null) {
+                exchange.getResponse().getHeaders().set(DEADLINE_HEADER, deadline);
+            }
+        }));
+    };
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        List<ServiceInstance> instances = Arrays.asList(
+                new DefaultServiceInstance("user-center-1", "user-center", "stalled", 8080, false),
+                new DefaultServiceInstance("user-center-2", "user-center", "healthy", 8080, false));
+        this.instanceCache = new ServiceInstanceCache(new DiscoveryClient() {
+            @Override
+            public String description() {
+                return "static";
+            }
+
+            @Override
+            public List<ServiceInstance> getInstances(String serviceId) {
+                return instances;
+            }
+
+            @Override
+            public List<String> getServices() {
+                return Collections.singletonList("user-center");
+            }
+        }, 60000, 3000);
+        this.instanceCache.afterPropertiesSet();
+        this.filter = new HedgingFilter(new HedgingFilter.Settings(EnumSet.of(HttpMethod.GET), 95.0,
+                Duration.ofMillis(20), Duration.ofMillis(5), Duration.ofSeconds(1), 0.1, 5.0, DEADLINE_HEADER, null),
+                this.instanceCache, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.instanceCache.destroy();
+    }
+
+    private MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("http://stalled:8080/users/1"));
+        exchange.getAttributes().put(GATEWAY_ORIGINAL_REQUEST_URL_ATTR,
+                new LinkedHashSet<>(Collections.singletonList(URI.create("lb://user-center/users/1"))));
+        return exchange;
+    }
+
+    @Test
+    void hedgeWinsWhenPrimaryStalls() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/users/1").header(DEADLINE_HEADER, "1000"));
+        long start = System.nanoTime();
+
+        this.filter.filter(exchange, this.chain).block(Duration.ofSeconds(5));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals("healthy", exchange.getResponse().getHeaders().getFirst("X-Instance"));
+        assertEquals(URI.create("http://healthy:8080/users/1"), exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR));
+        String forwardedDeadline = exchange.getResponse().getHeaders().getFirst(DEADLINE_HEADER);
+        assertNotNull(forwardedDeadline);
+        assertTrue(Long.parseLong(forwardedDeadline) < 1000);
+    }
+
+    @Test
+    void expiredDeadlineIsNotForwarded() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/users/1").header(DEADLINE_HEADER, "0"));
+
+        this.filter.filter(exchange, this.chain).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, exchange.getResponse().getStatusCode());
+        assertFalse(exchange.getResponse().getHeaders().containsKey("X-Instance"));
+    }
+
+    @Test
+    void budgetCapsExtraRequests() {
+        AtomicLong clock = new AtomicLong();
+        RetryBudget budget = new RetryBudget(0.1, 0.0, clock::get);
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+
+        RetryBudget minimum = new RetryBudget(0.1, 5.0, clock::get);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(minimum.tryWithdraw());
+        }
+        assertFalse(minimum.tryWithdraw());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(5.0, minimum.available(), 0.001);
+    }
+}
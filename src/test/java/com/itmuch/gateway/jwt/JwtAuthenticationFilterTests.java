@@ -0,0 +1,187 @@
+package com.itmuch.gateway.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtAuthenticationFilterTests {
+
+    private KeyPair rsa;
+
+    private KeyPair ec;
+
+    private Path jwksFile;
+
+    private JwksSource source;
+
+    private VerifiedTokenCache cache;
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.rsa = TestTokens.rsa();
+        this.ec = TestTokens.ec();
+        this.jwksFile = Files.createTempDirectory("jwks").resolve("jwks.json");
+        writeJwks(TestTokens.jwk("rsa-1", this.rsa.getPublic()), TestTokens.jwk("ec-1", this.ec.getPublic()));
+        ObjectMapper objectMapper = new ObjectMapper();
+        this.source = new JwksSource(this.jwksFile.toUri().toString(), Duration.ofMinutes(5), Duration.ZERO,
+                objectMapper);
+        this.source.refresh();
+        JwtVerifier verifier = new JwtVerifier(objectMapper, EnumSet.allOf(JwsAlgorithm.class), "user-center",
+                "gateway", 30, true, new String[]{"sub", "roles"});
+        this.cache = new VerifiedTokenCache(verifier, 100, Duration.ofMinutes(5));
+        this.filter = new JwtAuthenticationFilter(this.source, this.cache,
+                new String[]{"X-User-Id", "X-User-Roles"}, Duration.ofMillis(100), false);
+    }
+
+    @Test
+    void verifiedClaimsAreForwarded() throws GeneralSecurityException {
+        String token = TestTokens.sign(JwsAlgorithm.RS256, "rsa-1", this.rsa.getPrivate(),
+                TestTokens.payload("1", expiresIn(600)));
+        MockServerWebExchange exchange = exchange(token, "admin");
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        this.filter.filter(exchange, capture(forwarded)).block();
+
+        HttpHeaders headers = forwarded.get().getRequest().getHeaders();
+        assertEquals("1", headers.getFirst("X-User-Id"));
+        assertEquals(1, headers.get("X-User-Id").size());
+        assertEquals("user,admin", headers.getFirst("X-User-Roles"));
+
+        // 第二次命中缓存：同一个校验结果
+        long now = System.currentTimeMillis();
+        assertSame(this.cache.verify(token, this.source.current(), now),
+                this.cache.verify(token, this.source.current(), now));
+        assertEquals(1, this.cache.size());
+    }
+
+    @Test
+    void ecTokenIsVerified() throws GeneralSecurityException {
+        String token = TestTokens.sign(JwsAlgorithm.ES256, "ec-1", this.ec.getPrivate(),
+                TestTokens.payload("2", expiresIn(600)));
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        this.filter.filter(exchange(token, null), capture(forwarded)).block();
+        assertEquals("2", forwarded.get().getRequest().getHeaders().getFirst("X-User-Id"));
+    }
+
+    @Test
+    void invalidTokensAreRejected() throws GeneralSecurityException {
+        String valid = TestTokens.sign(JwsAlgorithm.RS256, "rsa-1", this.rsa.getPrivate(),
+                TestTokens.payload("1", expiresIn(600)));
+        this.filter.filter(exchange(valid, null), capture(new AtomicReference<>())).block();
+
+        // 合法签名拼上篡改过的 payload ：缓存中的结果不能被复用
+        String forged = TestTokens.sign(JwsAlgorithm.RS256, "rsa-1", this.rsa.getPrivate(),
+                TestTokens.payload("999", expiresIn(600)));
+        String tampered = valid.substring(0, valid.indexOf('.'))
+                + forged.substring(forged.indexOf('.'), forged.lastIndexOf('.'))
+                + valid.substring(valid.lastIndexOf('.'));
+        assertRejected(tampered, "invalid signature");
+        assertRejected(TestTokens.sign(JwsAlgorithm.RS256, "rsa-1", this.rsa.getPrivate(),
+                TestTokens.payload("1", expiresIn(-600))), "token expired");
+        assertRejected(TestTokens.sign(JwsAlgorithm.RS256, "rsa-2", this.rsa.getPrivate(),
+                TestTokens.payload("1", expiresIn(600))), "unknown key");
+        // RSA 的 kid 配 ES256 算法
+        assertRejected(TestTokens.sign(JwsAlgorithm.ES256, "rsa-1", this.ec.getPrivate(),
+                TestTokens.payload("1", expiresIn(600))), "invalid signature");
+
+        MockServerWebExchange missing = exchange(null, null);
+        this.filter.filter(missing, capture(new AtomicReference<>())).block();
+        assertEquals(HttpStatus.UNAUTHORIZED, missing.getResponse().getStatusCode());
+        assertEquals("Bearer", missing.getResponse().getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE));
+    }
+
+    @Test
+    void outOfRangeEcSignaturesAreRejected() throws GeneralSecurityException {
+        String valid = TestTokens.sign(JwsAlgorithm.ES256, "ec-1", this.ec.getPrivate(),
+                TestTokens.payload("1", expiresIn(600)));
+        String signingInput = valid.substring(0, valid.lastIndexOf('.') + 1);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        // CVE-2022-21449 ：r = s = 0
+        assertRejected(signingInput + encoder.encodeToString(new byte[64]), "invalid signature");
+
+        // r = n ：超出曲线的阶
+        byte[] order = ((ECPublicKey) this.ec.getPublic()).getParams().getOrder().toByteArray();
+        byte[] signature = Base64.getUrlDecoder().decode(valid.substring(valid.lastIndexOf('.') + 1));
+        System.arraycopy(order, order.length - 32, signature, 0, 32);
+        assertRejected(signingInput + encoder.encodeToString(signature), "invalid signature");
+    }
+
+    @Test
+    void removedKeyInvalidatesCachedTokens() throws Exception {
+        String token = TestTokens.sign(JwsAlgorithm.RS256, "rsa-1", this.rsa.getPrivate(),
+                TestTokens.payload("1", expiresIn(600)));
+        this.filter.filter(exchange(token, null), capture(new AtomicReference<>())).block();
+
+        // 无关的 key 变化不影响已缓存的令牌
+        KeyPair other = TestTokens.rsa();
+        writeJwks(TestTokens.jwk("rsa-1", this.rsa.getPublic()), TestTokens.jwk("rsa-3", other.getPublic()));
+        this.source.refresh();
+        VerifiedToken cached = this.cache.verify(token, this.source.current(), System.currentTimeMillis());
+        assertTrue(cached.isValid(this.source.current(), System.currentTimeMillis() / 1000, 0));
+
+        writeJwks(TestTokens.jwk("rsa-3", other.getPublic()));
+        this.source.refresh();
+        assertRejected(token, "unknown key");
+    }
+
+    private void assertRejected(String token, String reason) {
+        MockServerWebExchange exchange = exchange(token, null);
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        this.filter.filter(exchange, capture(forwarded)).block();
+        assertNull(forwarded.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertTrue(exchange.getResponse().getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE).contains(reason),
+                exchange.getResponse().getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE));
+    }
+
+    private void writeJwks(String... jwks) throws Exception {
+        Files.write(this.jwksFile, TestTokens.jwks(jwks).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long expiresIn(long seconds) {
+        return System.currentTimeMillis() / 1000 + seconds;
+    }
+
+    private static MockServerWebExchange exchange(String token, String spoofedUser) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/users/1");
+        if (token != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        if (spoofedUser != null) {
+            request.header("X-User-Id", spoofedUser);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static GatewayFilterChain capture(AtomicReference<ServerWebExchange> forwarded) {
+        return exchange -> {
+            forwarded.set(exchange);
+            return Mono.empty();
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.itmuch.gateway.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmuch.gateway.JmhRunner;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 校验吞吐量：缓存命中 vs 每次校验签名
+ *
+ *  ~ 密钥在本地生成（RSA 2048 / P-256），JWKS 经过 JwkSet.parse 解析，与线上的路径一致
+ *  ~ uncached ：JwtVerifier 直接校验（签名 + 解析 payload + 生成转发的请求头值）
+ *  ~ cached ：VerifiedTokenCache 命中（SHA-256 + Caffeine 查询 + 有效性检查）
+ *  ~ cachedMiss ：每次都是新令牌的缓存路径（校验 + 写入缓存），即缓存对首次请求增加的开销
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final int DISTINCT_TOKENS = 1024;
+
+    @Param({"RS256", "ES256"})
+    public String algorithm;
+
+    private JwkSet keys;
+
+    private JwtVerifier verifier;
+
+    private VerifiedTokenCache cache;
+
+    private String token;
+
+    private String[] tokens;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        JwsAlgorithm algorithm = JwsAlgorithm.valueOf(this.algorithm);
+        KeyPair keyPair = algorithm == JwsAlgorithm.RS256 ? TestTokens.rsa() : TestTokens.ec();
+        ObjectMapper objectMapper = new ObjectMapper();
+        this.keys = JwkSet.parse(TestTokens.jwks(TestTokens.jwk("k1", keyPair.getPublic()))
+                .getBytes(StandardCharsets.UTF_8), objectMapper, null);
+        this.verifier = new JwtVerifier(objectMapper, EnumSet.allOf(JwsAlgorithm.class), "user-center",
+                "gateway", 30, true, new String[]{"sub", "roles"});
+        this.cache = new VerifiedTokenCache(this.verifier, 100000, Duration.ofMinutes(5));
+
+        long expiresAt = System.currentTimeMillis() / 1000 + 3600;
+        this.token = sign(algorithm, keyPair, "1", expiresAt);
+        this.tokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            this.tokens[i] = sign(algorithm, keyPair, "user-" + i, expiresAt);
+        }
+    }
+
+    @Benchmark
+    public VerifiedToken uncached() {
+        return this.verifier.verify(this.token, this.keys, System.currentTimeMillis() / 1000);
+    }
+
+    @Benchmark
+    public VerifiedToken cached() {
+        return this.cache.verify(this.token, this.keys, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public VerifiedToken cachedMiss() {
+        // 每轮 1024 个令牌都已经在缓存中之后就不再是未命中，所以每次使用一个新的缓存
+        int index = this.next++ & (DISTINCT_TOKENS - 1);
+        if (index == 0) {
+            this.cache = new VerifiedTokenCache(this.verifier, 100000, Duration.ofMinutes(5));
+        }
+        return this.cache.verify(this.tokens[index], this.keys, System.currentTimeMillis());
+    }
+
+    private static String sign(JwsAlgorithm algorithm, KeyPair keyPair, String subject, long expiresAt)
+            throws GeneralSecurityException {
+        return TestTokens.sign(algorithm, "k1", keyPair.getPrivate(), TestTokens.payload(subject, expiresAt));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        JmhRunner.run(JwtBenchmark.class);
+    }
+}
@@ -0,0 +1,107 @@
+package com.itmuch.gateway.jwt;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 测试用的本地密钥、JWKS 与签名令牌
+ */
+final class TestTokens {
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private TestTokens() {
+    }
+
+    static KeyPair rsa() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    static KeyPair ec() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    static String jwk(String kid, PublicKey key) {
+        if (key instanceof RSAPublicKey) {
+            RSAPublicKey rsa = (RSAPublicKey) key;
+            return "{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"" + kid + "\",\"n\":\"" + encode(rsa.getModulus(), 0)
+                    + "\",\"e\":\"" + encode(rsa.getPublicExponent(), 0) + "\"}";
+        }
+        ECPublicKey ec = (ECPublicKey) key;
+        return "{\"kty\":\"EC\",\"kid\":\"" + kid + "\",\"crv\":\"P-256\",\"x\":\""
+                + encode(ec.getW().getAffineX(), 32) + "\",\"y\":\"" + encode(ec.getW().getAffineY(), 32) + "\"}";
+    }
+
+    static String jwks(String... jwks) {
+        return "{\"keys\":[" + String.join(",", jwks) + "]}";
+    }
+
+    static String sign(JwsAlgorithm algorithm, String kid, PrivateKey key, String payload)
+            throws GeneralSecurityException {
+        String header = "{\"alg\":\"" + algorithm + "\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}";
+        String signingInput = BASE64.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + BASE64.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        Signature signer = Signature.getInstance(algorithm.getJcaName());
+        signer.initSign(key);
+        signer.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        byte[] signature = signer.sign();
+        if (algorithm.componentSize() > 0) {
+            signature = toJose(signature, algorithm.componentSize());
+        }
+        return signingInput + "." + BASE64.encodeToString(signature);
+    }
+
+    static String payload(String subject, long expiresAt) {
+        return "{\"iss\":\"user-center\",\"aud\":[\"gateway\"],\"sub\":\"" + subject
+                + "\",\"roles\":[\"user\",\"admin\"],\"exp\":" + expiresAt + "}";
+    }
+
+    private static String encode(BigInteger value, int size) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0 && bytes.length > 1) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < size) {
+            byte[] padded = new byte[size];
+            System.arraycopy(bytes, 0, padded, size - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return BASE64.encodeToString(bytes);
+    }
+
+    /**
+     * SEQUENCE { INTEGER r, INTEGER s } -> R || S
+     */
+    private static byte[] toJose(byte[] der, int size) {
+        int offset = der[1] == (byte) 0x81 ? 3 : 2;
+        byte[] jose = new byte[size * 2];
+        int rLength = der[offset + 1];
+        copyInteger(der, offset + 2, rLength, jose, 0, size);
+        int sOffset = offset + 2 + rLength;
+        copyInteger(der, sOffset + 2, der[sOffset + 1], jose, size, size);
+        return jose;
+    }
+
+    private static void copyInteger(byte[] der, int start, int length, byte[] jose, int position, int size) {
+        while (length > size) {
+            start++;
+            length--;
+        }
+        System.arraycopy(der, start, jose, position + size - length, length);
+    }
+}
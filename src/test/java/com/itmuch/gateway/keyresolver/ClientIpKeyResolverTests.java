@@ -0,0 +1,60 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ClientIpKeyResolverTests {
+
+    @Test
+    void forwardedForIsIgnoredWithoutTrustedProxies() {
+        ClientIpKeyResolver resolver = new ClientIpKeyResolver(16);
+
+        assertEquals("203.0.113.7", resolve(resolver, "203.0.113.7", "1.2.3.4"));
+        assertEquals("203.0.113.7", resolve(resolver, "203.0.113.7", "5.6.7.8"));
+    }
+
+    @Test
+    void forwardedForIsIgnoredFromUntrustedPeer() {
+        ClientIpKeyResolver resolver = new ClientIpKeyResolver(new String[]{"10.0.0.0/8"}, 16);
+
+        assertEquals("203.0.113.7", resolve(resolver, "203.0.113.7", "1.2.3.4"));
+    }
+
+    @Test
+    void rightMostUntrustedHopIsUsedBehindTrustedProxies() {
+        ClientIpKeyResolver resolver = new ClientIpKeyResolver(new String[]{"10.0.0.0/8", "192.168.1.1"}, 16);
+
+        assertEquals("5.6.7.8", resolve(resolver, "10.0.0.1", "5.6.7.8"));
+        // 客户端伪造的最左边的地址被跳过
+        assertEquals("5.6.7.8", resolve(resolver, "10.0.0.1", "1.2.3.4, 5.6.7.8, 192.168.1.1"));
+        assertEquals("not-an-ip", resolve(resolver, "10.0.0.1", "1.2.3.4, not-an-ip"));
+        assertEquals("10.0.0.9", resolve(resolver, "10.0.0.1", "10.0.0.9, 192.168.1.1"));
+        assertEquals("10.0.0.1", resolve(resolver, "10.0.0.1", null));
+    }
+
+    @Test
+    void onlyIpLiteralsAreParsed() {
+        assertEquals("1.2.3.4", ClientIpKeyResolver.literal("1.2.3.4").getHostAddress());
+        assertEquals("0:0:0:0:0:0:0:1", ClientIpKeyResolver.literal("::1").getHostAddress());
+        // 这些字符串交给 InetAddress.getByName 会查询 DNS
+        assertNull(ClientIpKeyResolver.literal("999.1.1.1"));
+        assertNull(ClientIpKeyResolver.literal("1.2.3"));
+        assertNull(ClientIpKeyResolver.literal("localhost"));
+        assertNull(ClientIpKeyResolver.literal("::g"));
+    }
+
+    private static String resolve(ClientIpKeyResolver resolver, String remote, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/users/1")
+                .remoteAddress(new InetSocketAddress(remote, 40000));
+        if (forwardedFor != null) {
+            request.header(ClientIpKeyResolver.X_FORWARDED_FOR, forwardedFor);
+        }
+        return resolver.resolve(MockServerWebExchange.from(request)).block();
+    }
+}
@@ -0,0 +1,105 @@
+package com.itmuch.gateway.keyresolver;
+
+import com.itmuch.gateway.JmhRunner;
+import com.itmuch.gateway.config.RateConfiguration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * RateConfiguration 中各个 KeyResolver 解析一次 key 的耗时（resolve + block）
+ *
+ *  ~ resolver 由 RateConfiguration 的 @Bean 方法创建，与运行时相同
+ *  ~ 1024 个请求轮流使用：不同的用户 id 、IP 、请求头，路径 /users/{id} 归一后只有一个 key
+ *  ~ bodyFieldKeyResolver 需要 StreamingBody 先解析请求体，不在这里压测
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyResolverBenchmark {
+
+    private static final int EXCHANGES = 1024;
+
+    @Param({"path", "route", "user", "ip", "header"})
+    public String resolver;
+
+    private KeyResolver keyResolver;
+
+    private MockServerWebExchange[] exchanges;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        RateConfiguration configuration = new RateConfiguration();
+        switch (this.resolver) {
+            case "path":
+                this.keyResolver = configuration.pathKeyResolver(10000);
+                break;
+            case "route":
+                this.keyResolver = configuration.routeKeyResolver(10000);
+                break;
+            case "user":
+                this.keyResolver = configuration.userKeyResolver(10000);
+                break;
+            case "ip":
+                this.keyResolver = configuration.ipKeyResolver(new String[0], 10000);
+                break;
+            default:
+                this.keyResolver = configuration.headerKeyResolver("X-User-Id", 10000);
+        }
+        Route route = Route.async()
+                .id("user-center-id")
+                .uri(URI.create("lb://user-center"))
+                .order(0)
+                .asyncPredicate(exchange -> Mono.just(true))
+                .build();
+        this.exchanges = new MockServerWebExchange[EXCHANGES];
+        for (int i = 0; i < EXCHANGES; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                    .get("/users/{id}?user={user}", 1000 + i, "user-" + i)
+                    .header("X-User-Id", String.valueOf(i))
+                    .remoteAddress(new InetSocketAddress("10.0." + (i >> 8) + "." + (i & 0xff), 40000 + i)));
+            exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+            this.exchanges[i] = exchange;
+        }
+    }
+
+    @Benchmark
+    public String resolve() {
+        MockServerWebExchange exchange = this.exchanges[this.next++ & (EXCHANGES - 1)];
+        return this.keyResolver.resolve(exchange).block();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        JmhRunner.run(KeyResolverBenchmark.class);
+    }
+}
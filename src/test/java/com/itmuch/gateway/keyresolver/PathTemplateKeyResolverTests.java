@@ -0,0 +1,36 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PathTemplateKeyResolverTests {
+
+    @Test
+    void identifiersAreReplaced() {
+        assertEquals("/users/{id}", PathTemplateKeyResolver.normalize("/users/1"));
+        assertEquals("/users/{id}/shares/{id}", PathTemplateKeyResolver.normalize("/users/42/shares/7"));
+        assertEquals("/shares/{id}", PathTemplateKeyResolver.normalize("/shares/3f2504e0-4f89-11d3-9a0c-0305e82c3301"));
+        assertEquals("/shares/{id}/", PathTemplateKeyResolver.normalize("/shares/deadbeefdeadbeef/"));
+    }
+
+    @Test
+    void staticPathsAreReturnedAsIs() {
+        String path = "/admin/shares/audit";
+        assertSame(path, PathTemplateKeyResolver.normalize(path));
+        assertSame(path, PathTemplateKeyResolver.normalize(path));
+        assertEquals("/users/abc-def", PathTemplateKeyResolver.normalize("/users/abc-def"));
+    }
+
+    @Test
+    void monosAreReusedForCommonKeys() {
+        PathTemplateKeyResolver resolver = new PathTemplateKeyResolver(16);
+        MockServerWebExchange first = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1"));
+        MockServerWebExchange second = MockServerWebExchange.from(MockServerHttpRequest.get("/users/2"));
+
+        assertSame(resolver.resolve(first), resolver.resolve(second));
+    }
+}
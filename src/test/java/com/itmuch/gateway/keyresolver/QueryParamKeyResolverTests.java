@@ -0,0 +1,27 @@
+package com.itmuch.gateway.keyresolver;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryParamKeyResolverTests {
+
+    private final QueryParamKeyResolver resolver = new QueryParamKeyResolver("user", 16);
+
+    @Test
+    void queryParamIsTheKey() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1?user=42"));
+
+        assertEquals("42", this.resolver.resolve(exchange).block());
+    }
+
+    @Test
+    void missingQueryParamResolvesToEmpty() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1"));
+
+        assertNull(this.resolver.resolve(exchange).block());
+    }
+}
@@ -0,0 +1,151 @@
+package com.itmuch.gateway.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmuch.gateway.GatewayApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端压测：启动完整的网关，请求经过全部全局过滤器和路由过滤器
+ *
+ *  ~ 路由与 application.yml 相同（application-loadtest.yml），只是限流阈值调高到不会拒绝
+ *  ~ 外部依赖全部在本地：上游与 Zipkin 是 StubUpstreams ，服务发现使用 spring.cloud.discovery.client.simple ，
+ *      不连接 Nacos ；Redis 只有 hybridRateLimiter / redisRateLimiter 被使用时才会连接，压测的路由没有使用
+ *  ~ 场景：
+ *      01)、users ：/users/{id} ，TimeBetween + Hedge + PreLog + RequestRateLimiter（pathKeyResolver）
+ *      02)、shares ：/shares/1 ，ConcurrencyLimit + StreamingBody + ResponseCache 命中 + Compress
+ *      03)、shares-uncached ：/shares/1?page=n ，每个请求都是新的缓存 key ，全部回源
+ *  ~ 每个场景先预热，再以固定并发压测，输出吞吐量、p50/p99/p999 、网关线程每个请求分配的字节数
+ *  ~ 参数（-D）：gateway.load.concurrency（64）、gateway.load.warmup（10s）、gateway.load.duration（30s）
+ *  ~ 基线：src/test/resources/benchmark/gateway-load-baseline.json（gateway.load.baseline 可以指定其他文件）
+ *      01)、-Dgateway.load.update-baseline=true ：用本次结果覆盖基线，换机器或有意改变性能后执行
+ *      02)、-Dgateway.load.enforce=true ：吞吐量下降或 p99 上升超过 gateway.load.tolerance（默认 0.2）时失败，
+ *          只在与基线相同的机器上打开
+ *  ~ 本次结果同时写入 target/gateway-load-result.json
+ *  运行：mvn test -P benchmark -Dtest=GatewayLoadBenchmark
+ */
+public class GatewayLoadBenchmark {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Test
+    @Tag("benchmark")
+    void run() throws IOException {
+        int concurrency = Integer.getInteger("gateway.load.concurrency", 64);
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("gateway.load.warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("gateway.load.duration", "30s"));
+
+        Map<String, LongFunction<String>> scenarios = new LinkedHashMap<>();
+        scenarios.put("users", n -> "/users/" + (n % 1000));
+        scenarios.put("shares", n -> "/shares/1");
+        scenarios.put("shares-uncached", n -> "/shares/1?page=" + n);
+
+        Map<String, LoadResult> results = new LinkedHashMap<>();
+        try (StubUpstreams upstreams = new StubUpstreams();
+             ConfigurableApplicationContext gateway = start(upstreams);
+             LoadGenerator generator = new LoadGenerator(port(gateway), concurrency)) {
+            for (Map.Entry<String, LongFunction<String>> scenario : scenarios.entrySet()) {
+                results.put(scenario.getKey(), generator.run(scenario.getValue(), warmup, duration));
+            }
+        }
+
+        Path output = Paths.get("target", "gateway-load-result.json");
+        Files.createDirectories(output.getParent());
+        JSON.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), results);
+
+        Path baselineFile = Paths.get(System.getProperty("gateway.load.baseline",
+                "src/test/resources/benchmark/gateway-load-baseline.json"));
+        Map<String, LoadResult> baseline = Files.exists(baselineFile)
+                ? JSON.readValue(baselineFile.toFile(), new TypeReference<LinkedHashMap<String, LoadResult>>() {
+        }) : new LinkedHashMap<>();
+        List<String> regressions = report(concurrency, results, baseline,
+                Double.parseDouble(System.getProperty("gateway.load.tolerance", "0.2")));
+
+        if (Boolean.getBoolean("gateway.load.update-baseline")) {
+            Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+            JSON.writerWithDefaultPrettyPrinter().writeValue(baselineFile.toFile(), results);
+            System.out.println("Baseline written to " + baselineFile.toAbsolutePath());
+        } else if (Boolean.getBoolean("gateway.load.enforce")) {
+            assertTrue(regressions.isEmpty(), String.join("\n", regressions));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(StubUpstreams upstreams) {
+        String upstream = upstreams.url();
+        String server = "127.0.0.1:" + upstreams.port();
+        return new SpringApplicationBuilder(GatewayApplication.class)
+                .profiles("loadtest")
+                .properties(
+                        "server.port=0",
+                        "spring.cloud.discovery.client.simple.instances.user-center[0].uri=" + upstream,
+                        "spring.cloud.discovery.client.simple.instances.content-center[0].uri=" + upstream,
+                        "user-center.ribbon.listOfServers=" + server,
+                        "content-center.ribbon.listOfServers=" + server,
+                        "spring.zipkin.base-url=" + upstream + "/")
+                .run();
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * 打印结果与基线的对比
+     *
+     * @return 超出容忍度的退化
+     */
+    private static List<String> report(int concurrency, Map<String, LoadResult> results,
+                                       Map<String, LoadResult> baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%nGateway load test, concurrency %d%n", concurrency);
+        System.out.printf("%-16s %10s %8s %12s %10s %10s %10s %12s%n",
+                "scenario", "req/s", "errors", "p50(us)", "p99(us)", "p999(us)", "max(us)", "bytes/req");
+        for (Map.Entry<String, LoadResult> entry : results.entrySet()) {
+            LoadResult result = entry.getValue();
+            System.out.printf("%-16s %10.0f %8d %12.0f %10.0f %10.0f %10.0f %12.0f%n", entry.getKey(),
+                    result.getThroughput(), result.getErrors(), result.getP50Micros(), result.getP99Micros(),
+                    result.getP999Micros(), result.getMaxMicros(), result.getBytesPerRequest());
+            LoadResult base = baseline.get(entry.getKey());
+            if (base == null) {
+                continue;
+            }
+            System.out.printf("%-16s %+9.1f%% %8s %+11.1f%% %+9.1f%% %+9.1f%% %10s %+11.1f%%%n", "  vs baseline",
+                    change(result.getThroughput(), base.getThroughput()), "",
+                    change(result.getP50Micros(), base.getP50Micros()),
+                    change(result.getP99Micros(), base.getP99Micros()),
+                    change(result.getP999Micros(), base.getP999Micros()), "",
+                    change(result.getBytesPerRequest(), base.getBytesPerRequest()));
+            if (result.getThroughput() < base.getThroughput() * (1 - tolerance)) {
+                regressions.add(entry.getKey() + ": throughput " + Math.round(result.getThroughput())
+                        + " req/s, baseline " + Math.round(base.getThroughput()));
+            }
+            if (result.getP99Micros() > base.getP99Micros() * (1 + tolerance)) {
+                regressions.add(entry.getKey() + ": p99 " + Math.round(result.getP99Micros())
+                        + "us, baseline " + Math.round(base.getP99Micros()) + "us");
+            }
+        }
+        return regressions;
+    }
+
+    private static double change(double current, double baseline) {
+        return baseline == 0 ? 0 : (current - baseline) * 100 / baseline;
+    }
+}
@@ -0,0 +1,126 @@
+package com.itmuch.gateway.load;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * 闭环压测客户端：固定数量的并发请求，每个请求完成后立即发出下一个
+ *
+ *  ~ 延迟从发出请求到读完响应体，记录在 HdrHistogram（纳秒，3 位有效数字）
+ *  ~ 内存分配用 com.sun.management.ThreadMXBean#getThreadAllocatedBytes 统计，
+ *      排除 bench- 开头的线程（本客户端与 StubUpstreams）；压测期间退出的线程不计入
+ */
+final class LoadGenerator implements Closeable {
+
+    static final String THREAD_PREFIX = "bench-client";
+
+    private final LoopResources loops = LoopResources.create(THREAD_PREFIX,
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2), true);
+
+    private final ConnectionProvider connections;
+
+    private final HttpClient client;
+
+    private final int concurrency;
+
+    LoadGenerator(int port, int concurrency) {
+        this.concurrency = concurrency;
+        this.connections = ConnectionProvider.fixed(THREAD_PREFIX, concurrency);
+        this.client = HttpClient.create(this.connections)
+                .runOn(this.loops)
+                .baseUrl("http://127.0.0.1:" + port)
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT_ENCODING, "gzip"));
+    }
+
+    /**
+     * @param uri 第 n 个请求的路径
+     */
+    LoadResult run(LongFunction<String> uri, Duration warmup, Duration duration) {
+        drive(uri, warmup, new Recorder(3), new LongAdder());
+
+        Recorder recorder = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        long allocatedBefore = gatewayAllocatedBytes();
+        long start = System.nanoTime();
+        long requests = drive(uri, duration, recorder, errors);
+        long elapsed = System.nanoTime() - start;
+        long allocated = gatewayAllocatedBytes() - allocatedBefore;
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        LoadResult result = new LoadResult();
+        result.setRequests(requests);
+        result.setErrors(errors.sum());
+        result.setThroughput(requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+        result.setP50Micros(histogram.getValueAtPercentile(50) / 1000D);
+        result.setP99Micros(histogram.getValueAtPercentile(99) / 1000D);
+        result.setP999Micros(histogram.getValueAtPercentile(99.9) / 1000D);
+        result.setMaxMicros(histogram.getMaxValue() / 1000D);
+        result.setBytesPerRequest(requests == 0 ? 0 : allocated / (double) requests);
+        return result;
+    }
+
+    private long drive(LongFunction<String> uri, Duration duration, Recorder recorder, LongAdder errors) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong sequence = new AtomicLong();
+        Flux.range(0, this.concurrency)
+                .flatMap(worker -> Mono.defer(() -> request(uri.apply(sequence.getAndIncrement()), recorder, errors))
+                        .repeat(() -> System.nanoTime() < deadline), this.concurrency)
+                .blockLast();
+        return sequence.get();
+    }
+
+    private Mono<Void> request(String uri, Recorder recorder, LongAdder errors) {
+        long start = System.nanoTime();
+        return this.client.get()
+                .uri(uri)
+                .response((response, body) -> body.then(Mono.just(response.status().code())))
+                .next()
+                .doOnNext(status -> {
+                    recorder.recordValue(System.nanoTime() - start);
+                    if (status != 200) {
+                        errors.increment();
+                    }
+                })
+                .onErrorResume(e -> {
+                    errors.increment();
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static long gatewayAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threads.getAllThreadIds();
+        ThreadInfo[] infos = threads.getThreadInfo(ids);
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] != null && allocated[i] > 0 && !infos[i].getThreadName().startsWith("bench-")) {
+                total += allocated[i];
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        this.connections.dispose();
+        this.loops.dispose();
+    }
+}
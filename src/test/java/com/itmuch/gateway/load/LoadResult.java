@@ -0,0 +1,35 @@
+package com.itmuch.gateway.load;
+
+import lombok.Data;
+
+/**
+ * 一个压测场景的结果，同时也是基线文件中的一项
+ */
+@Data
+public class LoadResult {
+
+    private long requests;
+
+    /**
+     * 非 200 响应与连接错误
+     */
+    private long errors;
+
+    /**
+     * 每秒完成的请求数
+     */
+    private double throughput;
+
+    private double p50Micros;
+
+    private double p99Micros;
+
+    private double p999Micros;
+
+    private double maxMicros;
+
+    /**
+     * 网关线程（排除压测客户端与上游桩服务的线程）每个请求分配的堆内存字节数
+     */
+    private double bytesPerRequest;
+}
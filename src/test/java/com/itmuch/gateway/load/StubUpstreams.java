@@ -0,0 +1,69 @@
+package com.itmuch.gateway.load;
+
+import com.itmuch.gateway.support.SharesPayload;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyOutbound;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 压测用的本地上游：一个 Netty 服务同时扮演 user-center 、content-center 和 Zipkin
+ *
+ *  ~ GET /users/{id} ：单个用户的 JSON（约 80 字节）
+ *  ~ GET /shares/{id} ：20 条分享的 JSON（约 8KB，会被 Compress 压缩）
+ *  ~ POST /api/v2/spans ：读完请求体后返回 202
+ *  ~ 线程名以 bench- 开头，统计网关的内存分配时排除
+ */
+final class StubUpstreams implements Closeable {
+
+    private static final String THREAD_PREFIX = "bench-upstream";
+
+    private static final byte[] USER = ("{\"id\":1,\"wxId\":\"wx-1\",\"wxNickname\":\"itmuch\","
+            + "\"roles\":\"user\",\"bonus\":300}").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] SHARES = SharesPayload.json(20);
+
+    private final LoopResources loops = LoopResources.create(THREAD_PREFIX, 2, true);
+
+    private final DisposableServer server;
+
+    StubUpstreams() {
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .runOn(this.loops)
+                .route(routes -> routes
+                        .get("/users/{id}", (request, response) -> json(response, USER))
+                        .get("/shares/{id}", (request, response) -> json(response, SHARES))
+                        .post("/api/v2/spans", (request, response) -> request.receive().then()
+                                .then(response.status(HttpResponseStatus.ACCEPTED).send())))
+                .bindNow();
+    }
+
+    int port() {
+        return this.server.port();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + port();
+    }
+
+    private static NettyOutbound json(HttpServerResponse response, byte[] body) {
+        return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json;charset=UTF-8")
+                .header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(body.length))
+                .sendByteArray(Mono.just(body));
+    }
+
+    @Override
+    public void close() {
+        this.server.disposeNow();
+        this.loops.dispose();
+    }
+}
@@ -0,0 +1,200 @@
+package com.itmuch.gateway.loadbalancer;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 自适应负载均衡与轮询的对比（离散事件模拟 + 模拟时钟）
+ *
+ *  ~ 10 个本地桩实例，每个 8 个工作线程，超出后排队：
+ *      6 个快实例（平均 10ms）、2 个中等实例（30ms）、1 个慢实例（200ms）、1 个一半请求快速失败的实例
+ *  ~ 泊松到达，每秒 2000 个请求，模拟 30 秒；服务时间服从指数分布
+ *  ~ 统计：成功请求的 p50/p99 与失败率
+ *
+ *  运行：mvn test -P benchmark
+ */
+@Tag("benchmark")
+class AdaptiveLoadBalancerBenchmark {
+
+    private static final String SERVICE = "user-center";
+    private static final int WORKERS = 8;
+    private static final double RATE_PER_SECOND = 2000D;
+    private static final int SECONDS = 30;
+
+    @Test
+    void adaptiveBeatsRoundRobinAtP99() {
+        Result roundRobin = run("round-robin", false);
+        Result adaptive = run("adaptive P2C", true);
+
+        System.out.println(roundRobin);
+        System.out.println(adaptive);
+
+        assertTrue(adaptive.latency.getValueAtPercentile(99D) * 4 < roundRobin.latency.getValueAtPercentile(99D));
+        assertTrue(adaptive.errorRate() < roundRobin.errorRate() / 4);
+    }
+
+    private Result run(String name, boolean adaptive) {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveLoadBalancer balancer = new AdaptiveLoadBalancer(
+                new AdaptiveLoadBalancer.Settings(10000L, 3000L, 5, 5000L, 60000L), clock::get);
+        List<Backend> backends = backends();
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (Backend backend : backends) {
+            instances.add(backend.instance);
+        }
+
+        Random random = new Random(7L);
+        PriorityQueue<Completion> completions = new PriorityQueue<>();
+        Result result = new Result(name);
+        long end = TimeUnit.SECONDS.toNanos(SECONDS);
+        long nextArrival = 0L;
+        int roundRobin = 0;
+
+        while (nextArrival < end) {
+            // 先处理到达时间之前完成的请求
+            while (!completions.isEmpty() && completions.peek().time <= nextArrival) {
+                Completion completion = completions.poll();
+                clock.set(completion.time);
+                completion.finish(result);
+                Request queued = completion.backend.queue.poll();
+                if (queued == null) {
+                    completion.backend.busy--;
+                } else {
+                    completions.add(completion.backend.serve(queued, completion.time, random));
+                }
+            }
+
+            clock.set(nextArrival);
+            Backend backend;
+            AdaptiveLoadBalancer.Call call = null;
+            if (adaptive) {
+                ServiceInstance chosen = balancer.choose(SERVICE, instances);
+                backend = backends.get(instances.indexOf(chosen));
+                call = balancer.begin(SERVICE, chosen);
+            } else {
+                backend = backends.get(roundRobin++ % backends.size());
+            }
+            Request request = new Request(nextArrival, call);
+            if (backend.busy < WORKERS) {
+                backend.busy++;
+                completions.add(backend.serve(request, nextArrival, random));
+            } else {
+                backend.queue.add(request);
+            }
+            nextArrival += (long) (-Math.log(1D - random.nextDouble()) / RATE_PER_SECOND * 1e9);
+        }
+        return result;
+    }
+
+    private static List<Backend> backends() {
+        List<Backend> backends = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            backends.add(new Backend(i, 10D, 0D));
+        }
+        backends.add(new Backend(6, 30D, 0D));
+        backends.add(new Backend(7, 30D, 0D));
+        backends.add(new Backend(8, 200D, 0D));
+        backends.add(new Backend(9, 1D, 0.5D));
+        return backends;
+    }
+
+    private static final class Backend {
+        private final ServiceInstance instance;
+        private final double meanMillis;
+        private final double errorRate;
+        private final ArrayDeque<Request> queue = new ArrayDeque<>();
+        private int busy;
+
+        private Backend(int index, double meanMillis, double errorRate) {
+            this.instance = new DefaultServiceInstance(
+                    SERVICE + "-" + index, SERVICE, "10.0.0." + index, 8080, false);
+            this.meanMillis = meanMillis;
+            this.errorRate = errorRate;
+        }
+
+        private Completion serve(Request request, long now, Random random) {
+            long service = (long) (-Math.log(1D - random.nextDouble()) * this.meanMillis * 1e6);
+            boolean failed = random.nextDouble() < this.errorRate;
+            return new Completion(now + service, this, request, failed);
+        }
+    }
+
+    private static final class Request {
+        private final long arrival;
+        private final AdaptiveLoadBalancer.Call call;
+
+        private Request(long arrival, AdaptiveLoadBalancer.Call call) {
+            this.arrival = arrival;
+            this.call = call;
+        }
+    }
+
+    private static final class Completion implements Comparable<Completion> {
+        private final long time;
+        private final Backend backend;
+        private final Request request;
+        private final boolean failed;
+
+        private Completion(long time, Backend backend, Request request, boolean failed) {
+            this.time = time;
+            this.backend = backend;
+            this.request = request;
+            this.failed = failed;
+        }
+
+        private void finish(Result result) {
+            if (this.request.call != null) {
+                this.request.call.end(this.failed);
+            }
+            result.requests++;
+            if (this.failed) {
+                result.errors++;
+            } else {
+                result.latency.recordValue(Math.max(1L, (this.time - this.request.arrival) / 1000L));
+            }
+        }
+
+        @Override
+        public int compareTo(Completion other) {
+            return Long.compare(this.time, other.time);
+        }
+    }
+
+    private static final class Result {
+        private final String name;
+        private final Histogram latency = new Histogram(2);
+        private long requests;
+        private long errors;
+
+        private Result(String name) {
+            this.name = name;
+        }
+
+        double errorRate() {
+            return this.errors / (double) this.requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-14s requests=%d p50=%.1fms p99=%.1fms max=%.1fms errors=%.2f%%",
+                    this.name, this.requests,
+                    this.latency.getValueAtPercentile(50D) / 1000D,
+                    this.latency.getValueAtPercentile(99D) / 1000D,
+                    this.latency.getMaxValue() / 1000D,
+                    errorRate() * 100D);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.itmuch.gateway.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GatewayLatencyEndpointTests {
+
+    private final LatencyRegistry registry = new LatencyRegistry(null);
+
+    private final GatewayLatencyEndpoint endpoint = new GatewayLatencyEndpoint(this.registry);
+
+    @Test
+    void deleteResetsAccumulatedLatency() {
+        this.registry.route("user-center-id").record(TimeUnit.MILLISECONDS.toNanos(1));
+        this.registry.filter("user-center-id", "PreLog").record(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(1L, route("user-center-id").getCount());
+
+        this.endpoint.reset();
+
+        assertEquals(0L, route("user-center-id").getCount());
+        assertEquals(0L, section("filters").get("user-center-id/PreLog").getCount());
+    }
+
+    private LatencySnapshot route(String routeId) {
+        return section("routes").get(routeId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, LatencySnapshot> section(String name) {
+        return (Map<String, LatencySnapshot>) this.endpoint.latency().get(name);
+    }
+}
@@ -0,0 +1,114 @@
+package com.itmuch.gateway.metrics;
+
+import com.itmuch.gateway.JmhRunner;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 埋点开销：原始过滤器 vs 包装后的过滤器 vs 全局过滤器，4 个线程并发记录到同一个直方图
+ *
+ *  运行：mvn test -P benchmark ；断言埋点带来的额外耗时远小于 1 微秒
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LatencyInstrumentationBenchmark {
+
+    private static final long BUDGET_NANOS = 500L;
+
+    private MockServerWebExchange exchange;
+
+    private GatewayFilter plain;
+
+    private GatewayFilter timed;
+
+    private RouteLatencyGlobalFilter global;
+
+    private LatencyRecorder recorder;
+
+    private final GatewayFilterChain chain = exchange -> Mono.empty();
+
+    @Setup
+    public void setUp() {
+        LatencyRegistry registry = new LatencyRegistry(null);
+        this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1"));
+        this.exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async()
+                .id("user-center-id")
+                .uri(URI.create("lb://user-center"))
+                .order(0)
+                .asyncPredicate(e -> Mono.just(true))
+                .build());
+        this.plain = (exchange, chain) -> chain.filter(exchange);
+        this.timed = TimedGatewayFilter.wrap(this.plain, "PreLog", registry);
+        this.global = new RouteLatencyGlobalFilter(registry);
+        this.recorder = registry.route("calibration");
+    }
+
+    @Benchmark
+    public Object plainFilter() {
+        return this.plain.filter(this.exchange, this.chain).block();
+    }
+
+    @Benchmark
+    public Object timedFilter() {
+        return this.timed.filter(this.exchange, this.chain).block();
+    }
+
+    @Benchmark
+    public Object globalFilter() {
+        return this.global.filter(this.exchange, this.chain).block();
+    }
+
+    @Benchmark
+    public void recordOnly() {
+        long start = System.nanoTime();
+        this.recorder.record(System.nanoTime() - start);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        Collection<RunResult> results = JmhRunner.run(LatencyInstrumentationBenchmark.class);
+        Map<String, Double> scores = new HashMap<>();
+        for (RunResult result : results) {
+            String label = result.getPrimaryResult().getLabel();
+            scores.put(label, result.getPrimaryResult().getScore());
+        }
+        double plain = scores.get("plainFilter");
+        assertTrue(scores.get("recordOnly") < BUDGET_NANOS);
+        assertTrue(scores.get("timedFilter") - plain < BUDGET_NANOS);
+        assertTrue(scores.get("globalFilter") - plain < BUDGET_NANOS);
+    }
+}
@@ -0,0 +1,77 @@
+package com.itmuch.gateway.metrics;
+
+import com.itmuch.gateway.shard.LoopShards;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyRecorderTests {
+
+    private static final long MICROS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    @Test
+    void snapshotReportsMicros() {
+        LatencyRecorder recorder = new LatencyRecorder("user-center-id");
+        for (int i = 1; i <= 100; i++) {
+            recorder.record(i * 100 * MICROS);
+        }
+
+        LatencySnapshot snapshot = recorder.snapshot();
+        assertEquals("user-center-id", snapshot.getName());
+        assertEquals(100L, snapshot.getCount());
+        // 两位有效数字，误差 1% 以内
+        assertEquals(5_000D, snapshot.getP50(), 50D);
+        assertEquals(9_900D, snapshot.getP99(), 99D);
+        assertEquals(10_000D, snapshot.getMax(), 100D);
+        assertEquals(snapshot.getP90(), snapshot.getValueAtQuantile(0.9D));
+    }
+
+    @Test
+    void snapshotsAccumulateAcrossShardsUntilReset() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder("route", new LoopShards(4));
+        recorder.record(MICROS);
+        Thread other = new Thread(() -> recorder.record(MICROS));
+        other.start();
+        other.join();
+
+        assertEquals(2L, recorder.snapshot().getCount());
+        // 读取不清空累计数据
+        recorder.record(MICROS);
+        assertEquals(3L, recorder.snapshot().getCount());
+
+        recorder.reset();
+        assertEquals(0L, recorder.snapshot().getCount());
+        recorder.record(MICROS);
+        assertEquals(1L, recorder.snapshot().getCount());
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyRecorder recorder = new LatencyRecorder("route");
+        recorder.record(-1L);
+        recorder.record(TimeUnit.HOURS.toNanos(1));
+
+        LatencySnapshot snapshot = recorder.snapshot();
+        assertEquals(2L, snapshot.getCount());
+        assertEquals(TimeUnit.MINUTES.toMicros(1), snapshot.getMax(), TimeUnit.MINUTES.toMicros(1) / 100D);
+    }
+
+    @Test
+    void oldSlotsLeaveTheWindow() {
+        LatencyRecorder recorder = new LatencyRecorder("route", new LoopShards(1), 3);
+        recorder.record(TimeUnit.SECONDS.toNanos(10));
+        recorder.rotate();
+        recorder.record(MICROS);
+        recorder.rotate();
+
+        assertEquals(2L, recorder.snapshot().getCount());
+        // 10 秒的慢请求所在的时间片滑出窗口后不再影响分位数
+        recorder.rotate();
+        LatencySnapshot snapshot = recorder.snapshot();
+        assertEquals(1L, snapshot.getCount());
+        assertEquals(1D, snapshot.getMax(), 0.02D);
+        assertEquals(2L, recorder.getTotalCount());
+    }
+}
@@ -0,0 +1,80 @@
+package com.itmuch.gateway.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyRegistryTests {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final LatencyRegistry registry = new LatencyRegistry(this.meterRegistry);
+
+    @Test
+    void recordersAreCachedPerRouteAndFilter() {
+        assertSame(this.registry.route("a"), this.registry.route("a"));
+        assertSame(this.registry.filter("a", "PreLog"), this.registry.filter("a", "PreLog"));
+        assertNotSame(this.registry.filter("a", "PreLog"), this.registry.filter("b", "PreLog"));
+        assertEquals("a/PreLog", this.registry.filter("a", "PreLog").getName());
+        assertEquals(1, this.registry.routes().size());
+        assertEquals(2, this.registry.filters().size());
+    }
+
+    @Test
+    void metersAreComputedOnScrape() {
+        this.registry.route("a").record(2 * MILLIS);
+        this.registry.filter("a", "PreLog").record(MILLIS);
+
+        assertEquals(2_000D, this.meterRegistry.get(LatencyRegistry.ROUTE_METRIC)
+                .tag("route", "a").tag("quantile", "0.5").gauge().value(), 20D);
+        assertEquals(1D, this.meterRegistry.get(LatencyRegistry.ROUTE_METRIC + ".count")
+                .tag("route", "a").functionCounter().count());
+        assertEquals(1_000D, this.meterRegistry.get(LatencyRegistry.FILTER_METRIC)
+                .tag("route", "a").tag("filter", "PreLog").tag("quantile", "0.99").gauge().value(), 10D);
+    }
+
+    @Test
+    void resetClearsRoutesAndFilters() {
+        this.registry.route("a").record(MILLIS);
+        this.registry.filter("a", "PreLog").record(MILLIS);
+
+        this.registry.reset();
+
+        assertEquals(0L, this.registry.route("a").snapshot().getCount());
+        assertEquals(0L, this.registry.filter("a", "PreLog").snapshot().getCount());
+    }
+
+    @Test
+    void worksWithoutMeterRegistry() {
+        LatencyRegistry registry = new LatencyRegistry(null);
+        registry.route("a").record(MILLIS);
+
+        assertEquals(1L, registry.route("a").snapshot().getCount());
+    }
+
+    @Test
+    void removedRoutesDropTheirMeters() {
+        this.registry.route("a").record(MILLIS);
+        this.registry.filter("a", "PreLog").record(MILLIS);
+        this.registry.filter("a/b", "PreLog").record(MILLIS);
+
+        this.registry.remove(Collections.singletonList("a"));
+
+        assertTrue(this.registry.routes().isEmpty());
+        assertEquals(1, this.registry.filters().size());
+        assertNull(this.meterRegistry.find(LatencyRegistry.ROUTE_METRIC).tag("route", "a").gauge());
+        assertNull(this.meterRegistry.find(LatencyRegistry.FILTER_METRIC).tag("route", "a").gauge());
+        assertEquals(1D, this.meterRegistry.get(LatencyRegistry.FILTER_METRIC + ".count")
+                .tag("route", "a/b").functionCounter().count());
+    }
+}
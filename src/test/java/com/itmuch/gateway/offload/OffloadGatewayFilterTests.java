@@ -0,0 +1,143 @@
+package com.itmuch.gateway.offload;
+
+import com.itmuch.gateway.metrics.LatencyRegistry;
+import com.itmuch.gateway.metrics.TimedGatewayFilterDecorator;
+import com.itmuch.gateway.route.DecoratingGatewayFilterFactory;
+import io.netty.channel.DefaultEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffloadGatewayFilterTests {
+
+    private static final long BLOCK_MILLIS = 200L;
+
+    private final DefaultEventLoopGroup loop = new DefaultEventLoopGroup(1);
+
+    private final OffloadExecutor executor = new OffloadExecutor(4, 16, false, null);
+
+    private final EventLoopBlockingDetector detector = new EventLoopBlockingDetector(() -> this.loop, 10L, 100L,
+            Collections.singletonList("com.itmuch.gateway"), null);
+
+    /**
+     * 模拟同步写日志、阻塞的 Redis 调用等
+     */
+    private final GatewayFilter blocking = (exchange, chain) -> {
+        sleep(BLOCK_MILLIS);
+        return chain.filter(exchange);
+    };
+
+    @AfterEach
+    void tearDown() {
+        this.loop.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        this.executor.destroy();
+        this.detector.destroy();
+    }
+
+    @Test
+    void eventLoopLatencyStaysFlatWhenBlockingFilterIsOffloaded() throws InterruptedException {
+        List<MockServerWebExchange> exchanges = serve(OffloadGatewayFilter.wrap(this.blocking, "Blocking",
+                this.executor), 3);
+
+        long maxLagMillis = TimeUnit.NANOSECONDS.toMillis(this.detector.getMaxLagNanos());
+        assertTrue(maxLagMillis < 50L, "event loop lag " + maxLagMillis + "ms");
+        assertTrue(this.detector.getBlockingFilters().isEmpty());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        }
+    }
+
+    @Test
+    void blockingFilterOnEventLoopIsDetected() throws InterruptedException {
+        serve(this.blocking, 3);
+
+        long maxLagMillis = TimeUnit.NANOSECONDS.toMillis(this.detector.getMaxLagNanos());
+        assertTrue(maxLagMillis >= BLOCK_MILLIS, "event loop lag " + maxLagMillis + "ms");
+        assertTrue(this.detector.getBlockingFilters().keySet().stream()
+                .anyMatch(culprit -> culprit.startsWith(getClass().getSimpleName())),
+                "culprits " + this.detector.getBlockingFilters());
+    }
+
+    @Test
+    void saturatedExecutorRejectsWith503() throws InterruptedException {
+        OffloadExecutor single = new OffloadExecutor(1, 0, false, null);
+        try {
+            List<MockServerWebExchange> exchanges = serve(OffloadGatewayFilter.wrap(this.blocking, "Blocking",
+                    single), 2);
+
+            assertEquals(HttpStatus.OK, exchanges.get(0).getResponse().getStatusCode());
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchanges.get(1).getResponse().getStatusCode());
+            assertEquals(1L, single.getRejected());
+        } finally {
+            single.destroy();
+        }
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void offloadIsInsideTimingWhateverTheRegistrationOrder() {
+        List<GatewayFilterFactory> factories = DecoratingGatewayFilterFactory.decorate(
+                Arrays.asList(new AddRequestHeaderGatewayFilterFactory(), new AddResponseHeaderGatewayFilterFactory()),
+                Arrays.asList(new TimedGatewayFilterDecorator(new LatencyRegistry(null)),
+                        new OffloadGatewayFilterDecorator(this.executor, Collections.singletonList("AddRequestHeader"))));
+
+        GatewayFilter offloaded = factories.get(0).apply(factories.get(0).newConfig());
+        GatewayFilter plain = factories.get(1).apply(factories.get(1).newConfig());
+
+        assertTrue(offloaded.toString().startsWith("Timed[AddRequestHeader]Offload[AddRequestHeader]"),
+                offloaded.toString());
+        assertTrue(plain.toString().startsWith("Timed[AddResponseHeader]")
+                && !plain.toString().contains("Offload["), plain.toString());
+    }
+
+    /**
+     * 在事件循环上并发处理 requests 个请求，同时每 10ms 探测一次事件循环的延迟
+     */
+    private List<MockServerWebExchange> serve(GatewayFilter filter, int requests) throws InterruptedException {
+        GatewayFilterChain upstream = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        };
+        CountDownLatch done = new CountDownLatch(requests);
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/" + i));
+            exchanges.add(exchange);
+            this.loop.execute(() -> filter.filter(exchange, upstream).doFinally(signal -> done.countDown()).subscribe());
+        }
+        // 第一个探针就排在阻塞的请求后面，仍然要能抓到事件循环线程的堆栈
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!done.await(10L, TimeUnit.MILLISECONDS) && System.nanoTime() < deadline) {
+            this.detector.check();
+        }
+        // 等排在后面的探针执行完
+        this.loop.submit(() -> { }).syncUninterruptibly();
+        return exchanges;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
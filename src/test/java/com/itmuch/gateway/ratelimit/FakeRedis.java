@@ -0,0 +1,84 @@
+package com.itmuch.gateway.ratelimit;
+
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 内存版 Redis 替身：实现与 Lua 脚本相同的令牌桶语义，并统计脚本调用次数
+ */
+class FakeRedis {
+
+    private final LongSupplier nanoClock;
+
+    private final Map<String, double[]> buckets = new HashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+
+    FakeRedis(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    long calls() {
+        return this.calls.get();
+    }
+
+    synchronized long take(String key, int rate, int capacity, long requested) {
+        long now = this.nanoClock.getAsLong();
+        double[] bucket = this.buckets.computeIfAbsent(key, k -> new double[]{capacity, now});
+        double elapsedSeconds = (now - bucket[1]) / (double) TimeUnit.SECONDS.toNanos(1);
+        double filled = Math.min(capacity, bucket[0] + Math.max(0D, elapsedSeconds) * rate);
+        long granted = Math.min(requested, (long) Math.floor(filled));
+        bucket[0] = filled - granted;
+        bucket[1] = now;
+        return granted;
+    }
+
+    /**
+     * 混合限流器使用的批量租借存储，一次调用计为一次 Redis 操作
+     */
+    TokenLeaseStore leaseStore() {
+        return requests -> {
+            this.calls.incrementAndGet();
+            List<Long> granted = new ArrayList<>(requests.size());
+            for (TokenLeaseStore.LeaseRequest request : requests) {
+                granted.add(take(request.getKey(), request.getReplenishRate(),
+                        request.getBurstCapacity(), request.getRequested()));
+            }
+            return Mono.just(granted);
+        };
+    }
+
+    /**
+     * 供 RedisRateLimiter 使用的 ReactiveRedisTemplate ，模拟 request_rate_limiter.lua 的执行结果
+     *      keys: [tokens_key, timestamp_key]  args: [replenishRate, burstCapacity, now, requested]
+     */
+    @SuppressWarnings("unchecked")
+    ReactiveRedisTemplate<String, String> template() {
+        ReactiveRedisTemplate<String, String> template = mock(ReactiveRedisTemplate.class);
+        doAnswer(invocation -> {
+            this.calls.incrementAndGet();
+            List<String> keys = invocation.getArgument(1);
+            List<String> args = invocation.getArgument(2);
+            long granted = take(keys.get(0), Integer.parseInt(args.get(0)),
+                    Integer.parseInt(args.get(1)), Long.parseLong(args.get(3)));
+            double[] bucket = this.buckets.get(keys.get(0));
+            return Flux.just(Arrays.asList(granted > 0 ? 1L : 0L, (long) bucket[0]));
+        }).when(template).execute(any(), anyList(), anyList());
+        return template;
+    }
+}
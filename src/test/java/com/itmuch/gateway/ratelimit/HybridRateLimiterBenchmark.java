@@ -0,0 +1,140 @@
+package com.itmuch.gateway.ratelimit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 混合限流器与 RedisRateLimiter 的对比压测（模拟时钟 + 内存版 Redis）
+ *
+ *  ~ 4 个网关节点共享同一个 Redis ，20 个 key ：4 个热点 key 每秒 300 次请求（超限），16 个普通 key 每秒 20 次
+ *  ~ 每个 key 的全局限额：replenishRate = 100 ，burstCapacity = 200 ，模拟 30 秒
+ *  ~ 统计：每个请求的 Redis 操作次数，以及放行数量与理论值的比例
+ *
+ *  运行：mvn test -P benchmark
+ */
+@Tag("benchmark")
+class HybridRateLimiterBenchmark {
+
+    private static final String ROUTE = "user-center-id";
+    private static final int NODES = 4;
+    private static final int KEYS = 20;
+    private static final int HOT_KEYS = 4;
+    private static final int SECONDS = 30;
+    private static final int RATE = 100;
+    private static final int BURST = 200;
+
+    @Test
+    void hybridCutsRedisOpsAndStaysAccurate() {
+        Result baseline = run("RedisRateLimiter", this::redisRateLimiters);
+        Result hybrid = run("HybridRateLimiter", this::hybridRateLimiters);
+
+        System.out.println(baseline);
+        System.out.println(hybrid);
+
+        assertTrue(hybrid.opsPerRequest() < baseline.opsPerRequest() / 4);
+        assertTrue(hybrid.accuracy() > 0.75D && hybrid.accuracy() <= 1.0D);
+        assertTrue(hybrid.maxOverAdmit <= 0);
+    }
+
+    private Result run(String name, BiFunction<FakeRedis, AtomicLong, RateLimiter<?>[]> factory) {
+        AtomicLong clock = new AtomicLong(1L);
+        FakeRedis redis = new FakeRedis(clock::get);
+        RateLimiter<?>[] nodes = factory.apply(redis, clock);
+        Random random = new Random(42L);
+
+        double[] owed = new double[KEYS];
+        long[] allowed = new long[KEYS];
+        long requests = 0L;
+        for (long ms = 0; ms < TimeUnit.SECONDS.toMillis(SECONDS); ms++) {
+            clock.set(TimeUnit.MILLISECONDS.toNanos(ms) + 1L);
+            for (int k = 0; k < KEYS; k++) {
+                owed[k] += demand(k) / 1000D;
+                while (owed[k] >= 1D) {
+                    owed[k] -= 1D;
+                    requests++;
+                    RateLimiter<?> node = nodes[random.nextInt(NODES)];
+                    if (node.isAllowed(ROUTE, "key-" + k).block().isAllowed()) {
+                        allowed[k]++;
+                    }
+                }
+            }
+        }
+
+        Result result = new Result(name, requests, redis.calls());
+        for (int k = 0; k < KEYS; k++) {
+            long ideal = Math.min((long) demand(k) * SECONDS, (long) RATE * SECONDS + BURST);
+            result.allowed += allowed[k];
+            result.ideal += ideal;
+            result.maxOverAdmit = Math.max(result.maxOverAdmit, allowed[k] - ((long) RATE * SECONDS + BURST));
+        }
+        return result;
+    }
+
+    private static int demand(int key) {
+        return key < HOT_KEYS ? 300 : 20;
+    }
+
+    private RateLimiter<?>[] redisRateLimiters(FakeRedis redis, AtomicLong clock) {
+        RateLimiter<?>[] nodes = new RateLimiter<?>[NODES];
+        for (int i = 0; i < NODES; i++) {
+            RedisRateLimiter limiter = new RedisRateLimiter(redis.template(), null, null);
+            limiter.getConfig().put(ROUTE, new RedisRateLimiter.Config()
+                    .setReplenishRate(RATE)
+                    .setBurstCapacity(BURST));
+            nodes[i] = limiter;
+        }
+        return nodes;
+    }
+
+    private RateLimiter<?>[] hybridRateLimiters(FakeRedis redis, AtomicLong clock) {
+        RateLimiter<?>[] nodes = new RateLimiter<?>[NODES];
+        TokenLeaseStore store = redis.leaseStore();
+        for (int i = 0; i < NODES; i++) {
+            HybridRateLimiter limiter = new HybridRateLimiter(store, null, 1000L, 200L, 128, 10000, clock::get);
+            HybridRateLimiter.Config config = new HybridRateLimiter.Config();
+            config.setReplenishRate(RATE);
+            config.setBurstCapacity(BURST);
+            limiter.getConfig().put(ROUTE, config);
+            nodes[i] = limiter;
+        }
+        return nodes;
+    }
+
+    private static final class Result {
+        private final String name;
+        private final long requests;
+        private final long redisOps;
+        private long allowed;
+        private long ideal;
+        private long maxOverAdmit = Long.MIN_VALUE;
+
+        private Result(String name, long requests, long redisOps) {
+            this.name = name;
+            this.requests = requests;
+            this.redisOps = redisOps;
+        }
+
+        double opsPerRequest() {
+            return this.redisOps / (double) this.requests;
+        }
+
+        double accuracy() {
+            return this.allowed / (double) this.ideal;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-18s requests=%d redisOps=%d ops/request=%.4f allowed=%d ideal=%d accuracy=%.3f",
+                    this.name, this.requests, this.redisOps, opsPerRequest(), this.allowed, this.ideal, accuracy());
+        }
+    }
+}
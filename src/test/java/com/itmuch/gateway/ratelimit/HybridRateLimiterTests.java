@@ -0,0 +1,89 @@
+package com.itmuch.gateway.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HybridRateLimiterTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(2);
+
+    private final AtomicLong clock = new AtomicLong(1L);
+
+    private final FakeRedis redis = new FakeRedis(this.clock::get);
+
+    private HybridRateLimiter rateLimiter;
+
+    @AfterEach
+    void tearDown() {
+        this.rateLimiter.destroy();
+    }
+
+    @Test
+    void hungLeaseTimesOutAndFallsBackToLocalBucket() {
+        this.rateLimiter = limiter(requests -> Mono.never(), 50L);
+        configure("slow", 1, 2);
+
+        RateLimiter.Response first = this.rateLimiter.isAllowed("slow", "a").block(WAIT);
+        RateLimiter.Response second = this.rateLimiter.isAllowed("slow", "a").block(WAIT);
+        RateLimiter.Response third = this.rateLimiter.isAllowed("slow", "a").block(WAIT);
+
+        assertTrue(first.isAllowed());
+        assertTrue(second.isAllowed());
+        assertFalse(third.isAllowed());
+    }
+
+    @Test
+    void hungRouteDoesNotBlockOtherRoutes() {
+        TokenLeaseStore working = this.redis.leaseStore();
+        this.rateLimiter = limiter(requests -> requests.get(0).getKey().startsWith("slow:")
+                ? Mono.never() : working.lease(requests), 5_000L);
+        configure("slow", 10, 10);
+        configure("fast", 10, 10);
+
+        this.rateLimiter.isAllowed("slow", "a").subscribe();
+
+        assertTrue(this.rateLimiter.isAllowed("fast", "a").block(WAIT).isAllowed());
+        assertEquals(1L, this.redis.calls());
+    }
+
+    @Test
+    void refillsResumeAfterTimeout() {
+        AtomicInteger calls = new AtomicInteger();
+        TokenLeaseStore working = this.redis.leaseStore();
+        this.rateLimiter = limiter(requests -> calls.getAndIncrement() == 0
+                ? Mono.never() : working.lease(requests), 50L);
+        configure("route", 10, 10);
+
+        assertTrue(this.rateLimiter.isAllowed("route", "a").block(WAIT).isAllowed());
+        // 一个租约时长内直接使用本地令牌桶，不再访问 Redis
+        assertTrue(this.rateLimiter.isAllowed("route", "a").block(WAIT).isAllowed());
+        assertEquals(1, calls.get());
+
+        this.clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(this.rateLimiter.isAllowed("route", "a").block(WAIT).isAllowed());
+        assertEquals(2, calls.get());
+        assertEquals(1L, this.redis.calls());
+    }
+
+    private HybridRateLimiter limiter(TokenLeaseStore store, long leaseTimeoutMillis) {
+        return new HybridRateLimiter(store, null, 1000L, leaseTimeoutMillis, 128, 1000, this.clock::get);
+    }
+
+    private void configure(String routeId, int replenishRate, int burstCapacity) {
+        HybridRateLimiter.Config config = new HybridRateLimiter.Config();
+        config.setReplenishRate(replenishRate);
+        config.setBurstCapacity(burstCapacity);
+        this.rateLimiter.getConfig().put(routeId, config);
+    }
+}
@@ -0,0 +1,73 @@
+package com.itmuch.gateway.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRateLimiterTests {
+
+    private LocalRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        this.rateLimiter = new LocalRateLimiter(null, 64, 4, 60);
+        LocalRateLimiter.Config config = new LocalRateLimiter.Config();
+        config.setReplenishRate(1);
+        config.setBurstCapacity(2);
+        this.rateLimiter.getConfig().put("user-center-id", config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.rateLimiter.destroy();
+    }
+
+    @Test
+    void burstCapacityIsHonoured() {
+        RateLimiter.Response first = this.rateLimiter.isAllowed("user-center-id", "/users/1").block();
+        RateLimiter.Response second = this.rateLimiter.isAllowed("user-center-id", "/users/1").block();
+        RateLimiter.Response third = this.rateLimiter.isAllowed("user-center-id", "/users/1").block();
+
+        assertTrue(first.isAllowed());
+        assertEquals("1", first.getHeaders().get(RedisRateLimiter.REMAINING_HEADER));
+        assertTrue(second.isAllowed());
+        assertFalse(third.isAllowed());
+        assertEquals("0", third.getHeaders().get(RedisRateLimiter.REMAINING_HEADER));
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        this.rateLimiter.isAllowed("user-center-id", "/users/1").block();
+        this.rateLimiter.isAllowed("user-center-id", "/users/1").block();
+
+        assertTrue(this.rateLimiter.isAllowed("user-center-id", "/users/2").block().isAllowed());
+    }
+
+    @Test
+    void tableSizeIsBounded() {
+        for (int i = 0; i < 1000; i++) {
+            this.rateLimiter.isAllowed("user-center-id", "/users/" + i).block();
+        }
+        assertTrue(this.rateLimiter.size("user-center-id") <= 64 + 4);
+    }
+
+    @Test
+    void idleBucketsAreEvicted() {
+        TokenBucketTable table = new TokenBucketTable(16, 1);
+        long now = 0L;
+        table.bucket("a", now).tryAcquire(now, 10L, 20L, 1);
+        table.bucket("b", now);
+
+        table.evictIdle(now);
+        assertEquals(1, table.size());
+
+        table.evictIdle(now + 10L);
+        assertEquals(0, table.size());
+    }
+}
@@ -0,0 +1,103 @@
+package com.itmuch.gateway.ratelimit;
+
+import com.itmuch.gateway.shard.LoopShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedRateLimiterTests {
+
+    private static final String ROUTE = "user-center-id";
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private ShardedRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // 后台重新分配的间隔足够长，测试中手动调用 rebalance
+        this.rateLimiter = new ShardedRateLimiter(null, new LoopShards(4), 64, 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.rateLimiter.destroy();
+    }
+
+    @Test
+    void singleLoopGetsWholeLimit() {
+        LocalRateLimiter.Config config = config(1, 2);
+        long now = 0L;
+
+        RateLimiter.Response first = this.rateLimiter.tryAcquire(ROUTE, "/users/1", config, 1, 0, now);
+        RateLimiter.Response second = this.rateLimiter.tryAcquire(ROUTE, "/users/1", config, 1, 0, now);
+        this.rateLimiter.rebalance(now);
+        RateLimiter.Response third = this.rateLimiter.tryAcquire(ROUTE, "/users/1", config, 1, 0, now);
+
+        assertTrue(first.isAllowed());
+        assertEquals("1", first.getHeaders().get(RedisRateLimiter.REMAINING_HEADER));
+        assertTrue(second.isAllowed());
+        assertFalse(third.isAllowed());
+        assertEquals(1D, this.rateLimiter.share(ROUTE, "/users/1", 0));
+    }
+
+    @Test
+    void globalLimitIsSplitByTraffic() {
+        // 每秒 100 个令牌，两个事件循环上的流量 3:1 ，合计远超限额
+        LocalRateLimiter.Config config = config(100, 100);
+        int[] allowed = new int[2];
+        long now = 0L;
+        for (int ms = 1; ms <= 10_000; ms++) {
+            now = ms * MILLIS;
+            for (int i = 0; i < 3; i++) {
+                if (this.rateLimiter.tryAcquire(ROUTE, "hot", config, 1, 0, now).isAllowed()) {
+                    allowed[0]++;
+                }
+            }
+            if (this.rateLimiter.tryAcquire(ROUTE, "hot", config, 1, 1, now).isAllowed()) {
+                allowed[1]++;
+            }
+            if (ms % 100 == 0) {
+                this.rateLimiter.rebalance(now);
+            }
+        }
+
+        double busy = this.rateLimiter.share(ROUTE, "hot", 0);
+        double quiet = this.rateLimiter.share(ROUTE, "hot", 1);
+        assertEquals(1D, busy + quiet, 1e-9);
+        assertEquals(0.725D, busy, 0.01D);
+        // 10 秒 * 100 + 桶容量 100 ，再加上第二个事件循环加入后第一个周期多放行的部分
+        int total = allowed[0] + allowed[1];
+        assertTrue(total >= 1000 && total <= 1200, "allowed " + total);
+        assertTrue(allowed[0] > 2 * allowed[1], "allowed " + allowed[0] + " / " + allowed[1]);
+    }
+
+    @Test
+    void idleKeysAreEvicted() {
+        LocalRateLimiter.Config config = config(10, 10);
+        long now = 0L;
+        this.rateLimiter.tryAcquire(ROUTE, "/users/1", config, 1, 0, now);
+        this.rateLimiter.tryAcquire(ROUTE, "/users/1", config, 1, 1, now);
+
+        this.rateLimiter.rebalance(now);
+        assertEquals(1, this.rateLimiter.size(ROUTE));
+
+        this.rateLimiter.rebalance(now + TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, this.rateLimiter.size(ROUTE));
+    }
+
+    private static LocalRateLimiter.Config config(int replenishRate, int burstCapacity) {
+        LocalRateLimiter.Config config = new LocalRateLimiter.Config();
+        config.setReplenishRate(replenishRate);
+        config.setBurstCapacity(burstCapacity);
+        return config;
+    }
+}
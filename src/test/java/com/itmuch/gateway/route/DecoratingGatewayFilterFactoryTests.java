@@ -0,0 +1,58 @@
+package com.itmuch.gateway.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DecoratingGatewayFilterFactoryTests {
+
+    private final List<String> applied = new ArrayList<>();
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void decoratorsApplyInOrderAndKeepFactoryMetadata() {
+        AddRequestHeaderGatewayFilterFactory original = new AddRequestHeaderGatewayFilterFactory();
+        List<GatewayFilterFactory> factories = DecoratingGatewayFilterFactory.decorate(
+                Collections.singletonList(original), Arrays.asList(decorator("outer", 100), decorator("inner", 0)));
+
+        GatewayFilterFactory factory = factories.get(0);
+        assertEquals("AddRequestHeader", factory.name());
+        assertEquals(original.shortcutFieldOrder(), factory.shortcutFieldOrder());
+        assertSame(original, ((DecoratingGatewayFilterFactory) factory).getDelegate());
+
+        factory.apply(factory.newConfig());
+        assertEquals(Arrays.asList("inner", "outer"), this.applied);
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    void noDecoratorsKeepsFactories() {
+        List<GatewayFilterFactory> factories = Collections.singletonList(new AddRequestHeaderGatewayFilterFactory());
+
+        assertSame(factories, DecoratingGatewayFilterFactory.decorate(factories, Collections.emptyList()));
+    }
+
+    private GatewayFilterDecorator decorator(String name, int order) {
+        return new GatewayFilterDecorator() {
+            @Override
+            public GatewayFilter decorate(GatewayFilter filter, GatewayFilterFactory<?> factory) {
+                DecoratingGatewayFilterFactoryTests.this.applied.add(name);
+                return filter;
+            }
+
+            @Override
+            public int getOrder() {
+                return order;
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.itmuch.gateway.route;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.handler.predicate.WeightRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.support.WeightConfig;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.WEIGHT_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.toAsyncPredicate;
+
+class IndexedRoutePredicateHandlerMappingTests {
+
+    private final List<RouteDefinition> definitions = Arrays.asList(
+            definition("green", "Path=/weighted/**", "Weight=canary,2"),
+            definition("blue", "Path=/weighted/**", "Weight=canary,8"));
+
+    /**
+     * 按定义中的 Weight 参数创建真正的 Weight 谓词
+     */
+    private final RouteCompiler compiler = new RouteCompiler(null, null, null) {
+        @Override
+        public List<Route> compile(List<RouteDefinition> definitions) {
+            WeightRoutePredicateFactory weights = new WeightRoutePredicateFactory();
+            return definitions.stream().map(definition -> {
+                PredicateDefinition weight = definition.getPredicates().get(1);
+                WeightConfig config = weights.newConfig();
+                config.setRouteId(definition.getId());
+                config.setGroup(weight.getArgs().get("_genkey_0"));
+                config.setWeight(Integer.parseInt(weight.getArgs().get("_genkey_1")));
+                return Route.async().id(definition.getId()).uri(definition.getUri())
+                        .asyncPredicate(toAsyncPredicate(weights.apply(config))).build();
+            }).collect(Collectors.toList());
+        }
+    };
+
+    private final RouteIndexManager manager = new RouteIndexManager(() -> Flux.fromIterable(this.definitions),
+            this.compiler);
+
+    @AfterEach
+    void destroy() {
+        this.manager.destroy();
+    }
+
+    private static RouteDefinition definition(String id, String... predicates) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId(id);
+        definition.setUri(URI.create("lb://" + id));
+        definition.setPredicates(Arrays.stream(predicates).map(PredicateDefinition::new).collect(Collectors.toList()));
+        return definition;
+    }
+
+    @Test
+    void weightRoutesSeeTheRouteBeingTested() {
+        this.manager.reload().block();
+        IndexedRoutePredicateHandlerMapping mapping = new IndexedRoutePredicateHandlerMapping(
+                new FilteringWebHandler(Collections.emptyList()), Flux::empty, new GlobalCorsProperties(),
+                new MockEnvironment(), this.manager);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/weighted/1"));
+        // WeightCalculatorWebFilter 为每个请求选出的分组路由
+        exchange.getAttributes().put(WEIGHT_ATTR, Collections.singletonMap("canary", "blue"));
+
+        Route route = mapping.lookupRoute(exchange).block();
+
+        assertEquals("blue", route.getId());
+        assertEquals("blue", exchange.getAttribute(GATEWAY_PREDICATE_ROUTE_ATTR));
+    }
+}
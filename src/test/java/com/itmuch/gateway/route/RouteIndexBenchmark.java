@@ -0,0 +1,111 @@
+package com.itmuch.gateway.route;
+
+import com.itmuch.gateway.JmhRunner;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由匹配：逐个执行谓词 vs 路由索引
+ *
+ *  ~ 每个路由：Path=/service-i/** ，请求命中最后一个路由（逐个匹配的最坏情况）
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteIndexBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int routeCount;
+
+    private List<Route> routes;
+
+    private RouteIndex index;
+
+    private MockServerWebExchange exchange;
+
+    private String path;
+
+    @Setup
+    public void setUp() {
+        PathRoutePredicateFactory pathFactory = new PathRoutePredicateFactory();
+        this.routes = new ArrayList<>(this.routeCount);
+        Map<String, RouteDefinition> definitions = new HashMap<>();
+        for (int i = 0; i < this.routeCount; i++) {
+            String pattern = "/service-" + i + "/**";
+            RouteDefinition definition = new RouteDefinition();
+            definition.setId("route-" + i);
+            definition.setUri(URI.create("lb://service-" + i));
+            definition.setPredicates(Collections.singletonList(new PredicateDefinition("Path=" + pattern)));
+            definitions.put(definition.getId(), definition);
+
+            PathRoutePredicateFactory.Config config = new PathRoutePredicateFactory.Config()
+                    .setPatterns(Collections.singletonList(pattern));
+            this.routes.add(Route.async()
+                    .id(definition.getId())
+                    .uri(definition.getUri())
+                    .order(0)
+                    .asyncPredicate(pathFactory.applyAsync(config))
+                    .build());
+        }
+        this.index = RouteIndex.build(this.routes, definitions, null);
+        this.path = "/service-" + (this.routeCount - 1) + "/items/1";
+        this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get(this.path));
+    }
+
+    @Benchmark
+    public Route linearScan() {
+        return match(Flux.fromIterable(this.routes));
+    }
+
+    @Benchmark
+    public Route indexedLookup() {
+        return match(Flux.fromIterable(this.index.candidates(this.path))
+                .filter(entry -> entry.getConstraints().accepts(this.exchange.getRequest()))
+                .map(RouteIndex.Entry::getRoute));
+    }
+
+    private Route match(Flux<Route> routes) {
+        return routes.concatMap(route -> Mono.just(route)
+                .filterWhen(r -> r.getPredicate().apply(this.exchange)))
+                .next()
+                .block();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        JmhRunner.run(RouteIndexBenchmark.class);
+    }
+}
@@ -0,0 +1,242 @@
+package com.itmuch.gateway.route;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteIndexManagerTests {
+
+    private final List<RouteDefinition> base = new ArrayList<>(Arrays.asList(
+            definition("user-center-id", "Path=/users/**", "TimeBetween=上午0:00,下午11:59"),
+            definition("content-center-id", "Path=/shares/**,/admin/**")));
+
+    private final List<String> compiled = new ArrayList<>();
+
+    private final List<String> compileThreads = new ArrayList<>();
+
+    private final RouteCompiler compiler = new RouteCompiler(null, null, null) {
+        @Override
+        public List<Route> compile(List<RouteDefinition> definitions) {
+            return definitions.stream().map(definition -> {
+                if (definition.getPredicates().stream().anyMatch(p -> p.getName().equals("Broken"))) {
+                    throw new IllegalArgumentException("Unable to find RoutePredicateFactory with name Broken");
+                }
+                RouteIndexManagerTests.this.compiled.add(definition.getId());
+                RouteIndexManagerTests.this.compileThreads.add(Thread.currentThread().getName());
+                return Route.async().id(definition.getId()).uri(definition.getUri())
+                        .order(definition.getOrder()).asyncPredicate(exchange -> Mono.just(true)).build();
+            }).collect(Collectors.toList());
+        }
+    };
+
+    private final RouteIndexManager manager = new RouteIndexManager(() -> Flux.fromIterable(this.base), this.compiler);
+
+    @AfterEach
+    void destroy() {
+        this.manager.destroy();
+    }
+
+    private static RouteDefinition definition(String id, String... predicates) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId(id);
+        definition.setUri(URI.create("lb://" + id));
+        definition.setPredicates(Arrays.stream(predicates).map(PredicateDefinition::new).collect(Collectors.toList()));
+        return definition;
+    }
+
+    @Test
+    void onlyChangedRoutesAreRecompiled() {
+        this.manager.reload().block();
+        Route users = this.manager.table().getRoute("user-center-id");
+        Route shares = this.manager.table().getRoute("content-center-id");
+        this.compiled.clear();
+
+        RouteDiff diff = this.manager.upsert(Collections.singletonList(
+                definition("content-center-id", "Path=/shares/**"))).block();
+
+        assertEquals(Collections.singletonList("content-center-id"), diff.getUpdated());
+        assertEquals(Collections.singletonList("content-center-id"), this.compiled);
+        assertSame(users, this.manager.table().getRoute("user-center-id"));
+        assertNotSame(shares, this.manager.table().getRoute("content-center-id"));
+        assertTrue(this.manager.table().getIndex().candidates("/admin/x").isEmpty());
+    }
+
+    @Test
+    void identicalReloadChangesNothing() {
+        this.manager.reload().block();
+        RouteTable table = this.manager.table();
+        this.compiled.clear();
+
+        RouteDiff diff = this.manager.reload().block();
+
+        assertTrue(diff.isEmpty());
+        assertTrue(this.compiled.isEmpty());
+        assertSame(table, this.manager.table());
+    }
+
+    @Test
+    void layersOverrideAndDeletesStick() {
+        this.manager.replaceFileRoutes(Collections.singletonList(definition("extra", "Path=/extra/**"))).block();
+        RouteDiff deleted = this.manager.delete("user-center-id").block();
+
+        assertEquals(Collections.singletonList("user-center-id"), deleted.getRemoved());
+        this.base.add(definition("discovered", "Path=/discovered/**"));
+        this.manager.reload().block();
+
+        assertEquals(Arrays.asList("content-center-id", "discovered", "extra"),
+                new ArrayList<>(this.manager.table().getDefinitions().keySet()));
+    }
+
+    @Test
+    void failedUpsertIsRolledBack() {
+        this.manager.reload().block();
+        RouteTable table = this.manager.table();
+
+        assertThrows(IllegalArgumentException.class, () -> this.manager.upsert(Collections.singletonList(
+                definition("broken", "Broken=x"))).block());
+        assertSame(table, this.manager.table());
+
+        // 失败的定义不会跟着下一次修改进入路由表
+        RouteDiff diff = this.manager.upsert(Collections.singletonList(definition("extra", "Path=/extra/**"))).block();
+        assertEquals(Collections.singletonList("extra"), diff.getAdded());
+        assertEquals(Arrays.asList("user-center-id", "content-center-id", "extra"),
+                new ArrayList<>(this.manager.table().getDefinitions().keySet()));
+    }
+
+    @Test
+    void lazyRoutesAreCompiledOnFirstUse() {
+        this.manager.setLazy(true);
+        this.manager.reload().block();
+        assertTrue(this.compiled.isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("user-center-id", "content-center-id")),
+                this.manager.table().getPending());
+
+        Route placeholder = this.manager.table().getRoute("user-center-id");
+        Route first = this.manager.resolve(placeholder).block();
+        Route second = this.manager.resolve(placeholder).block();
+        assertSame(first, second);
+        assertEquals(Collections.singletonList("user-center-id"), this.compiled);
+
+        // 写线程上排在替换占位路由之后
+        this.manager.reload().block();
+        assertSame(first, this.manager.table().getRoute("user-center-id"));
+        assertEquals(Collections.singleton("content-center-id"), this.manager.table().getPending());
+
+        assertEquals(1, this.manager.warmUp().block().intValue());
+        this.manager.reload().block();
+        assertTrue(this.manager.table().getPending().isEmpty());
+        assertEquals(Arrays.asList("user-center-id", "content-center-id"), this.compiled);
+    }
+
+    @Test
+    void pendingRoutesAreCompiledOffTheEventLoop() {
+        this.manager.setLazy(true);
+        this.manager.reload().block();
+        Route placeholder = this.manager.table().getRoute("user-center-id");
+
+        // parallel 调度器的线程与 Netty 事件循环一样是 NonBlocking 线程，不能在上面 block()
+        Route route = Mono.defer(() -> this.manager.resolve(placeholder))
+                .subscribeOn(Schedulers.parallel())
+                .block();
+
+        assertEquals("user-center-id", route.getId());
+        assertEquals(Collections.singletonList("route-table-writer"), this.compileThreads);
+    }
+
+    @Test
+    void snapshotRestoresRoutesBeforeDiscovery() throws IOException {
+        Path file = Files.createTempDirectory("route-snapshot").resolve("routes.json");
+        RouteSnapshot snapshot = new RouteSnapshot(file, new ObjectMapper());
+        this.manager.setSnapshot(snapshot);
+        this.manager.reload().block();
+
+        RouteIndexManager restarted = new RouteIndexManager(() -> Flux.fromIterable(this.base), this.compiler);
+        try {
+            restarted.restore(snapshot.load()).block();
+            assertEquals(2, restarted.table().getRoutes().size());
+            assertEquals(1, restarted.current().candidates("/users/1").size());
+
+            // 快照与服务发现返回的定义相同：不重新编译
+            this.compiled.clear();
+            assertTrue(restarted.reload().block().isEmpty());
+            assertTrue(this.compiled.isEmpty());
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    @Test
+    void expressionArgumentsAreRefused() {
+        this.manager.reload().block();
+        RouteTable table = this.manager.table();
+        RouteDefinition definition = definition("spel", "Path=/spel/**");
+        FilterDefinition filter = new FilterDefinition("AddRequestHeader=X-Leak, #{T(java.lang.Runtime).getRuntime()}");
+        definition.setFilters(Collections.singletonList(filter));
+        this.compiled.clear();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> this.manager.upsert(Collections.singletonList(definition)).block());
+
+        assertTrue(e.getMessage().contains("spel"));
+        assertTrue(this.compiled.isEmpty());
+        assertSame(table, this.manager.table());
+    }
+
+    @Test
+    void apiRoutesAreNotSnapshotted() throws IOException {
+        Path file = Files.createTempDirectory("route-snapshot").resolve("routes.json");
+        RouteSnapshot snapshot = new RouteSnapshot(file, new ObjectMapper());
+        this.manager.setSnapshot(snapshot);
+        this.manager.reload().block();
+
+        this.manager.upsert(Collections.singletonList(definition("extra", "Path=/extra/**"))).block();
+        this.manager.delete("user-center-id").block();
+        this.manager.replaceFileRoutes(Collections.singletonList(definition("file", "Path=/file/**"))).block();
+
+        assertEquals(Arrays.asList("user-center-id", "content-center-id", "file"),
+                snapshot.load().stream().map(RouteDefinition::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void adminEndpointRequiresToken() {
+        this.manager.reload().block();
+        RouteAdminEndpoint endpoint = new RouteAdminEndpoint(this.manager, "secret");
+
+        ResponseStatusException missing = assertThrows(ResponseStatusException.class,
+                () -> endpoint.delete(null, "user-center-id"));
+        ResponseStatusException wrong = assertThrows(ResponseStatusException.class,
+                () -> endpoint.delete("secreT", "user-center-id"));
+        assertEquals(HttpStatus.UNAUTHORIZED, missing.getStatus());
+        assertEquals(HttpStatus.UNAUTHORIZED, wrong.getStatus());
+        assertEquals(2, this.manager.table().getRoutes().size());
+
+        assertEquals(Collections.singletonList("user-center-id"),
+                endpoint.delete("secret", "user-center-id").block().getRemoved());
+    }
+}
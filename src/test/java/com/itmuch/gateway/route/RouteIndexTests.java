@@ -0,0 +1,89 @@
+package com.itmuch.gateway.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteIndexTests {
+
+    private final Map<String, RouteDefinition> definitions = new HashMap<>();
+
+    private Route route(String id, String... predicates) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId(id);
+        definition.setUri(URI.create("lb://" + id));
+        definition.setPredicates(Arrays.stream(predicates).map(PredicateDefinition::new).collect(Collectors.toList()));
+        this.definitions.put(id, definition);
+        return Route.async().id(id).uri(definition.getUri()).order(0)
+                .asyncPredicate(exchange -> Mono.just(true)).build();
+    }
+
+    private List<String> candidates(RouteIndex index, String path) {
+        return index.candidates(path).stream().map(e -> e.getRoute().getId()).collect(Collectors.toList());
+    }
+
+    @Test
+    void candidatesKeepRouteOrder() {
+        List<Route> routes = Arrays.asList(
+                route("user-center-id", "Path=/users/**", "TimeBetween=上午0:00,下午11:59"),
+                route("catch-all", "Host=example.org"),
+                route("content-center-id", "Path=/shares/**,/admin/**"),
+                route("user-detail", "Path=/users/{id}/detail"));
+        RouteIndex index = RouteIndex.build(routes, this.definitions, null);
+
+        assertEquals(Arrays.asList("user-center-id", "catch-all", "user-detail"), candidates(index, "/users/1/detail"));
+        assertEquals(Arrays.asList("catch-all", "content-center-id"), candidates(index, "/admin/shares"));
+        assertEquals(Arrays.asList("catch-all"), candidates(index, "/other"));
+    }
+
+    @Test
+    void encodedAndMatrixSegmentsFallBackToSubtree() {
+        List<Route> routes = Arrays.asList(
+                route("user-center-id", "Path=/users/**"),
+                route("catch-all", "Host=example.org"),
+                route("content-center-id", "Path=/shares/**,/admin/**"),
+                route("user-detail", "Path=/users/{id}/detail"));
+        RouteIndex index = RouteIndex.build(routes, this.definitions, null);
+
+        List<String> all = Arrays.asList("user-center-id", "catch-all", "content-center-id", "user-detail");
+        // 解码后是 /users/1 ，Path=/users/** 能匹配，不能只返回根节点的候选
+        assertEquals(all, candidates(index, "/us%65rs/1"));
+        assertEquals(all, candidates(index, "/users;v=1/1"));
+        // 已经走到 users 节点，之后的段含 ; 时返回 users 子树
+        assertEquals(Arrays.asList("user-center-id", "catch-all", "user-detail"),
+                candidates(index, "/users/1;v=2/detail"));
+    }
+
+    @Test
+    void methodHostAndHeaderConstraints() {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId("get-only");
+        definition.setPredicates(Arrays.asList(new PredicateDefinition("Method=GET"),
+                new PredicateDefinition("Host=example.org"), new PredicateDefinition("Header=X-Request-Id, \\d+")));
+        RouteConstraints constraints = RouteConstraints.of(definition);
+
+        assertTrue(constraints.accepts(MockServerHttpRequest.get("/x")
+                .header(HttpHeaders.HOST, "example.org:8040").header("X-Request-Id", "1").build()));
+        assertFalse(constraints.accepts(MockServerHttpRequest.post("/x")
+                .header(HttpHeaders.HOST, "example.org").header("X-Request-Id", "1").build()));
+        assertFalse(constraints.accepts(MockServerHttpRequest.get("/x")
+                .header(HttpHeaders.HOST, "other.org").header("X-Request-Id", "1").build()));
+        assertFalse(constraints.accepts(MockServerHttpRequest.get("/x")
+                .header(HttpHeaders.HOST, "example.org").build()));
+    }
+}
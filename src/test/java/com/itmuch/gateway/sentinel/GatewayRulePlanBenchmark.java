@@ -0,0 +1,105 @@
+package com.itmuch.gateway.sentinel;
+
+import com.alibaba.csp.sentinel.adapter.gateway.common.SentinelGatewayConstants;
+import com.alibaba.csp.sentinel.adapter.gateway.common.param.GatewayParamParser;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.ServerWebExchangeItemParser;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.api.GatewayApiMatcherManager;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.api.matcher.WebExchangeApiMatcher;
+import com.itmuch.gateway.JmhRunner;
+import com.itmuch.gateway.route.RouteTable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentinel 网关规则的参数解析：适配器原有路径 vs 按路由预编译的计划
+ *
+ *  ~ 10 个路由，ruleCount 条规则（一半针对路由，一半针对 API 分组），ruleCount / 10 个 API 分组
+ *  ~ 原有路径：每次请求按资源重新筛选规则、逐条解析参数，并用全部 API 分组匹配请求
+ *  ~ 预编译：每个属性只提取一次，只用与路由 Path 前缀有交集的 API 分组匹配请求
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GatewayRulePlanBenchmark {
+
+    private static final int ROUTES = 10;
+
+    @Param({"50", "500"})
+    public int ruleCount;
+
+    private final GatewayParamParser<ServerWebExchange> parser =
+            new GatewayParamParser<>(new ServerWebExchangeItemParser());
+
+    private GatewayRulePlans plans;
+
+    private ServerWebExchange exchange;
+
+    private String routeId;
+
+    @Setup
+    public void setUp() {
+        RouteTable table = SentinelRules.routeTable(ROUTES);
+        this.plans = new GatewayRulePlans(() -> table);
+        this.plans.install();
+        SentinelRules.load(ROUTES, this.ruleCount);
+
+        this.routeId = "route-3";
+        this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/service-3/api-13/items?user=42")
+                .header(HttpHeaders.HOST, "example.org")
+                .header("X-User-Id", "42")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 50000)));
+    }
+
+    @Benchmark
+    public void adapterPath(Blackhole blackhole) {
+        blackhole.consume(this.parser.parseParameterFor(this.routeId, this.exchange,
+                r -> r.getResourceMode() == SentinelGatewayConstants.RESOURCE_MODE_ROUTE_ID));
+        for (WebExchangeApiMatcher matcher : GatewayApiMatcherManager.getApiMatcherMap().values()) {
+            if (matcher.test(this.exchange)) {
+                blackhole.consume(this.parser.parseParameterFor(matcher.getApiName(), this.exchange,
+                        r -> r.getResourceMode() == SentinelGatewayConstants.RESOURCE_MODE_CUSTOM_API_NAME));
+            }
+        }
+    }
+
+    @Benchmark
+    public void compiledPlan(Blackhole blackhole) {
+        RoutePlan plan = this.plans.route(this.routeId);
+        blackhole.consume(plan.getParams().parse(this.exchange));
+        for (WebExchangeApiMatcher matcher : plan.getApiMatchers()) {
+            if (matcher.test(this.exchange)) {
+                blackhole.consume(this.plans.api(matcher.getApiName()).parse(this.exchange));
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        JmhRunner.run(GatewayRulePlanBenchmark.class);
+    }
+}
@@ -0,0 +1,82 @@
+package com.itmuch.gateway.sentinel;
+
+import com.alibaba.csp.sentinel.adapter.gateway.common.SentinelGatewayConstants;
+import com.alibaba.csp.sentinel.adapter.gateway.common.param.GatewayParamParser;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.ServerWebExchangeItemParser;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.api.GatewayApiMatcherManager;
+import com.alibaba.csp.sentinel.adapter.gateway.sc.api.matcher.WebExchangeApiMatcher;
+import com.itmuch.gateway.route.RouteTable;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GatewayRulePlansTests {
+
+    private static final int ROUTES = 10;
+
+    private final GatewayParamParser<ServerWebExchange> parser =
+            new GatewayParamParser<>(new ServerWebExchangeItemParser());
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .header(HttpHeaders.HOST, "example.org")
+                .header("X-User-Id", "42")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 50000)));
+    }
+
+    @Test
+    void paramsMatchTheAdapter() {
+        RouteTable table = SentinelRules.routeTable(ROUTES);
+        GatewayRulePlans plans = new GatewayRulePlans(() -> table);
+        plans.install();
+        SentinelRules.load(ROUTES, 50);
+
+        ServerWebExchange exchange = exchange("/service-3/api-3/items?user=42");
+        for (int i = 0; i < ROUTES; i++) {
+            String routeId = "route-" + i;
+            assertArrayEquals(this.parser.parseParameterFor(routeId, exchange,
+                    r -> r.getResourceMode() == SentinelGatewayConstants.RESOURCE_MODE_ROUTE_ID),
+                    plans.route(routeId).getParams().parse(exchange), routeId);
+        }
+        for (int i = 0; i < 5; i++) {
+            String apiName = "api-" + i;
+            assertArrayEquals(this.parser.parseParameterFor(apiName, exchange,
+                    r -> r.getResourceMode() == SentinelGatewayConstants.RESOURCE_MODE_CUSTOM_API_NAME),
+                    plans.api(apiName).parse(exchange), apiName);
+        }
+    }
+
+    @Test
+    void onlyOverlappingApisAreMatched() {
+        RouteTable table = SentinelRules.routeTable(ROUTES);
+        GatewayRulePlans plans = new GatewayRulePlans(() -> table);
+        plans.install();
+        SentinelRules.load(ROUTES, 200);
+
+        Set<String> candidates = new TreeSet<>();
+        for (WebExchangeApiMatcher matcher : plans.route("route-3").getApiMatchers()) {
+            candidates.add(matcher.getApiName());
+        }
+        assertEquals(new TreeSet<>(Arrays.asList("api-3", "api-13")), candidates);
+
+        ServerWebExchange exchange = exchange("/service-3/api-13/items");
+        Set<String> matched = new TreeSet<>();
+        for (WebExchangeApiMatcher matcher : GatewayApiMatcherManager.getApiMatcherMap().values()) {
+            if (matcher.test(exchange)) {
+                matched.add(matcher.getApiName());
+            }
+        }
+        assertEquals(new TreeSet<>(Collections.singleton("api-13")), matched);
+    }
+}
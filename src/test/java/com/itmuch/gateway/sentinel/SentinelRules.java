@@ -0,0 +1,118 @@
+package com.itmuch.gateway.sentinel;
+
+import com.alibaba.csp.sentinel.adapter.gateway.common.SentinelGatewayConstants;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.ApiDefinition;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.ApiPathPredicateItem;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.ApiPredicateItem;
+import com.alibaba.csp.sentinel.adapter.gateway.common.api.GatewayApiDefinitionManager;
+import com.alibaba.csp.sentinel.adapter.gateway.common.rule.GatewayFlowRule;
+import com.alibaba.csp.sentinel.adapter.gateway.common.rule.GatewayParamFlowItem;
+import com.alibaba.csp.sentinel.adapter.gateway.common.rule.GatewayRuleManager;
+import com.itmuch.gateway.route.RouteCompiler;
+import com.itmuch.gateway.route.RouteIndexManager;
+import com.itmuch.gateway.route.RouteTable;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 测试用的路由、网关规则与 API 分组
+ *
+ *  ~ routes 个路由：route-i ，Path=/service-i/**
+ *  ~ rules 条规则：一半针对路由，一半针对 API 分组；参数依次为 无参数/Header/URL 参数/客户端 IP/Host
+ *  ~ rules / 10 个 API 分组：api-i ，前缀 /service-(i % routes)/api-i/
+ */
+final class SentinelRules {
+
+    private SentinelRules() {
+    }
+
+    static RouteTable routeTable(int routes) {
+        List<RouteDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < routes; i++) {
+            RouteDefinition definition = new RouteDefinition();
+            definition.setId("route-" + i);
+            definition.setUri(URI.create("lb://service-" + i));
+            definition.setPredicates(Collections.singletonList(new PredicateDefinition("Path=/service-" + i + "/**")));
+            definitions.add(definition);
+        }
+        RouteIndexManager manager = new RouteIndexManager(() -> Flux.fromIterable(definitions),
+                new RouteCompiler(null, null, null) {
+                    @Override
+                    public List<Route> compile(List<RouteDefinition> changed) {
+                        return changed.stream().map(definition -> Route.async().id(definition.getId())
+                                .uri(definition.getUri()).order(0)
+                                .asyncPredicate(exchange -> Mono.just(true)).build())
+                                .collect(Collectors.toList());
+                    }
+                });
+        manager.reload().block();
+        RouteTable table = manager.table();
+        manager.destroy();
+        return table;
+    }
+
+    static void load(int routes, int rules) {
+        int apis = Math.max(1, rules / 10);
+        Set<ApiDefinition> definitions = new HashSet<>();
+        for (int i = 0; i < apis; i++) {
+            Set<ApiPredicateItem> items = new HashSet<>();
+            items.add(new ApiPathPredicateItem()
+                    .setPattern("/service-" + (i % routes) + "/api-" + i + "/**")
+                    .setMatchStrategy(SentinelGatewayConstants.URL_MATCH_STRATEGY_PREFIX));
+            definitions.add(new ApiDefinition("api-" + i).setPredicateItems(items));
+        }
+        GatewayApiDefinitionManager.loadApiDefinitions(definitions);
+
+        Set<GatewayFlowRule> flowRules = new HashSet<>();
+        for (int i = 0; i < rules; i++) {
+            boolean routeRule = i % 2 == 0;
+            GatewayFlowRule rule = new GatewayFlowRule(routeRule ? "route-" + (i / 2 % routes) : "api-" + (i / 2 % apis))
+                    .setResourceMode(routeRule ? SentinelGatewayConstants.RESOURCE_MODE_ROUTE_ID
+                            : SentinelGatewayConstants.RESOURCE_MODE_CUSTOM_API_NAME)
+                    .setCount(100000 + i)
+                    .setIntervalSec(1);
+            GatewayParamFlowItem item = paramItem(i / 2 % 5);
+            if (item != null) {
+                rule.setParamItem(item);
+            }
+            flowRules.add(rule);
+        }
+        GatewayRuleManager.loadRules(flowRules);
+    }
+
+    private static GatewayParamFlowItem paramItem(int kind) {
+        switch (kind) {
+            case 1:
+                return new GatewayParamFlowItem()
+                        .setParseStrategy(SentinelGatewayConstants.PARAM_PARSE_STRATEGY_HEADER)
+                        .setFieldName("X-User-Id");
+            case 2:
+                return new GatewayParamFlowItem()
+                        .setParseStrategy(SentinelGatewayConstants.PARAM_PARSE_STRATEGY_URL_PARAM)
+                        .setFieldName("user")
+                        .setPattern("4\\d")
+                        .setMatchStrategy(SentinelGatewayConstants.PARAM_MATCH_STRATEGY_REGEX);
+            case 3:
+                return new GatewayParamFlowItem()
+                        .setParseStrategy(SentinelGatewayConstants.PARAM_PARSE_STRATEGY_CLIENT_IP);
+            case 4:
+                return new GatewayParamFlowItem()
+                        .setParseStrategy(SentinelGatewayConstants.PARAM_PARSE_STRATEGY_HOST)
+                        .setPattern("example")
+                        .setMatchStrategy(SentinelGatewayConstants.PARAM_MATCH_STRATEGY_PREFIX);
+            default:
+                return null;
+        }
+    }
+}
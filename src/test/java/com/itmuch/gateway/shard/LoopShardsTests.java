@@ -0,0 +1,48 @@
+package com.itmuch.gateway.shard;
+
+import io.netty.util.concurrent.FastThreadLocalThread;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LoopShardsTests {
+
+    private final LoopShards shards = new LoopShards(4);
+
+    @Test
+    void eventLoopsGetOwnShardsWhateverTouchesFirst() throws InterruptedException {
+        // offload 、定时任务、Reactor parallel 、其他 Netty 线程先访问，不影响事件循环的分配
+        List<Integer> others = indexes(Arrays.asList("offload-1", "parallel-1"), Thread::new);
+        List<Integer> netty = indexes(Collections.singletonList("nioEventLoopGroup-2-1"), FastThreadLocalThread::new);
+        List<Integer> loops = indexes(Arrays.asList("reactor-http-nio-3", "reactor-http-nio-1",
+                "reactor-http-epoll-4", "reactor-http-nio-2"), FastThreadLocalThread::new);
+
+        assertEquals(Arrays.asList(3, 2), others);
+        assertEquals(Collections.singletonList(1), netty);
+        assertEquals(Arrays.asList(2, 0, 3, 1), loops);
+    }
+
+    @Test
+    void loopNumberComesFromTheThreadName() {
+        assertEquals(12, LoopShards.loopNumber("reactor-http-epoll-12"));
+        assertEquals(0, LoopShards.loopNumber("reactor-http-nio-select"));
+        assertEquals(0, LoopShards.loopNumber("parallel-3"));
+    }
+
+    private List<Integer> indexes(List<String> names, Function<Runnable, Thread> factory) throws InterruptedException {
+        List<Integer> indexes = Collections.synchronizedList(new ArrayList<>());
+        for (String name : names) {
+            Thread thread = factory.apply(() -> indexes.add(this.shards.index()));
+            thread.setName(name);
+            thread.start();
+            thread.join();
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,142 @@
+package com.itmuch.gateway.shard;
+
+import com.itmuch.gateway.JmhRunner;
+import com.itmuch.gateway.metrics.LatencyRecorder;
+import com.itmuch.gateway.ratelimit.LocalRateLimiter;
+import com.itmuch.gateway.ratelimit.ShardedRateLimiter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 共享状态 vs 按事件循环分片的状态，线程数从 1 到 32 时的吞吐（每微秒操作数）
+ *
+ *  ~ sharedCounter ：所有线程递增同一个 AtomicLong ，作为缓存行争用的基准
+ *  ~ sharedLatency / shardedLatency ：所有线程共用一个 HdrHistogram Recorder vs 每个线程一个
+ *  ~ localLimiter / shardedLimiter ：热点 key 上 LocalRateLimiter（一个令牌桶） vs ShardedRateLimiter（每个线程一份），
+ *      限额足够大，几乎所有请求都放行，测的是 CAS 路径
+ *
+ *  运行：mvn test -P benchmark ；打印扩展性表格。CPU 不少于 8 核时断言线程最多时分片版本不慢于共享版本
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ShardedStateBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    private static final String ROUTE = "hot-route";
+
+    private static final String KEY = "/users/{id}";
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private final LoopShards shards = new LoopShards(THREADS[THREADS.length - 1]);
+
+    private LatencyRecorder sharedRecorder;
+
+    private LatencyRecorder shardedRecorder;
+
+    private LocalRateLimiter localLimiter;
+
+    private ShardedRateLimiter shardedLimiter;
+
+    @Setup
+    public void setUp() {
+        this.sharedRecorder = new LatencyRecorder("shared", new LoopShards(1));
+        this.shardedRecorder = new LatencyRecorder("sharded", this.shards);
+
+        LocalRateLimiter.Config config = new LocalRateLimiter.Config();
+        config.setReplenishRate(1_000_000_000);
+        config.setBurstCapacity(1_000_000_000);
+        this.localLimiter = new LocalRateLimiter(null, 64, 16, 60);
+        this.localLimiter.getConfig().put(ROUTE, config);
+        this.shardedLimiter = new ShardedRateLimiter(null, this.shards, 64, 100);
+        this.shardedLimiter.getConfig().put(ROUTE, config);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.localLimiter.destroy();
+        this.shardedLimiter.destroy();
+    }
+
+    @Benchmark
+    public long sharedCounter() {
+        return this.counter.incrementAndGet();
+    }
+
+    @Benchmark
+    public void sharedLatency() {
+        this.sharedRecorder.record(1_000L);
+    }
+
+    @Benchmark
+    public void shardedLatency() {
+        this.shardedRecorder.record(1_000L);
+    }
+
+    @Benchmark
+    public Object localLimiter() {
+        return this.localLimiter.isAllowed(ROUTE, KEY).block();
+    }
+
+    @Benchmark
+    public Object shardedLimiter() {
+        return this.shardedLimiter.isAllowed(ROUTE, KEY).block();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        // benchmark -> 线程数 -> 吞吐
+        Map<String, Map<Integer, Double>> scores = new TreeMap<>();
+        for (int threads : THREADS) {
+            for (RunResult result : JmhRunner.run(ShardedStateBenchmark.class, threads)) {
+                String label = result.getPrimaryResult().getLabel();
+                scores.computeIfAbsent(label, k -> new LinkedHashMap<>())
+                        .put(threads, result.getPrimaryResult().getScore());
+            }
+        }
+
+        StringBuilder table = new StringBuilder(String.format("%-16s", "ops/us"));
+        for (int threads : THREADS) {
+            table.append(String.format("%10d", threads));
+        }
+        scores.forEach((label, byThreads) -> {
+            table.append(String.format("%n%-16s", label));
+            byThreads.values().forEach(score -> table.append(String.format("%10.1f", score)));
+        });
+        System.out.println(table);
+
+        // 核数不够时多个线程共用一个核，看不出缓存行争用
+        if (Runtime.getRuntime().availableProcessors() >= 8) {
+            int max = THREADS[THREADS.length - 1];
+            assertTrue(scores.get("shardedLatency").get(max) >= scores.get("sharedLatency").get(max));
+            assertTrue(scores.get("shardedLimiter").get(max) >= scores.get("localLimiter").get(max));
+        }
+    }
+}
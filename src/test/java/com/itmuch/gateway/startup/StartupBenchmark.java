@@ -0,0 +1,168 @@
+package com.itmuch.gateway.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmuch.gateway.ConcurrencyLimitGatewayFilterFactory;
+import com.itmuch.gateway.JmhRunner;
+import com.itmuch.gateway.PreLogGatewayFilterFactory;
+import com.itmuch.gateway.TimeBetweenRoutePredicateFactory;
+import com.itmuch.gateway.config.PreLogProperties;
+import com.itmuch.gateway.route.RouteCompiler;
+import com.itmuch.gateway.route.RouteIndexManager;
+import com.itmuch.gateway.route.RouteSnapshot;
+import com.itmuch.gateway.timewindow.CoarseClock;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时建立可用路由表的耗时（不含等待服务发现的时间）
+ *
+ *  ~ routeCount 个路由，每个路由：Path + TimeBetween 谓词，AddRequestHeader + PreLog + ConcurrencyLimit 过滤器，
+ *      使用真实的谓词工厂与过滤器工厂编译
+ *  ~ eager ：原来的方式，加载 base 定义时编译全部路由
+ *  ~ lazy ：gateway.startup.lazy-routes=true ，只生成占位路由
+ *  ~ snapshot ：lazy + 从快照文件恢复（读取 JSON），不访问 RouteDefinitionLocator（服务发现）
+ *  ~ firstRequest ：lazy 模式下第一次匹配到某个路由时的编译开销
+ *  运行：mvn test -P benchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"50", "500"})
+    public int routeCount;
+
+    private List<RouteDefinition> definitions;
+
+    private CoarseClock clock;
+
+    private PreLogGatewayFilterFactory preLog;
+
+    private RouteCompiler compiler;
+
+    private RouteSnapshot snapshot;
+
+    private RouteIndexManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.definitions = new ArrayList<>(this.routeCount);
+        for (int i = 0; i < this.routeCount; i++) {
+            this.definitions.add(definition(i));
+        }
+        this.clock = new CoarseClock(10);
+        this.preLog = new PreLogGatewayFilterFactory(new PreLogProperties());
+        List<RoutePredicateFactory> predicates = Arrays.asList(
+                new PathRoutePredicateFactory(), new TimeBetweenRoutePredicateFactory(this.clock));
+        List<GatewayFilterFactory> filters = Arrays.asList(
+                new AddRequestHeaderGatewayFilterFactory(), this.preLog, new ConcurrencyLimitGatewayFilterFactory());
+        this.compiler = new RouteCompiler(predicates, filters, new GatewayProperties());
+        this.compiler.setBeanFactory(new DefaultListableBeanFactory());
+
+        Path file = Files.createTempDirectory("startup-benchmark").resolve("routes.json");
+        this.snapshot = new RouteSnapshot(file, new ObjectMapper());
+        RouteIndexManager writer = manager(false);
+        writer.setSnapshot(this.snapshot);
+        writer.reload().block();
+        writer.destroy();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        this.clock.destroy();
+        this.preLog.destroy();
+    }
+
+    @TearDown(Level.Invocation)
+    public void destroyManager() {
+        if (this.manager != null) {
+            this.manager.destroy();
+            this.manager = null;
+        }
+    }
+
+    @Benchmark
+    public Object eager() {
+        this.manager = manager(false);
+        return this.manager.reload().block();
+    }
+
+    @Benchmark
+    public Object lazy() {
+        this.manager = manager(true);
+        return this.manager.reload().block();
+    }
+
+    @Benchmark
+    public Object snapshot() {
+        this.manager = manager(true);
+        return this.manager.restore(this.snapshot.load()).block();
+    }
+
+    @Benchmark
+    public Object firstRequest() {
+        return this.compiler.compile(Collections.singletonList(this.definitions.get(this.routeCount / 2)));
+    }
+
+    private RouteIndexManager manager(boolean lazy) {
+        RouteIndexManager manager = new RouteIndexManager(() -> Flux.fromIterable(this.definitions), this.compiler);
+        manager.setLazy(lazy);
+        return manager;
+    }
+
+    private static RouteDefinition definition(int i) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId("service-" + i);
+        definition.setUri(URI.create("lb://service-" + i));
+        PredicateDefinition time = new PredicateDefinition();
+        time.setName("TimeBetween");
+        time.addArg("windows", "00:00-23:59");
+        definition.setPredicates(Arrays.asList(new PredicateDefinition("Path=/service-" + i + "/**"), time));
+        definition.setFilters(Arrays.asList(new FilterDefinition("AddRequestHeader=X-Route, service-" + i),
+                new FilterDefinition("PreLog=a,b"), new FilterDefinition("ConcurrencyLimit=20,500")));
+        return definition;
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        JmhRunner.run(StartupBenchmark.class);
+    }
+}
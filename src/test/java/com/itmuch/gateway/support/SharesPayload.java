@@ -0,0 +1,41 @@
+package com.itmuch.gateway.support;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * content-center 的 /shares/** 响应样例：分享列表的 JSON
+ *
+ *  ~ 压缩测试、网关过滤器基准与压测桩上游共用
+ */
+public final class SharesPayload {
+
+    private SharesPayload() {
+    }
+
+    public static byte[] json(int shares) {
+        StringBuilder json = new StringBuilder(shares * 400).append("{\"code\":0,\"data\":[");
+        for (int i = 0; i < shares; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(1000 + i)
+                    .append(",\"userId\":").append(i % 17 + 1)
+                    .append(",\"title\":\"Spring Cloud Alibaba 实战笔记 第").append(i).append("篇\"")
+                    .append(",\"createTime\":\"2019-07-").append(10 + i % 20).append("T08:").append(10 + i % 50)
+                    .append(":00.000+0000\"")
+                    .append(",\"updateTime\":\"2019-07-").append(10 + i % 20).append("T09:00:00.000+0000\"")
+                    .append(",\"isOriginal\":").append(i % 3 == 0)
+                    .append(",\"author\":\"author-").append(i % 17).append('"')
+                    .append(",\"cover\":\"https://cdn.itmuch.com/cover/").append(Integer.toHexString(i * 7919))
+                    .append(".png\"")
+                    .append(",\"summary\":\"从注册中心、配置中心、网关到链路追踪，第").append(i)
+                    .append("部分介绍了各组件的原理与常见问题。\"")
+                    .append(",\"price\":").append(i % 5 * 10)
+                    .append(",\"downloadUrl\":\"https://pan.itmuch.com/s/").append(Long.toString(i * 104729L, 36))
+                    .append('"')
+                    .append(",\"buyCount\":").append(i * 31 % 997)
+                    .append(",\"showFlag\":true,\"auditStatus\":\"PASS\",\"reason\":\"\"}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
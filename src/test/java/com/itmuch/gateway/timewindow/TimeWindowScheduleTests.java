@@ -0,0 +1,55 @@
+package com.itmuch.gateway.timewindow;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeWindowScheduleTests {
+
+    private static long at(String dateTime) {
+        return LocalDateTime.parse(dateTime).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @Test
+    void boundariesAreInclusive() {
+        TimeWindowSchedule schedule = new TimeWindowSchedule(Collections.singletonList(
+                new TimeWindow(LocalTime.of(9, 0), LocalTime.of(17, 0), null)), ZoneOffset.UTC);
+
+        assertFalse(schedule.test(at("2019-08-10T08:59:59.999")));
+        assertTrue(schedule.test(at("2019-08-10T09:00:00")));
+        assertTrue(schedule.test(at("2019-08-10T17:00:00")));
+        assertFalse(schedule.test(at("2019-08-10T17:00:00.001")));
+    }
+
+    @Test
+    void overnightWindowWrapsPastMidnight() {
+        TimeWindowSchedule schedule = new TimeWindowSchedule(Collections.singletonList(
+                TimeWindow.parse("22:00-02:00", EnumSet.of(DayOfWeek.FRIDAY))), ZoneOffset.UTC);
+
+        // 2019-08-09 是周五
+        assertTrue(schedule.test(at("2019-08-09T23:30:00")));
+        assertTrue(schedule.test(at("2019-08-10T01:30:00")));
+        assertFalse(schedule.test(at("2019-08-10T03:00:00")));
+        assertFalse(schedule.test(at("2019-08-10T23:30:00")));
+    }
+
+    @Test
+    void multipleWindows() {
+        TimeWindowSchedule schedule = new TimeWindowSchedule(Arrays.asList(
+                TimeWindow.parse("09:00-12:00", null),
+                TimeWindow.parse("14:00-18:00", null)), ZoneOffset.UTC);
+
+        assertTrue(schedule.test(at("2019-08-10T10:00:00")));
+        assertFalse(schedule.test(at("2019-08-10T13:00:00")));
+        assertTrue(schedule.test(at("2019-08-10T15:00:00")));
+    }
+}
@@ -0,0 +1,128 @@
+package com.itmuch.gateway.tracing;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import zipkin2.Call;
+import zipkin2.Callback;
+import zipkin2.Span;
+import zipkin2.codec.Encoding;
+import zipkin2.codec.SpanBytesDecoder;
+import zipkin2.reporter.BytesMessageEncoder;
+import zipkin2.reporter.Sender;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地的 Zipkin 收集端：接收 POST /api/v2/spans（proto3），记录收到的批次数和 span
+ */
+final class StubZipkinCollector implements AutoCloseable {
+
+    private final List<Span> spans = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger messages = new AtomicInteger();
+
+    private final DisposableServer server;
+
+    StubZipkinCollector() {
+        this.server = HttpServer.create().port(0)
+                .route(routes -> routes.post("/api/v2/spans", (request, response) ->
+                        request.receive().aggregate().asByteArray().flatMap(bytes -> {
+                            this.spans.addAll(SpanBytesDecoder.PROTO3.decodeList(bytes));
+                            this.messages.incrementAndGet();
+                            return Mono.from(response.status(202).send());
+                        })))
+                .bindNow();
+    }
+
+    List<Span> getSpans() {
+        return this.spans;
+    }
+
+    int getMessages() {
+        return this.messages.get();
+    }
+
+    /**
+     * 用 HttpURLConnection 发送，相当于 Sleuth 中以 spring.zipkin.base-url 配置的 HTTP 发送器
+     */
+    Sender sender() {
+        String endpoint = "http://localhost:" + this.server.port() + "/api/v2/spans";
+        return new Sender() {
+            @Override
+            public Encoding encoding() {
+                return Encoding.PROTO3;
+            }
+
+            @Override
+            public int messageMaxBytes() {
+                return 512 * 1024;
+            }
+
+            @Override
+            public int messageSizeInBytes(List<byte[]> encodedSpans) {
+                return Encoding.PROTO3.listSizeInBytes(encodedSpans);
+            }
+
+            @Override
+            public Call<Void> sendSpans(List<byte[]> encodedSpans) {
+                byte[] message = BytesMessageEncoder.PROTO3.encode(encodedSpans);
+                return new PostCall(endpoint, message);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        this.server.disposeNow();
+    }
+
+    private static final class PostCall extends Call.Base<Void> {
+
+        private final String endpoint;
+
+        private final byte[] message;
+
+        private PostCall(String endpoint, byte[] message) {
+            this.endpoint = endpoint;
+            this.message = message;
+        }
+
+        @Override
+        protected Void doExecute() throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(this.endpoint).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-protobuf");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(this.message);
+            }
+            int status = connection.getResponseCode();
+            connection.disconnect();
+            if (status / 100 != 2) {
+                throw new IOException("Zipkin collector responded " + status);
+            }
+            return null;
+        }
+
+        @Override
+        protected void doEnqueue(Callback<Void> callback) {
+            try {
+                callback.onSuccess(doExecute());
+            } catch (IOException | RuntimeException ex) {
+                callback.onError(ex);
+            }
+        }
+
+        @Override
+        public Call<Void> clone() {
+            return new PostCall(this.endpoint, this.message);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.itmuch.gateway.tracing;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.sampler.Sampler;
+import com.itmuch.gateway.config.TracingConfiguration;
+import com.itmuch.gateway.config.TracingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.sleuth.zipkin2.ZipkinProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import zipkin2.codec.SpanBytesEncoder;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.Reporter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TracingTests {
+
+    private static zipkin2.Span span(long id) {
+        return zipkin2.Span.newBuilder().traceId(1L, id).id(id).name("get")
+                .kind(zipkin2.Span.Kind.SERVER).timestamp(1_000_000L).duration(10L).build();
+    }
+
+    private static Reporter<zipkin2.Span> reporter(StubZipkinCollector collector, MicrometerReporterMetrics metrics,
+                                                   int queuedMaxSpans, int messageTimeoutSeconds) {
+        ZipkinProperties zipkin = new ZipkinProperties();
+        zipkin.setEncoder(SpanBytesEncoder.PROTO3);
+        zipkin.setMessageTimeout(messageTimeoutSeconds);
+        TracingProperties properties = new TracingProperties();
+        properties.setQueuedMaxSpans(queuedMaxSpans);
+        return new TracingConfiguration().zipkinReporter(collector.sender(), metrics, zipkin, properties);
+    }
+
+    @Test
+    void spansAreBatched() {
+        MicrometerReporterMetrics metrics = new MicrometerReporterMetrics(new SimpleMeterRegistry());
+        try (StubZipkinCollector collector = new StubZipkinCollector()) {
+            AsyncReporter<zipkin2.Span> reporter = (AsyncReporter<zipkin2.Span>) reporter(collector, metrics, 1000, 0);
+            for (int i = 1; i <= 200; i++) {
+                reporter.report(span(i));
+            }
+            reporter.flush();
+            reporter.close();
+
+            assertEquals(200, collector.getSpans().size());
+            assertTrue(collector.getMessages() < 10, "messages: " + collector.getMessages());
+            assertEquals(0, metrics.getSpansDropped());
+        }
+    }
+
+    @Test
+    void fullQueueDropsAndCounts() {
+        MicrometerReporterMetrics metrics = new MicrometerReporterMetrics(new SimpleMeterRegistry());
+        try (StubZipkinCollector collector = new StubZipkinCollector()) {
+            AsyncReporter<zipkin2.Span> reporter = (AsyncReporter<zipkin2.Span>) reporter(collector, metrics, 10, 0);
+            for (int i = 1; i <= 50; i++) {
+                reporter.report(span(i));
+            }
+            reporter.flush();
+            reporter.close();
+
+            assertEquals(10, collector.getSpans().size());
+            assertEquals(40, metrics.getSpansDropped());
+        }
+    }
+
+    @Test
+    void unsampledErrorsAreReported() {
+        List<zipkin2.Span> reported = new CopyOnWriteArrayList<>();
+        try (Tracing tracing = Tracing.newBuilder().sampler(Sampler.NEVER_SAMPLE).build()) {
+            Tracer tracer = tracing.tracer();
+            TailSamplingGlobalFilter filter = new TailSamplingGlobalFilter(tracer, reported::add, "gateway", 1000, 100);
+            Span span = tracer.nextSpan();
+
+            MockServerWebExchange ok = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1"));
+            MockServerWebExchange failed = MockServerWebExchange.from(MockServerHttpRequest.get("/users/2"));
+            GatewayFilterChain chain = exchange -> {
+                if (exchange == failed) {
+                    exchange.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+                }
+                return Mono.empty();
+            };
+            try (Tracer.SpanInScope scope = tracer.withSpanInScope(span)) {
+                filter.filter(ok, chain).block();
+                filter.filter(failed, chain).block();
+            }
+
+            assertEquals(1, reported.size());
+            zipkin2.Span tail = reported.get(0);
+            assertEquals(span.context().traceIdString(), tail.traceId());
+            assertEquals("error", tail.tags().get("sampling"));
+            assertEquals("502", tail.tags().get("http.status_code"));
+            assertEquals("/users/2", tail.tags().get("http.path"));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.itmuch.gateway.upstream;
+
+import com.itmuch.gateway.config.UpstreamPoolProperties;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 共享连接池与按路由独立连接池的对比（本地桩上游）
+ *
+ *  ~ 两个本地 HTTP 桩服务：user-center 每个请求耗时 200ms ，content-center 立即返回
+ *  ~ user-center 被 400 个并发请求打满；同时以 8 并发向 content-center 发送 400 个请求
+ *  ~ 共享连接池（32 个连接）vs 独立连接池（user-center 24 个 + content-center 8 个），比较 content-center 的延迟
+ *
+ *  运行：mvn test -P benchmark
+ */
+@Tag("benchmark")
+class UpstreamPoolBenchmark {
+
+    private static final int FLOOD = 400;
+    private static final int PROBES = 400;
+
+    private DisposableServer userCenter;
+    private DisposableServer contentCenter;
+
+    @BeforeEach
+    void startStubs() {
+        this.userCenter = HttpServer.create().port(0)
+                .route(routes -> routes.get("/users/{id}", (request, response) ->
+                        response.sendString(Mono.just("user").delayElement(Duration.ofMillis(200)))))
+                .bindNow();
+        this.contentCenter = HttpServer.create().port(0)
+                .route(routes -> routes.get("/shares/{id}", (request, response) ->
+                        response.sendString(Mono.just("share"))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopStubs() {
+        this.userCenter.disposeNow();
+        this.contentCenter.disposeNow();
+    }
+
+    @Test
+    void isolatedPoolsKeepContentCenterFast() {
+        ConnectionProvider shared = ConnectionProvider.fixed("shared", 32, 30000L);
+        HttpClient sharedClient = UpstreamPool.httpClient(shared, profile(), properties());
+        Histogram sharedLatency = run(sharedClient, sharedClient);
+        shared.dispose();
+
+        ConnectionProvider users = ConnectionProvider.fixed("user-center", 24, 30000L);
+        ConnectionProvider contents = ConnectionProvider.fixed("content-center", 8, 30000L);
+        Histogram isolatedLatency = run(UpstreamPool.httpClient(users, profile(), properties()),
+                UpstreamPool.httpClient(contents, profile(), properties()));
+        users.dispose();
+        contents.dispose();
+
+        System.out.println(format("shared pool", sharedLatency));
+        System.out.println(format("isolated pools", isolatedLatency));
+
+        assertTrue(isolatedLatency.getValueAtPercentile(99D) * 5 < sharedLatency.getValueAtPercentile(99D));
+    }
+
+    private Histogram run(HttpClient userClient, HttpClient contentClient) {
+        String users = "http://localhost:" + this.userCenter.port() + "/users/1";
+        String shares = "http://localhost:" + this.contentCenter.port() + "/shares/1";
+
+        Disposable flood = Flux.range(0, FLOOD)
+                .flatMap(i -> userClient.get().uri(users).responseContent().aggregate().asString(), FLOOD)
+                .subscribe();
+        try {
+            // 等 user-center 的请求占满连接池
+            TimeUnit.MILLISECONDS.sleep(50L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Histogram latency = new Histogram(2);
+        Flux.range(0, PROBES)
+                .flatMap(i -> Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return contentClient.get().uri(shares).responseContent().aggregate().asString()
+                            .doOnNext(body -> latency.recordValue(
+                                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+                }), 8)
+                .blockLast(Duration.ofSeconds(60));
+        flood.dispose();
+        return latency;
+    }
+
+    private static UpstreamPoolProperties.Profile profile() {
+        return new UpstreamPoolProperties.Profile();
+    }
+
+    private static HttpClientProperties properties() {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setConnectTimeout(2000);
+        return properties;
+    }
+
+    private static String format(String name, Histogram latency) {
+        return String.format("%-15s content-center p50=%.1fms p99=%.1fms max=%.1fms", name,
+                latency.getValueAtPercentile(50D) / 1000D,
+                latency.getValueAtPercentile(99D) / 1000D,
+                latency.getMaxValue() / 1000D);
+    }
+}